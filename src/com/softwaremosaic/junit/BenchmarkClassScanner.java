@@ -0,0 +1,202 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.annotations.Benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+
+/**
+ * Finds the classes within directories and jar files that declare public @Benchmark methods.  A class
+ * is only loaded when its class file refers to the Benchmark annotation, so scanning a classpath that
+ * is mostly made up of other classes is cheap and does not run their static initialisers.  Classes are
+ * loaded, without being initialised, from the specified class loader; which must be able to see the
+ * directories and jars being scanned.  Classes that only inherit their @Benchmark methods are not found,
+ * as their class files do not refer to the annotation.
+ */
+class BenchmarkClassScanner {
+
+    private static final byte[] ANNOTATION_DESCRIPTOR = ("L" + Benchmark.class.getName().replace('.', '/') + ";").getBytes( Charset.forName("UTF-8") );
+
+
+    private final ClassLoader loader;
+
+    public BenchmarkClassScanner( ClassLoader loader ) {
+        this.loader = loader;
+    }
+
+    /**
+     * The directories on this JVM's classpath; the usual place to find benchmarks, as opposed to the
+     * jars of their dependencies.
+     */
+    public static List<File> getClasspathDirectories() {
+        List<File> dirs = new ArrayList<>();
+
+        for ( String entry : System.getProperty("java.class.path").split(File.pathSeparator) ) {
+            File f = new File( entry );
+
+            if ( !entry.isEmpty() && f.isDirectory() ) {
+                dirs.add( f );
+            }
+        }
+
+        return dirs;
+    }
+
+    /**
+     * The classes that declare public @Benchmark methods and can be instantiated by the
+     * StandaloneBenchmarkRunner, in alphabetical order.  Classes that fail to load are reported on
+     * stderr and skipped.
+     *
+     * @param roots directories of class files and jar files, entries that do not exist are ignored
+     */
+    public List<Class<?>> findBenchmarkClasses( List<File> roots ) throws IOException {
+        List<Class<?>> classes = new ArrayList<>();
+
+        for ( String className : findCandidateClassNames(roots) ) {
+            try {
+                Class<?> c = Class.forName( className, false, loader );
+
+                if ( isBenchmarkClass(c) ) {
+                    classes.add( c );
+                }
+            } catch ( ClassNotFoundException | LinkageError ex ) {
+                System.err.println( "Skipping " + className + ", unable to load it: " + ex );
+            }
+        }
+
+        return classes;
+    }
+
+    /**
+     * The names of the classes whose class files refer to the Benchmark annotation, without loading them.
+     */
+    public List<String> findCandidateClassNames( List<File> roots ) throws IOException {
+        SortedSet<String> classNames = new TreeSet<>();
+
+        for ( File root : roots ) {
+            if ( root.isDirectory() ) {
+                scanDirectory( root, "", classNames );
+            } else if ( root.isFile() && root.getName().endsWith(".jar") ) {
+                scanJar( root, classNames );
+            }
+        }
+
+        return new ArrayList<>( classNames );
+    }
+
+    static boolean isBenchmarkClass( Class<?> c ) {
+        int modifiers = c.getModifiers();
+
+        if ( !Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers) || c.isInterface() || c.isAnnotation() || c.isEnum() ) {
+            return false;
+        } else if ( c.getEnclosingClass() != null && !Modifier.isStatic(modifiers) ) {
+            return false;  // inner classes need an instance of their outer class to be created
+        }
+
+        for ( Method m : c.getMethods() ) {
+            if ( m.isAnnotationPresent(Benchmark.class) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void scanDirectory( File dir, String packagePrefix, SortedSet<String> classNames ) throws IOException {
+        File[] files = dir.listFiles();
+
+        if ( files == null ) {
+            return;
+        }
+
+        for ( File f : files ) {
+            String name = f.getName();
+
+            if ( f.isDirectory() ) {
+                scanDirectory( f, packagePrefix + name + ".", classNames );
+            } else if ( isCandidateClassFile(name) ) {
+                try ( InputStream in = new FileInputStream(f) ) {
+                    if ( refersToBenchmarkAnnotation(in) ) {
+                        classNames.add( packagePrefix + name.substring(0, name.length()-".class".length()) );
+                    }
+                }
+            }
+        }
+    }
+
+    private void scanJar( File jar, SortedSet<String> classNames ) throws IOException {
+        try ( JarFile jarFile = new JarFile(jar) ) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+
+            while ( entries.hasMoreElements() ) {
+                JarEntry entry = entries.nextElement();
+                String   name  = entry.getName();
+
+                if ( !entry.isDirectory() && isCandidateClassFile(name) ) {
+                    try ( InputStream in = jarFile.getInputStream(entry) ) {
+                        if ( refersToBenchmarkAnnotation(in) ) {
+                            classNames.add( name.substring(0, name.length()-".class".length()).replace('/', '.') );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips module-info, package-info and anonymous classes (Outer$1), none of which can hold a benchmark.
+     */
+    private static boolean isCandidateClassFile( String fileName ) {
+        if ( !fileName.endsWith(".class") || fileName.endsWith("module-info.class") || fileName.endsWith("package-info.class") ) {
+            return false;
+        }
+
+        int i = fileName.lastIndexOf( '$' );
+
+        return i < 0 || i+1 >= fileName.length() || !Character.isDigit( fileName.charAt(i+1) );
+    }
+
+    /**
+     * The annotation's type descriptor is held in the class file's constant pool, as plain ascii.
+     */
+    private static boolean refersToBenchmarkAnnotation( InputStream in ) throws IOException {
+        ByteArrayOutputStream buf   = new ByteArrayOutputStream();
+        byte[]                chunk = new byte[8192];
+
+        for ( int n=in.read(chunk); n >= 0; n=in.read(chunk) ) {
+            buf.write( chunk, 0, n );
+        }
+
+        return indexOf( buf.toByteArray(), ANNOTATION_DESCRIPTOR ) >= 0;
+    }
+
+    static int indexOf( byte[] bytes, byte[] target ) {
+        outer:
+        for ( int i=0; i<=bytes.length-target.length; i++ ) {
+            for ( int j=0; j<target.length; j++ ) {
+                if ( bytes[i+j] != target[j] ) {
+                    continue outer;
+                }
+            }
+
+            return i;
+        }
+
+        return -1;
+    }
+
+}
@@ -0,0 +1,450 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.benchmark.BenchmarkRecord;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.benchmark.SampleStatistics;
+import com.softwaremosaic.junit.benchmark.report.BenchmarkReportMain;
+import com.softwaremosaic.junit.benchmark.report.BenchmarkSeries;
+import com.softwaremosaic.junit.benchmark.report.ChangeLog;
+import com.softwaremosaic.junit.benchmark.report.ReportRenderer;
+import com.softwaremosaic.junit.io.IndentWriter;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * Runs a suite of benchmarks from the command line, without JUnit.  Scans the classpath for classes
+ * with public @Benchmark methods and runs each selected method just as the JUnitMosaicRunner would
+ * (honouring @Before, @After, forks, history and the limits of every benchmark, and running the
+ * @BeforeClass and @AfterClass methods of each class once around all of its selected benchmarks);
+ * but no @Test methods are run, and no time is spent on JUnit's runners, listeners or the tests that
+ * would otherwise share the JVM.<p/>
+ *
+ * <pre>
+ * java com.softwaremosaic.junit.BenchmarkSuiteMain
+ *     [--scan path] [--include regex] [--exclude regex] [--format text,html,json,com.example.MyRenderer]
+ *     [--out dir] [--list]
+ * </pre>
+ *
+ * The scan path lists the directories and jars to search, separated by the platform's path separator;
+ * it defaults to the directories on the classpath.  The classes found must also be on the classpath.
+ * Benchmarks are selected by searching for the include and exclude patterns within
+ * 'className.methodName'.  The text format prints a summary of the suite once every benchmark has run,
+ * other formats render the results of this run into the output directory using the ReportRenderer of
+ * the same name (see BenchmarkReportMain).  --list prints the selected benchmarks without running them.
+ * The exit status is 1 when any benchmark failed.
+ */
+public class BenchmarkSuiteMain {
+
+    public static final String DEFAULT_OUTPUT_DIR = "target/benchmark-results";
+
+    private static final Comparator<FrameworkMethod> METHODS_BY_NAME = new Comparator<FrameworkMethod>() {
+        public int compare( FrameworkMethod a, FrameworkMethod b ) {
+            return a.getName().compareTo( b.getName() );
+        }
+    };
+
+    private static final String USAGE = "usage: BenchmarkSuiteMain [--scan path] [--include regex] [--exclude regex] [--format text,html,json,<ReportRenderer class>] [--out dir] [--list]";
+
+
+    public static void main( String[] args ) throws IOException {
+        BenchmarkSuiteMain suite;
+
+        try {
+            suite = parseArgs( args );
+        } catch ( IllegalArgumentException ex ) {
+            System.err.println( ex.getMessage() );
+            System.err.println( USAGE );
+            System.exit( 1 );
+
+            return;
+        }
+
+        if ( suite.isListOnly() ) {
+            for ( String name : suite.listBenchmarks() ) {
+                System.out.println( name );
+            }
+
+            return;
+        }
+
+        if ( JUnitMosaicRunner.areAssertionsEnabled ) {
+            System.err.println( "Benchmarks skipped because assertions are enabled, remove the -ea flag from the java process" );
+            System.exit( 1 );
+        }
+
+        int failureCount = suite.run();
+
+        System.exit( failureCount == 0 ? 0 : 1 );  // do not wait for any non-daemon threads started by the benchmarks
+    }
+
+    public static BenchmarkSuiteMain parseArgs( String[] args ) {
+        List<File> scanPath  = BenchmarkClassScanner.getClasspathDirectories();
+        Pattern    include   = null;
+        Pattern    exclude   = null;
+        String     formats   = "text";
+        File       outputDir = new File( DEFAULT_OUTPUT_DIR );
+        boolean    listOnly  = false;
+
+        for ( int i=0; i<args.length; i++ ) {
+            String arg = args[i];
+
+            if ( "--list".equals(arg) ) {
+                listOnly = true;
+
+                continue;
+            } else if ( i+1 >= args.length ) {
+                throw new IllegalArgumentException( "Missing value for " + arg );
+            }
+
+            String value = args[++i];
+
+            if ( "--scan".equals(arg) ) {
+                scanPath = new ArrayList<>();
+
+                for ( String entry : value.split(File.pathSeparator) ) {
+                    if ( !entry.isEmpty() ) {
+                        scanPath.add( new File(entry) );
+                    }
+                }
+            } else if ( "--include".equals(arg) ) {
+                include = Pattern.compile( value );
+            } else if ( "--exclude".equals(arg) ) {
+                exclude = Pattern.compile( value );
+            } else if ( "--format".equals(arg) ) {
+                formats = value;
+            } else if ( "--out".equals(arg) ) {
+                outputDir = new File( value );
+            } else {
+                throw new IllegalArgumentException( "Unknown option " + arg );
+            }
+        }
+
+        boolean              printSummary = false;
+        List<ReportRenderer> renderers    = new ArrayList<>();
+
+        for ( String format : formats.split(",") ) {
+            if ( "text".equalsIgnoreCase(format.trim()) ) {
+                printSummary = true;
+            } else {
+                renderers.add( BenchmarkReportMain.createRenderer(format.trim()) );
+            }
+        }
+
+        return new BenchmarkSuiteMain( scanPath, outputDir, renderers )
+            .withInclude( include )
+            .withExclude( exclude )
+            .withSummary( printSummary )
+            .withListOnly( listOnly );
+    }
+
+
+    private final List<File>           scanPath;
+    private final File                 outputDir;
+    private final List<ReportRenderer> renderers;
+
+    private Pattern include;
+    private Pattern exclude;
+    private boolean printSummary = true;
+    private boolean listOnly     = false;
+
+    private final Map<String,List<BenchmarkResult>> results  = new LinkedHashMap<>();
+    private final Map<String,Throwable>             failures = new LinkedHashMap<>();
+
+    public BenchmarkSuiteMain( List<File> scanPath, File outputDir, List<ReportRenderer> renderers ) {
+        this.scanPath  = scanPath;
+        this.outputDir = outputDir;
+        this.renderers = renderers;
+    }
+
+    /**
+     * Only run benchmarks whose 'className.methodName' contains a match for the specified pattern.  Null
+     * runs all benchmarks.
+     */
+    public BenchmarkSuiteMain withInclude( Pattern include ) {
+        this.include = include;
+
+        return this;
+    }
+
+    /**
+     * Skip benchmarks whose 'className.methodName' contains a match for the specified pattern, even when
+     * they match the include pattern.  Null skips none.
+     */
+    public BenchmarkSuiteMain withExclude( Pattern exclude ) {
+        this.exclude = exclude;
+
+        return this;
+    }
+
+    /**
+     * Print a summary of every result once the whole suite has run.  Defaults to true.
+     */
+    public BenchmarkSuiteMain withSummary( boolean printSummary ) {
+        this.printSummary = printSummary;
+
+        return this;
+    }
+
+    public BenchmarkSuiteMain withListOnly( boolean listOnly ) {
+        this.listOnly = listOnly;
+
+        return this;
+    }
+
+    public boolean isListOnly() {
+        return listOnly;
+    }
+
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * The selected benchmarks, as 'className.methodName', in the order that they will be run; alphabetical
+     * by class and then by method.
+     */
+    public List<String> listBenchmarks() throws IOException {
+        List<String> names = new ArrayList<>();
+
+        for ( SelectedClass selected : selectBenchmarks() ) {
+            names.addAll( selected.methods.keySet() );
+        }
+
+        return names;
+    }
+
+    /**
+     * Runs every selected benchmark, carrying on past any that fail, and then writes out the results.
+     * The @BeforeClass and @AfterClass methods of each class run once, around all of its selected
+     * benchmarks.
+     *
+     * @return the number of benchmarks that failed, counting a class whose @BeforeClass or @AfterClass
+     *         failed as one
+     */
+    public int run() throws IOException {
+        results.clear();
+        failures.clear();
+
+        for ( final SelectedClass selected : selectBenchmarks() ) {
+            Statement evaluateMethods = new Statement() {
+                public void evaluate() {
+                    for ( Map.Entry<String,FrameworkMethod> e : selected.methods.entrySet() ) {
+                        evaluateBenchmark( selected.runner, e.getKey(), e.getValue() );
+                    }
+                }
+            };
+
+            try {
+                selected.runner.evaluateWithinClassFixtures( evaluateMethods );
+            } catch ( Throwable ex ) {  // the benchmarks catch their own failures, so this came from @BeforeClass or @AfterClass
+                recordFailure( selected.runner.getBenchmarkClass().getName(), ex );
+            }
+        }
+
+        writeResults();
+
+        return failures.size();
+    }
+
+    private void evaluateBenchmark( StandaloneBenchmarkRunner runner, String name, FrameworkMethod method ) {
+        List<BenchmarkResult> reported = new ArrayList<>();
+
+        try {
+            runner.evaluate( method, reported );
+        } catch ( Throwable ex ) {
+            recordFailure( name, ex );
+        }
+
+        results.put( name, reported );
+    }
+
+    private void recordFailure( String name, Throwable ex ) {
+        failures.put( name, ex );
+
+        System.err.println( name + " failed: " + ex );
+        if ( !(ex instanceof AssertionError) ) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * The results of the last run, keyed by 'className.methodName'.  Benchmarks that failed their limits
+     * still have results; those that failed to run have none.
+     */
+    public Map<String,List<BenchmarkResult>> getResults() {
+        return results;
+    }
+
+    /**
+     * Why each benchmark that failed during the last run failed, keyed by 'className.methodName'; or by
+     * 'className' when the class's @BeforeClass or @AfterClass methods failed.
+     */
+    public Map<String,Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Each benchmark gives one series per size and thread count that it was run with, see
+     * BenchmarkSeries.splitByParameters().
+     */
+    private void writeResults() throws IOException {
+        List<BenchmarkSeries> series = new ArrayList<>();
+
+        for ( List<BenchmarkResult> benchmarkResults : results.values() ) {
+            if ( benchmarkResults.isEmpty() ) {
+                continue;
+            }
+
+            List<BenchmarkRecord> records = new ArrayList<>( benchmarkResults.size() );
+            for ( BenchmarkResult result : benchmarkResults ) {
+                records.add( BenchmarkRecord.fromResult(result) );
+            }
+
+            BenchmarkResult first = benchmarkResults.get( 0 );
+            series.addAll( BenchmarkSeries.splitByParameters(first.getClassName(), first.getMethodName(), records) );
+        }
+
+        for ( ReportRenderer renderer : renderers ) {
+            renderer.render( series, ChangeLog.NONE, outputDir );
+        }
+
+        if ( !renderers.isEmpty() ) {
+            System.out.println( "Results of " + results.size() + " benchmarks written to " + outputDir.getAbsolutePath() );
+        }
+
+        if ( printSummary ) {
+            System.out.println( getSummary() );
+        }
+    }
+
+    /**
+     * One line per result of the last run, giving its mean time per call and confidence interval, followed
+     * by the benchmarks that failed.
+     */
+    public String getSummary() {
+        IndentWriter out       = new IndentWriter( new StringBuilder(), "    " );
+        int          nameWidth = 0;
+
+        for ( Map.Entry<String,List<BenchmarkResult>> e : results.entrySet() ) {
+            for ( BenchmarkResult result : e.getValue() ) {
+                nameWidth = Math.max( nameWidth, describe(e.getKey(), result).length() );
+            }
+        }
+
+        out.println( "Benchmark suite: " + results.size() + " benchmarks run, " + failures.size() + " failed" );
+        out.newLine();
+        out.incIndent();
+
+        for ( Map.Entry<String,List<BenchmarkResult>> e : results.entrySet() ) {
+            for ( BenchmarkResult result : e.getValue() ) {
+                SampleStatistics stats = result.getStatistics();
+
+                out.println( String.format("%-" + nameWidth + "s  %s per %s +/- %s",
+                    describe(e.getKey(), result),
+                    BenchmarkResult.formatNanos( stats.getMean() ),
+                    result.getUnits(),
+                    BenchmarkResult.formatNanos( stats.getConfidenceIntervalHalfWidth(BenchmarkResult.CONFIDENCE_LEVEL) )
+                ) );
+            }
+        }
+
+        if ( !failures.isEmpty() ) {
+            out.newLine();
+            out.println( "failed:" );
+            out.incIndent();
+
+            for ( Map.Entry<String,Throwable> e : failures.entrySet() ) {
+                out.println( e.getKey() + ": " + describeFailure(e.getValue()) );
+            }
+
+            out.decIndent();
+        }
+
+        out.decIndent();
+
+        return out.toString();
+    }
+
+    /**
+     * The first line of the failure's message; the details have already been printed to stderr.
+     */
+    private static String describeFailure( Throwable ex ) {
+        String message = ex.getMessage();
+
+        if ( message == null ) {
+            return ex.getClass().getName();
+        }
+
+        int i = message.indexOf( '\n' );
+
+        return i < 0 ? message : message.substring( 0, i );
+    }
+
+    private static String describe( String name, BenchmarkResult result ) {
+        return result.getParameters().isEmpty() ? name : name + " (" + result.getParameters() + ")";
+    }
+
+    private boolean isSelected( String name ) {
+        return (include == null || include.matcher(name).find()) && (exclude == null || !exclude.matcher(name).find());
+    }
+
+    private List<SelectedClass> selectBenchmarks() throws IOException {
+        BenchmarkClassScanner scanner  = new BenchmarkClassScanner( BenchmarkSuiteMain.class.getClassLoader() );
+        List<SelectedClass>   selected = new ArrayList<>();
+
+        for ( Class<?> c : scanner.findBenchmarkClasses(scanPath) ) {
+            StandaloneBenchmarkRunner runner;
+
+            try {
+                runner = new StandaloneBenchmarkRunner( c );
+            } catch ( IllegalArgumentException ex ) {  // thrown by JUnit's TestClass, for example when there is more than one constructor
+                System.err.println( "Skipping " + c.getName() + ": " + ex.getMessage() );
+
+                continue;
+            }
+
+            List<FrameworkMethod> methods = new ArrayList<>( runner.getBenchmarkMethods() );
+            Collections.sort( methods, METHODS_BY_NAME );
+
+            SelectedClass selectedClass = new SelectedClass( runner );
+            for ( FrameworkMethod method : methods ) {
+                String name = c.getName() + "." + method.getName();
+
+                if ( isSelected(name) ) {
+                    selectedClass.methods.put( name, method );
+                }
+            }
+
+            if ( !selectedClass.methods.isEmpty() ) {
+                selected.add( selectedClass );
+            }
+        }
+
+        return selected;
+    }
+
+
+    /**
+     * The selected benchmark methods of one class, keyed by 'className.methodName'.
+     */
+    private static class SelectedClass {
+        private final StandaloneBenchmarkRunner            runner;
+        private final LinkedHashMap<String,FrameworkMethod> methods = new LinkedHashMap<>();
+
+        public SelectedClass( StandaloneBenchmarkRunner runner ) {
+            this.runner = runner;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.benchmark.BenchmarkFork;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import org.junit.runners.model.FrameworkMethod;
+
+
+/**
+ * Entry point of the JVMs started by BenchmarkFork.  Runs a single @Benchmark method and sends its
+ * results back to the parent JVM.<p/>
+ *
+ * Usage: ForkedBenchmarkMain className methodName
+ */
+public class ForkedBenchmarkMain {
+
+    public static void main( String[] args ) throws Throwable {
+        if ( args.length != 2 ) {
+            System.err.println( "Usage: ForkedBenchmarkMain className methodName" );
+            System.exit( 1 );
+        }
+
+        StandaloneBenchmarkRunner runner = new StandaloneBenchmarkRunner( Class.forName(args[0]) );
+        FrameworkMethod           method = runner.fetchBenchmarkMethod( args[1] );
+
+        for ( BenchmarkResult result : runner.run(method) ) {
+            BenchmarkFork.sendResult( System.out, result );
+        }
+
+        System.exit( 0 );  // do not wait for any non-daemon threads started by the benchmark
+    }
+
+}
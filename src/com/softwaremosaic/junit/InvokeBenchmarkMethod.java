@@ -0,0 +1,924 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
+import com.softwaremosaic.junit.annotations.Level;
+import com.softwaremosaic.junit.benchmark.AllocationMonitor;
+import com.softwaremosaic.junit.benchmark.BaselineFile;
+import com.softwaremosaic.junit.benchmark.BatchMeasurement;
+import com.softwaremosaic.junit.benchmark.BenchmarkComparison;
+import com.softwaremosaic.junit.benchmark.BenchmarkFixture;
+import com.softwaremosaic.junit.benchmark.BenchmarkFork;
+import com.softwaremosaic.junit.benchmark.BenchmarkHistory;
+import com.softwaremosaic.junit.benchmark.BenchmarkInvoker;
+import com.softwaremosaic.junit.benchmark.BenchmarkInvokerFactory;
+import com.softwaremosaic.junit.benchmark.BenchmarkRecord;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.benchmark.Blackhole;
+import com.softwaremosaic.junit.benchmark.ConcurrentBatchRunner;
+import com.softwaremosaic.junit.benchmark.CpuTimeMonitor;
+import com.softwaremosaic.junit.benchmark.Footprint;
+import com.softwaremosaic.junit.benchmark.FootprintMeter;
+import com.softwaremosaic.junit.benchmark.GcMonitor;
+import com.softwaremosaic.junit.benchmark.HarnessCalibration;
+import com.softwaremosaic.junit.benchmark.InvocationFixtureInvoker;
+import com.softwaremosaic.junit.benchmark.IterationCountCalibrator;
+import com.softwaremosaic.junit.benchmark.JitMonitor;
+import com.softwaremosaic.junit.benchmark.OsCounterMonitor;
+import com.softwaremosaic.junit.benchmark.OsCounters;
+import com.softwaremosaic.junit.benchmark.RegressionGate;
+import com.softwaremosaic.junit.benchmark.SamplingInvoker;
+import com.softwaremosaic.junit.benchmark.ScalingReport;
+import com.softwaremosaic.junit.benchmark.SizeSweepReport;
+import com.softwaremosaic.junit.benchmark.StackProfile;
+import com.softwaremosaic.junit.benchmark.StackSampler;
+import com.softwaremosaic.junit.benchmark.StallMonitor;
+import com.softwaremosaic.junit.benchmark.TimeBox;
+import com.softwaremosaic.junit.lang.TestExecutionLock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.internal.runners.statements.RunAfters;
+import org.junit.internal.runners.statements.RunBefores;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+
+/**
+ * Times a method annotated with @Benchmark.  All of the batches are measured first, and then
+ * the result is reported once; keeping the printing of results out of the timed work.  Benchmarks
+ * that declare threads() are measured once per thread count, giving one result for each.  Benchmarks
+ * that declare sizes() are measured once per size (and thread count), each on a fresh instance of the
+ * benchmark class.  Benchmarks that declare compareWith() are measured together with the other method,
+ * batch by batch.
+ */
+@SuppressWarnings("unchecked")
+class InvokeBenchmarkMethod extends Statement {
+
+    private static final int JIT_QUIET_BATCHES          = 2;
+    private static final int BASELINE_RUN_COUNT         = 5;
+    private static final int MAX_REPLACEMENTS_PER_BATCH = 2;
+
+    private final FrameworkMethod   fTestMethod;
+    private final Object            fTarget;
+    private final Benchmark         annotation;
+    private final AllocationMonitor allocationMonitor = new AllocationMonitor();
+    private final CpuTimeMonitor    cpuTimeMonitor    = new CpuTimeMonitor();
+    private final OsCounterMonitor  osCounterMonitor  = new OsCounterMonitor();
+    private final Blackhole         blackhole         = new Blackhole();
+
+    private JitMonitor   jitMonitor   = new JitMonitor();
+    private GcMonitor    gcMonitor    = new GcMonitor();
+    private StallMonitor stallMonitor = new StallMonitor();
+
+    public InvokeBenchmarkMethod( FrameworkMethod testMethod, Object target, Benchmark annotation ) {
+        fTestMethod     = testMethod;
+        fTarget         = target;
+        this.annotation = annotation;
+    }
+
+    /**
+     * Replaces the source of the JVM's compilation time, which decides when warm up has settled and
+     * which batches overlapped with JIT compilation.
+     */
+    InvokeBenchmarkMethod withJitMonitor( JitMonitor jitMonitor ) {
+        this.jitMonitor = jitMonitor;
+
+        return this;
+    }
+
+    /**
+     * Replaces the source of the JVM's garbage collection counts, which decides which batches
+     * overlapped with a GC.
+     */
+    InvokeBenchmarkMethod withGcMonitor( GcMonitor gcMonitor ) {
+        this.gcMonitor = gcMonitor;
+
+        return this;
+    }
+
+    /**
+     * Replaces the source of the system stall readings, which decides which batches stalled.
+     */
+    InvokeBenchmarkMethod withStallMonitor( StallMonitor stallMonitor ) {
+        this.stallMonitor = stallMonitor;
+
+        return this;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        evaluate( new ArrayList<BenchmarkResult>() );
+    }
+
+    /**
+     * Measures, reports and records the benchmark and then checks it against its limits.  The benchmark's
+     * own results (not those of compareWith()) are added to 'reported' before the limits are checked, so
+     * that they are available to the caller even when the check fails.
+     */
+    public void evaluate( List<BenchmarkResult> reported ) throws Throwable {
+        TestExecutionLock.acquireBenchmarkLock();
+
+        try {
+            List<BenchmarkResult> measured  = shouldFork() ? measureInForkedJvms() : measureAll();
+            List<BenchmarkResult> results   = selectContender( measured, 0 );
+            List<BenchmarkResult> compared  = isComparing() ? selectContender( measured, 1 ) : null;
+            RegressionGate        gate      = new RegressionGate( annotation.maxNanosPerCall(), annotation.maxRegressionPercent() ).withMaxBytesPerCall( annotation.maxBytesPerCall() );
+            List<double[]>        baselines = new ArrayList<>( results.size() );
+
+            for ( int i=0; i<results.size(); i++ ) {
+                BenchmarkResult result = results.get( i );
+
+                System.out.println( result );
+
+                if ( compared != null ) {
+                    System.out.println( compared.get(i) );
+                    System.out.println( new BenchmarkComparison(result, compared.get(i)) );
+                }
+
+                baselines.add( gate.isComparingToBaseline() ? loadBaseline(result.getParameters(), results.size()) : null );  // before this run joins the history
+            }
+
+            printScalingReports( results );
+            printSizeSweepReports( results );
+
+            for ( BenchmarkResult result : results ) {
+                recordHistory( result );
+                writeProfile( result );
+            }
+
+            if ( compared != null ) {
+                for ( BenchmarkResult result : compared ) {
+                    writeProfile( result );
+                }
+            }
+
+            reported.addAll( results );
+
+            for ( int i=0; i<results.size(); i++ ) {
+                gate.verify( results.get(i), baselines.get(i) );
+            }
+        } finally {
+            TestExecutionLock.releaseBenchmarkLock();
+        }
+    }
+
+    /**
+     * When comparing, measure() returns the results of both methods for each size and thread count; the
+     * benchmark's own result followed by the result of the method that it is compared with.
+     *
+     * @param index 0 selects the benchmark's results, 1 those of compareWith()
+     */
+    private List<BenchmarkResult> selectContender( List<BenchmarkResult> measured, int index ) {
+        int                   contenderCount = isComparing() ? 2 : 1;
+        List<BenchmarkResult> selected       = new ArrayList<>( measured.size()/contenderCount );
+
+        for ( int i=index; i<measured.size(); i+=contenderCount ) {
+            selected.add( measured.get(i) );
+        }
+
+        return selected;
+    }
+
+    /**
+     * The results are ordered by size and then by increasing thread count.
+     */
+    private void printScalingReports( List<BenchmarkResult> results ) {
+        int threadCountCount = annotation.threads().length;
+
+        if ( threadCountCount > 1 ) {
+            for ( int i=0; i<results.size(); i+=threadCountCount ) {
+                System.out.println( new ScalingReport(results.subList(i, i+threadCountCount)) );
+            }
+        }
+    }
+
+    private void printSizeSweepReports( List<BenchmarkResult> results ) {
+        long[] sizes            = sizes();
+        int    threadCountCount = Math.max( 1, annotation.threads().length );
+
+        if ( sizes.length > 1 ) {
+            for ( int t=0; t<threadCountCount; t++ ) {
+                List<BenchmarkResult> resultsForThreadCount = new ArrayList<>( sizes.length );
+
+                for ( int i=t; i<results.size(); i+=threadCountCount ) {
+                    resultsForThreadCount.add( results.get(i) );
+                }
+
+                System.out.println( new SizeSweepReport(sizes, resultsForThreadCount) );
+            }
+        }
+    }
+
+    /**
+     * Returns the per call duration of the baseline's batches, or null when there is no baseline.  Unless
+     * a baseline file has been specified, the batches of the last few runs recorded on this JVM and OS with
+     * the same parameters are pooled together.  Baseline files hold a value per set of parameters too.
+     *
+     * @param resultsPerRun the number of records (one per parameter value) that each run adds to the history
+     */
+    private double[] loadBaseline( String parameters, int resultsPerRun ) throws IOException {
+        String className  = fTestMethod.getMethod().getDeclaringClass().getName();
+        String methodName = fTestMethod.getName();
+
+        if ( !annotation.baselineFile().isEmpty() ) {
+            Double nanosPerCall = new BaselineFile( annotation.baselineFile() ).getBaselineNanosPerCall( className, methodName, parameters );
+
+            return nanosPerCall == null ? null : new double[] {nanosPerCall};
+        }
+
+        Map<String,String>    environment = BenchmarkRecord.captureEnvironmentTags();
+        List<BenchmarkRecord> records     = BenchmarkHistory.getDefault().loadLatest( className, methodName, BASELINE_RUN_COUNT*resultsPerRun );
+        List<Double>          pooled      = new ArrayList<>();
+
+        for ( BenchmarkRecord record : records ) {
+            if ( record.getParameters().equals(parameters) && record.getTags().entrySet().containsAll(environment.entrySet()) ) {
+                for ( double v : record.getBatchNanosPerCall() ) {
+                    pooled.add( v );
+                }
+            }
+        }
+
+        double[] baseline = new double[pooled.size()];
+        for ( int i=0; i<baseline.length; i++ ) {
+            baseline[i] = pooled.get( i );
+        }
+
+        return baseline.length == 0 ? null : baseline;
+    }
+
+    private void recordHistory( BenchmarkResult result ) {
+        BenchmarkHistory history = BenchmarkHistory.getDefault();
+
+        try {
+            history.append( BenchmarkRecord.fromResult(result) );
+        } catch ( IOException ex ) {
+            System.err.println( "Unable to record benchmark history in " + history.getDirectory() + ": " + ex.getMessage() );
+        }
+    }
+
+    private void writeProfile( BenchmarkResult result ) {
+        StackProfile profile = result.getProfile();
+
+        if ( profile == null ) {
+            return;
+        }
+
+        File file = BenchmarkHistory.getDefault().getProfileFileFor( result.getClassName(), result.getMethodName(), result.getParameters() );
+
+        try {
+            profile.writeCollapsed( file );
+
+            System.out.println( "Profile of " + result.getMethodName() + " written to " + file.getPath() );
+        } catch ( IOException ex ) {
+            System.err.println( "Unable to write the profile to " + file + ": " + ex.getMessage() );
+        }
+    }
+
+    private boolean shouldFork() {
+        return (annotation.forks() > 0 || annotation.logJit()) && !BenchmarkFork.isForkedJvm();
+    }
+
+    private Pattern getJitLogInclude() {
+        if ( !annotation.jitLogInclude().isEmpty() ) {
+            return Pattern.compile( annotation.jitLogInclude() );
+        }
+
+        String className = fTestMethod.getMethod().getDeclaringClass().getName();
+        int    i         = className.lastIndexOf( '.' );
+
+        return Pattern.compile( "^" + Pattern.quote(i < 0 ? className + "::" : className.substring(0, i+1)) );
+    }
+
+    /**
+     * Every fork reports the same sequence of results (one per size, thread count and compared method),
+     * which are combined position by position.  logJit() forks once even when forks() is zero.
+     */
+    private List<BenchmarkResult> measureInForkedJvms() throws Throwable {
+        String                      className   = fTestMethod.getMethod().getDeclaringClass().getName();
+        int                         forkCount   = Math.max( 1, annotation.forks() );
+        List<List<BenchmarkResult>> forkResults = new ArrayList<>( forkCount );
+
+        for ( int i=0; i<forkCount; i++ ) {
+            BenchmarkFork fork = new BenchmarkFork( className, fTestMethod.getName(), annotation.jvmArgs() )
+                .withJitLog( annotation.logJit() ? getJitLogInclude() : null );
+
+            forkResults.add( fork.run() );
+        }
+
+        List<BenchmarkResult> combined = new ArrayList<>();
+        for ( int i=0; i<forkResults.get(0).size(); i++ ) {
+            List<BenchmarkResult> ithResults = new ArrayList<>( forkResults.size() );
+
+            for ( List<BenchmarkResult> results : forkResults ) {
+                ithResults.add( results.get(i) );
+            }
+
+            combined.add( BenchmarkResult.combineForks(ithResults) );
+        }
+
+        return combined;
+    }
+
+    /**
+     * Runs the benchmark, once per size when sizes() has been specified and once per thread count when
+     * threads() has been specified.  When compareWith() has been specified, each of those results is
+     * followed by the result of the compared method.
+     */
+    public List<BenchmarkResult> measureAll() throws Throwable {
+        BenchmarkInvokerFactory                     invokerFactory = new BenchmarkInvokerFactory();
+        final LinkedHashMap<String,BenchmarkInvoker> invokers       = new LinkedHashMap<>();
+
+        invokers.put( fTestMethod.getName(), invokerFactory.newInvokerFor(fTestMethod.getMethod()) );
+
+        if ( isComparing() ) {
+            invokers.put( annotation.compareWith(), invokerFactory.newInvokerFor(locateComparedMethod(fTarget.getClass())) );
+        }
+
+        if ( annotation.sizes().length == 0 ) {
+            return measureEachThreadCount( fTarget, invokers, "" );
+        }
+
+        final List<BenchmarkResult> results   = new ArrayList<>();
+        final TestClass             testClass = new TestClass( fTarget.getClass() );
+
+        for ( final long size : sizes() ) {
+            final Object target = testClass.getOnlyConstructor().newInstance();
+
+            setSize( target, size );
+
+            Statement measure = new Statement() {
+                public void evaluate() throws Throwable {
+                    results.addAll( withSize(measureEachThreadCount(target, invokers, "size=" + size), size) );
+                }
+            };
+
+            Statement withBefores = new RunBefores( measure, testClass.getAnnotatedMethods(Before.class), target );
+            Statement withAfters  = new RunAfters( withBefores, testClass.getAnnotatedMethods(After.class), target );
+
+            withAfters.evaluate();
+        }
+
+        return results;
+    }
+
+    private List<BenchmarkResult> measureEachThreadCount( Object target, LinkedHashMap<String,BenchmarkInvoker> invokers, String parameters ) throws Throwable {
+        BenchmarkFixture fixture = new BenchmarkFixture( target );
+
+        if ( annotation.threads().length == 0 ) {
+            return withParameters( measure(fixture, invokers, null), parameters );
+        } else if ( fixture.hasLevel(Level.INVOCATION) ) {
+            throw new IllegalArgumentException( "Level.INVOCATION setup and teardown methods cannot be combined with @Benchmark(threads=...)" );
+        }
+
+        List<BenchmarkResult> results = new ArrayList<>( annotation.threads().length*invokers.size() );
+        for ( int threadCount : threadCounts() ) {
+            ConcurrentBatchRunner workers = new ConcurrentBatchRunner( target, threadCount );
+
+            try {
+                String threadParameter = "threads=" + threadCount;
+
+                results.addAll( withParameters(measure(fixture, invokers, workers), parameters.isEmpty() ? threadParameter : parameters + " " + threadParameter) );
+            } finally {
+                workers.close();
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * sizes() in increasing order, as the SizeSweepReport measures the growth from each size to the
+     * next.
+     */
+    private long[] sizes() {
+        long[] sizes = annotation.sizes().clone();
+
+        Arrays.sort( sizes );
+
+        for ( int i=1; i<sizes.length; i++ ) {
+            if ( sizes[i] == sizes[i-1] ) {
+                throw new IllegalArgumentException( "@Benchmark(sizes=...) lists " + sizes[i] + " more than once" );
+            }
+        }
+
+        return sizes;
+    }
+
+    /**
+     * threads() in increasing order, as the ScalingReport measures the speedup of each thread count
+     * against the first.
+     */
+    private int[] threadCounts() {
+        int[] threadCounts = annotation.threads().clone();
+
+        Arrays.sort( threadCounts );
+
+        for ( int i=1; i<threadCounts.length; i++ ) {
+            if ( threadCounts[i] == threadCounts[i-1] ) {
+                throw new IllegalArgumentException( "@Benchmark(threads=...) lists " + threadCounts[i] + " more than once" );
+            }
+        }
+
+        return threadCounts;
+    }
+
+    private static List<BenchmarkResult> withParameters( List<BenchmarkResult> results, String parameters ) {
+        for ( BenchmarkResult result : results ) {
+            result.withParameters( parameters );
+        }
+
+        return results;
+    }
+
+    private static List<BenchmarkResult> withSize( List<BenchmarkResult> results, long size ) {
+        for ( BenchmarkResult result : results ) {
+            result.withSize( size );
+        }
+
+        return results;
+    }
+
+    private boolean isComparing() {
+        return !annotation.compareWith().isEmpty();
+    }
+
+    private Method locateComparedMethod( Class c ) {
+        String methodName = annotation.compareWith();
+        Method found      = null;
+
+        for ( Method m : c.getMethods() ) {
+            if ( m.getName().equals(methodName) ) {
+                if ( found != null ) {
+                    throw new IllegalArgumentException( "@Benchmark(compareWith=\"" + methodName + "\") is ambiguous, " + c.getName() + " has more than one public method of that name" );
+                }
+
+                found = m;
+            }
+        }
+
+        if ( found == null ) {
+            throw new IllegalArgumentException( "@Benchmark(compareWith=\"" + methodName + "\") requires a public method named '" + methodName + "' on " + c.getName() );
+        } else if ( Modifier.isStatic(found.getModifiers()) ) {
+            throw new IllegalArgumentException( "@Benchmark(compareWith=\"" + methodName + "\") requires '" + methodName + "' to be an instance method" );
+        } else if ( found.equals(fTestMethod.getMethod()) ) {
+            throw new IllegalArgumentException( "@Benchmark(compareWith=\"" + methodName + "\") cannot compare a benchmark with itself" );
+        }
+
+        return found;
+    }
+
+    private void setSize( Object target, long size ) throws IllegalAccessException {
+        Field field = locateSizeField( target.getClass() );
+        Class type  = field.getType();
+
+        field.setAccessible( true );
+
+        if ( type == long.class || type == Long.class ) {
+            field.set( target, size );
+        } else if ( type == int.class || type == Integer.class ) {
+            if ( size < Integer.MIN_VALUE || size > Integer.MAX_VALUE ) {
+                throw new IllegalArgumentException( "Size " + size + " does not fit into the int field '" + field.getName() + "', declare it as a long" );
+            }
+
+            field.set( target, (int) size );
+        } else {
+            throw new IllegalArgumentException( "The size field '" + field.getName() + "' must be an int or a long, was " + type.getName() );
+        }
+    }
+
+    private Field locateSizeField( Class c ) {
+        String fieldName = annotation.sizeField();
+
+        for ( Class current = c; current != null; current = current.getSuperclass() ) {
+            try {
+                return current.getDeclaredField( fieldName );
+            } catch ( NoSuchFieldException ex ) {
+                // carry on looking
+            }
+        }
+
+        throw new IllegalArgumentException( "@Benchmark(sizes=...) requires a field named '" + fieldName + "' on " + c.getName() + ", see sizeField()" );
+    }
+
+    /**
+     * Runs the benchmark and returns every measured batch.  The batches run during warm up are
+     * discarded, and when excludeGcBatches() is set so are batches that overlapped with a GC; likewise
+     * stalled batches when excludeStalledBatches() is set.  GC and stalled batches share a single limit
+     * per method of MAX_REPLACEMENTS_PER_BATCH times batchCount() exclusions in total, after which
+     * further such batches are kept rather than risk never finishing.
+     * In SAMPLE_LATENCY mode every call of the measured batches is also timed individually.  The
+     * fixture's Level.TRIAL setup runs before the iteration count is chosen, and its teardown after the
+     * last batch.  When profile() is set, the stacks of the threads running the benchmark are sampled
+     * during the measured batches; each method being measured has its own profile.  In FOOTPRINT mode
+     * each method is called once more after the measured batches, and the structure that it returns is
+     * measured.<p/>
+     *
+     * When more than one method is being measured (see compareWith()) the batches are run in rounds of
+     * one batch per method, in the order ABBA; both for warm up and measurement.  Each method keeps its
+     * own iteration count, and the result of each method is returned in the order of invokers.
+     *
+     * @param invokers the methods to measure, keyed by name
+     * @param workers  runs each batch concurrently on several threads, null to run batches on this thread
+     */
+    private List<BenchmarkResult> measure( BenchmarkFixture fixture, LinkedHashMap<String,BenchmarkInvoker> invokers, ConcurrentBatchRunner workers ) throws Throwable {
+        List<Trial>        trials      = new ArrayList<>( invokers.size() );
+        int                maxExcluded = annotation.excludeGcBatches() || annotation.excludeStalledBatches() ? annotation.batchCount()*MAX_REPLACEMENTS_PER_BATCH : 0;
+        HarnessCalibration harness     = HarnessCalibration.get();  // calibrated by the first benchmark to run
+        int                warmupBatchCount;
+        long               warmupNanos;
+
+        for ( Map.Entry<String,BenchmarkInvoker> e : invokers.entrySet() ) {
+            trials.add( new Trial(e.getKey(), e.getValue(), fixture, annotation.mode() == BenchmarkMode.SAMPLE_LATENCY) );
+
+            if ( isMeasuringFootprint() ) {
+                verifyReturnsStructure( fetchMethod(e.getKey(), fixture.getTarget().getClass()) );
+            }
+        }
+
+        fixture.setUp( Level.TRIAL );
+
+        try {
+            for ( Trial trial : trials ) {
+                trial.numIterations = selectIterationCount( fixture, trial.invoker );
+            }
+
+            long warmupStartNanos = System.nanoTime();
+            warmupBatchCount = warmUp( fixture, trials, workers );
+            warmupNanos      = System.nanoTime() - warmupStartNanos;
+
+            for ( Trial trial : trials ) {
+                if ( trial.sampler != null ) {
+                    trial.sampler.reset();
+                }
+
+                if ( annotation.profile() ) {
+                    trial.profiler = newProfiler( workers );
+                }
+            }
+
+            for ( int round=0; !isFinished(trials); round++ ) {
+                for ( Trial trial : inRoundOrder(trials, round) ) {
+                    if ( trial.batches.size() >= annotation.batchCount() ) {
+                        continue;
+                    }
+
+                    BatchMeasurement batch = invokeBatch( fixture, trial.invoker, workers, trial.numIterations, trial.profiler );
+
+                    if ( shouldExclude(batch) && trial.excludedBatches.size() < maxExcluded ) {
+                        trial.excludedBatches.add( batch );
+                    } else {
+                        trial.batches.add( batch );
+                    }
+                }
+            }
+
+            if ( isMeasuringFootprint() ) {
+                for ( Trial trial : trials ) {
+                    trial.footprint = measureFootprint( fixture, fetchMethod(trial.methodName, fixture.getTarget().getClass()) );
+                }
+            }
+        } finally {
+            for ( Trial trial : trials ) {
+                if ( trial.profiler != null ) {
+                    trial.profiler.close();
+                }
+            }
+
+            fixture.tearDown( Level.TRIAL );
+        }
+
+        List<BenchmarkResult> results = new ArrayList<>( trials.size() );
+        for ( Trial trial : trials ) {
+            BenchmarkResult result = new BenchmarkResult(
+                fTestMethod.getMethod().getDeclaringClass().getName(),
+                trial.methodName,
+                annotation.units(),
+                annotation.durationResultMultiplier(),
+                trial.batches
+            );
+
+            results.add(
+                result
+                    .withWarmup( warmupBatchCount, warmupNanos )
+                    .withExcludedBatches( trial.excludedBatches )
+                    .withMode( annotation.mode() )
+                    .withLatencyHistogram( trial.sampler == null ? null : trial.sampler.getHistogram() )
+                    .withHarnessCalibration( harness )
+                    .withProfile( trial.profiler == null ? null : trial.profiler.getProfile() )
+                    .withFootprint( trial.footprint )
+            );
+        }
+
+        return results;
+    }
+
+    private StackSampler newProfiler( ConcurrentBatchRunner workers ) {
+        StackSampler profiler = new StackSampler( annotation.profileIntervalMillis() );
+
+        if ( workers == null ) {
+            profiler.addThread( Thread.currentThread() );
+        } else {
+            for ( Thread t : workers.getWorkerThreads() ) {
+                profiler.addThread( t );
+            }
+        }
+
+        return profiler;
+    }
+
+    private boolean isFinished( List<Trial> trials ) {
+        for ( Trial trial : trials ) {
+            if ( trial.batches.size() < annotation.batchCount() ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reverses the order of the methods on every other round; so that with two methods the batches run
+     * ABBAABBA, and neither method always runs straight after the other.
+     */
+    private static List<Trial> inRoundOrder( List<Trial> trials, int round ) {
+        if ( round % 2 == 0 ) {
+            return trials;
+        }
+
+        List<Trial> reversed = new ArrayList<>( trials );
+        Collections.reverse( reversed );
+
+        return reversed;
+    }
+
+    private boolean shouldExclude( BatchMeasurement batch ) {
+        return (annotation.excludeGcBatches() && batch.wasGcActive()) || (annotation.excludeStalledBatches() && batch.wasStalled());
+    }
+
+    /**
+     * Runs untimed batches until warmupBatches() and warmupMillis() have both been satisfied, and
+     * optionally until the JIT has stopped compiling.  JIT compilation happens on background threads,
+     * so the JIT is only considered to have settled after JIT_QUIET_BATCHES consecutive rounds
+     * during which no compilation took place.  Each round runs one batch of every method being measured.
+     *
+     * @return the number of warm up batches run per method
+     */
+    private int warmUp( BenchmarkFixture fixture, List<Trial> trials, ConcurrentBatchRunner workers ) throws Throwable {
+        long    deadlineNanos   = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( annotation.warmupMillis() );
+        boolean waitForJit      = annotation.warmupUntilJitSettles() && jitMonitor.isSupported();
+        int     batchCount      = 0;
+        int     quietBatchCount = 0;
+
+        while ( true ) {
+            boolean minimumReached = batchCount >= annotation.warmupBatches() && System.nanoTime() >= deadlineNanos;
+            boolean jitSettled     = !waitForJit || quietBatchCount >= JIT_QUIET_BATCHES;
+
+            if ( minimumReached && (jitSettled || batchCount >= annotation.maxWarmupBatches()) ) {
+                return batchCount;
+            }
+
+            boolean jitActive = false;
+            for ( Trial trial : inRoundOrder(trials, batchCount) ) {
+                BatchMeasurement batch = invokeBatch( fixture, trial.invoker, workers, trial.numIterations, null );
+
+                jitActive |= batch.wasJitActive();
+            }
+
+            quietBatchCount = jitActive ? 0 : quietBatchCount+1;
+            batchCount++;
+        }
+    }
+
+    /**
+     * The probes made when calibrating are each given fresh state by the fixture's Level.BATCH setup,
+     * whose cost is then (unavoidably) included in the probe's timing; as is the cost of any
+     * Level.INVOCATION setup.  Such benchmarks get batches somewhat shorter than targetBatchMillis().
+     */
+    private int selectIterationCount( final BenchmarkFixture fixture, final BenchmarkInvoker invoker ) throws Throwable {
+        if ( isTimeBoxed() ) {
+            return 0;  // unused, each batch makes as many calls as it can within targetBatchMillis()
+        } else if ( annotation.value() != Benchmark.AUTO ) {
+            return annotation.value();
+        }
+
+        BenchmarkInvoker probeInvoker = invoker;
+
+        if ( fixture.hasLevel(Level.BATCH) ) {
+            probeInvoker = new BenchmarkInvoker() {
+                public void invoke( Object target, int numIterations, Blackhole blackhole ) throws Throwable {
+                    fixture.setUp( Level.BATCH );
+
+                    try {
+                        invoker.invoke( target, numIterations, blackhole );
+                    } finally {
+                        fixture.tearDown( Level.BATCH );
+                    }
+                }
+            };
+        }
+
+        return new IterationCountCalibrator( getBatchNanos() ).calibrate( probeInvoker, fixture.getTarget() );
+    }
+
+    /**
+     * The fixture's Level.BATCH setup runs before the GC that precedes every batch, so that any garbage
+     * left by the setup is not collected while the batch is timed.
+     *
+     * @param profiler samples the benchmark's stacks while the batch is timed, null to not profile the batch
+     */
+    private BatchMeasurement invokeBatch( BenchmarkFixture fixture, BenchmarkInvoker invoker, ConcurrentBatchRunner workers, int numIterations, StackSampler profiler ) throws Throwable {
+        fixture.setUp( Level.BATCH );
+
+        try {
+            return measureBatch( fixture, invoker, workers, numIterations, profiler );
+        } finally {
+            fixture.tearDown( Level.BATCH );
+        }
+    }
+
+    private BatchMeasurement measureBatch( BenchmarkFixture fixture, BenchmarkInvoker invoker, ConcurrentBatchRunner workers, int numIterations, StackSampler profiler ) throws Throwable {
+        System.gc();
+
+        long stallMillis0       = stallMonitor.getTotalStallMillis();
+        long gcCount0           = gcMonitor.getTotalCollectionCount();
+        long gcMillis0          = gcMonitor.getTotalCollectionMillis();
+        long compilationMillis0 = jitMonitor.getTotalCompilationMillis();
+
+        if ( profiler != null ) {
+            profiler.resume();
+        }
+
+        BatchMeasurement batch;
+        try {
+            if ( workers == null ) {
+                batch = timeBatch( fixture, invoker, numIterations );
+            } else if ( isTimeBoxed() ) {
+                batch = workers.runTimedBatch( invoker, getBatchNanos() );
+            } else {
+                batch = workers.runBatch( invoker, numIterations );
+            }
+        } finally {
+            if ( profiler != null ) {
+                profiler.pause();
+            }
+        }
+
+        long compilationMillis1 = jitMonitor.getTotalCompilationMillis();
+        long gcCount1           = gcMonitor.getTotalCollectionCount();
+        long gcMillis1          = gcMonitor.getTotalCollectionMillis();
+        long stallMillis1       = stallMonitor.getTotalStallMillis();
+
+        return batch
+            .withCompilationMillis( compilationMillis1-compilationMillis0 )
+            .withGc( gcCount1-gcCount0, gcMillis1-gcMillis0 )
+            .withStall( stallMillis1-stallMillis0, annotation.stallThresholdMillis() );
+    }
+
+    /**
+     * Reading the OS counters allocates, so they are read outside of the allocation readings; and
+     * reading the CPU clock is slow, so it is read immediately around the timed calls.  When
+     * Level.INVOCATION setup methods are run between the calls, the InvocationFixtureInvoker measures
+     * each call itself and the batch's measurement is the sum of those; without OS counters.  In
+     * THROUGHPUT mode numIterations is ignored, and calls are made until targetBatchMillis() has passed.
+     */
+    private BatchMeasurement timeBatch( BenchmarkFixture fixture, BenchmarkInvoker invoker, int numIterations ) throws Throwable {
+        if ( invoker instanceof InvocationFixtureInvoker ) {
+            return timeEachInvocation( fixture, (InvocationFixtureInvoker) invoker, numIterations );
+        }
+
+        OsCounters osCounters0     = osCounterMonitor.readCurrentThreadCounters();
+        long       allocatedBytes0 = allocationMonitor.getCurrentThreadAllocatedBytes();
+        long       cpuNanos0       = cpuTimeMonitor.getCurrentThreadCpuNanos();
+
+        int  callCount  = numIterations;
+        long startNanos = System.nanoTime();
+        if ( isTimeBoxed() ) {
+            callCount = TimeBox.invokeFor( invoker, fixture.getTarget(), blackhole, getBatchNanos() );
+        } else {
+            invoker.invoke( fixture.getTarget(), numIterations, blackhole );
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+
+        long       cpuNanos1       = cpuTimeMonitor.getCurrentThreadCpuNanos();
+        long       allocatedBytes1 = allocationMonitor.getCurrentThreadAllocatedBytes();
+        OsCounters osCounters1     = osCounterMonitor.readCurrentThreadCounters();
+
+        return new BatchMeasurement( callCount, durationNanos )
+            .withAllocatedBytes( allocationMonitor.bytesAllocatedBetween(allocatedBytes0, allocatedBytes1) )
+            .withCpuNanos( cpuTimeMonitor.cpuNanosBetween(cpuNanos0, cpuNanos1) )
+            .withOsCounters( OsCounterMonitor.countersBetween(osCounters0, osCounters1) );
+    }
+
+    private BatchMeasurement timeEachInvocation( BenchmarkFixture fixture, InvocationFixtureInvoker invoker, int numIterations ) throws Throwable {
+        invoker.takeMeasurement();  // discards the calls made while calibrating
+
+        if ( isTimeBoxed() ) {
+            TimeBox.invokeFor( invoker, fixture.getTarget(), blackhole, getBatchNanos() );
+        } else {
+            invoker.invoke( fixture.getTarget(), numIterations, blackhole );
+        }
+
+        return invoker.takeMeasurement();
+    }
+
+    /**
+     * Calls the method once more, outside of any timing, and measures the structure that it returns.  The
+     * fixture's Level.BATCH and Level.INVOCATION setup run around the call, as they would around a timed
+     * call.  The benchmark instance itself is not counted, even when the structure refers back to it.
+     */
+    private Footprint measureFootprint( BenchmarkFixture fixture, Method method ) throws Throwable {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Object[]   args           = new Object[parameterTypes.length];
+
+        for ( int i=0; i<args.length; i++ ) {
+            args[i] = parameterTypes[i] == Blackhole.class ? blackhole : (Object) 1;  // otherwise the number of iterations to perform
+        }
+
+        Object structure;
+
+        fixture.setUp( Level.BATCH );
+        fixture.setUp( Level.INVOCATION );
+        try {
+            method.setAccessible( true );  // the class itself may not be public
+
+            structure = method.invoke( fixture.getTarget(), args );
+        } catch ( InvocationTargetException ex ) {
+            throw ex.getCause();
+        } finally {
+            fixture.tearDown( Level.INVOCATION );
+            fixture.tearDown( Level.BATCH );
+        }
+
+        if ( structure == null ) {
+            throw new IllegalStateException( "@Benchmark(mode=FOOTPRINT) requires '" + method.getName() + "' to return the structure that it built, it returned null" );
+        }
+
+        return new FootprintMeter().withExcluded( fixture.getTarget() ).measure( structure );
+    }
+
+    private void verifyReturnsStructure( Method method ) {
+        if ( method.getReturnType().isPrimitive() ) {
+            throw new IllegalArgumentException( "@Benchmark(mode=FOOTPRINT) requires '" + method.getName() + "' to return the structure that it builds" );
+        }
+    }
+
+    /**
+     * @param methodName the benchmark method or the method that it is compared with
+     */
+    private Method fetchMethod( String methodName, Class c ) {
+        return methodName.equals( fTestMethod.getName() ) ? fTestMethod.getMethod() : locateComparedMethod( c );
+    }
+
+    private boolean isMeasuringFootprint() {
+        return annotation.mode() == BenchmarkMode.FOOTPRINT;
+    }
+
+    private boolean isTimeBoxed() {
+        return annotation.mode() == BenchmarkMode.THROUGHPUT;
+    }
+
+    private long getBatchNanos() {
+        return TimeUnit.MILLISECONDS.toNanos( annotation.targetBatchMillis() );
+    }
+
+
+    /**
+     * One of the methods being measured, and the batches measured of it so far.
+     */
+    private static class Trial {
+        final String                 methodName;
+        final SamplingInvoker        sampler;
+        final BenchmarkInvoker       invoker;
+        final List<BatchMeasurement> batches         = new ArrayList<>();
+        final List<BatchMeasurement> excludedBatches = new ArrayList<>();
+
+        int          numIterations;
+        StackSampler profiler;
+        Footprint    footprint;
+
+        Trial( String methodName, BenchmarkInvoker benchmarkInvoker, BenchmarkFixture fixture, boolean sampleLatency ) {
+            this.methodName = methodName;
+            this.sampler    = sampleLatency ? new SamplingInvoker( benchmarkInvoker ) : null;
+
+            BenchmarkInvoker sampledInvoker = sampler == null ? benchmarkInvoker : sampler;
+            this.invoker = fixture.hasLevel(Level.INVOCATION) ? new InvocationFixtureInvoker( sampledInvoker, fixture ) : sampledInvoker;
+        }
+    }
+
+}
@@ -20,7 +20,6 @@ import org.junit.runners.model.Statement;
 import sun.misc.Unsafe;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -162,7 +161,7 @@ public class JUnitMosaicRunner extends BlockJUnit4ClassRunner {
         }
     }
 
-    private static final boolean areAssertionsEnabled = detectWhetherAssertionsAreEnabled();
+    static final boolean areAssertionsEnabled = detectWhetherAssertionsAreEnabled();
 
     @Override
     protected void runChild(FrameworkMethod method, RunNotifier notifier) {
@@ -391,87 +390,3 @@ class InvokeTestMethod extends Statement {
         return results;
     }
 }
-
-
-@SuppressWarnings("unchecked")
-class InvokeBenchmarkMethod extends Statement {
-
-    private final FrameworkMethod fTestMethod;
-    private final Object          fTarget;
-    private final Benchmark       annotation;
-
-    public InvokeBenchmarkMethod( FrameworkMethod testMethod, Object target, Benchmark annotation ) {
-        fTestMethod     = testMethod;
-        fTarget         = target;
-        this.annotation = annotation;
-    }
-
-    @Override
-    public void evaluate() throws Throwable {
-//        verifyParameters();
-
-        TestExecutionLock.acquireBenchmarkLock();
-
-        try {
-            System.out.println( "Benchmark results for: " );
-            System.out.println( "Invoking "+fTestMethod.getMethod().getDeclaringClass().getSimpleName()+"."+fTestMethod.getName() + " (batchCount=" + annotation.batchCount() + ", iterationCount=" + annotation.value() + ", timingMultipler=" + annotation.durationResultMultiplier() + ")" );
-            System.out.println( "    " );
-
-            for ( int i=0; i<annotation.batchCount()+1; i++ ) {
-                invokeAndReportBatch(i);
-            }
-        } finally {
-            TestExecutionLock.releaseBenchmarkLock();
-        }
-    }
-
-    private void invokeAndReportBatch( int runCount ) throws Throwable {
-        long   durationNanosRaw = invokeBatch();
-        double durationNanos    = durationNanosRaw * annotation.durationResultMultiplier();
-
-        double perCallNanos  = durationNanos / annotation.value();
-        double perCallMillis = perCallNanos  / 1000000.0;
-
-        if ( runCount > 0 ) {
-            System.out.print( "    " );
-
-            if ( perCallMillis < 1 ) {
-                System.out.print( String.format("%.2f",perCallNanos)  );
-                System.out.println( "ns per " + annotation.units() );
-            } else {
-                System.out.print( String.format("%.2f",perCallMillis)  );
-                System.out.println( "ms per " + annotation.units() );
-            }
-        }
-    }
-
-    private long invokeBatch() throws Throwable {
-        System.gc();
-
-        int    numIterations = annotation.value();
-        Method method        = fTestMethod.getMethod();
-
-        long startNanos = System.nanoTime();
-        if ( method.getParameterTypes().length == 1 ) {
-            method.invoke(fTarget, annotation.value());
-        } else {
-            for ( int i=0; i<numIterations; i++ ) {
-                method.invoke(fTarget);
-            }
-        }
-
-        return System.nanoTime() - startNanos;
-    }
-
-//    private void verifyParameters() {
-//        int numParams     = fTestMethod.getMethod().getParameterTypes().length;
-//        int numGenerators = testAnnotation == null ? 0 : testAnnotation.generators().length;
-//
-//        if ( numGenerators != numParams ) {
-//            String msg = String.format("Test method has %s parameters declared, and %s generators.  There should be exactly one generator per parameter.", numParams, numGenerators);
-//
-//            throw new IllegalArgumentException(msg);
-//        }
-//    }
-
-}
\ No newline at end of file
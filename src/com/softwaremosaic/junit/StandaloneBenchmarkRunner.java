@@ -0,0 +1,109 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.internal.runners.statements.RunAfters;
+import org.junit.internal.runners.statements.RunBefores;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Runs a @Benchmark method without JUnit's runner; honouring the @BeforeClass, @Before, @After and
+ * @AfterClass methods of the benchmark's class.  Used from JVMs that exist only to run benchmarks.
+ * run() runs the class level methods around the one benchmark, while evaluate() leaves them to the
+ * caller; so that several benchmarks of a class can share one run of them, see evaluateWithinClassFixtures().
+ */
+class StandaloneBenchmarkRunner {
+
+    private final TestClass testClass;
+
+    public StandaloneBenchmarkRunner( Class<?> benchmarkClass ) {
+        this.testClass = new TestClass( benchmarkClass );
+    }
+
+    public Class<?> getBenchmarkClass() {
+        return testClass.getJavaClass();
+    }
+
+    public List<FrameworkMethod> getBenchmarkMethods() {
+        return testClass.getAnnotatedMethods( Benchmark.class );
+    }
+
+    public FrameworkMethod fetchBenchmarkMethod( String methodName ) {
+        for ( FrameworkMethod method : getBenchmarkMethods() ) {
+            if ( method.getName().equals(methodName) ) {
+                return method;
+            }
+        }
+
+        throw new IllegalArgumentException( "No @Benchmark method named '"+methodName+"' found on " + testClass.getName() );
+    }
+
+    /**
+     * Measures the benchmark without reporting on it, see InvokeBenchmarkMethod.measureAll().
+     */
+    public List<BenchmarkResult> run( final FrameworkMethod method ) throws Throwable {
+        final Object                target  = testClass.getOnlyConstructor().newInstance();
+        final List<BenchmarkResult> results = new ArrayList<>();
+
+        Statement measure = new Statement() {
+            public void evaluate() throws Throwable {
+                results.addAll( new InvokeBenchmarkMethod(method, target, method.getAnnotation(Benchmark.class)).measureAll() );
+            }
+        };
+
+        withClassFixtures( withFixtures(measure, target) ).evaluate();
+
+        return results;
+    }
+
+    /**
+     * Runs statement once, between the class's @BeforeClass and @AfterClass methods; just as the
+     * JUnitMosaicRunner runs every method of a class within one run of them.
+     */
+    public void evaluateWithinClassFixtures( Statement statement ) throws Throwable {
+        withClassFixtures( statement ).evaluate();
+    }
+
+    /**
+     * Measures, reports, records and checks the benchmark just as the JUnitMosaicRunner would, see
+     * InvokeBenchmarkMethod.evaluate(List).  Forks when the benchmark asks to be forked.  Runs the
+     * @Before and @After methods, but not @BeforeClass and @AfterClass; call this from within
+     * evaluateWithinClassFixtures().
+     *
+     * @param reported receives the benchmark's results, even when they fail its limits
+     */
+    public void evaluate( final FrameworkMethod method, final List<BenchmarkResult> reported ) throws Throwable {
+        final Object target = testClass.getOnlyConstructor().newInstance();
+
+        Statement evaluate = new Statement() {
+            public void evaluate() throws Throwable {
+                new InvokeBenchmarkMethod( method, target, method.getAnnotation(Benchmark.class) ).evaluate( reported );
+            }
+        };
+
+        withFixtures( evaluate, target ).evaluate();
+    }
+
+    private Statement withFixtures( Statement statement, Object target ) {
+        Statement withBefores = new RunBefores( statement, testClass.getAnnotatedMethods(Before.class), target );
+
+        return new RunAfters( withBefores, testClass.getAnnotatedMethods(After.class), target );
+    }
+
+    private Statement withClassFixtures( Statement statement ) {
+        Statement withBefores = new RunBefores( statement, testClass.getAnnotatedMethods(BeforeClass.class), null );
+
+        return new RunAfters( withBefores, testClass.getAnnotatedMethods(AfterClass.class), null );
+    }
+
+}
@@ -14,8 +14,11 @@ import java.lang.annotation.Target;
  *   <li>wait for any other tests to complete before starting</li>
  *   <li>prevent any other tests from starting</li>
  *   <li>run methods annotated with @Before</li>
+ *   <li>run methods annotated with @BenchmarkSetup(Level.TRIAL)</li>
+ *   <li>warm up the JVM by invoking untimed batches, see warmupBatches()</li>
+ *   <li>run methods annotated with @BenchmarkSetup(Level.BATCH)</li>
  *   <li>trigger GC then invoke the method 'value' times while timing in nano seconds</li>
- *   <li>repeat GC and invoke 'value()' times again and again up to batchCount() times</li>
+ *   <li>repeat @BenchmarkSetup(Level.BATCH), GC and invoke 'value()' times again and again up to batchCount() times</li>
  *   <li>report</li>
  *   <li>allow other tests to begin</li>
  * </ol>
@@ -25,16 +28,193 @@ import java.lang.annotation.Target;
 public @interface Benchmark {
 
     /**
-     * Invoke the test method this many times between
+     * Reserved iteration count that asks the framework to choose the number of iterations per batch,
+     * such that each batch takes roughly targetBatchMillis() to run.
+     */
+    public static final int AUTO = -1;
+
+
+    /**
+     * Invoke the test method this many times between each measurement.  Set to AUTO to have the
+     * framework probe the method before measuring it and size each batch to targetBatchMillis().
      */
     int value() default 1000000;
 
+    /**
+     * The wall clock duration to aim for per batch when value() is AUTO, and the duration of every batch
+     * in BenchmarkMode.THROUGHPUT.  Long enough for timer jitter to be insignificant, short enough to keep
+     * the benchmark quick.
+     */
+    long targetBatchMillis() default 100;
+
+    /**
+     * What to measure; the mean time per call by default, the distribution of the latency of
+     * individual calls, or the number of calls completed per second.
+     */
+    BenchmarkMode mode() default BenchmarkMode.AVERAGE_TIME;
+
     /**
      * How many times to measure the test method.  Each measurement is taken in
      * batches of 'value()' calls.
      */
     int batchCount() default 6;
 
+    /**
+     * The minimum number of batches to run and discard before taking measurements, giving the JIT
+     * a chance to compile the method.
+     */
+    int warmupBatches() default 1;
+
+    /**
+     * The minimum amount of time to spend warming up.  Warm up batches will continue to be run until
+     * both warmupBatches() and warmupMillis() have been satisfied.
+     */
+    long warmupMillis() default 0;
+
+    /**
+     * When true, warm up continues past warmupBatches() and warmupMillis() until the JVM's total
+     * compilation time (as reported by the CompilationMXBean) stops increasing between batches; or
+     * until maxWarmupBatches() has been reached.
+     */
+    boolean warmupUntilJitSettles() default false;
+
+    /**
+     * Upper limit on the number of warm up batches run when warmupUntilJitSettles() is true.
+     */
+    int maxWarmupBatches() default 50;
+
+    /**
+     * Measures the benchmark once for each of the listed thread counts, for example {1, 2, 4, 8}.  All
+     * of the threads invoke the method on the same instance, 'value()' times each per batch, starting
+     * together behind a barrier.  Each thread count is reported separately (with the aggregate ops/sec
+     * and the latency per call seen by each thread), followed by a table showing how throughput scales.
+     * Empty runs the benchmark on the test's own thread.
+     */
+    int[] threads() default {};
+
+    /**
+     * Measures the benchmark once for each of the listed sizes, for example {10, 1000, 100000}.  For each
+     * size a fresh instance of the benchmark class is created, the size is written to its sizeField(), and
+     * then its @Before methods are run; so that the data being benchmarked can be rebuilt to match the size
+     * (after which the @After methods are run).  Each size is reported separately, followed by a table of
+     * the time per call against size.  Empty runs the benchmark once, on the instance created by JUnit.
+     */
+    long[] sizes() default {};
+
+    /**
+     * The name of the int or long field that is set to each of sizes() in turn.
+     */
+    String sizeField() default "size";
+
+    /**
+     * The name of another public method on the same class to compare this benchmark with, for example
+     * an alternative implementation.  The two methods share the same instance and are warmed up and
+     * measured together; their batches alternate, in the order ABBA, so that any drift in the speed of
+     * the machine (or of the JIT's optimisations) affects both equally.  Both results are reported,
+     * followed by the speedup of this method over the other and whether the difference is significant.
+     * The other method takes this annotation's settings and need not be annotated itself; only this
+     * method's result is recorded in the history and checked against its limits.  Empty disables the
+     * comparison.
+     */
+    String compareWith() default "";
+
+    /**
+     * When true, measured batches that overlapped with a garbage collection are left out of the
+     * statistics and replaced by further batches, up to twice batchCount() replacements.  The excluded
+     * batches are still listed in the report, and their collections still count towards the GC cost per
+     * call.  Use when the benchmark does not allocate and collections are caused by something else.
+     */
+    boolean excludeGcBatches() default false;
+
+    /**
+     * Batches during which the SystemStallDetector saw its thread delayed by more than this many
+     * milliseconds in total are marked as stalled in the report.  Their timings include a freeze of the
+     * whole JVM or machine (swapping, a stop the world pause or an overloaded CPU) rather than just the
+     * cost of the benchmark.  A negative value disables the check.
+     */
+    long stallThresholdMillis() default 5;
+
+    /**
+     * When true, stalled batches (see stallThresholdMillis()) are left out of the statistics and replaced
+     * by further batches; sharing the limit on replacements with excludeGcBatches().
+     */
+    boolean excludeStalledBatches() default false;
+
+
+    /**
+     * The number of fresh JVMs to run the benchmark in.  Zero runs the benchmark within the same JVM
+     * as the rest of the tests, where the JIT's profile of the code under test has been shaped by
+     * whichever tests ran earlier.  When greater than zero, each fork runs the benchmark (including
+     * warm up) from scratch and the batches from every fork are reported together.
+     */
+    int forks() default 0;
+
+    /**
+     * Extra arguments passed to each forked JVM, for example {"-Xmx1g", "-XX:+UseParallelGC"}.  Only
+     * used when the benchmark is forked, see forks() and logJit().
+     */
+    String[] jvmArgs() default {};
+
+    /**
+     * When true, the benchmark is run in forked JVMs (one unless forks() asks for more) that log their
+     * JIT compilations and inlining decisions, -XX:+PrintCompilation and -XX:+PrintInlining.  The report
+     * then summarises the log: the tiers that each method under test was compiled at, how often each was
+     * deoptimised and the calls into or out of them that the JIT failed to inline.  The log covers the
+     * whole life of each forked JVM, warm up included.
+     */
+    boolean logJit() default false;
+
+    /**
+     * Selects the methods under test for logJit(); a regular expression that is searched for within
+     * 'className::methodName'.  Empty selects the methods of every class in the benchmark's package.
+     */
+    String jitLogInclude() default "";
+
+
+    /**
+     * Fails the benchmark when its mean time per call is significantly greater than this many
+     * nanoseconds.  Zero disables the check.
+     */
+    double maxNanosPerCall() default 0;
+
+    /**
+     * Fails the benchmark when it is significantly more than this percentage slower than its baseline.
+     * The baseline is the benchmark's own recent history, recorded on the same JVM and OS, unless a
+     * baselineFile() has been specified.  A negative value disables the check.
+     */
+    double maxRegressionPercent() default -1;
+
+    /**
+     * Path to a properties style file of baseline timings, keyed by 'fully.qualified.ClassName.methodName'
+     * and, for benchmarks with sizes() or threads(), followed by the parameters in square brackets such as
+     * 'com.acme.Foo.bar[size=1000 threads=4]'; see BaselineFile.  Resolved against the working directory
+     * and then the classpath.  When empty the recorded history is used.
+     */
+    String baselineFile() default "";
+
+    /**
+     * Fails the benchmark when the median batch allocates more than this many bytes per call on the
+     * heap (after applying durationResultMultiplier()).  Zero asserts that the method is allocation free
+     * once warmed up.  A negative value disables the check, as does a JVM that cannot measure per
+     * thread allocations.
+     */
+    double maxBytesPerCall() default -1;
+
+
+    /**
+     * When true, the stacks of the threads running the benchmark are sampled every
+     * profileIntervalMillis() during the measured batches (not during warm up).  The hottest frames are
+     * reported, and every sampled stack is written in the collapsed format read by flame graph tools to
+     * a '.collapsed' file alongside the benchmark's history, replacing the profile of the previous run.
+     */
+    boolean profile() default false;
+
+    /**
+     * How often to sample the benchmark's stacks when profile() is true.  Shorter intervals give a more
+     * detailed profile, at the cost of pausing the benchmark's threads more often.
+     */
+    long profileIntervalMillis() default 10;
+
 
     /**
      * Multiply the times printed by the benchmark.  Useful if you want
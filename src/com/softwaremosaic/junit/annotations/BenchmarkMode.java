@@ -0,0 +1,37 @@
+package com.softwaremosaic.junit.annotations;
+
+
+/**
+ * What a @Benchmark measures.
+ */
+public enum BenchmarkMode {
+
+    /**
+     * Times whole batches of calls and reports the mean time per call.  The cost of reading the clock
+     * is spread across the batch, making this the most accurate mode for very short methods.
+     */
+    AVERAGE_TIME,
+
+    /**
+     * Times every call individually and records the timings in a LatencyHistogram, reporting the
+     * median and tail latencies (p99, p99.9 and max) alongside the usual mean per call.  Each timing
+     * includes the cost of reading the clock, so the mode suits methods that take well over 100ns.
+     */
+    SAMPLE_LATENCY,
+
+    /**
+     * Runs each batch for targetBatchMillis() rather than for a fixed number of calls, and reports the
+     * number of calls completed per second.  Suits methods whose cost varies so widely with their data
+     * that no single iteration count fits.  value() is ignored.
+     */
+    THROUGHPUT,
+
+    /**
+     * Times the method as AVERAGE_TIME does, as it builds a data structure, and then calls it once more
+     * and measures the heap retained by the structure that it returns; in total, per class of object and
+     * per element (the size from sizes(), when declared).  See FootprintMeter.  The method must return
+     * the structure, and each call should build a new one; so value() is best kept small or set to AUTO.
+     */
+    FOOTPRINT
+
+}
@@ -0,0 +1,21 @@
+package com.softwaremosaic.junit.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Marks a public, no argument method of a benchmark class as preparing the state that its @Benchmark
+ * methods work on.  Unlike @Before, which JUnit runs just once per test method, the method is run as
+ * often as its Level asks for and always outside of the timed region.  Setup methods declared by a
+ * super class run before those of its sub classes.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface BenchmarkSetup {
+
+    Level value() default Level.TRIAL;
+
+}
@@ -0,0 +1,20 @@
+package com.softwaremosaic.junit.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Marks a public, no argument method of a benchmark class as releasing the state prepared by a
+ * @BenchmarkSetup method of the same Level.  Run outside of the timed region, and run even when the
+ * benchmark failed.  Teardown methods declared by a sub class run before those of its super classes.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface BenchmarkTeardown {
+
+    Level value() default Level.TRIAL;
+
+}
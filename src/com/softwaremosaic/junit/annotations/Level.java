@@ -0,0 +1,30 @@
+package com.softwaremosaic.junit.annotations;
+
+
+/**
+ * How often a @BenchmarkSetup or @BenchmarkTeardown method is run.  None of them are timed.
+ */
+public enum Level {
+
+    /**
+     * Once per run of the benchmark; before warm up starts and after the last batch has been measured.
+     * A benchmark that declares sizes() or threads() is run once per size and thread count.
+     */
+    TRIAL,
+
+    /**
+     * Before and after every batch, including the warm up batches.  Suits benchmarks that consume
+     * their state, for example draining a queue that the setup method filled with value() entries.
+     */
+    BATCH,
+
+    /**
+     * Before and after every call.  Each call is then timed individually, so the timings include the
+     * cost of reading the clock; this level suits methods that take well over 100ns.  The allocations
+     * and CPU time of each call are measured individually too, leaving out the setup; the OS counters
+     * are not measured.  It cannot be combined with threads(), as every thread would set up the same
+     * instance at once.
+     */
+    INVOCATION
+
+}
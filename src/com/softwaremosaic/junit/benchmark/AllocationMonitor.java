@@ -0,0 +1,76 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+
+/**
+ * Reads the number of bytes that the current thread has allocated on the heap so far, using the
+ * HotSpot specific com.sun.management.ThreadMXBean.  Allocations made by other threads, such as
+ * the JIT compiler threads, are not counted.
+ */
+public class AllocationMonitor {
+
+    private static final int CALIBRATION_SAMPLES = 10;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long                            overheadBytes;
+
+
+    public AllocationMonitor() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if ( bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported() ) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+
+            if ( !threadBean.isThreadAllocatedMemoryEnabled() ) {
+                threadBean.setThreadAllocatedMemoryEnabled( true );
+            }
+        } else {
+            threadBean = null;
+        }
+
+        overheadBytes = isSupported() ? calibrateOverhead() : 0;
+    }
+
+    public boolean isSupported() {
+        return threadBean != null;
+    }
+
+    /**
+     * The total number of bytes allocated by the calling thread so far, or -1 when the JVM does not
+     * support allocation monitoring.
+     */
+    public long getCurrentThreadAllocatedBytes() {
+        return isSupported() ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * The number of bytes allocated between two readings of getCurrentThreadAllocatedBytes(), less the
+     * bytes allocated by the act of taking a reading.  Returns -1 when either reading is unavailable.
+     */
+    public long bytesAllocatedBetween( long before, long after ) {
+        if ( before < 0 || after < 0 ) {
+            return -1;
+        }
+
+        return Math.max( 0, after - before - overheadBytes );
+    }
+
+    /**
+     * Some JVMs allocate a few bytes per reading, which would otherwise be charged to the benchmark.
+     */
+    private long calibrateOverhead() {
+        long min = Long.MAX_VALUE;
+
+        for ( int i=0; i<CALIBRATION_SAMPLES; i++ ) {
+            long before = getCurrentThreadAllocatedBytes();
+            long after  = getCurrentThreadAllocatedBytes();
+
+            min = Math.min( min, after-before );
+        }
+
+        return Math.max( 0, min );
+    }
+
+}
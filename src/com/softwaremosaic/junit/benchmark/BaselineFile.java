@@ -0,0 +1,81 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * A checked in file of expected benchmark timings, used as the baseline for regression checks
+ * instead of the benchmark's recorded history.  Each line of the file maps
+ * 'fully.qualified.ClassName.methodName' to the expected nanoseconds per call.  Benchmarks that are
+ * measured with parameters (see Benchmark.sizes() and Benchmark.threads()) have one line per set of
+ * parameters, with the parameters in square brackets after the method name:
+ *
+ * <pre>
+ *     # comments start with a '#'
+ *     com.acme.QueueBenchmark.offer=35.2
+ *     com.acme.QueueBenchmark.poll=41.0
+ *     com.acme.QueueBenchmark.drain[size=1000 threads=4]=8120.0
+ * </pre>
+ *
+ * Unlike a properties file, keys may contain spaces and '=', as the value is everything after the
+ * last '='.  The path is resolved against the working directory first, and then the classpath.
+ */
+public class BaselineFile {
+
+    private final Map<String,String> baselines = new HashMap<>();
+
+    public BaselineFile( String path ) throws IOException {
+        File file = new File( path );
+
+        try ( InputStream in = file.exists() ? new FileInputStream(file) : BaselineFile.class.getClassLoader().getResourceAsStream(path) ) {
+            if ( in == null ) {
+                throw new IOException( "Benchmark baseline file '"+path+"' not found in the working directory or on the classpath" );
+            }
+
+            BufferedReader reader = new BufferedReader( new InputStreamReader(in, "UTF-8") );
+
+            for ( String line=reader.readLine(); line != null; line=reader.readLine() ) {
+                line = line.trim();
+
+                if ( line.isEmpty() || line.startsWith("#") || line.startsWith("!") ) {
+                    continue;
+                }
+
+                int i = line.lastIndexOf( '=' );
+                if ( i <= 0 ) {
+                    throw new IOException( "Benchmark baseline file '"+path+"' contains '"+line+"', expected 'className.methodName=nanosPerCall'" );
+                }
+
+                baselines.put( line.substring(0, i).trim(), line.substring(i+1).trim() );
+            }
+        }
+    }
+
+    /**
+     * Returns the baseline nanoseconds per call for the specified benchmark, or null when the file
+     * does not hold a baseline for it.
+     */
+    public Double getBaselineNanosPerCall( String className, String methodName ) {
+        return getBaselineNanosPerCall( className, methodName, "" );
+    }
+
+    /**
+     * Returns the baseline nanoseconds per call for the specified benchmark when measured with the
+     * given parameters, such as "size=1000 threads=4", or null when the file does not hold a baseline
+     * for them.  A line without parameters is only the baseline of a benchmark without parameters.
+     */
+    public Double getBaselineNanosPerCall( String className, String methodName, String parameters ) {
+        String key   = className + "." + methodName + (parameters.isEmpty() ? "" : "[" + parameters + "]");
+        String value = baselines.get( key );
+
+        return value == null ? null : Double.valueOf( value );
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.Serializable;
+
+
+/**
+ * The raw measurements taken while running one batch of a benchmark.  When a batch is run on several
+ * threads, each thread makes iterationCount calls and durationNanos spans all of the threads.
+ */
+public class BatchMeasurement implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int  iterationCount;
+    private final long durationNanos;
+
+    private int        threadCount = 1;
+    private long       compilationMillis;
+    private long       allocatedBytes = -1;
+    private long       cpuNanos       = -1;
+    private OsCounters osCounters;
+    private long       gcCount;
+    private long       gcMillis;
+    private long       stallMillis;
+    private boolean    stalled;
+
+
+    public BatchMeasurement( int iterationCount, long durationNanos ) {
+        this.iterationCount = iterationCount;
+        this.durationNanos  = durationNanos;
+    }
+
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public BatchMeasurement withThreadCount( int threadCount ) {
+        this.threadCount = threadCount;
+
+        return this;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * The number of calls made across every thread.
+     */
+    public long getTotalCallCount() {
+        return (long) iterationCount * threadCount;
+    }
+
+    public BatchMeasurement withCompilationMillis( long compilationMillis ) {
+        this.compilationMillis = compilationMillis;
+
+        return this;
+    }
+
+    /**
+     * How long the JIT spent compiling while this batch was running.  Any JIT activity suggests that the
+     * benchmark was not fully warmed up.
+     */
+    public long getCompilationMillis() {
+        return compilationMillis;
+    }
+
+    public boolean wasJitActive() {
+        return compilationMillis > 0;
+    }
+
+    public BatchMeasurement withAllocatedBytes( long allocatedBytes ) {
+        this.allocatedBytes = allocatedBytes;
+
+        return this;
+    }
+
+    /**
+     * The number of bytes allocated by the benchmarking threads while this batch was running, or -1 when
+     * the JVM does not support measuring allocations.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public boolean hasAllocatedBytes() {
+        return allocatedBytes >= 0;
+    }
+
+    public BatchMeasurement withCpuNanos( long cpuNanos ) {
+        this.cpuNanos = cpuNanos;
+
+        return this;
+    }
+
+    /**
+     * The CPU time consumed by the benchmarking threads while this batch was running, or -1 when the
+     * JVM does not support measuring thread CPU time.
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public boolean hasCpuNanos() {
+        return cpuNanos >= 0;
+    }
+
+    public BatchMeasurement withOsCounters( OsCounters osCounters ) {
+        this.osCounters = osCounters;
+
+        return this;
+    }
+
+    /**
+     * The context switches and page faults of the benchmarking threads while this batch was running, or
+     * null when the OS does not make them available.
+     */
+    public OsCounters getOsCounters() {
+        return osCounters;
+    }
+
+    public BatchMeasurement withGc( long gcCount, long gcMillis ) {
+        this.gcCount  = gcCount;
+        this.gcMillis = gcMillis;
+
+        return this;
+    }
+
+    /**
+     * The number of garbage collections that occurred while this batch was running.
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    /**
+     * A batch that overlapped with a garbage collection has the collection's pause included within
+     * its timing.
+     */
+    public boolean wasGcActive() {
+        return gcCount > 0;
+    }
+
+    /**
+     * @param stallMillis     how long the SystemStallDetector's thread was delayed by while this batch was running
+     * @param thresholdMillis the batch is considered to have stalled when stallMillis exceeds this, negative never
+     */
+    public BatchMeasurement withStall( long stallMillis, long thresholdMillis ) {
+        this.stallMillis = stallMillis;
+        this.stalled     = thresholdMillis >= 0 && stallMillis > thresholdMillis;
+
+        return this;
+    }
+
+    public long getStallMillis() {
+        return stallMillis;
+    }
+
+    /**
+     * A batch that stalled was running while the whole JVM (or machine) froze, for example while the OS
+     * was swapping, and so its timing says more about the machine than about the benchmark.
+     */
+    public boolean wasStalled() {
+        return stalled;
+    }
+
+}
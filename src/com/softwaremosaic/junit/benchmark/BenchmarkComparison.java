@@ -0,0 +1,121 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.io.IndentWriter;
+
+
+/**
+ * Compares the mean time per call of two benchmarks whose batches were measured interleaved, see
+ * Benchmark.compareWith().  The speedup is how many times faster the first benchmark is than the
+ * second; its confidence interval is calculated on the log of the ratio, which is far closer to being
+ * symmetric than the ratio itself.  Whether the difference is significant is decided by Welch's t-test
+ * at RegressionGate.SIGNIFICANCE_LEVEL.
+ */
+public class BenchmarkComparison {
+
+    private final BenchmarkResult a;
+    private final BenchmarkResult b;
+
+    public BenchmarkComparison( BenchmarkResult a, BenchmarkResult b ) {
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * b's mean time per call divided by a's; greater than one when a is the faster of the two.
+     */
+    public double getSpeedup() {
+        return b.getStatistics().getMean() / a.getStatistics().getMean();
+    }
+
+    public double getSpeedupLower() {
+        return getSpeedup() / Math.exp( getLogSpeedupHalfWidth() );
+    }
+
+    public double getSpeedupUpper() {
+        return getSpeedup() * Math.exp( getLogSpeedupHalfWidth() );
+    }
+
+    /**
+     * The probability of seeing a difference at least this large between the two means if the
+     * benchmarks were in fact equally fast.
+     */
+    public double getPValue() {
+        return new WelchTTest( a.getStatistics(), b.getStatistics() ).getTwoSidedPValue();
+    }
+
+    public boolean isSignificant() {
+        return getPValue() < RegressionGate.SIGNIFICANCE_LEVEL;
+    }
+
+    /**
+     * Half the width of the confidence interval of ln(speedup), NaN when there are too few batches to
+     * estimate it.
+     */
+    private double getLogSpeedupHalfWidth() {
+        SampleStatistics sa  = a.getStatistics();
+        SampleStatistics sb  = b.getStatistics();
+        double           rsa = sa.getStandardError() / sa.getMean();
+        double           rsb = sb.getStandardError() / sb.getMean();
+        double           se  = Math.sqrt( rsa*rsa + rsb*rsb );
+
+        if ( se == 0 ) {
+            return 0;
+        }
+
+        double df = new WelchTTest( sa, sb ).getDegreesOfFreedom();
+        if ( Double.isNaN(df) || Double.isInfinite(df) || df <= 0 ) {
+            return Double.NaN;
+        }
+
+        return se * new StudentTDistribution( df ).criticalValue( BenchmarkResult.CONFIDENCE_LEVEL );
+    }
+
+    public String toString() {
+        IndentWriter out = new IndentWriter( new StringBuilder(), "    " );
+
+        appendTo( out );
+
+        return out.toString();
+    }
+
+    public void appendTo( IndentWriter out ) {
+        String className       = a.getClassName();
+        String simpleClassName = className.substring( className.lastIndexOf('.')+1 );
+        String nameA           = a.getMethodName();
+        String nameB           = b.getMethodName();
+        int    nameWidth       = Math.max( "speedup".length(), Math.max(nameA.length(), nameB.length()) ) + 1;
+        String lineFormat      = "%-" + nameWidth + "s %s";
+        String parameters      = a.getParameters().isEmpty() ? "" : " (" + a.getParameters() + ")";
+        double speedup         = getSpeedup();
+        double halfWidth       = getLogSpeedupHalfWidth();
+        double pValue          = getPValue();
+
+        out.println( "Comparison of " + simpleClassName + "." + nameA + " with " + nameB + parameters + ", batches interleaved" );
+        out.newLine();
+        out.incIndent();
+        out.println( String.format(lineFormat, nameA+":", BenchmarkResult.formatNanos(a.getStatistics().getMean()) + " per " + a.getUnits()) );
+        out.println( String.format(lineFormat, nameB+":", BenchmarkResult.formatNanos(b.getStatistics().getMean()) + " per " + b.getUnits()) );
+
+        String ci = Double.isNaN(halfWidth) ? "" : String.format( " (%s%% CI %s..%s)", formatPercent(BenchmarkResult.CONFIDENCE_LEVEL), formatRatio(getSpeedupLower()), formatRatio(getSpeedupUpper()) );
+        out.println( String.format(lineFormat, "speedup:", formatRatio(speedup) + ci + ", " + nameA + " is " + describeSpeedup(speedup) + " " + nameB) );
+        out.println( String.format(lineFormat, "p-value:", String.format("%.3g", pValue) + " (Welch's t-test), the difference is " + (isSignificant() ? "" : "not ") + "significant at the " + formatPercent(BenchmarkResult.CONFIDENCE_LEVEL) + "% confidence level") );
+        out.decIndent();
+    }
+
+    private static String describeSpeedup( double speedup ) {
+        if ( speedup >= 1 ) {
+            return formatRatio( speedup ) + " faster than";
+        } else {
+            return formatRatio( 1/speedup ) + " slower than";
+        }
+    }
+
+    private static String formatRatio( double ratio ) {
+        return String.format( "%.2fx", ratio );
+    }
+
+    private static String formatPercent( double fraction ) {
+        return String.format( "%.1f", fraction*100 );
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.annotations.BenchmarkSetup;
+import com.softwaremosaic.junit.annotations.BenchmarkTeardown;
+import com.softwaremosaic.junit.annotations.Level;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * The instance of a benchmark class that is being measured, along with its @BenchmarkSetup and
+ * @BenchmarkTeardown methods grouped by Level.  The methods are looked up once, so that running them
+ * between batches is cheap, and running them does not allocate.
+ */
+public class BenchmarkFixture {
+
+    /**
+     * Passed to every setup and teardown method, rather than have each call allocate an empty array.
+     */
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Object                   target;
+    private final Map<Level, List<Method>> setups    = new EnumMap<>( Level.class );
+    private final Map<Level, List<Method>> teardowns = new EnumMap<>( Level.class );
+
+
+    public BenchmarkFixture( Object target ) {
+        this.target = target;
+
+        for ( Level level : Level.values() ) {
+            setups.put( level, new ArrayList<Method>() );
+            teardowns.put( level, new ArrayList<Method>() );
+        }
+
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for ( Class<?> c = target.getClass(); c != null && c != Object.class; c = c.getSuperclass() ) {
+            hierarchy.add( c );
+        }
+
+        // as with JUnit's @Before, an annotated method that is overridden by an annotated method further
+        // down the hierarchy only runs once, in the place of the overriding method
+        Set<String> signatures = new HashSet<>();
+        Set<Method> overridden = new HashSet<>();
+        for ( Class<?> c : hierarchy ) {
+            for ( Method m : c.getDeclaredMethods() ) {
+                if ( isFixtureMethod(m) && !signatures.add(m.getName() + Arrays.toString(m.getParameterTypes())) ) {
+                    overridden.add( m );
+                }
+            }
+        }
+
+        // setups run from the top of the class hierarchy down, and teardowns from the bottom up
+        Collections.reverse( hierarchy );
+
+        for ( Class<?> c : hierarchy ) {
+            for ( Method m : c.getDeclaredMethods() ) {
+                if ( overridden.contains(m) ) {
+                    continue;
+                }
+
+                BenchmarkSetup    setup    = m.getAnnotation( BenchmarkSetup.class );
+                BenchmarkTeardown teardown = m.getAnnotation( BenchmarkTeardown.class );
+
+                if ( setup != null ) {
+                    setups.get( setup.value() ).add( validate(m, "@BenchmarkSetup") );
+                }
+
+                if ( teardown != null ) {
+                    teardowns.get( teardown.value() ).add( 0, validate(m, "@BenchmarkTeardown") );
+                }
+            }
+        }
+    }
+
+    public Object getTarget() {
+        return target;
+    }
+
+    /**
+     * @return true when there is a setup or teardown method to run at the specified level
+     */
+    public boolean hasLevel( Level level ) {
+        return !setups.get(level).isEmpty() || !teardowns.get(level).isEmpty();
+    }
+
+    public void setUp( Level level ) throws Throwable {
+        invokeAll( setups.get(level) );
+    }
+
+    public void tearDown( Level level ) throws Throwable {
+        invokeAll( teardowns.get(level) );
+    }
+
+    private void invokeAll( List<Method> methods ) throws Throwable {
+        for ( int i=0; i<methods.size(); i++ ) {
+            try {
+                methods.get(i).invoke( target, NO_ARGS );
+            } catch ( InvocationTargetException ex ) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    private static boolean isFixtureMethod( Method m ) {
+        return m.isAnnotationPresent( BenchmarkSetup.class ) || m.isAnnotationPresent( BenchmarkTeardown.class );
+    }
+
+    private static Method validate( Method m, String annotationName ) {
+        if ( !Modifier.isPublic(m.getModifiers()) || Modifier.isStatic(m.getModifiers()) || m.getParameterTypes().length != 0 ) {
+            throw new IllegalArgumentException( annotationName + " method " + m.getDeclaringClass().getName() + "." + m.getName() + " must be public, non static and take no arguments" );
+        }
+
+        m.setAccessible( true );  // the class itself may not be public
+
+        return m;
+    }
+
+}
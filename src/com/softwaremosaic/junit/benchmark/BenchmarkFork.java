@@ -0,0 +1,215 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+
+/**
+ * Runs a single benchmark method in a freshly started JVM, so that the JIT profile of the benchmark
+ * is not polluted by whichever tests happened to run before it.<p/>
+ *
+ * The child JVM is started with the same classpath as this JVM and runs ForkedBenchmarkMain, which
+ * sends its BenchmarkResults back over the child's stdout (one per thread count etc).  Each result is
+ * sent as RESULT_PREFIX followed by the encoded result, at the end of a line; the line may start with
+ * output that the benchmark printed without a trailing newline, which is passed through along with
+ * every other line written to stdout by the child.<p/>
+ *
+ * Optionally the child JVM logs its JIT compilations to its stderr, see withJitLog(), which is parsed
+ * into a JitLog and attached to each of the child's results.  The rest of stderr is passed through.
+ */
+public class BenchmarkFork {
+
+    /**
+     * System property set on forked JVMs.  Benchmarks check it to avoid forking again.
+     */
+    public static final String FORKED_JVM_PROPERTY = "junitmosaic.benchmark.forked";
+
+    private static final String MAIN_CLASS    = "com.softwaremosaic.junit.ForkedBenchmarkMain";
+    private static final String RESULT_PREFIX = "##junitmosaic-benchmark-result## ";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+
+    public static boolean isForkedJvm() {
+        return Boolean.getBoolean( FORKED_JVM_PROPERTY );
+    }
+
+
+    private final String       className;
+    private final String       methodName;
+    private final List<String> jvmArgs;
+
+    private Pattern jitLogInclude;
+
+    public BenchmarkFork( String className, String methodName, String...jvmArgs ) {
+        this.className  = className;
+        this.methodName = methodName;
+        this.jvmArgs    = Arrays.asList( jvmArgs );
+    }
+
+    /**
+     * Has the child JVM log its JIT compilations and inlining decisions, see JitLog.
+     *
+     * @param include selects the methods under test, null disables the log
+     */
+    public BenchmarkFork withJitLog( Pattern include ) {
+        this.jitLogInclude = include;
+
+        return this;
+    }
+
+    /**
+     * Starts a new JVM, runs the benchmark within it and waits for its results.
+     */
+    public List<BenchmarkResult> run() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder( buildCommand() )
+            .redirectError( jitLogInclude == null ? ProcessBuilder.Redirect.INHERIT : ProcessBuilder.Redirect.PIPE )
+            .redirectInput( ProcessBuilder.Redirect.INHERIT )
+            .start();
+
+        JitLog jitLog       = jitLogInclude == null ? null : new JitLog( jitLogInclude );
+        Thread stderrReader = jitLog == null ? null : startJitLogReader( process.getErrorStream(), jitLog );
+
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        try ( BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream())) ) {
+            String line;
+
+            while ( (line = in.readLine()) != null ) {
+                int resultIndex = line.indexOf( RESULT_PREFIX );
+
+                if ( resultIndex >= 0 ) {
+                    if ( resultIndex > 0 ) {
+                        System.out.println( line.substring(0, resultIndex) );
+                    }
+
+                    results.add( decodeResult(line.substring(resultIndex+RESULT_PREFIX.length())) );
+                } else {
+                    System.out.println( line );
+                }
+            }
+        }
+
+        int exitCode = process.waitFor();
+
+        if ( stderrReader != null ) {
+            stderrReader.join();
+        }
+
+        if ( exitCode != 0 || results.isEmpty() ) {
+            throw new IllegalStateException( "Forked JVM for benchmark " + className + "." + methodName + " exited with code " + exitCode + " without reporting a result" );
+        }
+
+        if ( jitLog != null ) {
+            for ( BenchmarkResult result : results ) {
+                result.withJitLog( jitLog );
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Drains the child's stderr on a background thread, so that the child never blocks on a full pipe
+     * while this thread is reading its stdout.
+     */
+    private static Thread startJitLogReader( final InputStream stderr, final JitLog jitLog ) {
+        Thread t = new Thread( "benchmark-fork-stderr" ) {
+            public void run() {
+                try ( BufferedReader in = new BufferedReader(new InputStreamReader(stderr)) ) {
+                    String line;
+
+                    while ( (line = in.readLine()) != null ) {
+                        if ( !jitLog.parseLine(line) ) {
+                            System.err.println( line );
+                        }
+                    }
+                } catch ( IOException ex ) {
+                    System.err.println( "Unable to read the JIT log of the forked JVM: " + ex.getMessage() );
+                }
+            }
+        };
+
+        t.setDaemon( true );
+        t.start();
+
+        return t;
+    }
+
+    public List<String> buildCommand() {
+        List<String> command = new ArrayList<>();
+
+        command.add( System.getProperty("java.home") + File.separator + "bin" + File.separator + "java" );
+        command.add( "-cp" );
+        command.add( System.getProperty("java.class.path") );
+        command.add( "-D" + FORKED_JVM_PROPERTY + "=true" );
+
+        if ( jitLogInclude != null ) {
+            command.addAll( JitLog.JIT_LOG_JVM_ARGS );
+        }
+
+        command.addAll( jvmArgs );
+        command.add( MAIN_CLASS );
+        command.add( className );
+        command.add( methodName );
+
+        return command;
+    }
+
+
+    /**
+     * Called from within the forked JVM to send one of the benchmark's results back to the parent JVM.
+     */
+    public static void sendResult( PrintStream out, BenchmarkResult result ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream objectOut = new ObjectOutputStream(bytes) ) {
+            objectOut.writeObject( result );
+        }
+
+        out.println( RESULT_PREFIX + toHex(bytes.toByteArray()) );
+        out.flush();
+    }
+
+    static BenchmarkResult decodeResult( String hex ) throws IOException {
+        try ( ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(fromHex(hex))) ) {
+            return (BenchmarkResult) in.readObject();
+        } catch ( ClassNotFoundException ex ) {
+            throw new IOException( "Unable to decode the result of a forked benchmark", ex );
+        }
+    }
+
+    static String toHex( byte[] bytes ) {
+        char[] chars = new char[bytes.length*2];
+
+        for ( int i=0; i<bytes.length; i++ ) {
+            chars[i*2]   = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[i*2+1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+
+        return new String( chars );
+    }
+
+    static byte[] fromHex( String hex ) {
+        byte[] bytes = new byte[hex.length()/2];
+
+        for ( int i=0; i<bytes.length; i++ ) {
+            bytes[i] = (byte) Integer.parseInt( hex.substring(i*2, i*2+2), 16 );
+        }
+
+        return bytes;
+    }
+
+}
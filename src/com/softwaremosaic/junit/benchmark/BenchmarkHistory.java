@@ -0,0 +1,324 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An append only, on disk store of benchmark results.  Each benchmark method has its own file of
+ * compact binary records beneath the history directory, named directory/className/methodName.history,
+ * so loading the history of one method never touches the records of another.<p/>
+ *
+ * Files are read via a memory map.  Every record is framed by its length before the record and the
+ * bitwise complement of its length after the record, which lets the most recent records be read by
+ * scanning backwards from the end of the file without parsing the whole history, and lets readers
+ * detect a record that was only partially written.<p/>
+ *
+ * File layout:
+ *
+ * <pre>
+ *     file    := MAGIC:int VERSION:short record*
+ *     record  := length:int payload ~length:int
+ *     payload := timestamp:long className:str methodName:str parameters:str
+ *                tagCount:short (name:str value:str)*
+ *                batchCount:int nanosPerCall:double*
+ *                metricCount:short (name:str value:double)*
+ *     str     := byteCount:short utf8Bytes
+ * </pre>
+ */
+public class BenchmarkHistory {
+
+    /**
+     * System property that overrides the default location of the history directory.
+     */
+    public static final String HISTORY_DIR_PROPERTY = "junitmosaic.benchmark.historyDir";
+
+    private static final String DEFAULT_HISTORY_DIR    = "target" + File.separator + "benchmark-history";
+    private static final String FILE_EXTENSION         = ".history";
+    private static final String PROFILE_FILE_EXTENSION = ".collapsed";
+
+    private static final int     MAGIC       = 0x4A4D4248;  // 'JMBH'
+    private static final short   VERSION     = 1;
+    private static final int     HEADER_SIZE = 6;
+    private static final int     MIN_PAYLOAD = 24;  // timestamp, three empty strings and three counts
+    private static final Charset UTF8        = Charset.forName( "UTF-8" );
+
+
+    /**
+     * The history used by the benchmark runner, located by the system property
+     * junitmosaic.benchmark.historyDir and defaulting to target/benchmark-history.
+     */
+    public static BenchmarkHistory getDefault() {
+        return new BenchmarkHistory( new File(System.getProperty(HISTORY_DIR_PROPERTY, DEFAULT_HISTORY_DIR)) );
+    }
+
+
+    private final File dir;
+
+    public BenchmarkHistory( File dir ) {
+        this.dir = dir;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    public File getFileFor( String className, String methodName ) {
+        return new File( new File(dir, className), methodName + FILE_EXTENSION );
+    }
+
+    /**
+     * Where the profile of a benchmark's latest run is written, see StackProfile; next to its history
+     * file and named after its parameters too, for example
+     * directory/className/methodName-size=10.collapsed.
+     */
+    public File getProfileFileFor( String className, String methodName, String parameters ) {
+        String suffix = parameters.isEmpty() ? "" : "-" + parameters.replace( ' ', '-' );
+
+        return new File( new File(dir, className), methodName + suffix + PROFILE_FILE_EXTENSION );
+    }
+
+    public void append( BenchmarkRecord record ) throws IOException {
+        File file = getFileFor( record.getClassName(), record.getMethodName() );
+
+        file.getParentFile().mkdirs();
+
+        byte[] payload = encode( record );
+
+        try ( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+            FileLock lock = raf.getChannel().lock();
+
+            try {
+                long length = raf.length();
+
+                if ( length == 0 ) {
+                    raf.writeInt( MAGIC );
+                    raf.writeShort( VERSION );
+
+                    length = HEADER_SIZE;
+                } else {
+                    length = endOfValidRecords( raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length) );  // overwrite any partially written record
+                }
+
+                ByteBuffer buf = ByteBuffer.allocate( payload.length + 8 );
+                buf.putInt( payload.length );
+                buf.put( payload );
+                buf.putInt( ~payload.length );
+                buf.flip();
+
+                raf.getChannel().write( buf, length );
+                raf.setLength( length + payload.length + 8 );
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Lists the benchmarks that have history, as 'className.methodName'.
+     */
+    public List<String> listBenchmarks() {
+        List<String> benchmarks = new ArrayList<>();
+        File[]       classDirs  = dir.listFiles();
+
+        if ( classDirs == null ) {
+            return benchmarks;
+        }
+
+        for ( File classDir : classDirs ) {
+            File[] files = classDir.listFiles();
+
+            if ( files != null ) {
+                for ( File f : files ) {
+                    if ( f.getName().endsWith(FILE_EXTENSION) ) {
+                        benchmarks.add( classDir.getName() + "." + f.getName().substring(0, f.getName().length()-FILE_EXTENSION.length()) );
+                    }
+                }
+            }
+        }
+
+        Collections.sort( benchmarks );
+
+        return benchmarks;
+    }
+
+    /**
+     * Loads every recorded run of the specified benchmark, oldest first.
+     */
+    public List<BenchmarkRecord> load( String className, String methodName ) throws IOException {
+        return loadLatest( className, methodName, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Loads up to the most recent maxRecords runs of the specified benchmark, oldest first.  Only the
+     * requested records are decoded; the rest of the file is skipped over.
+     */
+    public List<BenchmarkRecord> loadLatest( String className, String methodName, int maxRecords ) throws IOException {
+        File file = getFileFor( className, methodName );
+
+        if ( !file.exists() || maxRecords <= 0 ) {
+            return new ArrayList<>();
+        }
+
+        try ( RandomAccessFile raf = new RandomAccessFile(file, "r") ) {
+            FileChannel channel = raf.getChannel();
+
+            if ( channel.size() < HEADER_SIZE ) {
+                return new ArrayList<>();
+            }
+
+            MappedByteBuffer buf = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            verifyHeader( buf, file );
+
+            List<BenchmarkRecord> records = new ArrayList<>();
+            int                   end     = endOfValidRecords( buf );
+
+            // walk backwards using the trailing length of each record
+            while ( end > HEADER_SIZE && records.size() < maxRecords ) {
+                int length = ~buf.getInt( end-4 );
+                int start  = end - 8 - length;
+
+                records.add( decode(buf, start+4) );
+
+                end = start;
+            }
+
+            Collections.reverse( records );
+
+            return records;
+        }
+    }
+
+
+    private void verifyHeader( ByteBuffer buf, File file ) throws IOException {
+        if ( buf.getInt(0) != MAGIC || buf.getShort(4) != VERSION ) {
+            throw new IOException( file + " is not a benchmark history file (or was written by an unsupported version)" );
+        }
+    }
+
+    /**
+     * Returns the offset just past the last complete record.  Appends are made under a file lock, so
+     * only the final record can have been partially written (by a JVM that died mid write); when
+     * the final record's leading and trailing lengths agree, the whole file is valid.  Otherwise the
+     * records are walked from the start of the file to find where the damage begins.
+     */
+    private static int endOfValidRecords( ByteBuffer buf ) {
+        int limit = buf.limit();
+
+        if ( limit == HEADER_SIZE ) {
+            return limit;
+        } else if ( limit >= HEADER_SIZE+8 ) {
+            int length = ~buf.getInt( limit-4 );
+            int start  = limit - 8 - length;
+
+            if ( length >= MIN_PAYLOAD && start >= HEADER_SIZE && buf.getInt(start) == length ) {
+                return limit;
+            }
+        }
+
+        int pos = HEADER_SIZE;
+
+        while ( pos + 8 <= limit ) {
+            int length = buf.getInt( pos );
+            int end    = pos + 8 + length;
+
+            if ( length < MIN_PAYLOAD || end > limit || end < pos || ~buf.getInt(end-4) != length ) {
+                break;
+            }
+
+            pos = end;
+        }
+
+        return pos;
+    }
+
+    private static byte[] encode( BenchmarkRecord record ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream      out   = new DataOutputStream( bytes );
+
+        out.writeLong( record.getTimestampMillis() );
+        writeString( out, record.getClassName() );
+        writeString( out, record.getMethodName() );
+        writeString( out, record.getParameters() );
+
+        out.writeShort( record.getTags().size() );
+        for ( Map.Entry<String,String> tag : record.getTags().entrySet() ) {
+            writeString( out, tag.getKey() );
+            writeString( out, tag.getValue() );
+        }
+
+        double[] batches = record.getBatchNanosPerCall();
+        out.writeInt( batches.length );
+        for ( double v : batches ) {
+            out.writeDouble( v );
+        }
+
+        out.writeShort( record.getMetrics().size() );
+        for ( Map.Entry<String,Double> metric : record.getMetrics().entrySet() ) {
+            writeString( out, metric.getKey() );
+            out.writeDouble( metric.getValue() );
+        }
+
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private static BenchmarkRecord decode( ByteBuffer source, int offset ) {
+        ByteBuffer buf = source.duplicate();
+        buf.position( offset );
+
+        long   timestamp  = buf.getLong();
+        String className  = readString( buf );
+        String methodName = readString( buf );
+        String parameters = readString( buf );
+
+        int                tagCount = buf.getShort();
+        Map<String,String> tags     = new LinkedHashMap<>();
+        for ( int i=0; i<tagCount; i++ ) {
+            tags.put( readString(buf), readString(buf) );
+        }
+
+        double[] batches = new double[buf.getInt()];
+        for ( int i=0; i<batches.length; i++ ) {
+            batches[i] = buf.getDouble();
+        }
+
+        int                metricCount = buf.getShort();
+        Map<String,Double> metrics     = new LinkedHashMap<>();
+        for ( int i=0; i<metricCount; i++ ) {
+            metrics.put( readString(buf), buf.getDouble() );
+        }
+
+        return new BenchmarkRecord( timestamp, className, methodName, parameters, tags, batches, metrics );
+    }
+
+    private static void writeString( DataOutputStream out, String s ) throws IOException {
+        byte[] bytes = s.getBytes( UTF8 );
+
+        out.writeShort( bytes.length );
+        out.write( bytes );
+    }
+
+    private static String readString( ByteBuffer buf ) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+
+        buf.get( bytes );
+
+        return new String( bytes, UTF8 );
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.softwaremosaic.junit.benchmark;
+
+
+/**
+ * Calls a benchmark method numIterations times.  Implementations are generated per
+ * benchmark method by BenchmarkInvokerFactory, so that the loop that drives the
+ * benchmark contains a direct (and thus inlinable) call to the method being timed
+ * rather than a call via reflection.
+ */
+public interface BenchmarkInvoker {
+
+    /**
+     * Invokes the benchmark method numIterations times against target.  When the benchmark method
+     * declares an int parameter then the method is invoked once and is handed numIterations so that
+     * it may drive its own loop.  Methods that declare a Blackhole parameter are handed blackhole, and
+     * any value returned by the benchmark method is consumed by blackhole.
+     */
+    public void invoke( Object target, int numIterations, Blackhole blackhole ) throws Throwable;
+
+}
@@ -0,0 +1,92 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Binds a benchmark method to its own BenchmarkInvoker.  The invoker is a class generated at runtime
+ * specifically for the method, which contains a plain loop making a direct call to the method.  This keeps
+ * the call site monomorphic and free from the boxing, access checks and argument array allocation
+ * that come with Method.invoke; costs that otherwise dominate the timing of any method that takes
+ * less than ~50ns.<p/>
+ *
+ * Methods that cannot be called directly from another package (non-public methods or classes) fall
+ * back to an invoker that uses reflection.
+ */
+public class BenchmarkInvokerFactory {
+
+    private static final String     GENERATED_PACKAGE = "com.softwaremosaic.junit.benchmark.generated";
+    private static final AtomicLong nextInvokerId     = new AtomicLong(0);
+
+
+    public BenchmarkInvoker newInvokerFor( Method method ) {
+        verifyParameters( method );
+
+        if ( !isCallableFromGeneratedCode(method) ) {
+            return new ReflectiveBenchmarkInvoker( method );
+        }
+
+        String className = GENERATED_PACKAGE + "." + method.getDeclaringClass().getSimpleName() + "_" + method.getName() + "_Invoker" + nextInvokerId.incrementAndGet();
+
+        try {
+            byte[]      classBytes = new InvokerClassWriter( className, method ).toByteArray();
+            ClassLoader parent     = selectParentClassLoader( method );
+            Class<?>    invokerClass = new InvokerClassLoader( parent ).defineInvoker( className, classBytes );
+
+            return (BenchmarkInvoker) invokerClass.getDeclaredConstructor().newInstance();
+        } catch ( InvocationTargetException ex ) {  // the generated constructor does nothing, so this is unexpected
+            throw new IllegalStateException( "Unable to create the invoker of " + method, ex.getCause() );
+        } catch ( LinkageError | ReflectiveOperationException ex ) {
+            return new ReflectiveBenchmarkInvoker( method );
+        }
+    }
+
+    private void verifyParameters( Method method ) {
+        Set<Class<?>> seen = new HashSet<>();
+
+        for ( Class<?> paramType : method.getParameterTypes() ) {
+            boolean isSupportedType = paramType == Integer.TYPE || paramType == Blackhole.class;
+
+            if ( !isSupportedType || !seen.add(paramType) ) {
+                throw new IllegalArgumentException( "@Benchmark method '"+method.getName()+"' may only declare an int parameter, which will be set to the number of iterations to perform, and/or a Blackhole parameter" );
+            }
+        }
+    }
+
+    private boolean isCallableFromGeneratedCode( Method method ) {
+        Class<?> declaringClass = method.getDeclaringClass();
+
+        return Modifier.isPublic( method.getModifiers() )
+            && Modifier.isPublic( declaringClass.getModifiers() )
+            && !declaringClass.isAnonymousClass()
+            && !declaringClass.isLocalClass();
+    }
+
+    private ClassLoader selectParentClassLoader( Method method ) {
+        ClassLoader cl = method.getDeclaringClass().getClassLoader();
+
+        return cl == null ? BenchmarkInvoker.class.getClassLoader() : cl;
+    }
+
+
+    /**
+     * Each generated invoker gets its own class loader, which lets the invoker be unloaded once the
+     * benchmark has finished with it.  The parent is the benchmark's own class loader so that the
+     * generated code can link against the benchmark class.
+     */
+    private static class InvokerClassLoader extends ClassLoader {
+        public InvokerClassLoader( ClassLoader parent ) {
+            super( parent );
+        }
+
+        public Class<?> defineInvoker( String className, byte[] classBytes ) {
+            return defineClass( className, classBytes, 0, classBytes.length );
+        }
+    }
+
+}
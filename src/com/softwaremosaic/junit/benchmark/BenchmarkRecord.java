@@ -0,0 +1,181 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * One run of a benchmark, as stored within BenchmarkHistory.  Records are keyed by class, method and
+ * parameters; tags describe the environment that the run took place in (JVM, OS, git commit etc)
+ * and metrics hold any extra measurements beyond the per call duration of each batch.
+ */
+public class BenchmarkRecord {
+
+    public static final String TAG_JVM    = "jvm";
+    public static final String TAG_OS     = "os";
+    public static final String TAG_CPUS   = "cpus";
+    public static final String TAG_COMMIT = "commit";
+
+    public static final String METRIC_BYTES_PER_CALL                        = "bytesPerCall";
+    public static final String METRIC_GC_NANOS_PER_CALL                     = "gcNanosPerCall";
+    public static final String METRIC_OPS_PER_SECOND                        = "opsPerSecond";
+    public static final String METRIC_STALL_MILLIS                          = "stallMillis";
+    public static final String METRIC_CPU_NANOS_PER_CALL                    = "cpuNanosPerCall";
+    public static final String METRIC_VOLUNTARY_CONTEXT_SWITCHES_PER_CALL   = "voluntaryContextSwitchesPerCall";
+    public static final String METRIC_INVOLUNTARY_CONTEXT_SWITCHES_PER_CALL = "involuntaryContextSwitchesPerCall";
+    public static final String METRIC_PAGE_FAULTS_PER_CALL                  = "pageFaultsPerCall";
+    public static final String METRIC_LATENCY_P50                           = "latencyP50";
+    public static final String METRIC_LATENCY_P99                           = "latencyP99";
+    public static final String METRIC_LATENCY_P999                          = "latencyP999";
+    public static final String METRIC_LATENCY_MAX                           = "latencyMax";
+    public static final String METRIC_FOOTPRINT_BYTES                       = "footprintBytes";
+    public static final String METRIC_FOOTPRINT_BYTES_PER_ELEMENT           = "footprintBytesPerElement";
+
+
+    private final long                timestampMillis;
+    private final String              className;
+    private final String              methodName;
+    private final String              parameters;
+    private final Map<String,String>  tags;
+    private final double[]            batchNanosPerCall;
+    private final Map<String,Double>  metrics;
+    private final SampleStatistics    statistics;
+
+
+    public BenchmarkRecord( long timestampMillis, String className, String methodName, String parameters, Map<String,String> tags, double[] batchNanosPerCall, Map<String,Double> metrics ) {
+        this.timestampMillis   = timestampMillis;
+        this.className         = className;
+        this.methodName        = methodName;
+        this.parameters        = parameters;
+        this.tags              = Collections.unmodifiableMap( new LinkedHashMap<>(tags) );
+        this.batchNanosPerCall = batchNanosPerCall.clone();
+        this.metrics           = Collections.unmodifiableMap( new LinkedHashMap<>(metrics) );
+        this.statistics        = new SampleStatistics( batchNanosPerCall );
+    }
+
+    /**
+     * Creates a record of result, tagged with details of the current JVM and the git commit that is
+     * checked out in the working directory (when there is one).  The GC cost per call, the mean bytes
+     * allocated per call when it was measured, the aggregate throughput of multi-threaded benchmarks,
+     * the latency percentiles of sampled benchmarks and the footprint of FOOTPRINT benchmarks are stored
+     * as metrics.
+     */
+    public static BenchmarkRecord fromResult( BenchmarkResult result ) {
+        Map<String,String> tags     = captureEnvironmentTags();
+        GitRepository      git      = GitRepository.findFromWorkingDirectory();
+        String             commitId = git == null ? null : git.getHeadCommitId();
+
+        if ( commitId != null ) {
+            tags.put( TAG_COMMIT, commitId );
+        }
+
+        Map<String,Double> metrics     = new LinkedHashMap<>();
+        SampleStatistics   allocations = result.getAllocationStatistics();
+
+        if ( allocations != null ) {
+            metrics.put( METRIC_BYTES_PER_CALL, allocations.getMean() );
+        }
+
+        metrics.put( METRIC_GC_NANOS_PER_CALL, result.getGcNanosPerCall() );
+        metrics.put( METRIC_STALL_MILLIS, (double) result.getTotalStallMillis() );
+
+        SampleStatistics cpu = result.getCpuStatistics();
+        if ( cpu != null ) {
+            metrics.put( METRIC_CPU_NANOS_PER_CALL, cpu.getMean() );
+        }
+
+        OsCounters osCounters = result.getTotalOsCounters();
+        if ( osCounters != null ) {
+            double calls = result.getTotalCallCount();
+
+            metrics.put( METRIC_VOLUNTARY_CONTEXT_SWITCHES_PER_CALL,   osCounters.getVoluntaryContextSwitches() / calls );
+            metrics.put( METRIC_INVOLUNTARY_CONTEXT_SWITCHES_PER_CALL, osCounters.getInvoluntaryContextSwitches() / calls );
+            metrics.put( METRIC_PAGE_FAULTS_PER_CALL,                  (osCounters.getMinorPageFaults() + osCounters.getMajorPageFaults()) / calls );
+        }
+
+        if ( result.getThreadCount() > 1 || result.getMode() == BenchmarkMode.THROUGHPUT ) {
+            metrics.put( METRIC_OPS_PER_SECOND, result.getThroughputStatistics().getMean() );
+        }
+
+        LatencyHistogram latencies = result.getLatencyHistogram();
+        if ( latencies != null ) {
+            metrics.put( METRIC_LATENCY_P50,  (double) latencies.getValueAtPercentile(50) );
+            metrics.put( METRIC_LATENCY_P99,  (double) latencies.getValueAtPercentile(99) );
+            metrics.put( METRIC_LATENCY_P999, (double) latencies.getValueAtPercentile(99.9) );
+            metrics.put( METRIC_LATENCY_MAX,  (double) latencies.getMax() );
+        }
+
+        Footprint footprint = result.getFootprint();
+        if ( footprint != null ) {
+            metrics.put( METRIC_FOOTPRINT_BYTES, (double) footprint.getBytes() );
+
+            if ( result.getSize() > 0 ) {
+                metrics.put( METRIC_FOOTPRINT_BYTES_PER_ELEMENT, result.getFootprintBytesPerElement() );
+            }
+        }
+
+        return new BenchmarkRecord(
+            System.currentTimeMillis(),
+            result.getClassName(),
+            result.getMethodName(),
+            result.getParameters(),
+            tags,
+            result.getNanosPerCallOfEachBatch(),
+            metrics
+        );
+    }
+
+    public static Map<String,String> captureEnvironmentTags() {
+        Map<String,String> tags = new LinkedHashMap<>();
+
+        tags.put( TAG_JVM,  System.getProperty("java.vm.name") + " " + System.getProperty("java.version") );
+        tags.put( TAG_OS,   System.getProperty("os.name") + " " + System.getProperty("os.version") + " " + System.getProperty("os.arch") );
+        tags.put( TAG_CPUS, Integer.toString(Runtime.getRuntime().availableProcessors()) );
+
+        return tags;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public Map<String,String> getTags() {
+        return tags;
+    }
+
+    public String getTag( String name ) {
+        return tags.get( name );
+    }
+
+    public double[] getBatchNanosPerCall() {
+        return batchNanosPerCall.clone();
+    }
+
+    public Map<String,Double> getMetrics() {
+        return metrics;
+    }
+
+    public SampleStatistics getStatistics() {
+        return statistics;
+    }
+
+    public String toString() {
+        return className + "." + methodName + (parameters.isEmpty() ? "" : "["+parameters+"]") + "@" + timestampMillis;
+    }
+
+}
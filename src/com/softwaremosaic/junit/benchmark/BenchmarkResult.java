@@ -0,0 +1,818 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
+import com.softwaremosaic.junit.io.IndentWriter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The outcome of running a benchmark method; every measured batch along with summary statistics
+ * of the per call duration (and heap allocation) of those batches.
+ */
+public class BenchmarkResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final double CONFIDENCE_LEVEL = 0.999;
+
+    /**
+     * Measurements that are less than this multiple of the harness's noise floor are flagged, as the
+     * harness accounts for at least half of what was measured.
+     */
+    public static final double NOISE_FLOOR_MULTIPLE = 2.0;
+
+    /**
+     * CPU time is only compared with the wall clock time when every batch ran for at least this long.
+     * Reading a thread's CPU clock takes around a microsecond (and the clock is coarser still on some
+     * OSes), which swamps the CPU time of shorter batches.
+     */
+    public static final long MIN_CPU_BATCH_NANOS = 1000000;
+
+    private static final int PROFILE_FRAMES_REPORTED   = 5;
+    private static final int FOOTPRINT_CLASSES_REPORTED = 5;
+
+
+    private final String                 className;
+    private final String                 methodName;
+    private final String                 units;
+    private final double                 durationResultMultiplier;
+    private final List<BatchMeasurement> batches;
+    private final SampleStatistics       statistics;
+
+    private int                          warmupBatchCount;
+    private long                         warmupNanos;
+    private int                          forkCount;
+    private String                       parameters      = "";
+    private BenchmarkMode                mode            = BenchmarkMode.AVERAGE_TIME;
+    private LatencyHistogram             latencyHistogram;
+    private HarnessCalibration           harnessCalibration;
+    private StackProfile                 profile;
+    private JitLog                       jitLog;
+    private Footprint                    footprint;
+    private long                         size;
+    private List<BatchMeasurement>       excludedBatches = Collections.emptyList();
+
+
+    public BenchmarkResult( String className, String methodName, String units, double durationResultMultiplier, List<BatchMeasurement> batches ) {
+        this.className                = className;
+        this.methodName               = methodName;
+        this.units                    = units;
+        this.durationResultMultiplier = durationResultMultiplier;
+        this.batches                  = Collections.unmodifiableList( new ArrayList<>(batches) );
+        this.statistics               = new SampleStatistics( getNanosPerCallOfEachBatch() );
+    }
+
+    /**
+     * Merges the results of running the same benchmark in several forked JVMs; the batches of every
+     * fork are treated as samples of one population.
+     */
+    public static BenchmarkResult combineForks( List<BenchmarkResult> forkResults ) {
+        BenchmarkResult        first            = forkResults.get( 0 );
+        List<BatchMeasurement> batches          = new ArrayList<>();
+        List<BatchMeasurement> excludedBatches  = new ArrayList<>();
+        LatencyHistogram       latencies        = first.latencyHistogram == null ? null : new LatencyHistogram();
+        StackProfile           profile          = first.profile == null ? null : new StackProfile( first.profile.getIntervalMillis() );
+        JitLog                 jitLog           = null;
+        int                    warmupBatchCount = 0;
+        long                   warmupNanos      = 0;
+
+        for ( BenchmarkResult r : forkResults ) {
+            batches.addAll( r.getBatches() );
+            excludedBatches.addAll( r.getExcludedBatches() );
+
+            if ( latencies != null ) {
+                latencies.add( r.getLatencyHistogram() );
+            }
+
+            if ( profile != null ) {
+                profile.add( r.getProfile() );
+            }
+
+            if ( r.getJitLog() != null ) {
+                if ( jitLog == null ) {
+                    jitLog = new JitLog( r.getJitLog().getInclude() );
+                }
+
+                jitLog.add( r.getJitLog() );
+            }
+
+            warmupBatchCount += r.getWarmupBatchCount();
+            warmupNanos      += r.getWarmupNanos();
+        }
+
+        BenchmarkResult combined = new BenchmarkResult( first.className, first.methodName, first.units, first.durationResultMultiplier, batches );
+        combined.forkCount  = forkResults.size();
+        combined.parameters = first.parameters;
+        combined.mode       = first.mode;
+
+        combined.latencyHistogram   = latencies;
+        combined.harnessCalibration = first.harnessCalibration;
+        combined.profile            = profile;
+        combined.jitLog             = jitLog;
+        combined.footprint          = first.footprint;  // every fork builds the same structure
+        combined.size               = first.size;
+
+        return combined.withWarmup( warmupBatchCount, warmupNanos ).withExcludedBatches( excludedBatches );
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getUnits() {
+        return units;
+    }
+
+    public double getDurationResultMultiplier() {
+        return durationResultMultiplier;
+    }
+
+    public List<BatchMeasurement> getBatches() {
+        return batches;
+    }
+
+    /**
+     * Distinguishes the results of one benchmark method that was run several times with different
+     * settings, for example "threads=4".  Empty when the method was run just once.
+     */
+    public BenchmarkResult withParameters( String parameters ) {
+        this.parameters = parameters;
+
+        return this;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public BenchmarkResult withMode( BenchmarkMode mode ) {
+        this.mode = mode;
+
+        return this;
+    }
+
+    public BenchmarkMode getMode() {
+        return mode;
+    }
+
+    /**
+     * The latencies of individual calls, recorded when the benchmark ran in BenchmarkMode.SAMPLE_LATENCY.
+     */
+    public BenchmarkResult withLatencyHistogram( LatencyHistogram latencyHistogram ) {
+        this.latencyHistogram = latencyHistogram;
+
+        return this;
+    }
+
+    /**
+     * @return null unless the benchmark sampled the latency of each call
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    /**
+     * The stacks sampled during the measured batches, when the benchmark was profiled.
+     */
+    public BenchmarkResult withProfile( StackProfile profile ) {
+        this.profile = profile;
+
+        return this;
+    }
+
+    /**
+     * @return null unless the benchmark was profiled
+     */
+    public StackProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * The JIT activity of the forked JVM that measured the benchmark, see Benchmark.logJit().
+     */
+    public BenchmarkResult withJitLog( JitLog jitLog ) {
+        this.jitLog = jitLog;
+
+        return this;
+    }
+
+    /**
+     * @return null unless the JIT's activity was logged
+     */
+    public JitLog getJitLog() {
+        return jitLog;
+    }
+
+    /**
+     * The heap retained by the structure that the benchmark built, in BenchmarkMode.FOOTPRINT.
+     */
+    public BenchmarkResult withFootprint( Footprint footprint ) {
+        this.footprint = footprint;
+
+        return this;
+    }
+
+    /**
+     * @return null unless the benchmark was run in BenchmarkMode.FOOTPRINT
+     */
+    public Footprint getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * The footprint divided by the size that the benchmark was measured at, or NaN when there is no
+     * footprint or size.
+     */
+    public double getFootprintBytesPerElement() {
+        return footprint == null || size <= 0 ? Double.NaN : (double) footprint.getBytes() / size;
+    }
+
+    /**
+     * The size (of the data) that the benchmark was measured at, see Benchmark.sizes().
+     */
+    public BenchmarkResult withSize( long size ) {
+        this.size = size;
+
+        return this;
+    }
+
+    /**
+     * @return zero unless the benchmark declared sizes()
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * The overheads of the harness in the JVM that measured the benchmark.
+     */
+    public BenchmarkResult withHarnessCalibration( HarnessCalibration harnessCalibration ) {
+        this.harnessCalibration = harnessCalibration;
+
+        return this;
+    }
+
+    /**
+     * @return null when the harness was not calibrated
+     */
+    public HarnessCalibration getHarnessCalibration() {
+        return harnessCalibration;
+    }
+
+    /**
+     * The overhead per call that the harness adds to each batch's timing, scaled by the
+     * durationResultMultiplier.  NaN when the harness was not calibrated.
+     */
+    public double getNoiseFloorNanos() {
+        if ( harnessCalibration == null || batches.isEmpty() ) {
+            return Double.NaN;
+        }
+
+        int minIterationCount = Integer.MAX_VALUE;
+        for ( BatchMeasurement batch : batches ) {
+            minIterationCount = Math.min( minIterationCount, batch.getIterationCount() );
+        }
+
+        return harnessCalibration.getNoiseFloorNanos( minIterationCount ) * durationResultMultiplier;
+    }
+
+    /**
+     * True when the mean time per call is less than NOISE_FLOOR_MULTIPLE times the noise floor, in
+     * which case the measurement says as much about the harness as about the benchmark.
+     */
+    public boolean isWithinNoiseFloor() {
+        double noiseFloor = getNoiseFloorNanos();
+
+        return !Double.isNaN(noiseFloor) && statistics.getMean() < noiseFloor*NOISE_FLOOR_MULTIPLE;
+    }
+
+    /**
+     * The number of threads that invoked the benchmark concurrently during each batch.
+     */
+    public int getThreadCount() {
+        return batches.isEmpty() ? 1 : batches.get(0).getThreadCount();
+    }
+
+    public BenchmarkResult withWarmup( int warmupBatchCount, long warmupNanos ) {
+        this.warmupBatchCount = warmupBatchCount;
+        this.warmupNanos      = warmupNanos;
+
+        return this;
+    }
+
+    /**
+     * Batches that were measured but left out of the statistics because a garbage collection occurred
+     * or the system stalled while they were running; see Benchmark.excludeGcBatches() and
+     * Benchmark.excludeStalledBatches().
+     */
+    public BenchmarkResult withExcludedBatches( List<BatchMeasurement> excludedBatches ) {
+        this.excludedBatches = Collections.unmodifiableList( new ArrayList<>(excludedBatches) );
+
+        return this;
+    }
+
+    public List<BatchMeasurement> getExcludedBatches() {
+        return excludedBatches;
+    }
+
+    /**
+     * The number of forked JVMs that the batches were measured in, zero when the benchmark ran within the
+     * test JVM.
+     */
+    public int getForkCount() {
+        return forkCount;
+    }
+
+    public int getWarmupBatchCount() {
+        return warmupBatchCount;
+    }
+
+    public long getWarmupNanos() {
+        return warmupNanos;
+    }
+
+    /**
+     * The number of measured batches that overlapped with JIT compilation.
+     */
+    public int countJitActiveBatches() {
+        int count = 0;
+
+        for ( BatchMeasurement batch : batches ) {
+            if ( batch.wasJitActive() ) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * The number of measured batches, including excluded batches, that overlapped with a garbage collection.
+     */
+    public int countGcActiveBatches() {
+        int count = 0;
+
+        for ( BatchMeasurement batch : getAllBatches() ) {
+            if ( batch.wasGcActive() ) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * The number of measured batches, including excluded batches, that stalled.
+     */
+    public int countStalledBatches() {
+        int count = 0;
+
+        for ( BatchMeasurement batch : getAllBatches() ) {
+            if ( batch.wasStalled() ) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * The total time that the SystemStallDetector saw the JVM freeze for while the measured batches,
+     * including excluded batches, were running.
+     */
+    public long getTotalStallMillis() {
+        long total = 0;
+
+        for ( BatchMeasurement batch : getAllBatches() ) {
+            total += batch.getStallMillis();
+        }
+
+        return total;
+    }
+
+    /**
+     * The time spent collecting garbage during the measured batches, including excluded batches, spread
+     * across every call made by those batches.  This is the GC cost that the benchmark's allocations
+     * (and any other activity in the JVM) impose per call.
+     */
+    public double getGcNanosPerCall() {
+        long gcMillis   = 0;
+        long iterations = 0;
+
+        for ( BatchMeasurement batch : getAllBatches() ) {
+            gcMillis   += batch.getGcMillis();
+            iterations += batch.getTotalCallCount();
+        }
+
+        return iterations == 0 ? 0 : gcMillis * 1000000.0 * durationResultMultiplier / iterations;
+    }
+
+    /**
+     * Statistics of the per call duration (in nanoseconds) of each batch.
+     */
+    public SampleStatistics getStatistics() {
+        return statistics;
+    }
+
+    public double getNanosPerCall( BatchMeasurement batch ) {
+        return batch.getDurationNanos() * durationResultMultiplier / batch.getIterationCount();
+    }
+
+    /**
+     * The bytes allocated per call during batch, scaled by the durationResultMultiplier to match the
+     * units of the timings.  NaN when allocations were not measured.
+     */
+    public double getBytesPerCall( BatchMeasurement batch ) {
+        return batch.hasAllocatedBytes() ? batch.getAllocatedBytes() * durationResultMultiplier / batch.getTotalCallCount() : Double.NaN;
+    }
+
+    /**
+     * Statistics of the bytes allocated per call by each batch, or null when the JVM could not measure
+     * allocations.
+     */
+    public SampleStatistics getAllocationStatistics() {
+        double[] values = new double[batches.size()];
+
+        for ( int i=0; i<values.length; i++ ) {
+            values[i] = getBytesPerCall( batches.get(i) );
+
+            if ( Double.isNaN(values[i]) ) {
+                return null;
+            }
+        }
+
+        return values.length == 0 ? null : new SampleStatistics( values );
+    }
+
+    /**
+     * The CPU time consumed per call during batch, scaled by the durationResultMultiplier.  NaN when CPU
+     * time was not measured.
+     */
+    public double getCpuNanosPerCall( BatchMeasurement batch ) {
+        return batch.hasCpuNanos() ? batch.getCpuNanos() * durationResultMultiplier / batch.getTotalCallCount() : Double.NaN;
+    }
+
+    /**
+     * True when every batch ran for long enough that its CPU time is mostly the benchmark's, rather than
+     * the cost of reading the CPU clock; see MIN_CPU_BATCH_NANOS.
+     */
+    public boolean isCpuTimeComparable() {
+        for ( BatchMeasurement batch : batches ) {
+            if ( batch.getDurationNanos() < MIN_CPU_BATCH_NANOS ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Statistics of the CPU time consumed per call by each batch, or null when the JVM could not measure
+     * thread CPU time.  A CPU time per call that is close to the wall clock time per call means that the
+     * benchmark was on a CPU for the whole batch; so a regression in both is in the code, while a
+     * regression in the wall clock time alone is time spent waiting.
+     */
+    public SampleStatistics getCpuStatistics() {
+        double[] values = new double[batches.size()];
+
+        for ( int i=0; i<values.length; i++ ) {
+            values[i] = getCpuNanosPerCall( batches.get(i) );
+
+            if ( Double.isNaN(values[i]) ) {
+                return null;
+            }
+        }
+
+        return values.length == 0 ? null : new SampleStatistics( values );
+    }
+
+    /**
+     * The OS counters summed over the measured batches, or null when the OS did not provide them.
+     */
+    public OsCounters getTotalOsCounters() {
+        OsCounters total = new OsCounters( 0, 0, 0, 0 );
+
+        for ( BatchMeasurement batch : batches ) {
+            if ( batch.getOsCounters() == null ) {
+                return null;
+            }
+
+            total = total.plus( batch.getOsCounters() );
+        }
+
+        return batches.isEmpty() ? null : total;
+    }
+
+    /**
+     * The number of calls, in units, made by the measured batches.  Used to express totals such as
+     * getTotalOsCounters() per call.
+     */
+    public double getTotalCallCount() {
+        long calls = 0;
+
+        for ( BatchMeasurement batch : batches ) {
+            calls += batch.getTotalCallCount();
+        }
+
+        return calls / durationResultMultiplier;
+    }
+
+    /**
+     * The number of calls (in units) completed per second across every thread during batch.
+     */
+    public double getOpsPerSecond( BatchMeasurement batch ) {
+        return batch.getTotalCallCount() * 1000000000.0 / (batch.getDurationNanos() * durationResultMultiplier);
+    }
+
+    /**
+     * Statistics of the aggregate number of calls (in units) completed per second by each batch.
+     */
+    public SampleStatistics getThroughputStatistics() {
+        double[] values = new double[batches.size()];
+
+        for ( int i=0; i<values.length; i++ ) {
+            values[i] = getOpsPerSecond( batches.get(i) );
+        }
+
+        return new SampleStatistics( values );
+    }
+
+    public double[] getNanosPerCallOfEachBatch() {
+        double[] values = new double[batches.size()];
+
+        for ( int i=0; i<values.length; i++ ) {
+            values[i] = getNanosPerCall( batches.get(i) );
+        }
+
+        return values;
+    }
+
+    public String toString() {
+        IndentWriter out = new IndentWriter( new StringBuilder(), "    " );
+
+        appendTo( out );
+
+        return out.toString();
+    }
+
+    public void appendTo( IndentWriter out ) {
+        String simpleClassName = className.substring( className.lastIndexOf('.')+1 );
+        String qualifier       = parameters.isEmpty() ? "" : "[" + parameters + "]";
+
+        out.println( "Benchmark results for " + simpleClassName + "." + methodName + qualifier + " (batchCount=" + batches.size() + ", timingMultiplier=" + durationResultMultiplier + ")" );
+        out.newLine();
+        out.incIndent();
+
+        appendSummaryTo( out );
+
+        out.newLine();
+        out.println( "batches:" );
+        out.incIndent();
+
+        for ( BatchMeasurement batch : batches ) {
+            appendBatchTo( out, batch );
+        }
+
+        out.decIndent();
+
+        if ( !excludedBatches.isEmpty() ) {
+            out.newLine();
+            out.println( "excluded batches (" + describeExclusions() + "):" );
+            out.incIndent();
+
+            for ( BatchMeasurement batch : excludedBatches ) {
+                appendBatchTo( out, batch );
+            }
+
+            out.decIndent();
+        }
+
+        out.decIndent();
+    }
+
+    private void appendSummaryTo( IndentWriter out ) {
+        SampleStatistics s        = statistics;
+        double           ciHalf   = s.getConfidenceIntervalHalfWidth( CONFIDENCE_LEVEL );
+        String           ciSuffix = Double.isNaN(ciHalf) ? "" : String.format( " +/- %s (%s%% CI %s..%s)", formatNanos(ciHalf), formatPercent(CONFIDENCE_LEVEL), formatNanos(s.getMean()-ciHalf), formatNanos(s.getMean()+ciHalf) );
+
+        if ( mode == BenchmarkMode.THROUGHPUT ) {
+            SampleStatistics throughput = getThroughputStatistics();
+            double           opsCiHalf  = throughput.getConfidenceIntervalHalfWidth( CONFIDENCE_LEVEL );
+            String           opsCi      = Double.isNaN(opsCiHalf) ? "" : " +/- " + formatRate(opsCiHalf) + " (" + formatPercent(CONFIDENCE_LEVEL) + "% CI)";
+
+            out.println( "ops/sec: " + formatRate(throughput.getMean()) + opsCi );
+        }
+
+        out.println( "mean:    " + formatNanos(s.getMean()) + " per " + units + ciSuffix );
+        out.println( "median:  " + formatNanos(s.getMedian()) );
+
+        out.println( "stddev:  " + formatNanos(s.getStandardDeviation()) );
+        out.println( "min/max: " + formatNanos(s.getMin()) + " / " + formatNanos(s.getMax()) );
+        out.println( "p90/p99: " + formatNanos(s.getPercentile(90)) + " / " + formatNanos(s.getPercentile(99)) );
+
+        if ( latencyHistogram != null ) {
+            LatencyHistogram h = latencyHistogram;
+
+            out.println( "latency: p50=" + formatNanos(h.getValueAtPercentile(50)) + " p90=" + formatNanos(h.getValueAtPercentile(90))
+                + " p99=" + formatNanos(h.getValueAtPercentile(99)) + " p99.9=" + formatNanos(h.getValueAtPercentile(99.9))
+                + " max=" + formatNanos(h.getMax()) + " (" + h.getTotalCount() + " calls sampled)" );
+        }
+
+        if ( getThreadCount() > 1 ) {
+            out.println( "threads: " + getThreadCount() + ", " + formatRate(getThroughputStatistics().getMean()) + " ops/sec in total" );
+        }
+        SampleStatistics cpu = getCpuStatistics();
+        if ( cpu != null ) {
+            String share = isCpuTimeComparable() ? formatPercent(cpu.getMean()/s.getMean()) + "% of the wall clock time" : "batches too short to compare with the wall clock time";
+
+            out.println( "cpu:     " + formatNanos(cpu.getMean()) + " per " + units + " (" + share + ")" );
+        }
+
+        OsCounters osCounters = getTotalOsCounters();
+        if ( osCounters != null ) {
+            double calls = getTotalCallCount();
+
+            out.println( "os:      context switches " + formatCount(osCounters.getVoluntaryContextSwitches()/calls) + " voluntary / " + formatCount(osCounters.getInvoluntaryContextSwitches()/calls) + " involuntary,"
+                + " page faults " + formatCount(osCounters.getMinorPageFaults()/calls) + " minor / " + formatCount(osCounters.getMajorPageFaults()/calls) + " major, per " + units );
+        }
+
+        SampleStatistics allocations = getAllocationStatistics();
+        if ( allocations != null ) {
+            out.println( "alloc:   " + formatBytes(allocations.getMean()) + " per " + units );
+        }
+
+        out.println( "warmup:  " + warmupBatchCount + " batches over " + formatNanos(warmupNanos) );
+
+        if ( forkCount > 0 ) {
+            out.println( "forks:   " + forkCount );
+        }
+
+        if ( harnessCalibration != null ) {
+            out.println( "harness: " + harnessCalibration + ", noise floor " + formatNanos(getNoiseFloorNanos()) + " per " + units );
+        }
+
+        if ( profile != null ) {
+            appendProfileTo( out );
+        }
+
+        if ( jitLog != null ) {
+            jitLog.appendTo( out );
+        }
+
+        if ( footprint != null ) {
+            footprint.appendTo( out, size, FOOTPRINT_CLASSES_REPORTED );
+        }
+
+        int gcActiveBatchCount = countGcActiveBatches();
+        if ( gcActiveBatchCount > 0 ) {
+            out.println( "gc:      " + formatNanos(getGcNanosPerCall()) + " per " + units + " (collections during " + gcActiveBatchCount + " of " + getAllBatches().size() + " batches)" );
+        }
+
+        int stalledBatchCount = countStalledBatches();
+        if ( stalledBatchCount > 0 ) {
+            out.println( "stalls:  " + getTotalStallMillis() + "ms in total (stalls during " + stalledBatchCount + " of " + getAllBatches().size() + " batches)" );
+        }
+
+        int stalledMeasuredBatchCount = countStalledMeasuredBatches();
+        if ( stalledMeasuredBatchCount > 0 ) {
+            out.println( "WARNING: the system stalled during " + stalledMeasuredBatchCount + " of " + batches.size() + " measured batches, their timings include the stalls" );
+        }
+
+        if ( isWithinNoiseFloor() ) {
+            out.println( "WARNING: the time per " + units + " is within the harness's noise floor of " + formatNanos(getNoiseFloorNanos()) + ", so is dominated by the cost of the benchmark loop and timer" );
+        }
+
+        if ( latencyHistogram != null && harnessCalibration != null && latencyHistogram.getValueAtPercentile(50) < harnessCalibration.getTimerErrorNanos()*NOISE_FLOOR_MULTIPLE ) {
+            out.println( "WARNING: the sampled latencies are within the timer's noise floor of " + formatNanos(harnessCalibration.getTimerErrorNanos()) + ", as each sample includes a read of the clock" );
+        }
+
+        int jitActiveBatchCount = countJitActiveBatches();
+        if ( jitActiveBatchCount > 0 ) {
+            out.println( "WARNING: JIT compilation occurred during " + jitActiveBatchCount + " of " + batches.size() + " measured batches, consider a longer warm up" );
+        }
+    }
+
+    private void appendProfileTo( IndentWriter out ) {
+        long sampleCount = profile.getSampleCount();
+
+        out.println( "profile: " + sampleCount + " stacks sampled every " + profile.getIntervalMillis() + "ms" + (sampleCount == 0 ? "" : ", hottest frames:") );
+        out.incIndent();
+
+        for ( Map.Entry<String,Long> frame : profile.getHottestFrames(PROFILE_FRAMES_REPORTED) ) {
+            out.println( String.format("%6s%%  %s", formatPercent((double) frame.getValue()/sampleCount), frame.getKey()) );
+        }
+
+        out.decIndent();
+    }
+
+    private void appendBatchTo( IndentWriter out, BatchMeasurement batch ) {
+        double nanosPerCall = getNanosPerCall( batch );
+
+        out.print( formatNanos(nanosPerCall) + " per " + units + "  (" + batch.getIterationCount() + " iterations)" );
+
+        if ( batch.hasAllocatedBytes() ) {
+            out.print( "  " + formatBytes(getBytesPerCall(batch)) );
+        }
+
+        if ( statistics.isOutlier(nanosPerCall) ) {
+            out.print( "  OUTLIER" );
+        }
+
+        if ( batch.wasGcActive() ) {
+            out.print( "  GC(" + batch.getGcCount() + "x, " + batch.getGcMillis() + "ms)" );
+        }
+
+        if ( batch.wasJitActive() ) {
+            out.print( "  JIT(" + batch.getCompilationMillis() + "ms)" );
+        }
+
+        if ( batch.wasStalled() ) {
+            out.print( "  STALL(" + batch.getStallMillis() + "ms)" );
+        }
+
+        out.newLine();
+    }
+
+
+    private int countStalledMeasuredBatches() {
+        int count = 0;
+
+        for ( BatchMeasurement batch : batches ) {
+            if ( batch.wasStalled() ) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private String describeExclusions() {
+        boolean gc    = false;
+        boolean stall = false;
+
+        for ( BatchMeasurement batch : excludedBatches ) {
+            gc    |= batch.wasGcActive();
+            stall |= batch.wasStalled();
+        }
+
+        if ( gc && stall ) {
+            return "GC, stall";
+        }
+
+        return stall ? "stall" : "GC";
+    }
+
+    private List<BatchMeasurement> getAllBatches() {
+        if ( excludedBatches.isEmpty() ) {
+            return batches;
+        }
+
+        List<BatchMeasurement> all = new ArrayList<>( batches );
+        all.addAll( excludedBatches );
+
+        return all;
+    }
+
+
+    /**
+     * Formats a duration using ns, or ms once the duration exceeds a millisecond.
+     */
+    public static String formatNanos( double nanos ) {
+        if ( nanos < 1000000 ) {
+            return String.format( "%.2fns", nanos );
+        } else {
+            return String.format( "%.2fms", nanos/1000000.0 );
+        }
+    }
+
+    public static String formatRate( double perSecond ) {
+        return String.format( "%,.0f", perSecond );
+    }
+
+    public static String formatBytes( double bytes ) {
+        return String.format( "%.2f bytes", bytes );
+    }
+
+    /**
+     * Formats a count per call, which is often a tiny fraction, to three significant figures.
+     */
+    public static String formatCount( double count ) {
+        return String.format( "%.3g", count );
+    }
+
+    private static String formatPercent( double fraction ) {
+        String txt = String.format( "%.1f", fraction*100 );
+
+        return txt.endsWith(".0") ? txt.substring(0, txt.length()-2) : txt;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.softwaremosaic.junit.benchmark;
+
+
+/**
+ * Consumes values so that the JIT cannot prove that the work which produced them is unused, and
+ * thus cannot optimise that work away.  Benchmark methods may declare a Blackhole parameter and
+ * consume intermediate values into it; any value returned from a benchmark method is consumed
+ * automatically.<p/>
+ *
+ * The checks performed against the consumed values read volatile fields that the JIT cannot see
+ * the values of.  The checks never match in practice, but the JIT has to assume that they might
+ * and so it must compute every consumed value.
+ *
+ * <pre>
+ *     &#64;Benchmark
+ *     public void parse( Blackhole blackhole ) {
+ *         blackhole.consume( Integer.parseInt("1234") );
+ *         blackhole.consume( Long.parseLong("5678") );
+ *     }
+ * </pre>
+ */
+@SuppressWarnings("UnusedDeclaration")
+public final class Blackhole {
+
+    // each pair of fields holds two different values; a consumed value can never equal both of them
+    private volatile boolean booleanA = false, booleanB = true;
+    private volatile byte    byteA    = 1,     byteB    = 2;
+    private volatile short   shortA   = 1,     shortB   = 2;
+    private volatile char    charA    = 'A',   charB    = 'B';
+    private volatile int     intA     = 1,     intB     = 2;
+    private volatile long    longA    = 1,     longB    = 2;
+    private volatile float   floatA   = 1,     floatB   = 2;
+    private volatile double  doubleA  = 1,     doubleB  = 2;
+
+    // objects are kept only very rarely, avoiding the cost of a write barrier per call
+    private volatile int     objectMask = 1;
+    private          int     objectSeed = (int) System.nanoTime();
+    private          Object  objectSink;
+
+
+    public void consume( boolean v ) {
+        if ( v == booleanA & v == booleanB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( byte v ) {
+        if ( v == byteA & v == byteB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( short v ) {
+        if ( v == shortA & v == shortB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( char v ) {
+        if ( v == charA & v == charB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( int v ) {
+        if ( v == intA & v == intB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( long v ) {
+        if ( v == longA & v == longB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( float v ) {
+        if ( v == floatA & v == floatB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( double v ) {
+        if ( v == doubleA & v == doubleB ) {
+            throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    public void consume( Object v ) {
+        int mask = objectMask;
+        int seed = objectSeed = objectSeed*1664525 + 1013904223;
+
+        if ( (seed & mask) == 0 ) {
+            objectSink = v;
+            objectMask = (mask << 1) + 1;
+        }
+    }
+
+}
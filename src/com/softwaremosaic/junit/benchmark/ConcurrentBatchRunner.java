@@ -0,0 +1,207 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Runs each batch of a benchmark on several threads at once, all sharing the same benchmark instance.
+ * The worker threads are started once and reused for every batch.  Each batch holds its workers
+ * behind a barrier so that they start together; the batch's duration runs from the earliest worker
+ * starting to the last worker finishing, and so the per call duration is the latency of a call as
+ * experienced by one thread while the others compete with it.  Each worker's CPU time, allocations and
+ * OS counters are read once it has been released by the barrier, so that waiting at the barrier is not
+ * charged to the benchmark.<p/>
+ *
+ * Every worker has its own Blackhole, so that consuming results does not introduce contention of its
+ * own.  The worker threads are all started by the constructor.  Call close() to stop them.
+ */
+public class ConcurrentBatchRunner {
+
+    private final Object             target;
+    private final int                threadCount;
+    private final Blackhole[]        blackholes;
+    private final List<Thread>       workerThreads = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor workers;
+    private final AllocationMonitor  allocationMonitor = new AllocationMonitor();
+    private final CpuTimeMonitor     cpuTimeMonitor    = new CpuTimeMonitor();
+    private final OsCounterMonitor   osCounterMonitor  = new OsCounterMonitor();
+
+
+    public ConcurrentBatchRunner( Object target, int threadCount ) {
+        if ( threadCount < 1 ) {
+            throw new IllegalArgumentException( "threadCount must be 1 or more, was " + threadCount );
+        }
+
+        this.target      = target;
+        this.threadCount = threadCount;
+        this.blackholes  = new Blackhole[threadCount];
+        this.workers     = new ThreadPoolExecutor( threadCount, threadCount, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private int count = 0;
+
+            public synchronized Thread newThread( Runnable r ) {
+                Thread t = new Thread( r, "benchmark-worker-" + (count++) );
+                t.setDaemon( true );
+
+                workerThreads.add( t );
+
+                return t;
+            }
+        });
+
+        workers.prestartAllCoreThreads();
+
+        for ( int i=0; i<threadCount; i++ ) {
+            blackholes[i] = new Blackhole();
+        }
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public List<Thread> getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Has every worker invoke the benchmark numIterations times.
+     */
+    public BatchMeasurement runBatch( BenchmarkInvoker invoker, int numIterations ) throws Throwable {
+        return runBatch( invoker, numIterations, 0 );
+    }
+
+    /**
+     * Has every worker invoke the benchmark over and over for durationNanos, see TimeBox.  The workers
+     * may each make a different number of calls; the batch's iteration count is their mean.
+     */
+    public BatchMeasurement runTimedBatch( BenchmarkInvoker invoker, long durationNanos ) throws Throwable {
+        return runBatch( invoker, 0, durationNanos );
+    }
+
+    private BatchMeasurement runBatch( final BenchmarkInvoker invoker, final int numIterations, final long durationNanos ) throws Throwable {
+        final CyclicBarrier         barrier = new CyclicBarrier( threadCount );
+        List<Future<WorkerTimings>> futures = new ArrayList<>( threadCount );
+
+        for ( int i=0; i<threadCount; i++ ) {
+            final Blackhole blackhole = blackholes[i];
+
+            futures.add( workers.submit(new Callable<WorkerTimings>() {
+                public WorkerTimings call() throws Exception {
+                    barrier.await();
+
+                    // read after the barrier, so that parking on it is not counted as a context switch
+                    OsCounters osCounters0     = osCounterMonitor.readCurrentThreadCounters();
+                    long       allocatedBytes0 = allocationMonitor.getCurrentThreadAllocatedBytes();
+                    long       cpuNanos0       = cpuTimeMonitor.getCurrentThreadCpuNanos();
+
+                    int  callCount  = numIterations;
+                    long startNanos = System.nanoTime();
+                    try {
+                        if ( durationNanos > 0 ) {
+                            callCount = TimeBox.invokeFor( invoker, target, blackhole, durationNanos );
+                        } else {
+                            invoker.invoke( target, numIterations, blackhole );
+                        }
+                    } catch ( Exception | Error ex ) {
+                        throw ex;
+                    } catch ( Throwable ex ) {
+                        throw new ExecutionException( ex );
+                    }
+                    long endNanos = System.nanoTime();
+
+                    long       cpuNanos1       = cpuTimeMonitor.getCurrentThreadCpuNanos();
+                    long       allocatedBytes1 = allocationMonitor.getCurrentThreadAllocatedBytes();
+                    OsCounters osCounters1     = osCounterMonitor.readCurrentThreadCounters();
+
+                    return new WorkerTimings(
+                        callCount,
+                        startNanos,
+                        endNanos,
+                        allocationMonitor.bytesAllocatedBetween( allocatedBytes0, allocatedBytes1 ),
+                        cpuTimeMonitor.cpuNanosBetween( cpuNanos0, cpuNanos1 ),
+                        OsCounterMonitor.countersBetween( osCounters0, osCounters1 )
+                    );
+                }
+            }) );
+        }
+
+        long       callCount      = 0;
+        long       earliestStart  = Long.MAX_VALUE;
+        long       latestEnd      = Long.MIN_VALUE;
+        long       allocatedBytes = 0;
+        long       cpuNanos       = 0;
+        OsCounters osCounters     = new OsCounters( 0, 0, 0, 0 );
+
+        for ( Future<WorkerTimings> future : futures ) {
+            WorkerTimings timings = awaitWorker( future );
+
+            callCount     += timings.callCount;
+            earliestStart  = Math.min( earliestStart, timings.startNanos );
+            latestEnd      = Math.max( latestEnd, timings.endNanos );
+            allocatedBytes = allocatedBytes < 0 || timings.allocatedBytes < 0 ? -1 : allocatedBytes + timings.allocatedBytes;
+            cpuNanos       = cpuNanos < 0 || timings.cpuNanos < 0 ? -1 : cpuNanos + timings.cpuNanos;
+            osCounters     = osCounters == null || timings.osCounters == null ? null : osCounters.plus( timings.osCounters );
+        }
+
+        return new BatchMeasurement( (int) (callCount/threadCount), latestEnd-earliestStart )
+            .withThreadCount( threadCount )
+            .withAllocatedBytes( allocatedBytes )
+            .withCpuNanos( cpuNanos )
+            .withOsCounters( osCounters );
+    }
+
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private WorkerTimings awaitWorker( Future<WorkerTimings> future ) throws Throwable {
+        try {
+            return future.get();
+        } catch ( ExecutionException ex ) {
+            Throwable cause = ex.getCause();
+
+            // unwrap checked exceptions that were wrapped in order to cross the Callable boundary
+            if ( cause instanceof ExecutionException && cause.getCause() != null ) {
+                cause = cause.getCause();
+            }
+
+            // the benchmark cannot continue, so release the worker threads
+            close();
+
+            throw cause;
+        }
+    }
+
+
+    /**
+     * What one worker measured of its part in a batch.
+     */
+    private static class WorkerTimings {
+        final int        callCount;
+        final long       startNanos;
+        final long       endNanos;
+        final long       allocatedBytes;
+        final long       cpuNanos;
+        final OsCounters osCounters;
+
+        WorkerTimings( int callCount, long startNanos, long endNanos, long allocatedBytes, long cpuNanos, OsCounters osCounters ) {
+            this.callCount      = callCount;
+            this.startNanos     = startNanos;
+            this.endNanos       = endNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.cpuNanos       = cpuNanos;
+            this.osCounters     = osCounters;
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+
+/**
+ * Reads the CPU time consumed by the current thread so far.  Unlike the wall clock, CPU time does not
+ * advance while the thread is descheduled; so comparing the two shows how much of a batch's duration
+ * was spent running the benchmark and how much was spent waiting on the OS scheduler, a lock or IO.
+ */
+public class CpuTimeMonitor {
+
+    private final ThreadMXBean threadBean;
+
+
+    public CpuTimeMonitor() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if ( bean.isCurrentThreadCpuTimeSupported() ) {
+            threadBean = bean;
+
+            if ( !threadBean.isThreadCpuTimeEnabled() ) {
+                threadBean.setThreadCpuTimeEnabled( true );
+            }
+        } else {
+            threadBean = null;
+        }
+    }
+
+    public boolean isSupported() {
+        return threadBean != null;
+    }
+
+    /**
+     * The CPU time (user and system) consumed by the calling thread so far in nanoseconds, or -1 when
+     * the JVM does not support measuring it.
+     */
+    public long getCurrentThreadCpuNanos() {
+        return isSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * The CPU time consumed between two readings of getCurrentThreadCpuNanos(), or -1 when either reading
+     * is unavailable.
+     */
+    public long cpuNanosBetween( long before, long after ) {
+        if ( before < 0 || after < 0 ) {
+            return -1;
+        }
+
+        return Math.max( 0, after - before );
+    }
+
+}
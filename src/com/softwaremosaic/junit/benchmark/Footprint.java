@@ -0,0 +1,134 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.io.IndentWriter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The heap retained by an object graph, as measured by a FootprintMeter; in total and broken down by
+ * the class of each object.  Sizes are those of the JVM that took the measurement, which depend upon
+ * whether it compresses references and on its object alignment.  Not thread safe.
+ */
+public class Footprint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+
+    private final Map<String,ClassUsage> classUsage = new HashMap<>();
+
+    private long bytes;
+    private long objectCount;
+
+    void record( Class<?> c, long size ) {
+        ClassUsage usage = classUsage.get( c.getName() );
+
+        if ( usage == null ) {
+            usage = new ClassUsage();
+
+            classUsage.put( c.getName(), usage );
+        }
+
+        usage.objectCount++;
+        usage.bytes += size;
+
+        objectCount++;
+        bytes += size;
+    }
+
+    /**
+     * The shallow sizes of every object in the graph added together, including the alignment padding
+     * at the end of each object.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * The bytes retained by each class of object, keyed by class name.
+     */
+    public Map<String,ClassUsage> getClassUsage() {
+        return Collections.unmodifiableMap( classUsage );
+    }
+
+    /**
+     * The classes whose objects retain the most bytes, largest first.
+     */
+    public List<Map.Entry<String,ClassUsage>> getLargestClasses( int limit ) {
+        List<Map.Entry<String,ClassUsage>> entries = new ArrayList<>( classUsage.entrySet() );
+
+        Collections.sort( entries, new Comparator<Map.Entry<String,ClassUsage>>() {
+            public int compare( Map.Entry<String,ClassUsage> a, Map.Entry<String,ClassUsage> b ) {
+                int c = Long.compare( b.getValue().bytes, a.getValue().bytes );
+
+                return c != 0 ? c : a.getKey().compareTo( b.getKey() );
+            }
+        });
+
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    public String toString() {
+        return formatBytes( bytes ) + " in " + String.format( "%,d", objectCount ) + (objectCount == 1 ? " object" : " objects");
+    }
+
+    /**
+     * @param elementCount the number of elements held by the graph, used to report the bytes per element;
+     *                     zero when unknown
+     * @param classLimit   the number of classes to list, largest first
+     */
+    public void appendTo( IndentWriter out, long elementCount, int classLimit ) {
+        String perElement = elementCount > 0 ? String.format(", %.1f bytes per element (%,d elements)", (double) bytes/elementCount, elementCount) : "";
+
+        out.println( "footprint: " + this + perElement );
+        out.incIndent();
+
+        for ( Map.Entry<String,ClassUsage> e : getLargestClasses(classLimit) ) {
+            out.println( String.format("%6s%%  %s  %s", formatPercent((double) e.getValue().bytes/bytes), e.getKey(), e.getValue()) );
+        }
+
+        out.decIndent();
+    }
+
+    static String formatBytes( long bytes ) {
+        return String.format( "%,d bytes", bytes );
+    }
+
+    private static String formatPercent( double fraction ) {
+        return String.format( "%.1f", fraction*100 );
+    }
+
+
+    /**
+     * The objects of one class within the graph.
+     */
+    public static class ClassUsage implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private long objectCount;
+        private long bytes;
+
+        public long getObjectCount() {
+            return objectCount;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public String toString() {
+            return formatBytes( bytes ) + " in " + String.format( "%,d", objectCount ) + (objectCount == 1 ? " object" : " objects");
+        }
+    }
+
+}
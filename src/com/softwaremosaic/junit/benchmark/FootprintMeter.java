@@ -0,0 +1,270 @@
+package com.softwaremosaic.junit.benchmark;
+
+import sun.misc.Unsafe;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Measures the heap retained by an object graph; every object reachable from the root through
+ * instance fields and array elements, each counted once.  The size of each object is worked out from
+ * the layout that the running JVM chose for it; the offsets of its fields (read via sun.misc.Unsafe)
+ * plus the object alignment, and for arrays the JVM's array header and element sizes.  So whether the
+ * JVM compresses references and class pointers is taken into account without being configured.  The
+ * layout of each class is worked out once and cached.<p/>
+ *
+ * Objects that are shared by the whole JVM are not counted, nor is anything reachable only through
+ * them; classes, class loaders, threads and enum constants.  Neither are the referents of weak, soft
+ * and phantom references, which do not retain them.  Further objects that are shared rather than
+ * retained by the graph (a cache or a comparator that the structure refers to, say) may be excluded
+ * with withExcluded.  Static fields are never followed.<p/>
+ *
+ * The graph should not be modified while it is being measured.  Not thread safe, although the cached
+ * layouts are shared safely between meters.
+ */
+public class FootprintMeter {
+
+    private static final Unsafe unsafe = fetchUnsafe();
+
+    /**
+     * The size of a reference in this JVM; 4 bytes when references are compressed.
+     */
+    public static final int REFERENCE_SIZE = unsafe.arrayIndexScale( Object[].class );
+
+    /**
+     * The size of an object header in this JVM, found from where the JVM places the field of a class
+     * that has only one field.
+     */
+    public static final int OBJECT_HEADER_SIZE = (int) fieldOffsetOf( HeaderProbe.class, "b" );
+
+    /**
+     * Objects occupy a multiple of this many bytes, -XX:ObjectAlignmentInBytes (8 unless configured).
+     */
+    public static final int OBJECT_ALIGNMENT = detectObjectAlignment();
+
+    private static final ClassValue<ClassLayout> LAYOUTS = new ClassValue<ClassLayout>() {
+        protected ClassLayout computeValue( Class<?> c ) {
+            return new ClassLayout( c );
+        }
+    };
+
+
+    private final Set<Object> excluded = Collections.newSetFromMap( new IdentityHashMap<Object,Boolean>() );
+
+    /**
+     * Leaves the specified object, and anything reachable only through it, out of the measurements.
+     */
+    public FootprintMeter withExcluded( Object shared ) {
+        excluded.add( shared );
+
+        return this;
+    }
+
+    /**
+     * Walks the graph without recursion, so that long linked structures do not overflow the stack.
+     */
+    public Footprint measure( Object root ) {
+        Footprint     footprint = new Footprint();
+        Set<Object>   visited   = Collections.newSetFromMap( new IdentityHashMap<Object,Boolean>() );
+        Deque<Object> pending   = new ArrayDeque<>();
+
+        visited.addAll( excluded );
+
+        if ( root != null && !isShared(root) ) {
+            visited.add( root );
+            pending.push( root );
+        }
+
+        while ( !pending.isEmpty() ) {
+            Object   o = pending.pop();
+            Class<?> c = o.getClass();
+
+            if ( c.isArray() ) {
+                footprint.record( c, sizeOfArray(c, Array.getLength(o)) );
+
+                if ( !c.getComponentType().isPrimitive() ) {
+                    for ( Object element : (Object[]) o ) {
+                        visit( element, visited, pending );
+                    }
+                }
+            } else {
+                ClassLayout layout = LAYOUTS.get( c );
+
+                footprint.record( c, layout.instanceSize );
+
+                for ( long offset : layout.referenceOffsets ) {
+                    visit( unsafe.getObject(o, offset), visited, pending );
+                }
+
+                for ( Field field : layout.reflectedReferenceFields ) {
+                    visit( readField(field, o), visited, pending );
+                }
+            }
+        }
+
+        return footprint;
+    }
+
+    /**
+     * The size of a single object, not including anything that it refers to.
+     */
+    public static long sizeOf( Object o ) {
+        Class<?> c = o.getClass();
+
+        return c.isArray() ? sizeOfArray( c, Array.getLength(o) ) : LAYOUTS.get( c ).instanceSize;
+    }
+
+    private static void visit( Object o, Set<Object> visited, Deque<Object> pending ) {
+        if ( o != null && !isShared(o) && visited.add(o) ) {
+            pending.push( o );
+        }
+    }
+
+    private static boolean isShared( Object o ) {
+        return o instanceof Class || o instanceof ClassLoader || o instanceof Thread || o instanceof Enum;
+    }
+
+    private static long sizeOfArray( Class<?> arrayClass, int length ) {
+        return align( unsafe.arrayBaseOffset(arrayClass) + (long) length*unsafe.arrayIndexScale(arrayClass) );
+    }
+
+    private static long align( long size ) {
+        return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    private static Object readField( Field field, Object o ) {
+        try {
+            return field.get( o );
+        } catch ( IllegalAccessException ex ) {
+            throw new IllegalStateException( "Unable to read " + field, ex );
+        }
+    }
+
+    private static long fieldOffsetOf( Class<?> c, String fieldName ) {
+        try {
+            return unsafe.objectFieldOffset( c.getDeclaredField(fieldName) );
+        } catch ( NoSuchFieldException ex ) {
+            throw new IllegalStateException( ex );
+        }
+    }
+
+    private static int detectObjectAlignment() {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean( com.sun.management.HotSpotDiagnosticMXBean.class );
+
+            return Integer.parseInt( bean.getVMOption("ObjectAlignmentInBytes").getValue() );
+        } catch ( RuntimeException | LinkageError ex ) {  // not a HotSpot JVM
+            return 8;
+        }
+    }
+
+    private static Unsafe fetchUnsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField( "theUnsafe" );
+
+            field.setAccessible( true );
+
+            return (Unsafe) field.get( null );
+        } catch ( Throwable ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+
+    @SuppressWarnings("unused")
+    private static class HeaderProbe {
+        byte b;
+    }
+
+    /**
+     * Where a class's reference fields are, and how big its instances are.  Newer JVMs refuse to give
+     * out the offsets of the fields of records and hidden classes (such as lambdas); their references are
+     * read via reflection instead, and their size is estimated by packing their fields after the header.
+     */
+    private static class ClassLayout {
+        final long    instanceSize;
+        final long[]  referenceOffsets;
+        final Field[] reflectedReferenceFields;
+
+        ClassLayout( Class<?> c ) {
+            List<Long>  offsets         = new ArrayList<>();
+            List<Field> reflectedFields = new ArrayList<>();
+            long        end             = OBJECT_HEADER_SIZE;
+            long        packedEnd       = OBJECT_HEADER_SIZE;
+            boolean     packed          = false;
+
+            for ( Class<?> current = c; current != null; current = current.getSuperclass() ) {
+                for ( Field field : current.getDeclaredFields() ) {
+                    if ( Modifier.isStatic(field.getModifiers()) ) {
+                        continue;
+                    }
+
+                    Class<?> type      = field.getType();
+                    int      fieldSize = sizeOfField( type );
+
+                    packedEnd += fieldSize;
+
+                    try {
+                        long offset = unsafe.objectFieldOffset( field );
+
+                        end = Math.max( end, offset+fieldSize );
+
+                        if ( !type.isPrimitive() && !isReferent(current, field) ) {
+                            offsets.add( offset );
+                        }
+                    } catch ( UnsupportedOperationException ex ) {
+                        packed = true;
+
+                        if ( !type.isPrimitive() ) {
+                            try {
+                                field.setAccessible( true );
+
+                                reflectedFields.add( field );
+                            } catch ( RuntimeException denied ) {
+                                // the field belongs to a module that is not open to us, so is not followed
+                            }
+                        }
+                    }
+                }
+            }
+
+            this.instanceSize             = align( packed ? Math.max(end, packedEnd) : end );
+            this.referenceOffsets         = new long[offsets.size()];
+            this.reflectedReferenceFields = reflectedFields.toArray( new Field[reflectedFields.size()] );
+
+            for ( int i=0; i<referenceOffsets.length; i++ ) {
+                referenceOffsets[i] = offsets.get( i );
+            }
+        }
+
+        private static boolean isReferent( Class<?> declaringClass, Field field ) {
+            return declaringClass == Reference.class && field.getName().equals( "referent" );
+        }
+
+        private static int sizeOfField( Class<?> type ) {
+            if ( type == long.class || type == double.class ) {
+                return 8;
+            } else if ( type == int.class || type == float.class ) {
+                return 4;
+            } else if ( type == short.class || type == char.class ) {
+                return 2;
+            } else if ( type == byte.class || type == boolean.class ) {
+                return 1;
+            }
+
+            return REFERENCE_SIZE;
+        }
+    }
+
+}
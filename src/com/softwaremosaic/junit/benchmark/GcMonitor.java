@@ -0,0 +1,52 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+
+/**
+ * Reads the number of garbage collections, and the time spent in them, summed over every collector
+ * in the JVM.  Comparing readings taken either side of a batch reveals whether the batch's timing
+ * includes a collection.  The collectors are held in an array so that taking a reading does not
+ * allocate.
+ */
+public class GcMonitor {
+
+    private final GarbageCollectorMXBean[] collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray( new GarbageCollectorMXBean[0] );
+
+    /**
+     * The total number of collections so far.  Collectors that do not report a count are ignored.
+     */
+    public long getTotalCollectionCount() {
+        long total = 0;
+
+        for ( GarbageCollectorMXBean collector : collectors ) {
+            long count = collector.getCollectionCount();
+
+            if ( count > 0 ) {
+                total += count;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * The approximate accumulated collection time in milliseconds.  Concurrent collectors report time
+     * that did not necessarily pause the application.
+     */
+    public long getTotalCollectionMillis() {
+        long total = 0;
+
+        for ( GarbageCollectorMXBean collector : collectors ) {
+            long millis = collector.getCollectionTime();
+
+            if ( millis > 0 ) {
+                total += millis;
+            }
+        }
+
+        return total;
+    }
+
+}
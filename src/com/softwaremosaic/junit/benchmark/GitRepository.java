@@ -0,0 +1,494 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * Reads just enough of a local git repository to identify the commit that is checked out, without
+ * running the git binary.  Supports loose and packed refs, detached heads and linked work trees.
+ * Commit messages are read from loose objects and from pack files (version 2 pack indexes, including
+ * objects stored as deltas), which covers the commits that 'git gc' has packed.
+ */
+public class GitRepository {
+
+    private static final Charset UTF8             = Charset.forName( "UTF-8" );
+    private static final Pattern COMMIT_ID        = Pattern.compile( "[0-9a-f]{40}" );
+    private static final int     MAX_SYMREF_DEPTH = 5;
+    private static final int     MAX_DELTA_DEPTH  = 50;
+    private static final int     PACK_INDEX_MAGIC = 0xff744f63;  // "\377tOc"
+
+    private static final int OBJ_OTHER     = 0;
+    private static final int OBJ_COMMIT    = 1;
+    private static final int OBJ_OFS_DELTA = 6;
+    private static final int OBJ_REF_DELTA = 7;
+
+
+    /**
+     * Searches dir and then each of its parents for a git repository.
+     *
+     * @return null if dir is not within a git repository
+     */
+    public static GitRepository find( File dir ) {
+        File d = dir.getAbsoluteFile();
+
+        while ( d != null ) {
+            File dotGit = new File( d, ".git" );
+
+            try {
+                if ( dotGit.isDirectory() ) {
+                    return new GitRepository( dotGit );
+                } else if ( dotGit.isFile() ) {
+                    String contents = readFirstLine( dotGit );
+
+                    if ( contents != null && contents.startsWith("gitdir:") ) {
+                        return new GitRepository( resolve(d, contents.substring("gitdir:".length()).trim()) );
+                    }
+                }
+            } catch ( IOException ex ) {
+                return null;
+            }
+
+            d = d.getParentFile();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return null if the current directory is not within a git repository
+     */
+    public static GitRepository findFromWorkingDirectory() {
+        return find( new File(System.getProperty("user.dir")) );
+    }
+
+
+    private final File gitDir;
+    private final File commonDir;
+
+    public GitRepository( File gitDir ) throws IOException {
+        File commonDirFile = new File( gitDir, "commondir" );
+
+        this.gitDir    = gitDir;
+        this.commonDir = commonDirFile.isFile() ? resolve(gitDir, readFirstLine(commonDirFile)) : gitDir;
+    }
+
+    public File getGitDir() {
+        return gitDir;
+    }
+
+    /**
+     * @return the id of the commit that HEAD points at, or null if it cannot be resolved (for
+     *     example a freshly initialised repository)
+     */
+    public String getHeadCommitId() {
+        try {
+            return resolveRef( "HEAD" );
+        } catch ( IOException ex ) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the first line of the commit's message, or null if the commit cannot be found
+     */
+    public String readCommitSubject( String commitId ) {
+        if ( commitId == null || !COMMIT_ID.matcher(commitId).matches() ) {
+            return null;
+        }
+
+        try {
+            GitObject object = readObject( commitId, 0 );
+            if ( object == null || object.type != OBJ_COMMIT ) {
+                return null;
+            }
+
+            // headers, a blank line and then the message
+            String contents  = new String( object.data, UTF8 );
+            int    messageAt = contents.indexOf( "\n\n" );
+            if ( messageAt < 0 ) {
+                return null;
+            }
+
+            String message = contents.substring( messageAt+2 );
+            int    eol     = message.indexOf( '\n' );
+
+            return eol < 0 ? message : message.substring( 0, eol );
+        } catch ( IOException | RuntimeException ex ) {  // a corrupt pack is reported as a missing commit
+            return null;
+        }
+    }
+
+    private GitObject readObject( String objectId, int deltaDepth ) throws IOException {
+        if ( deltaDepth > MAX_DELTA_DEPTH ) {
+            throw new IOException( "Delta chain of " + objectId + " is too long" );
+        }
+
+        GitObject object = readLooseObject( objectId );
+        if ( object != null ) {
+            return object;
+        }
+
+        File[] indexes = new File( commonDir, "objects/pack" ).listFiles();
+        if ( indexes == null ) {
+            return null;
+        }
+
+        for ( File idx : indexes ) {
+            if ( idx.getName().endsWith(".idx") ) {
+                long offset = findInPackIndex( idx, objectId );
+
+                if ( offset >= 0 ) {
+                    File pack = new File( idx.getParentFile(), idx.getName().substring(0, idx.getName().length()-4) + ".pack" );
+
+                    try ( RandomAccessFile raf = new RandomAccessFile(pack, "r") ) {
+                        return readPackedObject( raf, offset, deltaDepth );
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private GitObject readLooseObject( String objectId ) throws IOException {
+        File object = new File( commonDir, "objects/" + objectId.substring(0,2) + "/" + objectId.substring(2) );
+        if ( !object.isFile() ) {
+            return null;
+        }
+
+        byte[] contents;
+        try ( InputStream in = new InflaterInputStream(new FileInputStream(object)) ) {
+            contents = readAll( in );
+        }
+
+        // "<type> <len>\0" followed by the object itself
+        int headerEnd = 0;
+        while ( headerEnd < contents.length && contents[headerEnd] != 0 ) {
+            headerEnd++;
+        }
+
+        String header = new String( contents, 0, headerEnd, UTF8 );
+        int    type   = header.startsWith("commit ") ? OBJ_COMMIT : OBJ_OTHER;
+
+        return new GitObject( type, Arrays.copyOfRange(contents, Math.min(headerEnd+1, contents.length), contents.length) );
+    }
+
+    /**
+     * Looks objectId up in a version 2 pack index: a fan out table of 256 cumulative counts indexed
+     * by the first byte of the id, the sorted ids, their CRCs, their 31 bit pack offsets and then a
+     * table of 64 bit offsets for the entries whose 31 bit offset has its top bit set.
+     *
+     * @return the object's offset within the pack, or -1 if the pack does not contain it
+     */
+    private static long findInPackIndex( File idx, String objectId ) throws IOException {
+        byte[] id = parseObjectId( objectId );
+
+        try ( RandomAccessFile raf = new RandomAccessFile(idx, "r") ) {
+            ByteBuffer buf = raf.getChannel().map( FileChannel.MapMode.READ_ONLY, 0, raf.length() );
+
+            if ( buf.getInt(0) != PACK_INDEX_MAGIC || buf.getInt(4) != 2 ) {
+                return -1;
+            }
+
+            int firstByte  = id[0] & 0xff;
+            int count      = buf.getInt( 8 + 255*4 );
+            int lo         = firstByte == 0 ? 0 : buf.getInt( 8 + (firstByte-1)*4 );
+            int hi         = buf.getInt( 8 + firstByte*4 );
+            int idsAt      = 8 + 256*4;
+            int offsetsAt  = idsAt + count*24;
+            int largeAt    = offsetsAt + count*4;
+
+            while ( lo < hi ) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compareId( buf, idsAt + mid*20, id );
+
+                if ( cmp < 0 ) {
+                    lo = mid + 1;
+                } else if ( cmp > 0 ) {
+                    hi = mid;
+                } else {
+                    int offset = buf.getInt( offsetsAt + mid*4 );
+
+                    return offset >= 0 ? offset : buf.getLong( largeAt + (offset & 0x7fffffff)*8 );
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    /**
+     * Each packed object starts with its type and inflated size, packed into a variable length
+     * integer, followed by its zlib compressed data.  Deltas also name their base, either by its
+     * offset back from the delta (OFS_DELTA) or by its id (REF_DELTA).
+     */
+    private GitObject readPackedObject( RandomAccessFile raf, long offset, int deltaDepth ) throws IOException {
+        raf.seek( offset );
+
+        int  c    = raf.readUnsignedByte();
+        int  type = (c >> 4) & 7;
+        long size = c & 0x0f;
+
+        for ( int shift=4; (c & 0x80) != 0; shift += 7 ) {
+            c     = raf.readUnsignedByte();
+            size |= (long) (c & 0x7f) << shift;
+        }
+
+        GitObject base = null;
+        if ( type == OBJ_OFS_DELTA ) {
+            c = raf.readUnsignedByte();
+
+            long distance = c & 0x7f;
+            while ( (c & 0x80) != 0 ) {
+                c        = raf.readUnsignedByte();
+                distance = ((distance + 1) << 7) | (c & 0x7f);
+            }
+
+            long dataAt = raf.getFilePointer();
+            base = readPackedObject( raf, offset - distance, deltaDepth+1 );
+
+            raf.seek( dataAt );
+        } else if ( type == OBJ_REF_DELTA ) {
+            byte[] baseId = new byte[20];
+            raf.readFully( baseId );
+
+            long dataAt = raf.getFilePointer();
+            base = readObject( formatObjectId(baseId), deltaDepth+1 );
+
+            raf.seek( dataAt );
+            if ( base == null ) {
+                return null;
+            }
+        }
+
+        byte[] data = inflate( raf, size );
+
+        return base == null ? new GitObject(type, data) : new GitObject(base.type, applyDelta(base.data, data));
+    }
+
+    /**
+     * A delta holds the sizes of its base and of its result, followed by instructions that either copy
+     * a range of the base or insert the bytes that follow the instruction.
+     */
+    private static byte[] applyDelta( byte[] base, byte[] delta ) throws IOException {
+        int[] pos = { 0 };
+
+        readDeltaSize( delta, pos );  // the base's size
+
+        byte[] result = new byte[(int) readDeltaSize(delta, pos)];
+        int    n      = 0;
+
+        while ( pos[0] < delta.length ) {
+            int cmd = delta[pos[0]++] & 0xff;
+
+            if ( (cmd & 0x80) != 0 ) {
+                int copyOffset = 0;
+                int copySize   = 0;
+
+                for ( int i=0; i<4; i++ ) {
+                    if ( (cmd & (1 << i)) != 0 ) {
+                        copyOffset |= (delta[pos[0]++] & 0xff) << (8*i);
+                    }
+                }
+
+                for ( int i=0; i<3; i++ ) {
+                    if ( (cmd & (0x10 << i)) != 0 ) {
+                        copySize |= (delta[pos[0]++] & 0xff) << (8*i);
+                    }
+                }
+
+                if ( copySize == 0 ) {
+                    copySize = 0x10000;
+                }
+
+                System.arraycopy( base, copyOffset, result, n, copySize );
+                n += copySize;
+            } else if ( cmd != 0 ) {
+                System.arraycopy( delta, pos[0], result, n, cmd );
+                pos[0] += cmd;
+                n      += cmd;
+            } else {
+                throw new IOException( "Unsupported delta instruction" );
+            }
+        }
+
+        return result;
+    }
+
+    private static long readDeltaSize( byte[] delta, int[] pos ) {
+        long size  = 0;
+        int  shift = 0;
+        int  c;
+
+        do {
+            c      = delta[pos[0]++] & 0xff;
+            size  |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ( (c & 0x80) != 0 );
+
+        return size;
+    }
+
+    private static byte[] inflate( RandomAccessFile raf, long size ) throws IOException {
+        Inflater inflater = new Inflater();
+
+        try {
+            byte[] out = new byte[(int) size];
+            byte[] in  = new byte[4096];
+            int    n   = 0;
+
+            while ( !inflater.finished() ) {
+                if ( inflater.needsInput() ) {
+                    int read = raf.read( in );
+                    if ( read < 0 ) {
+                        throw new EOFException( "Truncated pack file" );
+                    }
+
+                    inflater.setInput( in, 0, read );
+                }
+
+                n += inflater.inflate( out, n, out.length - n );
+
+                if ( inflater.needsDictionary() ) {
+                    throw new IOException( "Unsupported compressed data in pack file" );
+                }
+            }
+
+            return out;
+        } catch ( DataFormatException ex ) {
+            throw new IOException( "Corrupt pack file", ex );
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int compareId( ByteBuffer buf, int at, byte[] id ) {
+        for ( int i=0; i<20; i++ ) {
+            int cmp = (buf.get(at+i) & 0xff) - (id[i] & 0xff);
+
+            if ( cmp != 0 ) {
+                return cmp;
+            }
+        }
+
+        return 0;
+    }
+
+    private static byte[] parseObjectId( String objectId ) {
+        byte[] id = new byte[20];
+
+        for ( int i=0; i<20; i++ ) {
+            id[i] = (byte) Integer.parseInt( objectId.substring(i*2, i*2+2), 16 );
+        }
+
+        return id;
+    }
+
+    private static String formatObjectId( byte[] id ) {
+        StringBuilder buf = new StringBuilder( 40 );
+
+        for ( byte b : id ) {
+            buf.append( Character.forDigit((b >> 4) & 0xf, 16) ).append( Character.forDigit(b & 0xf, 16) );
+        }
+
+        return buf.toString();
+    }
+
+    private String resolveRef( String ref ) throws IOException {
+        for ( int depth=0; depth<MAX_SYMREF_DEPTH; depth++ ) {
+            String value = readLooseRef( ref );
+
+            if ( value == null ) {
+                return readPackedRef( ref );
+            } else if ( value.startsWith("ref:") ) {
+                ref = value.substring( "ref:".length() ).trim();
+            } else {
+                return COMMIT_ID.matcher(value).matches() ? value : null;
+            }
+        }
+
+        return null;
+    }
+
+    private String readLooseRef( String ref ) throws IOException {
+        File f = new File( gitDir, ref );
+
+        if ( !f.isFile() ) {
+            f = new File( commonDir, ref );
+        }
+
+        return f.isFile() ? readFirstLine(f) : null;
+    }
+
+    private String readPackedRef( String ref ) throws IOException {
+        File packedRefs = new File( commonDir, "packed-refs" );
+        if ( !packedRefs.isFile() ) {
+            return null;
+        }
+
+        List<String> lines = Files.readAllLines( packedRefs.toPath(), UTF8 );
+        for ( String line : lines ) {
+            if ( line.startsWith("#") || line.startsWith("^") ) {
+                continue;
+            }
+
+            int i = line.indexOf( ' ' );
+            if ( i > 0 && line.substring(i+1).trim().equals(ref) ) {
+                return line.substring( 0, i );
+            }
+        }
+
+        return null;
+    }
+
+    private static String readFirstLine( File f ) throws IOException {
+        List<String> lines = Files.readAllLines( f.toPath(), UTF8 );
+
+        return lines.isEmpty() ? null : lines.get(0).trim();
+    }
+
+    private static File resolve( File base, String path ) {
+        File f = new File( path );
+
+        return f.isAbsolute() ? f : new File( base, path );
+    }
+
+    private static byte[] readAll( InputStream in ) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[]                buf = new byte[4096];
+
+        for ( int n=in.read(buf); n >= 0; n=in.read(buf) ) {
+            out.write( buf, 0, n );
+        }
+
+        return out.toByteArray();
+    }
+
+
+    private static class GitObject {
+        final int    type;
+        final byte[] data;
+
+        GitObject( int type, byte[] data ) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+
+
+/**
+ * The costs that the benchmark harness adds to every measurement; calibrated once per JVM, the first
+ * time that a benchmark is run.<p/>
+ *
+ * <ul>
+ *   <li>granularity - the smallest step by which System.nanoTime() advances</li>
+ *   <li>latency - how long a call to System.nanoTime() takes</li>
+ *   <li>empty call - the cost per iteration of a generated invoker calling a method that does nothing
+ *   but return a value, which includes the invoker's loop and consuming the value into a Blackhole</li>
+ * </ul>
+ *
+ * None of these are subtracted from the timings reported, as they vary from run to run and subtracting
+ * them can push cheap operations below zero.  Instead a measurement that is not comfortably above the
+ * noise floor that they add up to is flagged.
+ */
+public class HarnessCalibration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int GRANULARITY_SAMPLES = 1000;
+    private static final int LATENCY_CALLS       = 100000;
+    private static final int EMPTY_CALLS         = 1000000;
+    private static final int WARMUP_RUNS         = 10;
+    private static final int MEASURED_RUNS       = 5;
+
+    private static HarnessCalibration calibration;
+
+
+    /**
+     * The calibration of this JVM, which is taken the first time that this method is called.
+     */
+    public static synchronized HarnessCalibration get() throws Throwable {
+        if ( calibration == null ) {
+            calibration = calibrate();
+        }
+
+        return calibration;
+    }
+
+    public static HarnessCalibration calibrate() throws Throwable {
+        return new HarnessCalibration( calibrateGranularity(), calibrateLatency(), calibrateEmptyCall() );
+    }
+
+
+    private final double granularityNanos;
+    private final double latencyNanos;
+    private final double emptyCallNanos;
+
+    public HarnessCalibration( double granularityNanos, double latencyNanos, double emptyCallNanos ) {
+        this.granularityNanos = granularityNanos;
+        this.latencyNanos     = latencyNanos;
+        this.emptyCallNanos   = emptyCallNanos;
+    }
+
+    public double getGranularityNanos() {
+        return granularityNanos;
+    }
+
+    public double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public double getEmptyCallNanos() {
+        return emptyCallNanos;
+    }
+
+    /**
+     * The error that timing a single interval may carry; up to one step of the clock, plus the cost of
+     * reading the clock.
+     */
+    public double getTimerErrorNanos() {
+        return granularityNanos + latencyNanos;
+    }
+
+    /**
+     * The overhead per call, in nanoseconds, that the harness adds when a batch of numIterations calls is
+     * timed as a whole; the cost of an empty call plus the timer's error spread across the batch.
+     */
+    public double getNoiseFloorNanos( int numIterations ) {
+        return emptyCallNanos + getTimerErrorNanos() / Math.max( 1, numIterations );
+    }
+
+    public String toString() {
+        return "timer granularity " + BenchmarkResult.formatNanos(granularityNanos) + ", timer latency " + BenchmarkResult.formatNanos(latencyNanos)
+            + ", empty call " + BenchmarkResult.formatNanos(emptyCallNanos);
+    }
+
+
+    private static double calibrateGranularity() {
+        long min = Long.MAX_VALUE;
+
+        for ( int i=0; i<GRANULARITY_SAMPLES; i++ ) {
+            long t0 = System.nanoTime();
+            long t1 = System.nanoTime();
+
+            while ( t1 == t0 ) {
+                t1 = System.nanoTime();
+            }
+
+            min = Math.min( min, t1-t0 );
+        }
+
+        return min;
+    }
+
+    private static double calibrateLatency() {
+        double best = Double.MAX_VALUE;
+        long   sink = 0;
+
+        for ( int run=0; run<WARMUP_RUNS+MEASURED_RUNS; run++ ) {
+            long startNanos = System.nanoTime();
+
+            for ( int i=0; i<LATENCY_CALLS; i++ ) {
+                sink ^= System.nanoTime();
+            }
+
+            long durationNanos = System.nanoTime() - startNanos;
+
+            if ( run >= WARMUP_RUNS ) {
+                best = Math.min( best, (double) durationNanos / LATENCY_CALLS );
+            }
+        }
+
+        new Blackhole().consume( sink );
+
+        return best;
+    }
+
+    private static double calibrateEmptyCall() throws Throwable {
+        Method           method    = EmptyBenchmark.class.getMethod( "empty" );
+        BenchmarkInvoker invoker   = new BenchmarkInvokerFactory().newInvokerFor( method );
+        EmptyBenchmark   target    = new EmptyBenchmark();
+        Blackhole        blackhole = new Blackhole();
+        double           best      = Double.MAX_VALUE;
+
+        for ( int run=0; run<WARMUP_RUNS+MEASURED_RUNS; run++ ) {
+            long startNanos = System.nanoTime();
+
+            invoker.invoke( target, EMPTY_CALLS, blackhole );
+
+            long durationNanos = System.nanoTime() - startNanos;
+
+            if ( run >= WARMUP_RUNS ) {
+                best = Math.min( best, (double) durationNanos / EMPTY_CALLS );
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Public so that it can be called from a generated invoker.
+     */
+    public static class EmptyBenchmark {
+        private int value;
+
+        public int empty() {
+            return value;
+        }
+    }
+
+}
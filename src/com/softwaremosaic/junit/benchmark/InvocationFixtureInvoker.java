@@ -0,0 +1,81 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.annotations.Level;
+
+
+/**
+ * Wraps a BenchmarkInvoker so that the fixture's Level.INVOCATION setup and teardown methods run
+ * around every call.  As the setup and teardown must not be measured, each call is timed individually,
+ * along with the bytes that it allocated and the CPU time that it used, and the readings summed;
+ * takeMeasurement() then replaces the measurement of the batch as a whole.  The OS counters cannot be
+ * read for each call (reading them is slow and allocates), and so are not measured.  The wrapped invoker
+ * is asked to make one call at a time.
+ */
+public class InvocationFixtureInvoker implements BenchmarkInvoker {
+
+    private final BenchmarkInvoker  invoker;
+    private final BenchmarkFixture  fixture;
+    private final AllocationMonitor allocationMonitor = new AllocationMonitor();
+    private final CpuTimeMonitor    cpuTimeMonitor    = new CpuTimeMonitor();
+
+    private int  callCount;
+    private long timedNanos;
+    private long allocatedBytes;
+    private long cpuNanos;
+
+
+    public InvocationFixtureInvoker( BenchmarkInvoker invoker, BenchmarkFixture fixture ) {
+        this.invoker = invoker;
+        this.fixture = fixture;
+    }
+
+    public void invoke( Object target, int numIterations, Blackhole blackhole ) throws Throwable {
+        for ( int i=0; i<numIterations; i++ ) {
+            fixture.setUp( Level.INVOCATION );
+
+            try {
+                long allocatedBytes0 = allocationMonitor.getCurrentThreadAllocatedBytes();
+                long cpuNanos0       = cpuTimeMonitor.getCurrentThreadCpuNanos();
+                long startNanos      = System.nanoTime();
+
+                invoker.invoke( target, 1, blackhole );
+
+                long endNanos        = System.nanoTime();
+                long cpuNanos1       = cpuTimeMonitor.getCurrentThreadCpuNanos();
+                long allocatedBytes1 = allocationMonitor.getCurrentThreadAllocatedBytes();
+
+                callCount++;
+                timedNanos    += endNanos - startNanos;
+                allocatedBytes = sum( allocatedBytes, allocationMonitor.bytesAllocatedBetween(allocatedBytes0, allocatedBytes1) );
+                cpuNanos       = sum( cpuNanos, cpuTimeMonitor.cpuNanosBetween(cpuNanos0, cpuNanos1) );
+            } finally {
+                fixture.tearDown( Level.INVOCATION );
+            }
+        }
+    }
+
+    /**
+     * The calls made since the last call to takeMeasurement(); their total duration, allocations and CPU
+     * time, leaving out the setup and teardown that ran between them.
+     */
+    public BatchMeasurement takeMeasurement() {
+        BatchMeasurement measurement = new BatchMeasurement( callCount, timedNanos )
+            .withAllocatedBytes( allocatedBytes )
+            .withCpuNanos( cpuNanos );
+
+        callCount      = 0;
+        timedNanos     = 0;
+        allocatedBytes = 0;
+        cpuNanos       = 0;
+
+        return measurement;
+    }
+
+    /**
+     * -1 marks a reading that was unavailable, which makes the total unavailable too.
+     */
+    private static long sum( long total, long reading ) {
+        return total < 0 || reading < 0 ? -1 : total + reading;
+    }
+
+}
@@ -0,0 +1,397 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Writes the class file for a BenchmarkInvoker that calls one specific benchmark method.  The generated
+ * class is equivalent to:
+ *
+ * <pre>
+ *     public final class Bench_method_Invoker1 implements BenchmarkInvoker {
+ *         public void invoke( Object target, int numIterations, Blackhole blackhole ) {
+ *             Bench bench = (Bench) target;
+ *
+ *             for ( int i=0; i&lt;numIterations; i++ ) {
+ *                 blackhole.consume( bench.method() );
+ *             }
+ *         }
+ *     }
+ * </pre>
+ *
+ * Methods that take the iteration count as a parameter are called just once, with numIterations
+ * passed through.  Methods that take a Blackhole parameter are passed blackhole, and the return
+ * value of non-void methods is handed to the matching Blackhole.consume overload.<p/>
+ *
+ * The class file version is deliberately Java 5 (49.0), which predates the StackMapTable attribute and
+ * so lets the loop's branches be written without having to compute stack map frames.
+ */
+class InvokerClassWriter {
+
+    private static final int CLASS_FILE_MAJOR_VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL  = 0x0010;
+    private static final int ACC_SUPER  = 0x0020;
+
+    private static final int CONSTANT_UTF8               = 1;
+    private static final int CONSTANT_CLASS              = 7;
+    private static final int CONSTANT_METHODREF          = 10;
+    private static final int CONSTANT_INTERFACEMETHODREF = 11;
+    private static final int CONSTANT_NAMEANDTYPE        = 12;
+
+    private static final int ICONST_0        = 0x03;
+    private static final int ILOAD           = 0x15;
+    private static final int ALOAD           = 0x19;
+    private static final int ISTORE          = 0x36;
+    private static final int ASTORE          = 0x3a;
+    private static final int IINC            = 0x84;
+    private static final int IF_ICMPGE       = 0xa2;
+    private static final int GOTO            = 0xa7;
+    private static final int RETURN          = 0xb1;
+    private static final int INVOKEVIRTUAL   = 0xb6;
+    private static final int INVOKESPECIAL   = 0xb7;
+    private static final int INVOKESTATIC    = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int CHECKCAST       = 0xc0;
+
+    // local variable slots used by the generated invoke method
+    private static final int LOCAL_TARGET_ARG     = 1;
+    private static final int LOCAL_ITERATIONS_ARG = 2;
+    private static final int LOCAL_BLACKHOLE_ARG  = 3;
+    private static final int LOCAL_COUNTER        = 4;
+    private static final int LOCAL_CASTED_TARGET  = 5;
+
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;I" + descriptorOf(Blackhole.class) + ")V";
+
+
+    private final String className;
+    private final Method method;
+
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream      constantPool      = new DataOutputStream( constantPoolBytes );
+    private final Map<String,Integer>   constantIndexes   = new HashMap<>();
+    private       int                   constantCount     = 1;
+
+
+    public InvokerClassWriter( String className, Method method ) {
+        this.className = className;
+        this.method    = method;
+    }
+
+    public byte[] toByteArray() {
+        try {
+            return writeClass();
+        } catch ( IOException ex ) {
+            throw new IllegalStateException( ex );  // not expected when writing to memory
+        }
+    }
+
+    private byte[] writeClass() throws IOException {
+        int thisClass      = classConstant( internalName(className) );
+        int superClass     = classConstant( "java/lang/Object" );
+        int invokerClass   = classConstant( internalName(BenchmarkInvoker.class.getName()) );
+
+        byte[] constructor = writeConstructor();
+        byte[] invoke      = writeInvokeMethod();
+
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream      out   = new DataOutputStream( bytes );
+
+        out.writeInt( 0xCAFEBABE );
+        out.writeShort( 0 );
+        out.writeShort( CLASS_FILE_MAJOR_VERSION );
+
+        out.writeShort( constantCount );
+        constantPool.flush();
+        constantPoolBytes.writeTo( out );
+
+        out.writeShort( ACC_PUBLIC | ACC_FINAL | ACC_SUPER );
+        out.writeShort( thisClass );
+        out.writeShort( superClass );
+
+        out.writeShort( 1 );           // interfaces
+        out.writeShort( invokerClass );
+
+        out.writeShort( 0 );           // fields
+
+        out.writeShort( 2 );           // methods
+        out.write( constructor );
+        out.write( invoke );
+
+        out.writeShort( 0 );           // class attributes
+
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private byte[] writeConstructor() throws IOException {
+        int objectInit = methodConstant( "java/lang/Object", "<init>", "()V", false );
+
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        DataOutputStream      out  = new DataOutputStream( code );
+
+        out.writeByte( ALOAD );
+        out.writeByte( 0 );
+        out.writeByte( INVOKESPECIAL );
+        out.writeShort( objectInit );
+        out.writeByte( RETURN );
+
+        return writeMethod( "<init>", "()V", 1, 1, code.toByteArray() );
+    }
+
+    private byte[] writeInvokeMethod() throws IOException {
+        boolean isStatic            = Modifier.isStatic( method.getModifiers() );
+        boolean takesIterationCount = Arrays.asList( method.getParameterTypes() ).contains( Integer.TYPE );
+
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        DataOutputStream      out  = new DataOutputStream( code );
+
+        if ( !isStatic ) {
+            out.writeByte( ALOAD );
+            out.writeByte( LOCAL_TARGET_ARG );
+            out.writeByte( CHECKCAST );
+            out.writeShort( classConstant(internalName(method.getDeclaringClass().getName())) );
+            out.writeByte( ASTORE );
+            out.writeByte( LOCAL_CASTED_TARGET );
+        }
+
+        if ( takesIterationCount ) {
+            writeCallToBenchmarkMethod( out, isStatic );
+        } else {
+            out.writeByte( ICONST_0 );
+            out.writeByte( ISTORE );
+            out.writeByte( LOCAL_COUNTER );
+
+            int loopStart = code.size();
+            out.writeByte( ILOAD );
+            out.writeByte( LOCAL_COUNTER );
+            out.writeByte( ILOAD );
+            out.writeByte( LOCAL_ITERATIONS_ARG );
+
+            int exitBranch = code.size();
+            out.writeByte( IF_ICMPGE );
+            out.writeShort( 0 );  // patched below, once the end of the loop is known
+
+            writeCallToBenchmarkMethod( out, isStatic );
+
+            out.writeByte( IINC );
+            out.writeByte( LOCAL_COUNTER );
+            out.writeByte( 1 );
+
+            out.writeByte( GOTO );
+            out.writeShort( loopStart - (code.size()-1) );
+
+            int loopEnd = code.size();
+            out.flush();
+
+            byte[] bytes = code.toByteArray();
+            int    delta = loopEnd - exitBranch;
+
+            bytes[exitBranch+1] = (byte) (delta >> 8);
+            bytes[exitBranch+2] = (byte) delta;
+
+            code.reset();
+            code.write( bytes );
+        }
+
+        out.writeByte( RETURN );
+        out.flush();
+
+        return writeMethod( "invoke", INVOKE_DESCRIPTOR, 8, 6, code.toByteArray() );
+    }
+
+    private void writeCallToBenchmarkMethod( DataOutputStream out, boolean isStatic ) throws IOException {
+        Class<?> owner       = method.getDeclaringClass();
+        Class<?> returnType  = method.getReturnType();
+        boolean  isInterface = owner.isInterface();
+        int      methodRef   = methodConstant( internalName(owner.getName()), method.getName(), descriptorOf(method), isInterface );
+
+        if ( returnType != Void.TYPE ) {  // the blackhole goes onto the stack first, ready to consume the result
+            out.writeByte( ALOAD );
+            out.writeByte( LOCAL_BLACKHOLE_ARG );
+        }
+
+        if ( !isStatic ) {
+            out.writeByte( ALOAD );
+            out.writeByte( LOCAL_CASTED_TARGET );
+        }
+
+        Class<?>[] paramTypes = method.getParameterTypes();
+        for ( Class<?> paramType : paramTypes ) {
+            out.writeByte( paramType == Integer.TYPE ? ILOAD : ALOAD );
+            out.writeByte( paramType == Integer.TYPE ? LOCAL_ITERATIONS_ARG : LOCAL_BLACKHOLE_ARG );
+        }
+
+        if ( isStatic ) {
+            out.writeByte( INVOKESTATIC );
+            out.writeShort( methodRef );
+        } else if ( isInterface ) {
+            out.writeByte( INVOKEINTERFACE );
+            out.writeShort( methodRef );
+            out.writeByte( 1+paramTypes.length );
+            out.writeByte( 0 );
+        } else {
+            out.writeByte( INVOKEVIRTUAL );
+            out.writeShort( methodRef );
+        }
+
+        if ( returnType != Void.TYPE ) {
+            Class<?> consumedType = returnType.isPrimitive() ? returnType : Object.class;
+            String   descriptor   = "(" + descriptorOf(consumedType) + ")V";
+
+            out.writeByte( INVOKEVIRTUAL );
+            out.writeShort( methodConstant(internalName(Blackhole.class.getName()), "consume", descriptor, false) );
+        }
+    }
+
+    private byte[] writeMethod( String name, String descriptor, int maxStack, int maxLocals, byte[] code ) throws IOException {
+        int nameIndex       = utf8Constant( name );
+        int descriptorIndex = utf8Constant( descriptor );
+        int codeIndex       = utf8Constant( "Code" );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream      out   = new DataOutputStream( bytes );
+
+        out.writeShort( ACC_PUBLIC );
+        out.writeShort( nameIndex );
+        out.writeShort( descriptorIndex );
+
+        out.writeShort( 1 );                 // attributes
+        out.writeShort( codeIndex );
+        out.writeInt( 12 + code.length );
+        out.writeShort( maxStack );
+        out.writeShort( maxLocals );
+        out.writeInt( code.length );
+        out.write( code );
+        out.writeShort( 0 );                 // exception table
+        out.writeShort( 0 );                 // code attributes
+
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+
+    private int utf8Constant( String value ) throws IOException {
+        Integer existing = constantIndexes.get( "utf8:"+value );
+        if ( existing != null ) {
+            return existing;
+        }
+
+        constantPool.writeByte( CONSTANT_UTF8 );
+        constantPool.writeUTF( value );
+
+        return registerConstant( "utf8:"+value );
+    }
+
+    private int classConstant( String internalName ) throws IOException {
+        Integer existing = constantIndexes.get( "class:"+internalName );
+        if ( existing != null ) {
+            return existing;
+        }
+
+        int nameIndex = utf8Constant( internalName );
+
+        constantPool.writeByte( CONSTANT_CLASS );
+        constantPool.writeShort( nameIndex );
+
+        return registerConstant( "class:"+internalName );
+    }
+
+    private int methodConstant( String owner, String name, String descriptor, boolean isInterface ) throws IOException {
+        String  key      = "method:"+owner+"."+name+descriptor;
+        Integer existing = constantIndexes.get( key );
+        if ( existing != null ) {
+            return existing;
+        }
+
+        int classIndex       = classConstant( owner );
+        int nameAndTypeIndex = nameAndTypeConstant( name, descriptor );
+
+        constantPool.writeByte( isInterface ? CONSTANT_INTERFACEMETHODREF : CONSTANT_METHODREF );
+        constantPool.writeShort( classIndex );
+        constantPool.writeShort( nameAndTypeIndex );
+
+        return registerConstant( key );
+    }
+
+    private int nameAndTypeConstant( String name, String descriptor ) throws IOException {
+        String  key      = "nameAndType:"+name+descriptor;
+        Integer existing = constantIndexes.get( key );
+        if ( existing != null ) {
+            return existing;
+        }
+
+        int nameIndex       = utf8Constant( name );
+        int descriptorIndex = utf8Constant( descriptor );
+
+        constantPool.writeByte( CONSTANT_NAMEANDTYPE );
+        constantPool.writeShort( nameIndex );
+        constantPool.writeShort( descriptorIndex );
+
+        return registerConstant( key );
+    }
+
+    private int registerConstant( String key ) {
+        int index = constantCount++;
+
+        constantIndexes.put( key, index );
+
+        return index;
+    }
+
+
+    private static String internalName( String className ) {
+        return className.replace( '.', '/' );
+    }
+
+    private static String descriptorOf( Method method ) {
+        StringBuilder buf = new StringBuilder();
+
+        buf.append( '(' );
+        for ( Class<?> paramType : method.getParameterTypes() ) {
+            buf.append( descriptorOf(paramType) );
+        }
+        buf.append( ')' );
+        buf.append( descriptorOf(method.getReturnType()) );
+
+        return buf.toString();
+    }
+
+    private static String descriptorOf( Class<?> type ) {
+        if ( type.isArray() ) {
+            return internalName( type.getName() );
+        } else if ( type == Void.TYPE ) {
+            return "V";
+        } else if ( type == Boolean.TYPE ) {
+            return "Z";
+        } else if ( type == Byte.TYPE ) {
+            return "B";
+        } else if ( type == Character.TYPE ) {
+            return "C";
+        } else if ( type == Short.TYPE ) {
+            return "S";
+        } else if ( type == Integer.TYPE ) {
+            return "I";
+        } else if ( type == Long.TYPE ) {
+            return "J";
+        } else if ( type == Float.TYPE ) {
+            return "F";
+        } else if ( type == Double.TYPE ) {
+            return "D";
+        } else {
+            return "L" + internalName( type.getName() ) + ";";
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.softwaremosaic.junit.benchmark;
+
+
+/**
+ * Chooses how many iterations to run per batch, so that each batch runs for a target duration.  A
+ * fixed iteration count suits few methods; a 1us method would take seconds per million calls while a
+ * 5ns method would finish in a few milliseconds, where timer jitter dominates.<p/>
+ *
+ * The method is probed with a doubling number of iterations until a probe runs long enough to be
+ * timed reliably, the iteration count is then scaled linearly up to the target.  As the early probes
+ * usually run before the JIT has compiled the method, the scaled count is re-probed and re-scaled
+ * until it lands close to the target.  Each probe is timed twice and the faster time is used, as
+ * a descheduled thread or a GC pause can only ever make a probe slower.  The probes double as a
+ * warm up of the method.
+ */
+public class IterationCountCalibrator {
+
+    /**
+     * Probes shorter than this are considered too short to extrapolate from.
+     */
+    private static final long MIN_PROBE_NANOS = 1000000;
+
+    private static final int    MAX_REFINEMENTS = 4;
+    private static final int    PROBE_REPEATS   = 2;
+    private static final double TOLERANCE       = 0.1;
+
+
+    private final long      targetBatchNanos;
+    private final Blackhole blackhole = new Blackhole();
+
+    public IterationCountCalibrator( long targetBatchNanos ) {
+        if ( targetBatchNanos <= 0 ) {
+            throw new IllegalArgumentException( "targetBatchNanos must be > 0, was " + targetBatchNanos );
+        }
+
+        this.targetBatchNanos = targetBatchNanos;
+    }
+
+    public int calibrate( BenchmarkInvoker invoker, Object target ) throws Throwable {
+        long minProbeNanos = Math.min( MIN_PROBE_NANOS, targetBatchNanos/10 );
+        int  numIterations = 1;
+        long durationNanos = timeProbe( invoker, target, numIterations );
+
+        while ( durationNanos < minProbeNanos ) {
+            if ( numIterations > Integer.MAX_VALUE/2 ) {
+                return Integer.MAX_VALUE;
+            }
+
+            numIterations *= 2;
+            durationNanos  = timeProbe( invoker, target, numIterations );
+        }
+
+        for ( int i=0; i<MAX_REFINEMENTS && !isCloseToTarget(durationNanos); i++ ) {
+            numIterations = scaleToTarget( numIterations, durationNanos );
+            durationNanos = timeProbe( invoker, target, numIterations );
+        }
+
+        return scaleToTarget( numIterations, durationNanos );
+    }
+
+    private boolean isCloseToTarget( long durationNanos ) {
+        return Math.abs(durationNanos - targetBatchNanos) <= targetBatchNanos*TOLERANCE;
+    }
+
+    private int scaleToTarget( int probeIterations, long probeDurationNanos ) {
+        double estimate = probeIterations * ((double) targetBatchNanos / Math.max(1,probeDurationNanos));
+
+        return (int) Math.max( 1, Math.min(Integer.MAX_VALUE, Math.round(estimate)) );
+    }
+
+    private long timeProbe( BenchmarkInvoker invoker, Object target, int numIterations ) throws Throwable {
+        long fastestNanos = Long.MAX_VALUE;
+
+        for ( int i=0; i<PROBE_REPEATS; i++ ) {
+            long startNanos = System.nanoTime();
+
+            invoker.invoke( target, numIterations, blackhole );
+
+            fastestNanos = Math.min( fastestNanos, System.nanoTime() - startNanos );
+        }
+
+        return fastestNanos;
+    }
+
+}
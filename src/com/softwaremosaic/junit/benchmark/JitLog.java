@@ -0,0 +1,304 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.io.IndentWriter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Summarises the output of HotSpot's -XX:+PrintCompilation and -XX:+PrintInlining flags, see
+ * JIT_LOG_JVM_ARGS; which compilation tiers each method under test reached, how often they were
+ * deoptimised, and which calls the JIT failed to inline into the final (tier 4) compilation of a
+ * method under test or when calling a method under test.<p/>
+ *
+ * Only top tier code that is 'made not entrant' counts as a deoptimisation, as lower tiers are made
+ * not entrant every time a method moves up to the next tier.  Compilations printed without a tier
+ * (-XX:-TieredCompilation) are counted as tier 4.  Inlining decisions are attributed to the most
+ * recently printed compilation, which is how HotSpot prints them.  Not thread safe.
+ */
+public class JitLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The arguments that make a JVM print its JIT compilations and inlining decisions to stderr, rather
+     * than mixing them into stdout.
+     */
+    public static final List<String> JIT_LOG_JVM_ARGS = Arrays.asList(
+        "-XX:+UnlockDiagnosticVMOptions", "-XX:+PrintCompilation", "-XX:+PrintInlining", "-XX:+DisplayVMOutputToStderr"
+    );
+
+    private static final int TOP_TIER = 4;
+
+    //     61   45 %     3       java.util.HashMap::put @ 12 (13 bytes)   made not entrant
+    //     82   60     n 0       java.lang.System::arraycopy (native)   (static)
+    //   1200  325       4      (method)   made not entrant
+    private static final Pattern COMPILATION_LINE = Pattern.compile( "^\\s*\\d+\\s+\\d+\\s+([%sbn! ]*?)\\s*(?:([0-4])\\s+)?(\\S+::\\S+|\\(method\\))(?: @ \\d+)?(?:\\s+\\([^)]*\\))?\\s*(.*?)\\s*$" );
+
+    //                           @ 8   java.util.HashMap::put (13 bytes)   callee uses too much stack
+    private static final Pattern INLINING_LINE = Pattern.compile( "^\\s*[!msbn]*\\s*@ \\d+\\s+(\\S+::\\S+)\\s+\\(([^)]*)\\)\\s*(.*?)\\s*$" );
+
+    private static final Pattern TYPE_PROFILE_LINE = Pattern.compile( "^\\s*\\\\-> TypeProfile" );
+
+
+    private final Pattern                        include;
+    private final Map<String,MethodCompilations> methods       = new TreeMap<>();
+    private final Map<String,Integer>            failedInlines = new TreeMap<>();
+
+    private int    compilationCount;
+    private int    deoptimisationCount;
+    private String currentMethod;
+    private int    currentTier;
+
+    /**
+     * @param include selects the methods under test, matched (with find) against 'className::methodName'
+     */
+    public JitLog( Pattern include ) {
+        this.include = include;
+    }
+
+    public Pattern getInclude() {
+        return include;
+    }
+
+    /**
+     * @return false when the line was not written by the JIT
+     */
+    public boolean parseLine( String line ) {
+        Matcher m = COMPILATION_LINE.matcher( line );
+        if ( m.matches() ) {
+            String  remarks        = m.group( 4 );
+            boolean madeNotEntrant = remarks.contains( "made not entrant" ) || remarks.contains( "made zombie" );
+
+            parseCompilation( m.group(1).indexOf('%') >= 0, m.group(2) == null ? TOP_TIER : Integer.parseInt(m.group(2)), normalise(m.group(3)), madeNotEntrant );
+
+            return true;
+        }
+
+        m = INLINING_LINE.matcher( line );
+        if ( m.matches() ) {
+            parseInlining( normalise(m.group(1)), m.group(2), m.group(3) );
+
+            return true;
+        }
+
+        return TYPE_PROFILE_LINE.matcher( line ).find();
+    }
+
+    private void parseCompilation( boolean isOsr, int tier, String method, boolean madeNotEntrant ) {
+        boolean            isTopTier = tier == TOP_TIER;
+        MethodCompilations stats     = isIncluded(method) ? fetchMethod(method) : null;
+
+        if ( madeNotEntrant ) {
+            if ( isTopTier ) {
+                deoptimisationCount++;
+
+                if ( stats != null ) {
+                    stats.deoptimisationCount++;
+                }
+            }
+
+            return;
+        }
+
+        compilationCount++;
+        currentMethod = method;
+        currentTier   = tier;
+
+        if ( stats != null ) {
+            stats.compilationCount++;
+            stats.tiers |= 1 << tier;
+
+            if ( isOsr ) {
+                stats.osrCount++;
+            }
+        }
+    }
+
+    private void parseInlining( String callee, String size, String decision ) {
+        if ( currentTier != TOP_TIER || isInlined(decision) ) {
+            return;
+        }
+
+        if ( isIncluded(callee) || (currentMethod != null && isIncluded(currentMethod)) ) {
+            String  key   = callee + " (" + size + "): " + decision;
+            Integer count = failedInlines.get( key );
+
+            failedInlines.put( key, count == null ? 1 : count+1 );
+        }
+    }
+
+    /**
+     * HotSpot describes successful inlines as 'inline', 'inline (hot)', 'accessor', 'intrinsic' and
+     * 'force inline by ...'; every other decision (for example 'hot method too big', 'no static binding'
+     * or 'failed to inline: too big') left a call in place.  Blank decisions are not decisions.
+     */
+    private static boolean isInlined( String decision ) {
+        if ( decision.isEmpty() ) {
+            return true;
+        } else if ( decision.startsWith("failed") ) {
+            return false;
+        }
+
+        return decision.startsWith("inline") || decision.startsWith("accessor") || decision.startsWith("force inline") || decision.contains("intrinsic");
+    }
+
+    private boolean isIncluded( String method ) {
+        return include.matcher( method ).find();
+    }
+
+    private MethodCompilations fetchMethod( String method ) {
+        MethodCompilations stats = methods.get( method );
+
+        if ( stats == null ) {
+            stats = new MethodCompilations();
+
+            methods.put( method, stats );
+        }
+
+        return stats;
+    }
+
+    /**
+     * Classes that have not been loaded yet are printed with slashes, java/lang/String::charAt.
+     */
+    private static String normalise( String method ) {
+        return method.replace( '/', '.' );
+    }
+
+    public void add( JitLog other ) {
+        compilationCount    += other.compilationCount;
+        deoptimisationCount += other.deoptimisationCount;
+
+        for ( Map.Entry<String,MethodCompilations> e : other.methods.entrySet() ) {
+            fetchMethod( e.getKey() ).add( e.getValue() );
+        }
+
+        for ( Map.Entry<String,Integer> e : other.failedInlines.entrySet() ) {
+            Integer count = failedInlines.get( e.getKey() );
+
+            failedInlines.put( e.getKey(), count == null ? e.getValue() : count+e.getValue() );
+        }
+    }
+
+    /**
+     * Compilations of every method, not just those under test.
+     */
+    public int getCompilationCount() {
+        return compilationCount;
+    }
+
+    /**
+     * Deoptimisations of every method, not just those under test.
+     */
+    public int getDeoptimisationCount() {
+        return deoptimisationCount;
+    }
+
+    /**
+     * The methods under test that were compiled, 'className::methodName' in alphabetical order.
+     */
+    public Map<String,MethodCompilations> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Calls that the JIT failed to inline, as 'callee (size): reason', with the number of times that the
+     * decision was printed.
+     */
+    public Map<String,Integer> getFailedInlines() {
+        return failedInlines;
+    }
+
+    public void appendTo( IndentWriter out ) {
+        out.println( "jit:     " + compilationCount + " compilations, " + deoptimisationCount + " deoptimisations (tier 4 code made not entrant) in total" );
+        out.incIndent();
+
+        for ( Map.Entry<String,MethodCompilations> e : methods.entrySet() ) {
+            out.println( e.getKey() + "  " + e.getValue() );
+        }
+
+        if ( !failedInlines.isEmpty() ) {
+            out.println( "failed to inline:" );
+            out.incIndent();
+
+            for ( Map.Entry<String,Integer> e : failedInlines.entrySet() ) {
+                out.println( e.getKey() + (e.getValue() > 1 ? "  (x" + e.getValue() + ")" : "") );
+            }
+
+            out.decIndent();
+        }
+
+        out.decIndent();
+    }
+
+
+    /**
+     * How one method under test was compiled.
+     */
+    public static class MethodCompilations implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int tiers;
+        private int compilationCount;
+        private int osrCount;
+        private int deoptimisationCount;
+
+        public boolean wasCompiledAtTier( int tier ) {
+            return (tiers & (1 << tier)) != 0;
+        }
+
+        public int getHighestTier() {
+            return 31 - Integer.numberOfLeadingZeros( tiers );
+        }
+
+        public int getCompilationCount() {
+            return compilationCount;
+        }
+
+        /**
+         * On stack replacement compilations, which replace a long running loop while it runs.
+         */
+        public int getOsrCount() {
+            return osrCount;
+        }
+
+        public int getDeoptimisationCount() {
+            return deoptimisationCount;
+        }
+
+        void add( MethodCompilations other ) {
+            tiers               |= other.tiers;
+            compilationCount    += other.compilationCount;
+            osrCount            += other.osrCount;
+            deoptimisationCount += other.deoptimisationCount;
+        }
+
+        public String toString() {
+            StringBuilder buf = new StringBuilder( "tiers " );
+
+            for ( int tier=0; tier<=TOP_TIER; tier++ ) {
+                if ( wasCompiledAtTier(tier) ) {
+                    buf.append( buf.length() > "tiers ".length() ? "," : "" ).append( tier );
+                }
+            }
+
+            buf.append( ", " ).append( compilationCount ).append( compilationCount == 1 ? " compilation" : " compilations" );
+
+            if ( osrCount > 0 ) {
+                buf.append( " (" ).append( osrCount ).append( " OSR)" );
+            }
+
+            buf.append( ", " ).append( deoptimisationCount ).append( deoptimisationCount == 1 ? " deoptimisation" : " deoptimisations" );
+
+            return buf.toString();
+        }
+    }
+
+}
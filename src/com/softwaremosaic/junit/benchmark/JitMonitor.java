@@ -0,0 +1,27 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+
+
+/**
+ * Reads the JVM's accumulated JIT compilation time, so that the benchmark runner can tell when the
+ * JIT has settled down and whether it was active while a batch was being timed.
+ */
+public class JitMonitor {
+
+    private final CompilationMXBean compilationBean = ManagementFactory.getCompilationMXBean();
+
+    public boolean isSupported() {
+        return compilationBean != null && compilationBean.isCompilationTimeMonitoringSupported();
+    }
+
+    /**
+     * The total time in milliseconds spent compiling by the JVM so far, across all threads.  Returns
+     * zero when the JVM does not support compilation time monitoring.
+     */
+    public long getTotalCompilationMillis() {
+        return isSupported() ? compilationBean.getTotalCompilationTime() : 0;
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+
+/**
+ * Counts latencies in log-linear buckets, in the style of HdrHistogram.  Values below 128 are counted
+ * exactly; above that every power of two is split into 64 equally sized buckets, so the value reported
+ * for any percentile is within 1/64 (about 1.6%) of the true value.  All of the buckets are allocated
+ * up front, so that recording a value never allocates and is cheap enough to call on every invocation
+ * of a benchmark.  Not thread safe; use one histogram per thread and add() them together.
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int LINEAR_LIMIT = 128;
+    private static final int SUB_BITS     = 6;
+    private static final int SUB_BUCKETS  = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (62-SUB_BITS)*SUB_BUCKETS;  // up to Long.MAX_VALUE
+
+
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+
+    /**
+     * @param value a latency in nanoseconds; negative values are counted as zero
+     */
+    public void record( long value ) {
+        long v = Math.max( 0, value );
+
+        counts[indexOf(v)]++;
+        totalCount++;
+
+        if ( v < min ) {
+            min = v;
+        }
+
+        if ( v > max ) {
+            max = v;
+        }
+    }
+
+    public void add( LatencyHistogram other ) {
+        for ( int i=0; i<BUCKET_COUNT; i++ ) {
+            counts[i] += other.counts[i];
+        }
+
+        totalCount += other.totalCount;
+        min         = Math.min( min, other.min );
+        max         = Math.max( max, other.max );
+    }
+
+    public void reset() {
+        Arrays.fill( counts, 0 );
+
+        totalCount = 0;
+        min        = Long.MAX_VALUE;
+        max        = Long.MIN_VALUE;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return totalCount == 0 ? 0 : max;
+    }
+
+    /**
+     * The mean of the recorded values, using the midpoint of each bucket.
+     */
+    public double getMean() {
+        if ( totalCount == 0 ) {
+            return 0;
+        }
+
+        double total = 0;
+        for ( int i=0; i<BUCKET_COUNT; i++ ) {
+            if ( counts[i] > 0 ) {
+                total += counts[i] * (lowestValueOf(i) + highestValueOf(i)) / 2.0;
+            }
+        }
+
+        return total / totalCount;
+    }
+
+    /**
+     * The value that percentile percent of the recorded values are less than or equal to; reported as
+     * the upper bound of the bucket that it falls in (but never more than the largest recorded value).
+     *
+     * @param percentile 0..100
+     */
+    public long getValueAtPercentile( double percentile ) {
+        if ( totalCount == 0 ) {
+            return 0;
+        }
+
+        long target     = Math.max( 1, (long) Math.ceil(totalCount * percentile/100.0) );
+        long cumulative = 0;
+
+        for ( int i=0; i<BUCKET_COUNT; i++ ) {
+            cumulative += counts[i];
+
+            if ( cumulative >= target ) {
+                return Math.max( getMin(), Math.min(max, highestValueOf(i)) );
+            }
+        }
+
+        return max;
+    }
+
+
+    static int indexOf( long v ) {
+        if ( v < LINEAR_LIMIT ) {
+            return (int) v;
+        }
+
+        int msb   = 63 - Long.numberOfLeadingZeros( v );
+        int shift = msb - SUB_BITS;                        // leaves the top SUB_BITS+1 bits, 64..127
+
+        return LINEAR_LIMIT + (shift-1)*SUB_BUCKETS + (int) ((v >>> shift) - SUB_BUCKETS);
+    }
+
+    static long lowestValueOf( int index ) {
+        if ( index < LINEAR_LIMIT ) {
+            return index;
+        }
+
+        int k     = index - LINEAR_LIMIT;
+        int shift = k/SUB_BUCKETS + 1;
+
+        return (long) (k%SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    static long highestValueOf( int index ) {
+        if ( index < LINEAR_LIMIT ) {
+            return index;
+        }
+
+        int k     = index - LINEAR_LIMIT;
+        int shift = k/SUB_BUCKETS + 1;
+        long next = (long) (k%SUB_BUCKETS + SUB_BUCKETS + 1) << shift;
+
+        return next - 1;
+    }
+
+}
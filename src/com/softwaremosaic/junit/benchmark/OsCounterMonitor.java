@@ -0,0 +1,107 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+
+/**
+ * Reads the context switch and page fault counters of the current thread from Linux's /proc file
+ * system; from /proc/thread-self/stat and /proc/thread-self/status, which the kernel resolves to
+ * /proc/self/task/&lt;tid&gt; of whichever thread opens them (Java has no portable way to find a thread's
+ * OS id).  Reading the counters allocates, so readings are best taken outside of any allocation
+ * measurement.  Other operating systems are not supported.
+ */
+public class OsCounterMonitor {
+
+    private static final Charset ASCII       = Charset.forName( "US-ASCII" );
+    private static final File    STAT_FILE   = new File( "/proc/thread-self/stat" );
+    private static final File    STATUS_FILE = new File( "/proc/thread-self/status" );
+
+    // field numbers (counting from 1, as in 'man proc') within the stat file
+    private static final int STATE_FIELD        = 3;
+    private static final int MINOR_FAULTS_FIELD = 10;
+    private static final int MAJOR_FAULTS_FIELD = 12;
+
+    private final boolean isSupported = readCurrentThreadCounters( true ) != null;
+
+
+    public boolean isSupported() {
+        return isSupported;
+    }
+
+    /**
+     * @return null when the counters are not available
+     */
+    public OsCounters readCurrentThreadCounters() {
+        return isSupported ? readCurrentThreadCounters( false ) : null;
+    }
+
+    /**
+     * The change in counters between two readings, or null when either reading is unavailable.
+     */
+    public static OsCounters countersBetween( OsCounters before, OsCounters after ) {
+        if ( before == null || after == null ) {
+            return null;
+        }
+
+        return after.minus( before );
+    }
+
+    private static OsCounters readCurrentThreadCounters( boolean probing ) {
+        try {
+            String stat   = read( STAT_FILE );
+            String status = read( STATUS_FILE );
+
+            // the command name (field 2) is in brackets and may itself contain spaces and brackets
+            String[] fields = stat.substring( stat.lastIndexOf(')')+2 ).split( " " );
+
+            return new OsCounters(
+                parseStatusValue( status, "voluntary_ctxt_switches:" ),
+                parseStatusValue( status, "nonvoluntary_ctxt_switches:" ),
+                Long.parseLong( fields[MINOR_FAULTS_FIELD-STATE_FIELD] ),
+                Long.parseLong( fields[MAJOR_FAULTS_FIELD-STATE_FIELD] )
+            );
+        } catch ( IOException | RuntimeException ex ) {
+            if ( probing ) {
+                return null;
+            }
+
+            throw new IllegalStateException( "Unable to read the OS counters of the current thread: " + ex.getMessage(), ex );
+        }
+    }
+
+    private static long parseStatusValue( String status, String key ) throws IOException {
+        int i = status.indexOf( "\n" + key );
+        if ( i < 0 ) {
+            throw new IOException( "'" + key + "' not found in " + STATUS_FILE );
+        }
+
+        int start = i + key.length() + 1;
+        int end   = status.indexOf( '\n', start );
+
+        return Long.parseLong( status.substring(start, end < 0 ? status.length() : end).trim() );
+    }
+
+    private static String read( File f ) throws IOException {
+        byte[] buf = new byte[4096];
+        int    len = 0;
+
+        try ( InputStream in = new FileInputStream(f) ) {
+            for ( int n=in.read(buf); n > 0; n=in.read(buf, len, buf.length-len) ) {
+                len += n;
+
+                if ( len == buf.length ) {
+                    byte[] bigger = new byte[buf.length*2];
+                    System.arraycopy( buf, 0, bigger, 0, len );
+                    buf = bigger;
+                }
+            }
+        }
+
+        return new String( buf, 0, len, ASCII );
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.Serializable;
+
+
+/**
+ * The OS scheduler and virtual memory counters of a thread, as read by OsCounterMonitor.  Voluntary
+ * context switches are taken when the thread blocks (on a lock, IO or sleep); involuntary context
+ * switches happen when the scheduler takes the CPU away from a thread that still wanted it, and so are
+ * a sign of competition for CPUs.  Minor page faults are satisfied without IO (typically first touches
+ * of freshly allocated memory), major page faults had to read from disk.
+ */
+public class OsCounters implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long voluntaryContextSwitches;
+    private final long involuntaryContextSwitches;
+    private final long minorPageFaults;
+    private final long majorPageFaults;
+
+
+    public OsCounters( long voluntaryContextSwitches, long involuntaryContextSwitches, long minorPageFaults, long majorPageFaults ) {
+        this.voluntaryContextSwitches   = voluntaryContextSwitches;
+        this.involuntaryContextSwitches = involuntaryContextSwitches;
+        this.minorPageFaults            = minorPageFaults;
+        this.majorPageFaults            = majorPageFaults;
+    }
+
+    public long getVoluntaryContextSwitches() {
+        return voluntaryContextSwitches;
+    }
+
+    public long getInvoluntaryContextSwitches() {
+        return involuntaryContextSwitches;
+    }
+
+    public long getMinorPageFaults() {
+        return minorPageFaults;
+    }
+
+    public long getMajorPageFaults() {
+        return majorPageFaults;
+    }
+
+    public OsCounters plus( OsCounters other ) {
+        return new OsCounters(
+            voluntaryContextSwitches   + other.voluntaryContextSwitches,
+            involuntaryContextSwitches + other.involuntaryContextSwitches,
+            minorPageFaults            + other.minorPageFaults,
+            majorPageFaults            + other.majorPageFaults
+        );
+    }
+
+    public OsCounters minus( OsCounters other ) {
+        return new OsCounters(
+            voluntaryContextSwitches   - other.voluntaryContextSwitches,
+            involuntaryContextSwitches - other.involuntaryContextSwitches,
+            minorPageFaults            - other.minorPageFaults,
+            majorPageFaults            - other.majorPageFaults
+        );
+    }
+
+    public String toString() {
+        return "OsCounters(voluntaryContextSwitches=" + voluntaryContextSwitches + ", involuntaryContextSwitches=" + involuntaryContextSwitches
+            + ", minorPageFaults=" + minorPageFaults + ", majorPageFaults=" + majorPageFaults + ")";
+    }
+
+}
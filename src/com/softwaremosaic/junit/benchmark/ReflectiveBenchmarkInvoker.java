@@ -0,0 +1,46 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+
+/**
+ * Fallback BenchmarkInvoker for methods that generated code is not permitted to call directly.  Expect
+ * the reported timings of cheap methods to be inflated by the cost of reflection.
+ */
+class ReflectiveBenchmarkInvoker implements BenchmarkInvoker {
+
+    private final Method     method;
+    private final Class<?>[] paramTypes;
+    private final boolean    takesIterationCount;
+
+    public ReflectiveBenchmarkInvoker( Method method ) {
+        this.method              = method;
+        this.paramTypes          = method.getParameterTypes();
+        this.takesIterationCount = Arrays.asList( paramTypes ).contains( Integer.TYPE );
+
+        method.setAccessible( true );
+    }
+
+    public void invoke( Object target, int numIterations, Blackhole blackhole ) throws Throwable {
+        Object[] args = new Object[paramTypes.length];
+
+        for ( int i=0; i<paramTypes.length; i++ ) {
+            args[i] = paramTypes[i] == Integer.TYPE ? numIterations : blackhole;
+        }
+
+        try {
+            if ( takesIterationCount ) {
+                blackhole.consume( method.invoke(target, args) );
+            } else {
+                for ( int i=0; i<numIterations; i++ ) {
+                    blackhole.consume( method.invoke(target, args) );
+                }
+            }
+        } catch ( InvocationTargetException ex ) {
+            throw ex.getCause();
+        }
+    }
+
+}
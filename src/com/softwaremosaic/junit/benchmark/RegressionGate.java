@@ -0,0 +1,104 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Fails a benchmark that has become slower.  Only slowdowns that are statistically significant at
+ * the SIGNIFICANCE_LEVEL count; a benchmark whose mean drifts over a limit due to noise alone will
+ * not fail the build.  The following limits are supported:
+ *
+ * <ul>
+ *   <li>an absolute upper limit on the nanoseconds per call</li>
+ *   <li>a maximum percentage slowdown relative to a baseline; either the recent history of the benchmark
+ *   or a single value from a checked in baseline file</li>
+ *   <li>an upper limit on the bytes allocated per call; allocation counts are not noisy in the way that
+ *   timings are, so the median batch is compared directly without a significance test</li>
+ * </ul>
+ */
+public class RegressionGate {
+
+    public static final double SIGNIFICANCE_LEVEL = 1 - BenchmarkResult.CONFIDENCE_LEVEL;
+
+
+    private final double maxNanosPerCall;
+    private final double maxRegressionPercent;
+
+    private double maxBytesPerCall = -1;
+
+    /**
+     * @param maxNanosPerCall      zero or less disables the absolute limit
+     * @param maxRegressionPercent less than zero disables the relative limit
+     */
+    public RegressionGate( double maxNanosPerCall, double maxRegressionPercent ) {
+        this.maxNanosPerCall      = maxNanosPerCall;
+        this.maxRegressionPercent = maxRegressionPercent;
+    }
+
+    /**
+     * @param maxBytesPerCall less than zero disables the allocation limit, zero requires the benchmark
+     *                        to be allocation free
+     */
+    public RegressionGate withMaxBytesPerCall( double maxBytesPerCall ) {
+        this.maxBytesPerCall = maxBytesPerCall;
+
+        return this;
+    }
+
+    public boolean isComparingToBaseline() {
+        return maxRegressionPercent >= 0;
+    }
+
+    /**
+     * @param baselineBatches the per call durations of the baseline's batches, null when there is no
+     *                        baseline to compare against
+     * @throws AssertionError when a limit has been exceeded
+     */
+    public void verify( BenchmarkResult result, double[] baselineBatches ) {
+        List<String>     failures = new ArrayList<>();
+        SampleStatistics current  = result.getStatistics();
+
+        if ( maxNanosPerCall > 0 ) {
+            double p = WelchTTest.oneSidedPValue( current, maxNanosPerCall );
+
+            if ( p < SIGNIFICANCE_LEVEL ) {
+                failures.add( String.format("%s per %s exceeds the limit of %s (p=%.4f)", BenchmarkResult.formatNanos(current.getMean()), result.getUnits(), BenchmarkResult.formatNanos(maxNanosPerCall), p) );
+            }
+        }
+
+        if ( isComparingToBaseline() && baselineBatches != null && baselineBatches.length > 0 ) {
+            SampleStatistics baseline = new SampleStatistics( baselineBatches );
+            double           scale    = 1 + maxRegressionPercent/100;
+            double           p        = baseline.getCount() > 1
+                                            ? new WelchTTest( current, baseline, scale ).getOneSidedPValue()
+                                            : WelchTTest.oneSidedPValue( current, baseline.getMean()*scale );
+
+            if ( p < SIGNIFICANCE_LEVEL ) {
+                double slowdownPercent = (current.getMean()/baseline.getMean() - 1) * 100;
+
+                failures.add( String.format("%s per %s is %.1f%% slower than the baseline of %s (limit %.1f%%, p=%.4f)", BenchmarkResult.formatNanos(current.getMean()), result.getUnits(), slowdownPercent, BenchmarkResult.formatNanos(baseline.getMean()), maxRegressionPercent, p) );
+            }
+        }
+
+        if ( maxBytesPerCall >= 0 ) {
+            SampleStatistics allocations = result.getAllocationStatistics();
+
+            if ( allocations != null && allocations.getMedian() > maxBytesPerCall ) {
+                failures.add( String.format("%s per %s exceeds the allocation limit of %s", BenchmarkResult.formatBytes(allocations.getMedian()), result.getUnits(), BenchmarkResult.formatBytes(maxBytesPerCall)) );
+            }
+        }
+
+        if ( !failures.isEmpty() ) {
+            String simpleClassName = result.getClassName().substring( result.getClassName().lastIndexOf('.')+1 );
+            StringBuilder msg = new StringBuilder( "Benchmark " + simpleClassName + "." + result.getMethodName() + " has regressed:" );
+
+            for ( String failure : failures ) {
+                msg.append( "\n    " ).append( failure );
+            }
+
+            throw new AssertionError( msg.toString() );
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+
+/**
+ * Summary statistics of a set of samples, typically the per call duration of each batch of a
+ * benchmark.
+ */
+public class SampleStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[] sortedSamples;
+    private final double   mean;
+    private final double   standardDeviation;
+
+
+    public SampleStatistics( double[] samples ) {
+        this.sortedSamples = Arrays.copyOf( samples, samples.length );
+
+        Arrays.sort( sortedSamples );
+
+        this.mean              = calculateMean( sortedSamples );
+        this.standardDeviation = calculateStandardDeviation( sortedSamples, mean );
+    }
+
+    public int getCount() {
+        return sortedSamples.length;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * The sample standard deviation (Bessel corrected).  Zero when there are less than two samples.
+     */
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public double getStandardError() {
+        return sortedSamples.length == 0 ? Double.NaN : standardDeviation / Math.sqrt( sortedSamples.length );
+    }
+
+    public double getMin() {
+        return sortedSamples.length == 0 ? Double.NaN : sortedSamples[0];
+    }
+
+    public double getMax() {
+        return sortedSamples.length == 0 ? Double.NaN : sortedSamples[sortedSamples.length-1];
+    }
+
+    public double getMedian() {
+        return getPercentile( 50 );
+    }
+
+    /**
+     * Returns the value below which the specified percentage of samples fall, interpolating linearly
+     * between the two closest samples.
+     *
+     * @param percentile 0..100
+     */
+    public double getPercentile( double percentile ) {
+        if ( percentile < 0 || percentile > 100 ) {
+            throw new IllegalArgumentException( "percentile must be within 0..100, was " + percentile );
+        }
+
+        int n = sortedSamples.length;
+        if ( n == 0 ) {
+            return Double.NaN;
+        }
+
+        double rank  = (percentile/100.0) * (n-1);
+        int    lower = (int) Math.floor( rank );
+        int    upper = (int) Math.ceil( rank );
+
+        return sortedSamples[lower] + (rank-lower)*(sortedSamples[upper]-sortedSamples[lower]);
+    }
+
+    /**
+     * Half the width of the confidence interval about the mean, based on Student's t-distribution.
+     * NaN when there are too few samples to estimate the interval.
+     *
+     * @param confidenceLevel eg 0.999 for a 99.9% confidence interval
+     */
+    public double getConfidenceIntervalHalfWidth( double confidenceLevel ) {
+        int n = sortedSamples.length;
+        if ( n < 2 ) {
+            return Double.NaN;
+        }
+
+        double t = new StudentTDistribution( n-1 ).criticalValue( confidenceLevel );
+
+        return t * getStandardError();
+    }
+
+    public double getConfidenceIntervalLower( double confidenceLevel ) {
+        return mean - getConfidenceIntervalHalfWidth( confidenceLevel );
+    }
+
+    public double getConfidenceIntervalUpper( double confidenceLevel ) {
+        return mean + getConfidenceIntervalHalfWidth( confidenceLevel );
+    }
+
+    /**
+     * Tukey's fences; a sample is an outlier when it lies more than 1.5 inter-quartile ranges below
+     * the first quartile or above the third quartile.
+     */
+    public boolean isOutlier( double sample ) {
+        double q1  = getPercentile( 25 );
+        double q3  = getPercentile( 75 );
+        double iqr = q3 - q1;
+
+        return sample < q1 - 1.5*iqr || sample > q3 + 1.5*iqr;
+    }
+
+
+    private static double calculateMean( double[] samples ) {
+        if ( samples.length == 0 ) {
+            return Double.NaN;
+        }
+
+        double sum = 0;
+        for ( double v : samples ) {
+            sum += v;
+        }
+
+        return sum / samples.length;
+    }
+
+    private static double calculateStandardDeviation( double[] samples, double mean ) {
+        if ( samples.length < 2 ) {
+            return 0;
+        }
+
+        double sumOfSquares = 0;
+        for ( double v : samples ) {
+            double delta = v - mean;
+
+            sumOfSquares += delta*delta;
+        }
+
+        return Math.sqrt( sumOfSquares / (samples.length-1) );
+    }
+
+}
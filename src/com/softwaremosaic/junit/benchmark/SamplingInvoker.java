@@ -0,0 +1,73 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Wraps a BenchmarkInvoker so that every call is timed individually and recorded in a LatencyHistogram.
+ * The wrapped invoker is asked to make one call at a time, so methods that take an iteration count are
+ * passed 1.  Each thread that invokes the benchmark records into a histogram of its own, created the
+ * first time that the thread is seen; getHistogram() combines them.
+ */
+public class SamplingInvoker implements BenchmarkInvoker {
+
+    private final BenchmarkInvoker              invoker;
+    private final List<LatencyHistogram>        histograms      = new ArrayList<>();
+    private final ThreadLocal<LatencyHistogram> threadHistogram = new ThreadLocal<LatencyHistogram>() {
+        protected LatencyHistogram initialValue() {
+            LatencyHistogram histogram = new LatencyHistogram();
+
+            synchronized (histograms) {
+                histograms.add( histogram );
+            }
+
+            return histogram;
+        }
+    };
+
+
+    public SamplingInvoker( BenchmarkInvoker invoker ) {
+        this.invoker = invoker;
+    }
+
+    public void invoke( Object target, int numIterations, Blackhole blackhole ) throws Throwable {
+        LatencyHistogram histogram = threadHistogram.get();
+
+        for ( int i=0; i<numIterations; i++ ) {
+            long startNanos = System.nanoTime();
+
+            invoker.invoke( target, 1, blackhole );
+
+            histogram.record( System.nanoTime() - startNanos );
+        }
+    }
+
+    /**
+     * Discards everything recorded so far, for example the calls made while warming up.  Must not be
+     * called while the benchmark is being invoked.
+     */
+    public void reset() {
+        synchronized (histograms) {
+            for ( LatencyHistogram h : histograms ) {
+                h.reset();
+            }
+        }
+    }
+
+    /**
+     * A copy of the latencies recorded by every thread.
+     */
+    public LatencyHistogram getHistogram() {
+        LatencyHistogram combined = new LatencyHistogram();
+
+        synchronized (histograms) {
+            for ( LatencyHistogram h : histograms ) {
+                combined.add( h );
+            }
+        }
+
+        return combined;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.io.IndentWriter;
+
+import java.util.List;
+
+
+/**
+ * Summarises how a benchmark's throughput changes as more threads invoke it concurrently.  Speedup is
+ * the throughput relative to the smallest thread count measured, and efficiency is that speedup divided
+ * by the increase in threads; efficiency falling away from 100% shows where scaling flattens.  Latency
+ * is the mean time per call as experienced by each thread.
+ */
+public class ScalingReport {
+
+    private final List<BenchmarkResult> results;
+
+    /**
+     * @param results one result per thread count, in increasing order of threads
+     */
+    public ScalingReport( List<BenchmarkResult> results ) {
+        this.results = results;
+    }
+
+    public String toString() {
+        IndentWriter out = new IndentWriter( new StringBuilder(), "    " );
+
+        appendTo( out );
+
+        return out.toString();
+    }
+
+    public void appendTo( IndentWriter out ) {
+        BenchmarkResult first           = results.get( 0 );
+        String          className       = first.getClassName();
+        String          simpleClassName = className.substring( className.lastIndexOf('.')+1 );
+        double          baseOps         = first.getThroughputStatistics().getMean();
+        int             baseThreads     = first.getThreadCount();
+
+        out.println( "Scaling of " + simpleClassName + "." + first.getMethodName() );
+        out.newLine();
+        out.incIndent();
+        out.println( String.format("%7s  %16s  %14s  %8s  %10s", "threads", "ops/sec", "latency", "speedup", "efficiency") );
+
+        for ( BenchmarkResult r : results ) {
+            double ops        = r.getThroughputStatistics().getMean();
+            double speedup    = ops / baseOps;
+            double efficiency = speedup * baseThreads / r.getThreadCount();
+
+            out.println( String.format("%7d  %16s  %14s  %7.2fx  %9.0f%%", r.getThreadCount(), BenchmarkResult.formatRate(ops), BenchmarkResult.formatNanos(r.getStatistics().getMean()), speedup, efficiency*100) );
+        }
+
+        out.decIndent();
+    }
+
+}
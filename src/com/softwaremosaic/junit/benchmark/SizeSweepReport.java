@@ -0,0 +1,99 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.io.IndentWriter;
+
+import java.util.List;
+
+
+/**
+ * Summarises how a benchmark's time per call grows with the size of the data that it works on.  Growth
+ * is the exponent k that relates each size to the one before it, time ~ size^k; roughly 0 for constant
+ * time, 1 for linear and 2 for quadratic.  Steps in growth between sizes usually mark the working set
+ * spilling out of a cache.  Benchmarks run in BenchmarkMode.FOOTPRINT also show how the size of the
+ * structure grows.
+ */
+public class SizeSweepReport {
+
+    private final long[]                sizes;
+    private final List<BenchmarkResult> results;
+
+    /**
+     * @param sizes   the size that each of the results was measured at, in increasing order
+     * @param results one result per size
+     */
+    public SizeSweepReport( long[] sizes, List<BenchmarkResult> results ) {
+        if ( sizes.length != results.size() ) {
+            throw new IllegalArgumentException( "expected one result per size, was " + results.size() + " results for " + sizes.length + " sizes" );
+        }
+
+        this.sizes   = sizes;
+        this.results = results;
+    }
+
+    public String toString() {
+        IndentWriter out = new IndentWriter( new StringBuilder(), "    " );
+
+        appendTo( out );
+
+        return out.toString();
+    }
+
+    public void appendTo( IndentWriter out ) {
+        BenchmarkResult first           = results.get( 0 );
+        String          className       = first.getClassName();
+        String          simpleClassName = className.substring( className.lastIndexOf('.')+1 );
+        String          qualifier       = first.getThreadCount() > 1 ? " with " + first.getThreadCount() + " threads" : "";
+
+        out.println( "Sizes of " + simpleClassName + "." + first.getMethodName() + qualifier );
+        out.newLine();
+        out.incIndent();
+        out.print( String.format("%12s  %14s  %12s  %14s  %6s", "size", "per " + first.getUnits(), "+/-", "per size unit", "growth") );
+        out.println( first.getFootprint() == null ? "" : String.format("  %18s  %14s  %14s", "footprint", "bytes per unit", "marginal bytes") );
+
+        for ( int i=0; i<sizes.length; i++ ) {
+            SampleStatistics s       = results.get(i).getStatistics();
+            double           ciHalf  = s.getConfidenceIntervalHalfWidth( BenchmarkResult.CONFIDENCE_LEVEL );
+            String           perUnit = sizes[i] > 0 ? BenchmarkResult.formatNanos(s.getMean()/sizes[i]) : "-";
+            String           growth  = i == 0 ? "-" : formatGrowth( sizes[i-1], results.get(i-1).getStatistics().getMean(), sizes[i], s.getMean() );
+
+            out.print( String.format("%,12d  %14s  %12s  %14s  %6s", sizes[i], BenchmarkResult.formatNanos(s.getMean()), Double.isNaN(ciHalf) ? "-" : BenchmarkResult.formatNanos(ciHalf), perUnit, growth) );
+            out.println( first.getFootprint() == null ? "" : formatFootprint(i) );
+        }
+
+        out.decIndent();
+    }
+
+    /**
+     * The bytes per size unit, and the marginal bytes per unit; the growth in the footprint from the
+     * previous size divided by the growth in size, which leaves out the fixed cost of the structure.
+     */
+    private String formatFootprint( int i ) {
+        long   bytes    = results.get(i).getFootprint().getBytes();
+        String perUnit  = sizes[i] > 0 ? String.format( "%.1f", (double) bytes/sizes[i] ) : "-";
+        String marginal = "-";
+
+        if ( i > 0 && sizes[i] != sizes[i-1] ) {
+            marginal = String.format( "%.1f", (double) (bytes - results.get(i-1).getFootprint().getBytes()) / (sizes[i] - sizes[i-1]) );
+        }
+
+        return String.format( "  %18s  %14s  %14s", Footprint.formatBytes(bytes), perUnit, marginal );
+    }
+
+    /**
+     * The exponent k where time1/time0 = (size1/size0)^k.
+     */
+    static double calcGrowth( long size0, double time0, long size1, double time1 ) {
+        if ( size0 <= 0 || size1 <= 0 || size0 == size1 || time0 <= 0 || time1 <= 0 ) {
+            return Double.NaN;
+        }
+
+        return Math.log( time1/time0 ) / Math.log( (double) size1/size0 );
+    }
+
+    private static String formatGrowth( long size0, double time0, long size1, double time1 ) {
+        double growth = calcGrowth( size0, time0, size1, time1 );
+
+        return Double.isNaN(growth) ? "-" : String.format( "%.2f", growth );
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Counts how often each distinct call stack was seen by a StackSampler.  Stacks are held in the
+ * 'collapsed' format used by flame graph tools (Brendan Gregg's flamegraph.pl, speedscope and
+ * async-profiler's converters among others); the frames from the outermost to the innermost, separated
+ * by semicolons, with each line of the file followed by a space and the number of samples.  Not thread
+ * safe.
+ */
+public class StackProfile implements Serializable {
+
+    private static final long    serialVersionUID = 1L;
+    private static final Charset UTF8             = Charset.forName( "UTF-8" );
+
+
+    private final long             intervalMillis;
+    private final Map<String,Long> stackCounts = new HashMap<>();
+
+    private long sampleCount;
+
+    /**
+     * @param intervalMillis how often the stacks were sampled, for reporting only
+     */
+    public StackProfile( long intervalMillis ) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * @param stack as returned by Thread.getStackTrace(), innermost frame first; empty stacks are ignored
+     */
+    public void record( StackTraceElement[] stack ) {
+        if ( stack.length == 0 ) {
+            return;
+        }
+
+        StringBuilder buf = new StringBuilder();
+        for ( int i=stack.length-1; i>=0; i-- ) {
+            if ( buf.length() > 0 ) {
+                buf.append( ';' );
+            }
+
+            buf.append( describeFrame(stack[i]) );
+        }
+
+        increment( stackCounts, buf.toString(), 1 );
+        sampleCount++;
+    }
+
+    public void add( StackProfile other ) {
+        for ( Map.Entry<String,Long> e : other.stackCounts.entrySet() ) {
+            increment( stackCounts, e.getKey(), e.getValue() );
+        }
+
+        sampleCount += other.sampleCount;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * The number of samples seen of each collapsed stack.
+     */
+    public Map<String,Long> getStackCounts() {
+        return Collections.unmodifiableMap( stackCounts );
+    }
+
+    /**
+     * The innermost frames that were seen most often, that is where the sampled threads spent their time;
+     * most frequent first.
+     */
+    public List<Map.Entry<String,Long>> getHottestFrames( int limit ) {
+        Map<String,Long> selfCounts = new HashMap<>();
+
+        for ( Map.Entry<String,Long> e : stackCounts.entrySet() ) {
+            String stack = e.getKey();
+
+            increment( selfCounts, stack.substring(stack.lastIndexOf(';')+1), e.getValue() );
+        }
+
+        List<Map.Entry<String,Long>> frames = sortByCountDescending( selfCounts );
+
+        return frames.size() > limit ? frames.subList(0, limit) : frames;
+    }
+
+    /**
+     * Writes one line per distinct stack, most frequent first.
+     */
+    public void writeCollapsed( Writer out ) throws IOException {
+        for ( Map.Entry<String,Long> e : sortByCountDescending(stackCounts) ) {
+            out.write( e.getKey() );
+            out.write( ' ' );
+            out.write( Long.toString(e.getValue()) );
+            out.write( '\n' );
+        }
+    }
+
+    public void writeCollapsed( File file ) throws IOException {
+        File dir = file.getParentFile();
+
+        if ( dir != null && !dir.isDirectory() && !dir.mkdirs() ) {
+            throw new IOException( "Unable to create directory " + dir );
+        }
+
+        try ( Writer out = new OutputStreamWriter(new FileOutputStream(file), UTF8) ) {
+            writeCollapsed( out );
+        }
+    }
+
+    private static String describeFrame( StackTraceElement frame ) {
+        return frame.getClassName() + "." + frame.getMethodName();
+    }
+
+    private static void increment( Map<String,Long> counts, String key, long delta ) {
+        Long count = counts.get( key );
+
+        counts.put( key, count == null ? delta : count+delta );
+    }
+
+    private static List<Map.Entry<String,Long>> sortByCountDescending( Map<String,Long> counts ) {
+        List<Map.Entry<String,Long>> entries = new ArrayList<>( counts.entrySet() );
+
+        Collections.sort( entries, new Comparator<Map.Entry<String,Long>>() {
+            public int compare( Map.Entry<String,Long> a, Map.Entry<String,Long> b ) {
+                int c = Long.compare( b.getValue(), a.getValue() );
+
+                return c != 0 ? c : a.getKey().compareTo( b.getKey() );
+            }
+        });
+
+        return entries;
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.softwaremosaic.junit.benchmark;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Samples the call stacks of a set of threads from a background thread, at a fixed interval, while it
+ * has been resumed.  Only threads that are running or blocked on a monitor are sampled; a thread
+ * that is waiting (for example a benchmark worker parked between batches) is not doing any work worth
+ * attributing.<p/>
+ *
+ * Each sample is taken with Thread.getStackTrace(), which briefly pauses the sampled thread at its next
+ * safepoint.  That keeps the cost per sample to tens of microseconds, so sampling every few milliseconds
+ * barely disturbs the timings, but it also means that the samples are biased towards the places where
+ * the JIT polls for safepoints (method returns and loop back edges).  Treat the profile as a guide to
+ * where the time goes, not as an exact account.
+ */
+public class StackSampler {
+
+    private final long         intervalMillis;
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private final StackProfile profile;
+    private final Thread       samplerThread;
+
+    private volatile boolean sampling = false;
+    private volatile boolean closed   = false;
+
+    public StackSampler( long intervalMillis ) {
+        if ( intervalMillis < 1 ) {
+            throw new IllegalArgumentException( "intervalMillis must be 1 or more, was " + intervalMillis );
+        }
+
+        this.intervalMillis = intervalMillis;
+        this.profile        = new StackProfile( intervalMillis );
+        this.samplerThread  = new Thread( "benchmark-stack-sampler" ) {
+            public void run() {
+                sampleUntilClosed();
+            }
+        };
+
+        samplerThread.setDaemon( true );
+        samplerThread.start();
+    }
+
+    public void addThread( Thread thread ) {
+        threads.add( thread );
+    }
+
+    /**
+     * Starts taking samples, the sampler starts paused.
+     */
+    public void resume() {
+        sampling = true;
+    }
+
+    public void pause() {
+        sampling = false;
+    }
+
+    /**
+     * Stops the background thread, after which the profile may be read.
+     */
+    public void close() {
+        closed   = true;
+        sampling = false;
+
+        samplerThread.interrupt();
+
+        try {
+            samplerThread.join();
+        } catch ( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The samples taken so far; only safe to call after close().
+     */
+    public StackProfile getProfile() {
+        return profile;
+    }
+
+    private void sampleUntilClosed() {
+        while ( !closed ) {
+            try {
+                Thread.sleep( intervalMillis );
+            } catch ( InterruptedException ex ) {
+                return;
+            }
+
+            if ( sampling ) {
+                takeSample();
+            }
+        }
+    }
+
+    private void takeSample() {
+        for ( Thread t : threads ) {
+            Thread.State state = t.getState();
+
+            if ( state == Thread.State.RUNNABLE || state == Thread.State.BLOCKED ) {
+                profile.record( t.getStackTrace() );
+            }
+        }
+    }
+
+}
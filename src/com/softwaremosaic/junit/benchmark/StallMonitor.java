@@ -0,0 +1,17 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.tools.SystemStallDetector;
+
+
+/**
+ * Reads how long the SystemStallDetector's thread has been delayed by in total, which reveals the
+ * JVM or the machine freezing.  Comparing readings taken either side of a batch reveals whether the
+ * batch's timing includes a stall.
+ */
+public class StallMonitor {
+
+    public long getTotalStallMillis() {
+        return SystemStallDetector.getTotalDelaySoFarMillis();
+    }
+
+}
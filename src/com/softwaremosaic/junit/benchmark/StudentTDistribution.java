@@ -0,0 +1,161 @@
+package com.softwaremosaic.junit.benchmark;
+
+
+/**
+ * Student's t-distribution, used to size confidence intervals and to test the significance of
+ * differences between small numbers of benchmark batches.  Small sample sizes are the norm for
+ * benchmarks, which is why the normal distribution is not used instead.
+ */
+public class StudentTDistribution {
+
+    private static final int    MAX_ITERATIONS = 300;
+    private static final double EPSILON        = 1e-14;
+    private static final double TINY           = 1e-300;
+
+
+    private final double degreesOfFreedom;
+
+    public StudentTDistribution( double degreesOfFreedom ) {
+        if ( degreesOfFreedom <= 0 ) {
+            throw new IllegalArgumentException( "degreesOfFreedom must be > 0, was " + degreesOfFreedom );
+        }
+
+        this.degreesOfFreedom = degreesOfFreedom;
+    }
+
+    public double getDegreesOfFreedom() {
+        return degreesOfFreedom;
+    }
+
+    /**
+     * Returns P(T &lt;= t).
+     */
+    public double cumulativeProbability( double t ) {
+        if ( Double.isNaN(t) ) {
+            return Double.NaN;
+        } else if ( t == Double.POSITIVE_INFINITY ) {
+            return 1.0;
+        } else if ( t == Double.NEGATIVE_INFINITY ) {
+            return 0.0;
+        }
+
+        double x    = degreesOfFreedom / (degreesOfFreedom + t*t);
+        double tail = 0.5 * regularizedIncompleteBeta( x, degreesOfFreedom/2, 0.5 );
+
+        return t > 0 ? 1.0 - tail : tail;
+    }
+
+    /**
+     * Returns the value t for which P(T &lt;= t) = p.
+     */
+    public double inverseCumulativeProbability( double p ) {
+        if ( p <= 0 || p >= 1 ) {
+            throw new IllegalArgumentException( "p must be within (0,1), was " + p );
+        }
+
+        double lower = -1e7;
+        double upper = 1e7;
+
+        for ( int i=0; i<MAX_ITERATIONS && upper-lower > EPSILON*Math.max(1,Math.abs(upper)); i++ ) {
+            double mid = (lower+upper)/2;
+
+            if ( cumulativeProbability(mid) < p ) {
+                lower = mid;
+            } else {
+                upper = mid;
+            }
+        }
+
+        return (lower+upper)/2;
+    }
+
+    /**
+     * Returns the two tailed critical value for the specified confidence level; for example
+     * criticalValue(0.95) returns the value that 95% of the distribution lies within +/-.
+     */
+    public double criticalValue( double confidenceLevel ) {
+        return inverseCumulativeProbability( 1 - (1-confidenceLevel)/2 );
+    }
+
+
+    private static double regularizedIncompleteBeta( double x, double a, double b ) {
+        if ( x <= 0 ) {
+            return 0;
+        } else if ( x >= 1 ) {
+            return 1;
+        }
+
+        double front = Math.exp( logGamma(a+b) - logGamma(a) - logGamma(b) + a*Math.log(x) + b*Math.log(1-x) );
+
+        // the continued fraction converges rapidly for x < (a+1)/(a+b+2), use the symmetry relation otherwise
+        if ( x < (a+1)/(a+b+2) ) {
+            return front * continuedFraction(x, a, b) / a;
+        } else {
+            return 1 - front * continuedFraction(1-x, b, a) / b;
+        }
+    }
+
+    /**
+     * Lentz's method for evaluating the continued fraction of the incomplete beta function.
+     */
+    private static double continuedFraction( double x, double a, double b ) {
+        double qab = a+b;
+        double qap = a+1;
+        double qam = a-1;
+        double c   = 1;
+        double d   = 1 - qab*x/qap;
+
+        d = 1/nonZero(d);
+
+        double h = d;
+
+        for ( int m=1; m<=MAX_ITERATIONS; m++ ) {
+            int    m2 = 2*m;
+            double aa = m*(b-m)*x/((qam+m2)*(a+m2));
+
+            d  = 1/nonZero( 1 + aa*d );
+            c  = nonZero( 1 + aa/c );
+            h *= d*c;
+
+            aa = -(a+m)*(qab+m)*x/((a+m2)*(qap+m2));
+            d  = 1/nonZero( 1 + aa*d );
+            c  = nonZero( 1 + aa/c );
+
+            double delta = d*c;
+            h *= delta;
+
+            if ( Math.abs(delta-1) < EPSILON ) {
+                break;
+            }
+        }
+
+        return h;
+    }
+
+    private static double nonZero( double v ) {
+        return Math.abs(v) < TINY ? TINY : v;
+    }
+
+    /**
+     * Lanczos approximation of ln(gamma(x)).
+     */
+    private static double logGamma( double x ) {
+        double[] coefficients = {
+            76.18009172947146, -86.50532032941677, 24.01409824083091,
+            -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5
+        };
+
+        double y   = x;
+        double tmp = x + 5.5;
+        double ser = 1.000000000190015;
+
+        tmp -= (x+0.5)*Math.log(tmp);
+
+        for ( double c : coefficients ) {
+            ser += c / ++y;
+        }
+
+        return -tmp + Math.log(2.5066282746310005*ser/x);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.softwaremosaic.junit.benchmark;
+
+
+/**
+ * Invokes a benchmark over and over until a duration has passed, for BenchmarkMode.THROUGHPUT.  To keep
+ * the cost of reading the clock out of the measurement, the clock is only read between chunks of calls;
+ * the chunk size starts at one call and doubles until a chunk takes about 1/CHECKS_PER_BATCH of the
+ * duration, so that the clock is read roughly CHECKS_PER_BATCH times however cheap the method is, and
+ * the batch overruns its duration by no more than about one chunk.
+ */
+public class TimeBox {
+
+    private static final int CHECKS_PER_BATCH = 1000;
+    private static final int MAX_CHUNK_SIZE   = 1 << 24;
+
+
+    /**
+     * @return the number of calls made, at most Integer.MAX_VALUE
+     */
+    public static int invokeFor( BenchmarkInvoker invoker, Object target, Blackhole blackhole, long durationNanos ) throws Throwable {
+        long startNanos       = System.nanoTime();
+        long deadlineNanos    = startNanos + durationNanos;
+        long chunkTargetNanos = Math.max( 1, durationNanos/CHECKS_PER_BATCH );
+        long chunkStartNanos  = startNanos;
+        long callCount        = 0;
+        int  chunkSize        = 1;
+
+        while ( true ) {
+            invoker.invoke( target, chunkSize, blackhole );
+            callCount += chunkSize;
+
+            long nowNanos = System.nanoTime();
+            if ( nowNanos >= deadlineNanos ) {
+                return (int) callCount;
+            }
+
+            if ( nowNanos-chunkStartNanos < chunkTargetNanos && chunkSize < MAX_CHUNK_SIZE ) {
+                chunkSize *= 2;
+            }
+
+            // the call count is recorded as an int, so stop early rather than overflow
+            if ( callCount + chunkSize > Integer.MAX_VALUE ) {
+                return (int) callCount;
+            }
+
+            chunkStartNanos = nowNanos;
+        }
+    }
+
+}
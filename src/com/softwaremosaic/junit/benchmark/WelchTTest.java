@@ -0,0 +1,75 @@
+package com.softwaremosaic.junit.benchmark;
+
+
+/**
+ * Welch's t-test; compares the means of two samples without assuming that they share the same
+ * variance.  Benchmark batches from different runs, or from different implementations, rarely do.
+ */
+public class WelchTTest {
+
+    private final double t;
+    private final double degreesOfFreedom;
+
+
+    /**
+     * Tests whether the mean of a is greater than the mean of b once b has been multiplied by bScale.
+     * Scaling lets the test answer questions such as 'is a more than 10% slower than b' (bScale=1.1).
+     */
+    public WelchTTest( SampleStatistics a, SampleStatistics b, double bScale ) {
+        double varA = a.getStandardDeviation()*a.getStandardDeviation() / a.getCount();
+        double varB = bScale*bScale * b.getStandardDeviation()*b.getStandardDeviation() / b.getCount();
+        double se   = Math.sqrt( varA + varB );
+
+        this.t                = (a.getMean() - bScale*b.getMean()) / se;
+        this.degreesOfFreedom = (varA+varB)*(varA+varB) / ( varA*varA/(a.getCount()-1) + varB*varB/(b.getCount()-1) );
+    }
+
+    public WelchTTest( SampleStatistics a, SampleStatistics b ) {
+        this( a, b, 1.0 );
+    }
+
+    public double getT() {
+        return t;
+    }
+
+    public double getDegreesOfFreedom() {
+        return degreesOfFreedom;
+    }
+
+    /**
+     * The probability of seeing a t this large (or larger) if a's mean were in fact no greater than
+     * b's scaled mean.
+     */
+    public double getOneSidedPValue() {
+        return oneSidedPValue( t, degreesOfFreedom );
+    }
+
+    /**
+     * The probability of seeing a difference this large in either direction if the means were in fact
+     * equal.
+     */
+    public double getTwoSidedPValue() {
+        return Math.min( 1.0, 2*oneSidedPValue(Math.abs(t), degreesOfFreedom) );
+    }
+
+
+    /**
+     * One sample t-test of whether the mean of a exceeds limit.
+     */
+    public static double oneSidedPValue( SampleStatistics a, double limit ) {
+        double se = a.getStandardError();
+
+        return oneSidedPValue( (a.getMean()-limit)/se, a.getCount()-1 );
+    }
+
+    private static double oneSidedPValue( double t, double degreesOfFreedom ) {
+        if ( Double.isNaN(t) ) {
+            return 1.0;
+        } else if ( Double.isInfinite(t) || Double.isNaN(degreesOfFreedom) || degreesOfFreedom <= 0 ) {
+            return t > 0 ? 0.0 : 1.0;  // zero variance, the difference is either certain or absent
+        }
+
+        return 1.0 - new StudentTDistribution( degreesOfFreedom ).cumulativeProbability( t );
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import com.softwaremosaic.junit.benchmark.BenchmarkHistory;
+import com.softwaremosaic.junit.benchmark.GitRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+
+/**
+ * Generates reports from the benchmark history recorded by the JUnitMosaicRunner.<p/>
+ *
+ * <pre>
+ * java com.softwaremosaic.junit.benchmark.report.BenchmarkReportMain
+ *     [--history dir] [--out dir] [--format html,json,com.example.MyRenderer] [--include regex]
+ *     [--changelog git|none|file]
+ * </pre>
+ *
+ * The history directory defaults to the same location that the runner writes to, and the output
+ * directory defaults to target/benchmark-report.  Formats other than html and json are treated as
+ * the class name of a ReportRenderer.  Commits are described using the git repository that contains
+ * the working directory by default, or a TextChangeLog read from the specified file.
+ */
+public class BenchmarkReportMain {
+
+    public static final String DEFAULT_OUTPUT_DIR = "target/benchmark-report";
+
+    private static final String USAGE = "usage: BenchmarkReportMain [--history dir] [--out dir] [--format html,json,<ReportRenderer class>] [--include regex] [--changelog git|none|file]";
+
+
+    public static void main( String[] args ) throws IOException {
+        BenchmarkReportMain report;
+
+        try {
+            report = parseArgs( args );
+        } catch ( IllegalArgumentException ex ) {
+            System.err.println( ex.getMessage() );
+            System.err.println( USAGE );
+            System.exit( 1 );
+
+            return;
+        }
+
+        int count = report.generate();
+
+        System.out.println( "Reported on " + count + " benchmarks in " + report.outputDir.getAbsolutePath() );
+    }
+
+    public static BenchmarkReportMain parseArgs( String[] args ) {
+        File    historyDir = BenchmarkHistory.getDefault().getDirectory();
+        File    outputDir  = new File( DEFAULT_OUTPUT_DIR );
+        String  formats    = "html,json";
+        Pattern include    = null;
+        String  changeLog  = "git";
+
+        for ( int i=0; i<args.length; i++ ) {
+            String arg = args[i];
+
+            if ( i+1 >= args.length ) {
+                throw new IllegalArgumentException( "Missing value for " + arg );
+            }
+
+            String value = args[++i];
+
+            if ( "--history".equals(arg) ) {
+                historyDir = new File( value );
+            } else if ( "--out".equals(arg) ) {
+                outputDir = new File( value );
+            } else if ( "--format".equals(arg) ) {
+                formats = value;
+            } else if ( "--include".equals(arg) ) {
+                include = Pattern.compile( value );
+            } else if ( "--changelog".equals(arg) ) {
+                changeLog = value;
+            } else {
+                throw new IllegalArgumentException( "Unknown option " + arg );
+            }
+        }
+
+        List<ReportRenderer> renderers = new ArrayList<>();
+        for ( String format : formats.split(",") ) {
+            renderers.add( createRenderer(format.trim()) );
+        }
+
+        return new BenchmarkReportMain( new BenchmarkHistory(historyDir), outputDir, renderers )
+            .withInclude( include )
+            .withChangeLog( createChangeLog(changeLog) );
+    }
+
+    public static ChangeLog createChangeLog( String source ) {
+        if ( "none".equalsIgnoreCase(source) ) {
+            return ChangeLog.NONE;
+        } else if ( "git".equalsIgnoreCase(source) ) {
+            GitRepository repository = GitRepository.findFromWorkingDirectory();
+
+            return repository == null ? ChangeLog.NONE : new GitChangeLog( repository );
+        }
+
+        try {
+            return new TextChangeLog( new File(source) );
+        } catch ( IOException ex ) {
+            throw new IllegalArgumentException( "Unable to read change log '" + source + "': " + ex.getMessage() );
+        }
+    }
+
+    public static ReportRenderer createRenderer( String format ) {
+        if ( "html".equalsIgnoreCase(format) ) {
+            return new HtmlReportRenderer();
+        } else if ( "json".equalsIgnoreCase(format) ) {
+            return new JsonReportRenderer();
+        }
+
+        try {
+            return Class.forName( format ).asSubclass( ReportRenderer.class ).getDeclaredConstructor().newInstance();
+        } catch ( ClassNotFoundException | ClassCastException ex ) {
+            throw new IllegalArgumentException( "Unknown report format '" + format + "'; expected html, json or the name of a class that implements ReportRenderer" );
+        } catch ( InvocationTargetException ex ) {
+            throw new IllegalArgumentException( "Unable to create report renderer '" + format + "': " + ex.getCause(), ex.getCause() );
+        } catch ( ReflectiveOperationException ex ) {
+            throw new IllegalArgumentException( "Unable to create report renderer '" + format + "': " + ex );
+        }
+    }
+
+
+    private final BenchmarkHistory     history;
+    private final File                 outputDir;
+    private final List<ReportRenderer> renderers;
+
+    private Pattern   include;
+    private ChangeLog changeLog = ChangeLog.NONE;
+
+    public BenchmarkReportMain( BenchmarkHistory history, File outputDir, List<ReportRenderer> renderers ) {
+        this.history   = history;
+        this.outputDir = outputDir;
+        this.renderers = renderers;
+    }
+
+    /**
+     * Only report on benchmarks whose 'className.methodName' contains a match for the specified
+     * pattern.  Null reports on all benchmarks.
+     */
+    public BenchmarkReportMain withInclude( Pattern include ) {
+        this.include = include;
+
+        return this;
+    }
+
+    /**
+     * Describes the commits that benchmark runs were tagged with.  Defaults to ChangeLog.NONE.
+     */
+    public BenchmarkReportMain withChangeLog( ChangeLog changeLog ) {
+        this.changeLog = changeLog;
+
+        return this;
+    }
+
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * @return the number of series reported on, one per benchmark method and set of parameters
+     */
+    public int generate() throws IOException {
+        List<BenchmarkSeries> series = loadSeries();
+
+        for ( ReportRenderer renderer : renderers ) {
+            renderer.render( series, changeLog, outputDir );
+        }
+
+        return series.size();
+    }
+
+    /**
+     * Each benchmark method gives one series per set of parameters that it has been run with.
+     */
+    public List<BenchmarkSeries> loadSeries() throws IOException {
+        List<BenchmarkSeries> series = new ArrayList<>();
+
+        for ( String name : history.listBenchmarks() ) {
+            if ( include != null && !include.matcher(name).find() ) {
+                continue;
+            }
+
+            int    i          = name.lastIndexOf( '.' );
+            String className  = name.substring( 0, i );
+            String methodName = name.substring( i+1 );
+
+            series.addAll( BenchmarkSeries.splitByParameters(className, methodName, history.load(className, methodName)) );
+        }
+
+        return series;
+    }
+
+}
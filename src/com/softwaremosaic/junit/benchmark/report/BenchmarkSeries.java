@@ -0,0 +1,105 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import com.softwaremosaic.junit.benchmark.BenchmarkRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The recorded runs of one benchmark method with one set of parameters (size, thread count etc), oldest
+ * first.  Runs with different parameters are not comparable, so each set of parameters gets its own
+ * series; see splitByParameters().
+ */
+public class BenchmarkSeries {
+
+    /**
+     * Divides the runs of a benchmark method into one series per set of parameters, in the order that
+     * each set of parameters first appears within records.
+     *
+     * @param records the runs of the method, oldest first
+     */
+    public static List<BenchmarkSeries> splitByParameters( String className, String methodName, List<BenchmarkRecord> records ) {
+        Map<String,List<BenchmarkRecord>> recordsByParameters = new LinkedHashMap<>();
+
+        for ( BenchmarkRecord r : records ) {
+            List<BenchmarkRecord> matching = recordsByParameters.get( r.getParameters() );
+
+            if ( matching == null ) {
+                matching = new ArrayList<>();
+
+                recordsByParameters.put( r.getParameters(), matching );
+            }
+
+            matching.add( r );
+        }
+
+        List<BenchmarkSeries> series = new ArrayList<>( recordsByParameters.size() );
+        for ( Map.Entry<String,List<BenchmarkRecord>> e : recordsByParameters.entrySet() ) {
+            series.add( new BenchmarkSeries(className, methodName, e.getKey(), e.getValue()) );
+        }
+
+        return series;
+    }
+
+
+    private final String                className;
+    private final String                methodName;
+    private final String                parameters;
+    private final List<BenchmarkRecord> records;
+
+    public BenchmarkSeries( String className, String methodName, List<BenchmarkRecord> records ) {
+        this( className, methodName, "", records );
+    }
+
+    public BenchmarkSeries( String className, String methodName, String parameters, List<BenchmarkRecord> records ) {
+        this.className  = className;
+        this.methodName = methodName;
+        this.parameters = parameters;
+        this.records    = Collections.unmodifiableList( records );
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getSimpleClassName() {
+        return className.substring( className.lastIndexOf('.')+1 );
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * The parameters shared by every run in the series, such as "size=100 threads=2"; empty when the
+     * benchmark has none.
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    /**
+     * SimpleClassName.methodName followed by the parameters in square brackets, when there are any.
+     */
+    public String getLabel() {
+        return getSimpleClassName() + "." + methodName + (parameters.isEmpty() ? "" : " [" + parameters + "]");
+    }
+
+    /**
+     * A name for the series that is safe to use as a file name.
+     */
+    public String getId() {
+        String id = className + "." + methodName + (parameters.isEmpty() ? "" : "_" + parameters);
+
+        return id.replaceAll( "[^A-Za-z0-9_.-]", "_" );
+    }
+
+    public List<BenchmarkRecord> getRecords() {
+        return records;
+    }
+
+}
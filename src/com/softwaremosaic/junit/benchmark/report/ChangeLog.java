@@ -0,0 +1,22 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+
+/**
+ * Describes the code changes that benchmark runs were tagged with (see BenchmarkRecord.TAG_COMMIT),
+ * so that reports can show which change a shift in performance lines up with.
+ */
+public interface ChangeLog {
+
+    public static final ChangeLog NONE = new ChangeLog() {
+        public String describe( String commitId ) {
+            return null;
+        }
+    };
+
+
+    /**
+     * @return a one line description of the change, or null if it is not known
+     */
+    public String describe( String commitId );
+
+}
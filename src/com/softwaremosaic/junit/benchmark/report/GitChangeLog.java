@@ -0,0 +1,21 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import com.softwaremosaic.junit.benchmark.GitRepository;
+
+
+/**
+ * Describes commits using the subject line of their commit message, read from a local git repository.
+ */
+public class GitChangeLog implements ChangeLog {
+
+    private final GitRepository repository;
+
+    public GitChangeLog( GitRepository repository ) {
+        this.repository = repository;
+    }
+
+    public String describe( String commitId ) {
+        return repository.readCommitSubject( commitId );
+    }
+
+}
@@ -0,0 +1,319 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import com.softwaremosaic.junit.benchmark.BenchmarkRecord;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.benchmark.SampleStatistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * Writes a single self contained index.html.  Each benchmark method gets an inline SVG chart of its
+ * mean time per call across runs, shaded with the confidence interval of each run; one chart per set of
+ * parameters, so that each run is only ever compared with earlier runs of the same size and thread
+ * count.  Runs whose git commit differs from the run before are marked on the chart and listed
+ * beneath it, so that a step change in performance can be traced to the commits that it falls
+ * between.  The page uses no scripts, stylesheets or fonts from the network so that it can be
+ * archived as a build artifact.
+ */
+public class HtmlReportRenderer implements ReportRenderer {
+
+    static final int CHART_WIDTH  = 760;
+    static final int CHART_HEIGHT = 220;
+
+    private static final int MARGIN_LEFT   = 80;
+    private static final int MARGIN_RIGHT  = 20;
+    private static final int MARGIN_TOP    = 10;
+    private static final int MARGIN_BOTTOM = 30;
+    private static final int Y_TICKS       = 4;
+    private static final int SHORT_ID      = 7;
+
+
+    public void render( List<BenchmarkSeries> series, ChangeLog changes, File outputDir ) throws IOException {
+        ReportFiles.write( new File(outputDir, "index.html"), toHtml(series, changes) );
+    }
+
+    public String toHtml( List<BenchmarkSeries> series, ChangeLog changes ) {
+        StringBuilder buf = new StringBuilder();
+
+        buf.append( "<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>Benchmark Report</title>\n" );
+        buf.append( "<style>\n" );
+        buf.append( "body { font-family: sans-serif; margin: 2em; color: #222; }\n" );
+        buf.append( "table { border-collapse: collapse; }\n" );
+        buf.append( "th, td { padding: 2px 10px; text-align: left; border-bottom: 1px solid #ddd; }\n" );
+        buf.append( "td.num { text-align: right; font-family: monospace; }\n" );
+        buf.append( ".slower { color: #b00; } .faster { color: #070; }\n" );
+        buf.append( "svg text { font-size: 11px; fill: #555; }\n" );
+        buf.append( "svg text.commit { fill: #c60; }\n" );
+        buf.append( "</style>\n</head>\n<body>\n" );
+        buf.append( "<h1>Benchmark Report</h1>\n" );
+
+        if ( series.isEmpty() ) {
+            buf.append( "<p>No benchmark results have been recorded.</p>\n" );
+        } else {
+            appendSummaryTable( buf, series );
+
+            for ( BenchmarkSeries s : series ) {
+                appendSeries( buf, s, changes );
+            }
+        }
+
+        buf.append( "</body>\n</html>\n" );
+
+        return buf.toString();
+    }
+
+    private void appendSummaryTable( StringBuilder buf, List<BenchmarkSeries> series ) {
+        buf.append( "<table>\n<tr><th>Benchmark</th><th>Runs</th><th>Latest</th><th>Confidence</th><th>Change</th><th>Commit</th></tr>\n" );
+
+        for ( BenchmarkSeries s : series ) {
+            List<BenchmarkRecord> records = s.getRecords();
+            if ( records.isEmpty() ) {
+                continue;
+            }
+
+            SampleStatistics latest = records.get( records.size()-1 ).getStatistics();
+
+            buf.append( "<tr><td><a href=\"#" ).append( escape(s.getId()) ).append( "\">" );
+            buf.append( escape(s.getLabel()) ).append( "</a></td>" );
+            buf.append( "<td class=\"num\">" ).append( records.size() ).append( "</td>" );
+            buf.append( "<td class=\"num\">" ).append( BenchmarkResult.formatNanos(latest.getMean()) ).append( "</td>" );
+            buf.append( "<td class=\"num\">" ).append( formatInterval(latest) ).append( "</td>" );
+            buf.append( "<td class=\"num\">" );
+
+            if ( records.size() > 1 ) {
+                double previous = records.get( records.size()-2 ).getStatistics().getMean();
+                double change   = (latest.getMean() - previous) / previous;
+
+                buf.append( "<span class=\"" ).append( change > 0 ? "slower" : "faster" ).append( "\">" );
+                buf.append( String.format(Locale.ROOT, "%+.1f%%", change*100) ).append( "</span>" );
+            }
+
+            buf.append( "</td><td class=\"num\">" ).append( escape(shortId(commitOf(records.get(records.size()-1)))) );
+            buf.append( "</td></tr>\n" );
+        }
+
+        buf.append( "</table>\n" );
+    }
+
+    private void appendSeries( StringBuilder buf, BenchmarkSeries s, ChangeLog changes ) {
+        buf.append( "<h2 id=\"" ).append( escape(s.getId()) ).append( "\">" );
+        buf.append( escape(s.getLabel()) ).append( "</h2>\n" );
+        buf.append( "<p>" ).append( escape(s.getClassName()) ).append( "</p>\n" );
+
+        appendChart( buf, s.getRecords(), changes );
+        appendCommits( buf, s.getRecords(), changes );
+    }
+
+    /**
+     * Lists each commit in the order that it first appeared within records.
+     */
+    private void appendCommits( StringBuilder buf, List<BenchmarkRecord> records, ChangeLog changes ) {
+        List<Integer> starts = commitStarts( records );
+        if ( starts.isEmpty() ) {
+            return;
+        }
+
+        buf.append( "<table>\n<tr><th>Commit</th><th>First run</th><th>Mean</th><th>Description</th></tr>\n" );
+
+        for ( int i : starts ) {
+            BenchmarkRecord r           = records.get( i );
+            String          description = changes.describe( commitOf(r) );
+
+            buf.append( "<tr><td class=\"num\">" ).append( escape(shortId(commitOf(r))) ).append( "</td>" );
+            buf.append( "<td>" ).append( ReportFiles.formatTimestamp(r.getTimestampMillis()) ).append( "</td>" );
+            buf.append( "<td class=\"num\">" ).append( BenchmarkResult.formatNanos(r.getStatistics().getMean()) ).append( "</td>" );
+            buf.append( "<td>" ).append( description == null ? "" : escape(description) ).append( "</td></tr>\n" );
+        }
+
+        buf.append( "</table>\n" );
+    }
+
+    /**
+     * Runs are spaced evenly along the x axis rather than by timestamp, so that bursts of runs
+     * are as readable as runs made weeks apart.
+     */
+    void appendChart( StringBuilder buf, List<BenchmarkRecord> records, ChangeLog changes ) {
+        int    n    = records.size();
+        double maxY = 0;
+
+        for ( BenchmarkRecord r : records ) {
+            maxY = Math.max( maxY, upperOf(r.getStatistics()) );
+        }
+
+        maxY = maxY <= 0 ? 1 : maxY*1.1;
+
+        double plotWidth  = CHART_WIDTH  - MARGIN_LEFT - MARGIN_RIGHT;
+        double plotHeight = CHART_HEIGHT - MARGIN_TOP  - MARGIN_BOTTOM;
+        double[] xs = new double[n];
+
+        for ( int i=0; i<n; i++ ) {
+            xs[i] = MARGIN_LEFT + (n == 1 ? plotWidth/2 : plotWidth*i/(n-1));
+        }
+
+        buf.append( "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" ).append( CHART_WIDTH );
+        buf.append( "\" height=\"" ).append( CHART_HEIGHT ).append( "\">\n" );
+
+        // axes and y ticks
+        for ( int i=0; i<=Y_TICKS; i++ ) {
+            double v = maxY*i/Y_TICKS;
+            double y = toY( v, maxY, plotHeight );
+
+            buf.append( "<line x1=\"" ).append( MARGIN_LEFT ).append( "\" x2=\"" ).append( CHART_WIDTH-MARGIN_RIGHT );
+            buf.append( "\" y1=\"" ).append( fmt(y) ).append( "\" y2=\"" ).append( fmt(y) );
+            buf.append( "\" stroke=\"" ).append( i == 0 ? "#888" : "#eee" ).append( "\"/>\n" );
+            buf.append( "<text x=\"" ).append( MARGIN_LEFT-6 ).append( "\" y=\"" ).append( fmt(y+4) );
+            buf.append( "\" text-anchor=\"end\">" ).append( BenchmarkResult.formatNanos(v) ).append( "</text>\n" );
+        }
+
+        if ( n > 0 ) {
+            buf.append( "<text x=\"" ).append( fmt(xs[0]) ).append( "\" y=\"" ).append( CHART_HEIGHT-8 ).append( "\" text-anchor=\"start\">" );
+            buf.append( ReportFiles.formatTimestamp(records.get(0).getTimestampMillis()) ).append( "</text>\n" );
+        }
+
+        if ( n > 1 ) {
+            buf.append( "<text x=\"" ).append( fmt(xs[n-1]) ).append( "\" y=\"" ).append( CHART_HEIGHT-8 ).append( "\" text-anchor=\"end\">" );
+            buf.append( ReportFiles.formatTimestamp(records.get(n-1).getTimestampMillis()) ).append( "</text>\n" );
+        }
+
+        // commit markers, skipping the first run as there is nothing to compare it to
+        for ( int i : commitStarts(records) ) {
+            if ( i == 0 ) {
+                continue;
+            }
+
+            String commitId    = commitOf( records.get(i) );
+            String description = changes.describe( commitId );
+            String x           = fmt( xs[i] );
+
+            buf.append( "<line x1=\"" ).append( x ).append( "\" x2=\"" ).append( x );
+            buf.append( "\" y1=\"" ).append( MARGIN_TOP ).append( "\" y2=\"" ).append( fmt(MARGIN_TOP+plotHeight) );
+            buf.append( "\" stroke=\"#c60\" stroke-dasharray=\"3,3\"><title>" );
+            buf.append( escape(commitId + (description == null ? "" : " " + description)) ).append( "</title></line>\n" );
+            buf.append( "<text class=\"commit\" x=\"" ).append( fmt(xs[i]+3) ).append( "\" y=\"" ).append( MARGIN_TOP+10 ).append( "\">" );
+            buf.append( escape(shortId(commitId)) ).append( "</text>\n" );
+        }
+
+        // confidence band
+        if ( n > 1 ) {
+            buf.append( "<polygon fill=\"#cde\" stroke=\"none\" points=\"" );
+            for ( int i=0; i<n; i++ ) {
+                buf.append( fmt(xs[i]) ).append( ',' ).append( fmt(toY(upperOf(records.get(i).getStatistics()), maxY, plotHeight)) ).append( ' ' );
+            }
+            for ( int i=n-1; i>=0; i-- ) {
+                buf.append( fmt(xs[i]) ).append( ',' ).append( fmt(toY(lowerOf(records.get(i).getStatistics()), maxY, plotHeight)) ).append( ' ' );
+            }
+            buf.append( "\"/>\n" );
+
+            buf.append( "<polyline fill=\"none\" stroke=\"#36c\" stroke-width=\"1.5\" points=\"" );
+            for ( int i=0; i<n; i++ ) {
+                buf.append( fmt(xs[i]) ).append( ',' ).append( fmt(toY(records.get(i).getStatistics().getMean(), maxY, plotHeight)) ).append( ' ' );
+            }
+            buf.append( "\"/>\n" );
+        }
+
+        for ( int i=0; i<n; i++ ) {
+            BenchmarkRecord  r     = records.get( i );
+            SampleStatistics stats = r.getStatistics();
+
+            buf.append( "<circle cx=\"" ).append( fmt(xs[i]) ).append( "\" cy=\"" ).append( fmt(toY(stats.getMean(), maxY, plotHeight)) );
+            buf.append( "\" r=\"3\" fill=\"#36c\"><title>" );
+            buf.append( escape(describe(r)) );
+            buf.append( "</title></circle>\n" );
+        }
+
+        buf.append( "</svg>\n" );
+    }
+
+    String describe( BenchmarkRecord r ) {
+        SampleStatistics stats = r.getStatistics();
+
+        String commitId = commitOf( r );
+
+        return ReportFiles.formatTimestamp( r.getTimestampMillis() ) + ": "
+            + BenchmarkResult.formatNanos( stats.getMean() ) + " " + formatInterval( stats )
+            + (r.getParameters().isEmpty() ? "" : " [" + r.getParameters() + "]")
+            + (commitId == null ? "" : " @" + shortId(commitId));
+    }
+
+    /**
+     * @return the indexes of the runs whose commit differs from the run before them
+     */
+    static List<Integer> commitStarts( List<BenchmarkRecord> records ) {
+        List<Integer> starts   = new ArrayList<>();
+        String        previous = null;
+
+        for ( int i=0; i<records.size(); i++ ) {
+            String commitId = commitOf( records.get(i) );
+
+            if ( commitId != null && !commitId.equals(previous) ) {
+                starts.add( i );
+            }
+
+            previous = commitId;
+        }
+
+        return starts;
+    }
+
+    private static String commitOf( BenchmarkRecord r ) {
+        return r.getTag( BenchmarkRecord.TAG_COMMIT );
+    }
+
+    private static String shortId( String commitId ) {
+        if ( commitId == null ) {
+            return "";
+        }
+
+        return commitId.length() > SHORT_ID ? commitId.substring(0, SHORT_ID) : commitId;
+    }
+
+    private static String formatInterval( SampleStatistics stats ) {
+        double halfWidth = stats.getConfidenceIntervalHalfWidth( BenchmarkResult.CONFIDENCE_LEVEL );
+
+        return Double.isNaN(halfWidth) ? "" : "+/- " + BenchmarkResult.formatNanos(halfWidth);
+    }
+
+    private static double upperOf( SampleStatistics stats ) {
+        double v = stats.getConfidenceIntervalUpper( BenchmarkResult.CONFIDENCE_LEVEL );
+
+        return Double.isNaN(v) ? stats.getMean() : v;
+    }
+
+    private static double lowerOf( SampleStatistics stats ) {
+        double v = stats.getConfidenceIntervalLower( BenchmarkResult.CONFIDENCE_LEVEL );
+
+        return Double.isNaN(v) ? stats.getMean() : Math.max( 0, v );
+    }
+
+    private static double toY( double v, double maxY, double plotHeight ) {
+        return MARGIN_TOP + plotHeight - plotHeight*v/maxY;
+    }
+
+    static String fmt( double v ) {
+        return String.format( Locale.ROOT, "%.1f", v );
+    }
+
+    static String escape( String s ) {
+        StringBuilder buf = new StringBuilder( s.length() );
+
+        for ( int i=0; i<s.length(); i++ ) {
+            char c = s.charAt( i );
+
+            switch ( c ) {
+                case '<':  buf.append( "&lt;" );   break;
+                case '>':  buf.append( "&gt;" );   break;
+                case '&':  buf.append( "&amp;" );  break;
+                case '"':  buf.append( "&quot;" ); break;
+                default:   buf.append( c );
+            }
+        }
+
+        return buf.toString();
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import com.softwaremosaic.junit.benchmark.BenchmarkRecord;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.benchmark.SampleStatistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Writes one json file per benchmark method and set of parameters (named after
+ * BenchmarkSeries.getId()) plus an index.json listing them.  All durations are in nanoseconds per
+ * call.  Runs tagged with a commit also carry the description of that commit from the change log,
+ * when it is known.
+ */
+public class JsonReportRenderer implements ReportRenderer {
+
+    public void render( List<BenchmarkSeries> series, ChangeLog changes, File outputDir ) throws IOException {
+        JsonWriter index = new JsonWriter();
+        index.beginArray();
+
+        for ( BenchmarkSeries s : series ) {
+            String fileName = s.getId() + ".json";
+
+            ReportFiles.write( new File(outputDir, fileName), toJson(s, changes) );
+
+            index.beginObject()
+                .name( "className" ).value( s.getClassName() )
+                .name( "methodName" ).value( s.getMethodName() )
+                .name( "parameters" ).value( s.getParameters() )
+                .name( "file" ).value( fileName )
+                .endObject();
+        }
+
+        index.endArray();
+
+        ReportFiles.write( new File(outputDir, "index.json"), index.toString() );
+    }
+
+    public String toJson( BenchmarkSeries series, ChangeLog changes ) {
+        JsonWriter out = new JsonWriter();
+
+        out.beginObject()
+            .name( "className" ).value( series.getClassName() )
+            .name( "methodName" ).value( series.getMethodName() )
+            .name( "parameters" ).value( series.getParameters() )
+            .name( "units" ).value( "ns" )
+            .name( "confidenceLevel" ).value( BenchmarkResult.CONFIDENCE_LEVEL )
+            .name( "runs" ).beginArray();
+
+        for ( BenchmarkRecord record : series.getRecords() ) {
+            appendRun( out, record, changes );
+        }
+
+        out.endArray().endObject();
+
+        return out.toString();
+    }
+
+    private void appendRun( JsonWriter out, BenchmarkRecord record, ChangeLog changes ) {
+        SampleStatistics stats  = record.getStatistics();
+        String           change = changes.describe( record.getTag(BenchmarkRecord.TAG_COMMIT) );
+
+        out.beginObject()
+            .name( "timestamp" ).value( record.getTimestampMillis() )
+            .name( "time" ).value( ReportFiles.formatTimestamp(record.getTimestampMillis()) )
+            .name( "parameters" ).value( record.getParameters() );
+
+        out.name( "tags" ).beginObject();
+        for ( Map.Entry<String,String> e : record.getTags().entrySet() ) {
+            out.name( e.getKey() ).value( e.getValue() );
+        }
+        out.endObject();
+
+        if ( change != null ) {
+            out.name( "change" ).value( change );
+        }
+
+        out.name( "batchCount" ).value( stats.getCount() )
+            .name( "mean" ).value( stats.getMean() )
+            .name( "confidenceLower" ).value( stats.getConfidenceIntervalLower(BenchmarkResult.CONFIDENCE_LEVEL) )
+            .name( "confidenceUpper" ).value( stats.getConfidenceIntervalUpper(BenchmarkResult.CONFIDENCE_LEVEL) )
+            .name( "median" ).value( stats.getMedian() )
+            .name( "standardDeviation" ).value( stats.getStandardDeviation() )
+            .name( "min" ).value( stats.getMin() )
+            .name( "max" ).value( stats.getMax() );
+
+        out.name( "batches" ).beginArray();
+        for ( double v : record.getBatchNanosPerCall() ) {
+            out.value( v );
+        }
+        out.endArray();
+
+        out.name( "metrics" ).beginObject();
+        for ( Map.Entry<String,Double> e : record.getMetrics().entrySet() ) {
+            out.name( e.getKey() ).value( e.getValue() );
+        }
+        out.endObject();
+
+        out.endObject();
+    }
+
+}
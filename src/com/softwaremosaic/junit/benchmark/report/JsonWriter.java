@@ -0,0 +1,117 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+
+/**
+ * Minimal streaming JSON writer, sufficient for exporting benchmark results without pulling in a
+ * JSON library.  Commas between values are inserted automatically.
+ */
+class JsonWriter {
+
+    private final StringBuilder buf           = new StringBuilder();
+    private       boolean       needsComma    = false;
+
+    public JsonWriter beginObject() {
+        separate();
+        buf.append( '{' );
+        needsComma = false;
+
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        buf.append( '}' );
+        needsComma = true;
+
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        separate();
+        buf.append( '[' );
+        needsComma = false;
+
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        buf.append( ']' );
+        needsComma = true;
+
+        return this;
+    }
+
+    public JsonWriter name( String name ) {
+        separate();
+        appendString( name );
+        buf.append( ':' );
+        needsComma = false;
+
+        return this;
+    }
+
+    public JsonWriter value( String v ) {
+        separate();
+
+        if ( v == null ) {
+            buf.append( "null" );
+        } else {
+            appendString( v );
+        }
+
+        needsComma = true;
+
+        return this;
+    }
+
+    public JsonWriter value( long v ) {
+        separate();
+        buf.append( v );
+        needsComma = true;
+
+        return this;
+    }
+
+    public JsonWriter value( double v ) {
+        separate();
+        buf.append( Double.isNaN(v) || Double.isInfinite(v) ? "null" : Double.toString(v) );
+        needsComma = true;
+
+        return this;
+    }
+
+    public String toString() {
+        return buf.toString();
+    }
+
+    private void separate() {
+        if ( needsComma ) {
+            buf.append( ',' );
+            needsComma = false;
+        }
+    }
+
+    private void appendString( String s ) {
+        buf.append( '"' );
+
+        for ( int i=0; i<s.length(); i++ ) {
+            char c = s.charAt( i );
+
+            switch ( c ) {
+                case '"':  buf.append( "\\\"" ); break;
+                case '\\': buf.append( "\\\\" ); break;
+                case '\n': buf.append( "\\n" );  break;
+                case '\r': buf.append( "\\r" );  break;
+                case '\t': buf.append( "\\t" );  break;
+                default:
+                    if ( c < 0x20 ) {
+                        buf.append( String.format("\\u%04x", (int) c) );
+                    } else {
+                        buf.append( c );
+                    }
+            }
+        }
+
+        buf.append( '"' );
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+
+/**
+ * Helpers shared by the bundled renderers.
+ */
+class ReportFiles {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    public static void write( File file, String contents ) throws IOException {
+        File dir = file.getParentFile();
+
+        if ( dir != null && !dir.isDirectory() && !dir.mkdirs() ) {
+            throw new IOException( "Unable to create directory " + dir );
+        }
+
+        try ( Writer out = new OutputStreamWriter(new FileOutputStream(file), UTF8) ) {
+            out.write( contents );
+        }
+    }
+
+    /**
+     * Formats timestamps in UTC so that reports generated on different machines agree.
+     */
+    public static String formatTimestamp( long millis ) {
+        SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss" );
+        format.setTimeZone( TimeZone.getTimeZone("UTC") );
+
+        return format.format( new Date(millis) ) + "Z";
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+
+/**
+ * Renders the recorded history of benchmarks into outputDir.  Implementations are selected by name
+ * from the command line of BenchmarkReportMain; custom renderers may be plugged in by passing the
+ * fully qualified name of a class that implements this interface and has a public no-arg constructor.
+ */
+public interface ReportRenderer {
+
+    /**
+     * @param changes describes the commits that runs were tagged with, ChangeLog.NONE when unavailable
+     */
+    public void render( List<BenchmarkSeries> series, ChangeLog changes, File outputDir ) throws IOException;
+
+}
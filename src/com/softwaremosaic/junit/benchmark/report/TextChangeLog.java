@@ -0,0 +1,73 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A change log read from a text or csv file, for when the commits are not available from a local git
+ * repository (or the project is not using git).  Each line holds a commit id followed by its
+ * description, separated by a comma, tab or space; for example the output of 'git log --oneline'.
+ * Abbreviated commit ids match any full id that they are a prefix of.  Blank lines and lines starting
+ * with # are ignored.
+ */
+public class TextChangeLog implements ChangeLog {
+
+    private final Map<String,String> descriptions = new LinkedHashMap<>();
+
+    public TextChangeLog( File file ) throws IOException {
+        for ( String line : Files.readAllLines(file.toPath(), Charset.forName("UTF-8")) ) {
+            line = line.trim();
+
+            if ( line.isEmpty() || line.startsWith("#") ) {
+                continue;
+            }
+
+            int    i           = indexOfSeparator( line );
+            String id          = i < 0 ? line : line.substring( 0, i );
+            String description = i < 0 ? "" : unquote( line.substring(i+1).trim() );
+
+            descriptions.put( unquote(id.trim()).toLowerCase(), description );
+        }
+    }
+
+    public String describe( String commitId ) {
+        if ( commitId == null ) {
+            return null;
+        }
+
+        String id = commitId.toLowerCase();
+        for ( Map.Entry<String,String> e : descriptions.entrySet() ) {
+            if ( !e.getKey().isEmpty() && (id.startsWith(e.getKey()) || e.getKey().startsWith(id)) ) {
+                return e.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private static int indexOfSeparator( String line ) {
+        for ( int i=0; i<line.length(); i++ ) {
+            char c = line.charAt( i );
+
+            if ( c == ',' || c == '\t' || c == ' ' ) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static String unquote( String s ) {
+        if ( s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"") ) {
+            return s.substring( 1, s.length()-1 ).replace( "\"\"", "\"" );
+        }
+
+        return s;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.lang.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkClassScannerTest {
+
+    private final File                  dir     = IOUtils.makeTempDirectory( "benchmarkScan" );
+    private final BenchmarkClassScanner scanner = new BenchmarkClassScanner( getClass().getClassLoader() );
+
+
+    @After
+    public void tearDown() {
+        IOUtils.deleteAll( dir );
+    }
+
+
+    @Test
+    public void scanJar_expectOnlyClassesThatReferToTheBenchmarkAnnotation() throws IOException {
+        File jar = createJar( BenchmarkSuiteMainTest.SuiteBenchmark.class, BenchmarkClassScannerTest.class );
+
+        List<String> classNames = scanner.findCandidateClassNames( Arrays.asList(jar) );
+
+        assertEquals( Arrays.asList(BenchmarkSuiteMainTest.SuiteBenchmark.class.getName()), classNames );
+        assertEquals( Arrays.<Class<?>>asList(BenchmarkSuiteMainTest.SuiteBenchmark.class), scanner.findBenchmarkClasses(Arrays.asList(jar)) );
+    }
+
+    @Test
+    public void scanMissingEntries_expectNothingFound() throws IOException {
+        List<File> roots = Arrays.asList( new File(dir, "missing"), new File(dir, "missing.jar") );
+
+        assertEquals( Collections.emptyList(), scanner.findCandidateClassNames(roots) );
+    }
+
+    @Test
+    public void scanClasspathDirectories_expectBenchmarksFoundAndTestsIgnored() throws IOException {
+        List<String> classNames = scanner.findCandidateClassNames( BenchmarkClassScanner.getClasspathDirectories() );
+
+        assertTrue( classNames.contains(BenchmarkSuiteMainTest.SuiteBenchmark.class.getName()) );
+        assertFalse( classNames.contains(BenchmarkClassScannerTest.class.getName()) );
+    }
+
+    @Test
+    public void isBenchmarkClass() {
+        assertTrue( BenchmarkClassScanner.isBenchmarkClass(BenchmarkSuiteMainTest.SuiteBenchmark.class) );
+
+        assertFalse( BenchmarkClassScanner.isBenchmarkClass(BenchmarkSuiteMainTest.AbstractBenchmark.class) );
+        assertFalse( BenchmarkClassScanner.isBenchmarkClass(BenchmarkSuiteMainTest.InnerBenchmark.class) );
+        assertFalse( BenchmarkClassScanner.isBenchmarkClass(BenchmarkSuiteMainTest.PackagePrivateBenchmark.class) );
+        assertFalse( BenchmarkClassScanner.isBenchmarkClass(BenchmarkClassScannerTest.class) );
+    }
+
+
+    private File createJar( Class<?>... classes ) throws IOException {
+        File jar = new File( dir, "benchmarks.jar" );
+
+        try ( JarOutputStream out = new JarOutputStream(new FileOutputStream(jar)) ) {
+            for ( Class<?> c : classes ) {
+                String path = c.getName().replace( '.', '/' ) + ".class";
+
+                out.putNextEntry( new JarEntry(path) );
+
+                try ( InputStream in = c.getClassLoader().getResourceAsStream(path) ) {
+                    byte[] buf = new byte[4096];
+
+                    for ( int n=in.read(buf); n >= 0; n=in.read(buf) ) {
+                        out.write( buf, 0, n );
+                    }
+                }
+
+                out.closeEntry();
+            }
+        }
+
+        return jar;
+    }
+
+}
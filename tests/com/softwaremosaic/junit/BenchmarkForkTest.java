@@ -0,0 +1,137 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.benchmark.BatchMeasurement;
+import com.softwaremosaic.junit.benchmark.BenchmarkFork;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.benchmark.JitLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkForkTest {
+
+    @Test
+    public void runBenchmarkInForkedJvm_expectResultToBeSentBackToThisJvm() throws Exception {
+        BenchmarkFork         fork    = new BenchmarkFork( TinyBenchmark.class.getName(), "increment", "-Xmx64m" );
+        List<BenchmarkResult> results = fork.run();
+
+        assertEquals( 1, results.size() );
+
+        BenchmarkResult result = results.get( 0 );
+
+        assertEquals( TinyBenchmark.class.getName(), result.getClassName() );
+        assertEquals( "increment", result.getMethodName() );
+        assertEquals( 3, result.getBatches().size() );
+
+        for ( BatchMeasurement batch : result.getBatches() ) {
+            assertEquals( 1000, batch.getIterationCount() );
+        }
+    }
+
+    @Test
+    public void benchmarkThatFailsInForkedJvm_expectException() throws Exception {
+        BenchmarkFork fork = new BenchmarkFork( TinyBenchmark.class.getName(), "alwaysFails" );
+
+        try {
+            fork.run();
+            fail( "expected IllegalStateException" );
+        } catch ( IllegalStateException ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().startsWith("Forked JVM for benchmark "+TinyBenchmark.class.getName()+".alwaysFails exited with code 1") );
+        }
+    }
+
+    @Test
+    public void benchmarkThatLeavesStdoutMidLine_expectResultStillReceived() throws Exception {
+        List<BenchmarkResult> results = new BenchmarkFork( TinyBenchmark.class.getName(), "printsWithoutNewline" ).run();
+
+        assertEquals( 1, results.size() );
+        assertEquals( "printsWithoutNewline", results.get(0).getMethodName() );
+    }
+
+    @Test
+    public void threadedBenchmarkInForkedJvm_expectResultPerThreadCount() throws Exception {
+        List<BenchmarkResult> results = new BenchmarkFork( TinyBenchmark.class.getName(), "incrementConcurrently" ).run();
+
+        assertEquals( 2, results.size() );
+        assertEquals( "threads=1", results.get(0).getParameters() );
+        assertEquals( 1, results.get(0).getThreadCount() );
+        assertEquals( "threads=2", results.get(1).getParameters() );
+        assertEquals( 2, results.get(1).getThreadCount() );
+        assertEquals( 2000, results.get(1).getBatches().get(0).getTotalCallCount() );
+    }
+
+    @Test
+    public void forkWithJitLog_expectCompilationOfBenchmarkMethodSummarised() throws Exception {
+        List<BenchmarkResult> results = new BenchmarkFork( TinyBenchmark.class.getName(), "increment" )
+            .withJitLog( Pattern.compile(Pattern.quote(TinyBenchmark.class.getName() + "::")) )
+            .run();
+
+        JitLog jitLog = results.get( 0 ).getJitLog();
+
+        assertNotNull( jitLog );
+        assertTrue( Integer.toString(jitLog.getCompilationCount()), jitLog.getCompilationCount() > 0 );
+
+        for ( String method : jitLog.getMethods().keySet() ) {
+            assertTrue( method, method.startsWith(TinyBenchmark.class.getName() + "::") );
+        }
+    }
+
+    @Test
+    public void combineForks_expectBatchesFromEveryFork() {
+        BenchmarkResult fork1 = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(10, 100), new BatchMeasurement(10, 120)) ).withWarmup( 1, 50 );
+        BenchmarkResult fork2 = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(10, 140)) ).withWarmup( 2, 70 );
+
+        BenchmarkResult combined = BenchmarkResult.combineForks( Arrays.asList(fork1, fork2) );
+
+        assertEquals( 2, combined.getForkCount() );
+        assertEquals( 3, combined.getBatches().size() );
+        assertEquals( 3, combined.getWarmupBatchCount() );
+        assertEquals( 120, combined.getWarmupNanos() );
+        assertEquals( 12.0, combined.getStatistics().getMean(), 1e-9 );
+    }
+
+
+    public static class TinyBenchmark {
+        private boolean beforeHasRun;
+        private int     counter;
+
+        @Before
+        public void setup() {
+            beforeHasRun = true;
+        }
+
+        @Benchmark( value=1000, batchCount=3 )
+        public int increment() {
+            if ( !beforeHasRun || !BenchmarkFork.isForkedJvm() ) {
+                throw new IllegalStateException( "expected to be run from a forked JVM after @Before" );
+            }
+
+            return counter++;
+        }
+
+        @Benchmark( value=1000, batchCount=2, threads={1,2} )
+        public void incrementConcurrently() {
+            synchronized (this) {
+                counter++;
+            }
+        }
+
+        @Benchmark( value=1, batchCount=1 )
+        public void printsWithoutNewline() {
+            System.out.print( "." );
+        }
+
+        @Benchmark( value=1, batchCount=1 )
+        public void alwaysFails() {
+            throw new IllegalStateException( "deliberate failure" );
+        }
+    }
+
+}
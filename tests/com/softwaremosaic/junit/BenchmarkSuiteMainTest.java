@@ -0,0 +1,222 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.benchmark.BenchmarkHistory;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.lang.IOUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkSuiteMainTest {
+
+    private static final String FIXTURES = Pattern.quote( BenchmarkSuiteMainTest.class.getName() + "$" );
+
+    private final File historyDir = IOUtils.makeTempDirectory( "benchmarkHistory" );
+    private final File outputDir  = IOUtils.makeTempDirectory( "benchmarkResults" );
+
+
+    @Before
+    public void setUp() {
+        System.setProperty( BenchmarkHistory.HISTORY_DIR_PROPERTY, historyDir.getPath() );
+
+        SuiteBenchmark.beforeClassCalls = 0;
+        SuiteBenchmark.afterClassCalls  = 0;
+        SuiteBenchmark.beforeCalls      = 0;
+        SuiteBenchmark.testCalls        = 0;
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty( BenchmarkHistory.HISTORY_DIR_PROPERTY );
+
+        IOUtils.deleteAll( historyDir );
+        IOUtils.deleteAll( outputDir );
+    }
+
+
+    @Test
+    public void parseArgsWithNoArgs_expectClasspathDirectoriesScannedAndSummaryPrinted() {
+        BenchmarkSuiteMain suite = BenchmarkSuiteMain.parseArgs( new String[0] );
+
+        assertEquals( new File(BenchmarkSuiteMain.DEFAULT_OUTPUT_DIR), suite.getOutputDir() );
+        assertFalse( suite.isListOnly() );
+    }
+
+    @Test
+    public void parseArgsWithList_expectListOnly() {
+        assertTrue( BenchmarkSuiteMain.parseArgs(new String[] {"--include", "x", "--list"}).isListOnly() );
+    }
+
+    @Test
+    public void parseArgsWithUnknownOption_expectException() {
+        try {
+            BenchmarkSuiteMain.parseArgs( new String[] {"--fast", "yes"} );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "Unknown option --fast", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void parseArgsWithMissingValue_expectException() {
+        try {
+            BenchmarkSuiteMain.parseArgs( new String[] {"--include"} );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "Missing value for --include", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void parseArgsWithUnknownFormat_expectException() {
+        try {
+            BenchmarkSuiteMain.parseArgs( new String[] {"--format", "text,pdf"} );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().startsWith("Unknown report format 'pdf'") );
+        }
+    }
+
+
+    @Test
+    public void listBenchmarks_expectPublicBenchmarkMethodsOfConcreteClassesOnly() throws IOException {
+        List<String> names = BenchmarkSuiteMain.parseArgs( new String[] {"--include", FIXTURES} ).listBenchmarks();
+
+        assertEquals( Arrays.asList(fixture("SuiteBenchmark.failsItsLimit"), fixture("SuiteBenchmark.fast"), fixture("SuiteBenchmark.fastConcurrently"), fixture("SuiteBenchmark.throwsException")), names );
+    }
+
+    @Test
+    public void listBenchmarksWithExclude_expectExcludedBenchmarksSkipped() throws IOException {
+        List<String> names = BenchmarkSuiteMain.parseArgs( new String[] {"--include", FIXTURES, "--exclude", "fails|throws"} ).listBenchmarks();
+
+        assertEquals( Arrays.asList(fixture("SuiteBenchmark.fast"), fixture("SuiteBenchmark.fastConcurrently")), names );
+    }
+
+    @Test
+    public void run_expectEveryBenchmarkRunAndFailuresCollectedWithoutRunningTests() throws IOException {
+        BenchmarkSuiteMain suite        = BenchmarkSuiteMain.parseArgs( new String[] {"--include", FIXTURES, "--format", "text"} );
+        int                failureCount = suite.run();
+
+        assertEquals( 2, failureCount );
+        assertEquals( 4, suite.getResults().size() );
+        assertEquals( 4, SuiteBenchmark.beforeCalls );
+        assertEquals( 1, SuiteBenchmark.beforeClassCalls );  // once per class, as under the JUnitMosaicRunner
+        assertEquals( 1, SuiteBenchmark.afterClassCalls );
+        assertEquals( 0, SuiteBenchmark.testCalls );
+
+        BenchmarkResult fast = suite.getResults().get( fixture("SuiteBenchmark.fast") ).get( 0 );
+        assertEquals( "fast", fast.getMethodName() );
+        assertEquals( 2, fast.getBatches().size() );
+
+        // failing its limits still reports the result, failing to run does not
+        assertEquals( 1, suite.getResults().get(fixture("SuiteBenchmark.failsItsLimit")).size() );
+        assertTrue( suite.getFailures().get(fixture("SuiteBenchmark.failsItsLimit")) instanceof AssertionError );
+        assertEquals( 0, suite.getResults().get(fixture("SuiteBenchmark.throwsException")).size() );
+        assertEquals( "boom", suite.getFailures().get(fixture("SuiteBenchmark.throwsException")).getMessage() );
+
+        String summary = suite.getSummary();
+        assertTrue( summary, summary.startsWith("Benchmark suite: 4 benchmarks run, 2 failed") );
+        assertTrue( summary, summary.contains(fixture("SuiteBenchmark.fast") + "  ") );
+        assertTrue( summary, summary.contains("\n        " + fixture("SuiteBenchmark.throwsException") + ": boom\n") );
+
+        // the history is recorded just as it would be by the JUnitMosaicRunner
+        assertEquals( 1, new BenchmarkHistory(historyDir).load(SuiteBenchmark.class.getName(), "fast").size() );
+    }
+
+    @Test
+    public void runWithJsonFormat_expectResultsOfThisRunWrittenToOutputDirPerThreadCount() throws IOException {
+        BenchmarkSuiteMain suite = BenchmarkSuiteMain.parseArgs( new String[] {"--include", FIXTURES, "--exclude", "fails|throws", "--format", "json", "--out", outputDir.getPath()} );
+
+        assertEquals( 0, suite.run() );
+
+        String index = new String( Files.readAllBytes(new File(outputDir, "index.json").toPath()), "UTF-8" );
+        assertTrue( index, index.contains("\"methodName\":\"fast\",\"parameters\":\"\"") );
+        assertTrue( index, index.contains("\"methodName\":\"fastConcurrently\",\"parameters\":\"threads=1\"") );
+        assertTrue( index, index.contains("\"methodName\":\"fastConcurrently\",\"parameters\":\"threads=2\"") );
+        assertTrue( new File(outputDir, fixture("SuiteBenchmark.fastConcurrently").replace('$', '_') + "_threads_2.json").exists() );
+    }
+
+
+    private static String fixture( String name ) {
+        return BenchmarkSuiteMainTest.class.getName() + "$" + name;
+    }
+
+
+    public static class SuiteBenchmark {
+        public static int beforeClassCalls;
+        public static int afterClassCalls;
+        public static int beforeCalls;
+        public static int testCalls;
+
+        private int counter;
+
+        @BeforeClass
+        public static void beforeClass() {
+            beforeClassCalls++;
+        }
+
+        @AfterClass
+        public static void afterClass() {
+            afterClassCalls++;
+        }
+
+        @Before
+        public void before() {
+            beforeCalls++;
+        }
+
+        @Benchmark( value=10, batchCount=2 )
+        public int fast() {
+            return counter++;
+        }
+
+        @Benchmark( value=10, batchCount=2, threads={1,2} )
+        public synchronized int fastConcurrently() {
+            return counter++;
+        }
+
+        @Benchmark( value=10, batchCount=2, maxBytesPerCall=0 )
+        public byte[] failsItsLimit() {
+            return new byte[1024];
+        }
+
+        @Benchmark( value=10, batchCount=2 )
+        public void throwsException() {
+            throw new IllegalStateException( "boom" );
+        }
+
+        @Test
+        public void notABenchmark() {
+            testCalls++;
+        }
+    }
+
+    public static abstract class AbstractBenchmark {
+        @Benchmark
+        public void inherited() {}
+    }
+
+    public class InnerBenchmark {
+        @Benchmark
+        public void needsOuterInstance() {}
+    }
+
+    static class PackagePrivateBenchmark {
+        @Benchmark
+        public void notPublic() {}
+    }
+
+}
@@ -0,0 +1,308 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.benchmark.BatchMeasurement;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.benchmark.GcMonitor;
+import com.softwaremosaic.junit.benchmark.JitMonitor;
+import com.softwaremosaic.junit.benchmark.StallMonitor;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+
+public class InvokeBenchmarkMethodTest {
+
+    @Test
+    public void warmupBatches_expectExactlyThatManyWarmupBatches() throws Throwable {
+        BenchmarkResult result = measure( "fixedWarmup", new JitMonitor() );
+
+        assertEquals( 4, result.getWarmupBatchCount() );
+        assertEquals( 2, result.getBatches().size() );
+    }
+
+    @Test
+    public void waitForJitThatSettles_expectWarmupToEndOnceTheJitHasBeenQuiet() throws Throwable {
+        BenchmarkResult result = measure( "untilJitSettles", new StubJitMonitor(false) );
+
+        assertEquals( 2, result.getWarmupBatchCount() );  // warmupBatches=1, but the JIT must be quiet for two batches
+        assertEquals( 0, result.countJitActiveBatches() );
+        assertFalse( result.toString(), result.toString().contains("JIT compilation occurred") );
+    }
+
+    @Test
+    public void waitForJitThatNeverSettles_expectWarmupToStopAtMaxWarmupBatches() throws Throwable {
+        BenchmarkResult result = measure( "untilJitSettles", new StubJitMonitor(true) );
+
+        assertEquals( 5, result.getWarmupBatchCount() );
+    }
+
+    @Test
+    public void compilationDuringMeasuredBatches_expectBatchesMarkedAndWarningReported() throws Throwable {
+        BenchmarkResult result = measure( "untilJitSettles", new StubJitMonitor(true) );
+
+        for ( BatchMeasurement batch : result.getBatches() ) {
+            assertTrue( batch.wasJitActive() );
+        }
+
+        assertEquals( 3, result.countJitActiveBatches() );
+        assertTrue( result.toString(), result.toString().contains("WARNING: JIT compilation occurred during 3 of 3 measured batches, consider a longer warm up") );
+    }
+
+    @Test
+    public void gcDuringAMeasuredBatch_expectBatchExcludedAndReplaced() throws Throwable {
+        BenchmarkResult result = measure( benchmark("excludingGc").withGcMonitor(new StubGcMonitor(1)) );  // batch 0 is the warm up
+
+        assertEquals( 2, result.getBatches().size() );
+        assertEquals( 1, result.getExcludedBatches().size() );
+        assertTrue( result.getExcludedBatches().get(0).wasGcActive() );
+
+        for ( BatchMeasurement batch : result.getBatches() ) {
+            assertFalse( batch.wasGcActive() );
+        }
+    }
+
+    @Test
+    public void gcDuringEveryBatch_expectBatchesKeptOnceTheReplacementLimitIsReached() throws Throwable {
+        BenchmarkResult result = measure( benchmark("excludingGc").withGcMonitor(new StubGcMonitor(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)) );
+
+        assertEquals( 4, result.getExcludedBatches().size() );  // batchCount=2 * MAX_REPLACEMENTS_PER_BATCH
+        assertEquals( 2, result.getBatches().size() );
+
+        for ( BatchMeasurement batch : result.getBatches() ) {
+            assertTrue( batch.wasGcActive() );
+        }
+    }
+
+    @Test
+    public void stallDuringAMeasuredBatch_expectBatchExcludedAndReplaced() throws Throwable {
+        BenchmarkResult result = measure( benchmark("excludingStalls").withStallMonitor(new StubStallMonitor(2)) );  // batch 0 is the warm up
+
+        assertEquals( 2, result.getBatches().size() );
+        assertEquals( 1, result.getExcludedBatches().size() );
+        assertTrue( result.getExcludedBatches().get(0).wasStalled() );
+        assertEquals( 10, result.getExcludedBatches().get(0).getStallMillis() );
+
+        for ( BatchMeasurement batch : result.getBatches() ) {
+            assertFalse( batch.wasStalled() );
+        }
+    }
+
+    @Test
+    public void stallWithoutExcludeStalledBatches_expectBatchKept() throws Throwable {
+        BenchmarkResult result = measure( benchmark("excludingGc").withStallMonitor(new StubStallMonitor(2)) );
+
+        assertEquals( 2, result.getBatches().size() );
+        assertEquals( 0, result.getExcludedBatches().size() );
+        assertTrue( result.getBatches().get(1).wasStalled() );
+    }
+
+    @Test
+    public void threadCountsOutOfOrder_expectResultsInIncreasingOrderOfThreads() throws Throwable {
+        List<BenchmarkResult> results = benchmark( "threadsOutOfOrder" ).measureAll();
+
+        assertEquals( 2, results.size() );
+        assertEquals( "threads=1", results.get(0).getParameters() );
+        assertEquals( 1, results.get(0).getThreadCount() );
+        assertEquals( "threads=2", results.get(1).getParameters() );
+        assertEquals( 2, results.get(1).getThreadCount() );
+    }
+
+    @Test
+    public void sizesOutOfOrder_expectResultsInIncreasingOrderOfSize() throws Throwable {
+        List<BenchmarkResult> results = benchmark( "sizesOutOfOrder" ).measureAll();
+
+        assertEquals( 3, results.size() );
+        assertEquals( 10, results.get(0).getSize() );
+        assertEquals( 100, results.get(1).getSize() );
+        assertEquals( 1000, results.get(2).getSize() );
+    }
+
+    @Test
+    public void sizedBenchmarkWithBaselineFile_expectEachSizeComparedWithItsOwnBaseline() throws Throwable {
+        File baselineFile = new File( SizedBaselineBenchmark.BASELINE_FILE );
+        baselineFile.getParentFile().mkdirs();
+
+        String className = SizedBaselineBenchmark.class.getName();
+        Files.write( baselineFile.toPath(), (className + ".sleep=1e12\n" + className + ".sleep[size=1]=1e12\n" + className + ".sleep[size=2]=1\n").getBytes("UTF-8") );
+
+        FrameworkMethod       method   = new StandaloneBenchmarkRunner( SizedBaselineBenchmark.class ).fetchBenchmarkMethod( "sleep" );
+        List<BenchmarkResult> reported = new ArrayList<>();
+
+        try {
+            new InvokeBenchmarkMethod( method, new SizedBaselineBenchmark(), method.getAnnotation(Benchmark.class) ).evaluate( reported );
+            fail( "expected AssertionError" );
+        } catch ( AssertionError ex ) {
+            // only size=2 has a baseline that it is slower than
+            assertTrue( ex.getMessage(), ex.getMessage().contains("slower than the baseline of 1.00ns") );
+            assertEquals( 2, reported.size() );
+        } finally {
+            baselineFile.delete();
+        }
+    }
+
+
+    private static BenchmarkResult measure( String methodName, JitMonitor jitMonitor ) throws Throwable {
+        return measure( benchmark(methodName).withJitMonitor(jitMonitor) );
+    }
+
+    private static InvokeBenchmarkMethod benchmark( String methodName ) {
+        FrameworkMethod method = new StandaloneBenchmarkRunner( WarmupBenchmark.class ).fetchBenchmarkMethod( methodName );
+
+        return new InvokeBenchmarkMethod( method, new WarmupBenchmark(), method.getAnnotation(Benchmark.class) );
+    }
+
+    private static BenchmarkResult measure( InvokeBenchmarkMethod benchmark ) throws Throwable {
+        List<BenchmarkResult> results = benchmark.measureAll();
+
+        assertEquals( 1, results.size() );
+
+        return results.get( 0 );
+    }
+
+
+    /**
+     * Reports the JIT as either compiling throughout, or as never compiling.
+     */
+    private static class StubJitMonitor extends JitMonitor {
+        private final boolean alwaysCompiling;
+
+        private long compilationMillis;
+
+        StubJitMonitor( boolean alwaysCompiling ) {
+            this.alwaysCompiling = alwaysCompiling;
+        }
+
+        public boolean isSupported() {
+            return true;
+        }
+
+        public long getTotalCompilationMillis() {
+            if ( alwaysCompiling ) {
+                compilationMillis++;
+            }
+
+            return compilationMillis;
+        }
+    }
+
+    /**
+     * Counts the events that occurred during the given batches, counting the warm up batches from
+     * zero.  The count is read once before and once after each batch.
+     */
+    private static class BatchEvents {
+        private final Set<Integer> batches = new HashSet<>();
+
+        private int readCount;
+
+        BatchEvents( Integer...batches ) {
+            this.batches.addAll( Arrays.asList(batches) );
+        }
+
+        public int nextReading() {
+            int batch = readCount / 2;
+            int count = 0;
+
+            for ( int b : batches ) {
+                // the reading taken after an event's batch, and every reading since, includes the event
+                if ( b < batch || (b == batch && readCount % 2 == 1) ) {
+                    count++;
+                }
+            }
+
+            readCount++;
+
+            return count;
+        }
+    }
+
+    /**
+     * Reports a collection during each of the given batches.
+     */
+    private static class StubGcMonitor extends GcMonitor {
+        private final BatchEvents collections;
+
+        StubGcMonitor( Integer...gcBatches ) {
+            this.collections = new BatchEvents( gcBatches );
+        }
+
+        public long getTotalCollectionCount() {
+            return collections.nextReading();
+        }
+
+        public long getTotalCollectionMillis() {
+            return 0;
+        }
+    }
+
+    /**
+     * Reports a 10ms stall during each of the given batches.
+     */
+    private static class StubStallMonitor extends StallMonitor {
+        private final BatchEvents stalls;
+
+        StubStallMonitor( Integer...stalledBatches ) {
+            this.stalls = new BatchEvents( stalledBatches );
+        }
+
+        public long getTotalStallMillis() {
+            return 10L * stalls.nextReading();
+        }
+    }
+
+    public static class SizedBaselineBenchmark {
+        static final String BASELINE_FILE = "target/InvokeBenchmarkMethodTest/baseline.properties";
+
+        private long size;
+
+        @Benchmark( value=2, batchCount=20, warmupBatches=1, sizes={1,2}, maxRegressionPercent=0, baselineFile=BASELINE_FILE )
+        public void sleep() throws InterruptedException {
+            Thread.sleep( size );
+        }
+    }
+
+    public static class WarmupBenchmark {
+        private long total;
+        private long size;
+
+        @Benchmark( value=100, batchCount=2, warmupBatches=4 )
+        public void fixedWarmup() {
+            total++;
+        }
+
+        @Benchmark( value=100, batchCount=3, warmupBatches=1, warmupUntilJitSettles=true, maxWarmupBatches=5 )
+        public void untilJitSettles() {
+            total++;
+        }
+
+        @Benchmark( value=100, batchCount=2, warmupBatches=1, excludeGcBatches=true )
+        public void excludingGc() {
+            total++;
+        }
+
+        @Benchmark( value=100, batchCount=2, warmupBatches=1, excludeStalledBatches=true )
+        public void excludingStalls() {
+            total++;
+        }
+
+        @Benchmark( value=100, batchCount=1, warmupBatches=1, threads={2,1} )
+        public void threadsOutOfOrder() {
+            total++;
+        }
+
+        @Benchmark( value=100, batchCount=1, warmupBatches=1, sizes={1000,10,100} )
+        public void sizesOutOfOrder() {
+            total += size;
+        }
+    }
+
+}
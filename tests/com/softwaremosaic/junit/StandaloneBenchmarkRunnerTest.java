@@ -0,0 +1,460 @@
+package com.softwaremosaic.junit;
+
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
+import com.softwaremosaic.junit.annotations.BenchmarkSetup;
+import com.softwaremosaic.junit.annotations.BenchmarkTeardown;
+import com.softwaremosaic.junit.annotations.Level;
+import com.softwaremosaic.junit.benchmark.BatchMeasurement;
+import com.softwaremosaic.junit.benchmark.BenchmarkResult;
+import com.softwaremosaic.junit.benchmark.Footprint;
+import com.softwaremosaic.junit.benchmark.FootprintMeter;
+import com.softwaremosaic.junit.benchmark.StackProfile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class StandaloneBenchmarkRunnerTest {
+
+    @Test
+    public void benchmarkWithSizes_expectResultPerSizeMeasuredOnFreshInstance() throws Throwable {
+        SizedBenchmark.sizesSeenByBefore.clear();
+        SizedBenchmark.sizesSeenByAfter.clear();
+
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( SizedBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("sum") );
+
+        assertEquals( 3, results.size() );
+        assertEquals( "size=1", results.get(0).getParameters() );
+        assertEquals( "size=10", results.get(1).getParameters() );
+        assertEquals( "size=100", results.get(2).getParameters() );
+
+        // the instance created by the runner itself still has its @Before run, with the default size of zero
+        assertEquals( listOf(0, 1, 10, 100), SizedBenchmark.sizesSeenByBefore );
+        assertEquals( listOf(1, 10, 100, 0), SizedBenchmark.sizesSeenByAfter );
+    }
+
+    @Test
+    public void benchmarkWithSizesAndThreads_expectResultPerSizeAndThreadCount() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( SizedBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("sumConcurrently") );
+
+        assertEquals( 4, results.size() );
+        assertEquals( "size=5 threads=1", results.get(0).getParameters() );
+        assertEquals( "size=5 threads=2", results.get(1).getParameters() );
+        assertEquals( "size=50 threads=1", results.get(2).getParameters() );
+        assertEquals( "size=50 threads=2", results.get(3).getParameters() );
+        assertEquals( 2, results.get(3).getThreadCount() );
+    }
+
+    @Test
+    public void benchmarkWithSizesButNoSizeField_expectException() throws Throwable {
+        StandaloneBenchmarkRunner runner = new StandaloneBenchmarkRunner( SizedBenchmark.class );
+
+        try {
+            runner.run( runner.fetchBenchmarkMethod("missingSizeField") );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "@Benchmark(sizes=...) requires a field named 'length' on "+SizedBenchmark.class.getName()+", see sizeField()", ex.getMessage() );
+        }
+    }
+
+
+    @Test
+    public void benchmarkWithLifecycle_expectEachLevelRunAsOftenAsAskedAndUntimed() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( LifecycleBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("poll") );
+        BenchmarkResult           result  = results.get( 0 );
+        int                       batches = result.getWarmupBatchCount() + result.getBatches().size();
+
+        assertEquals( 1, LifecycleBenchmark.trialSetups );
+        assertEquals( 1, LifecycleBenchmark.trialTeardowns );
+        assertEquals( batches, LifecycleBenchmark.batchSetups );
+        assertEquals( batches, LifecycleBenchmark.batchTeardowns );
+
+        // each batch setup sleeps for 20ms, spread over 100 calls that would be 200us per call
+        assertTrue( result.toString(), result.getStatistics().getMean() < 100000 );
+    }
+
+    @Test
+    public void benchmarkWithInvocationSetup_expectSetupBeforeEveryCall() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( InvocationBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("sort") );
+
+        assertEquals( 1, results.size() );
+        assertEquals( 3, results.get(0).getBatches().size() );
+    }
+
+    @Test
+    public void benchmarkWhoseInvocationSetupAllocates_expectNoBytesPerCall() throws Throwable {
+        StandaloneBenchmarkRunner runner = new StandaloneBenchmarkRunner( AllocatingInvocationBenchmark.class );
+        BenchmarkResult           result = runner.run( runner.fetchBenchmarkMethod("sort") ).get( 0 );
+
+        for ( BatchMeasurement batch : result.getBatches() ) {
+            assertEquals( 0, batch.getAllocatedBytes() );
+            assertNull( batch.getOsCounters() );
+        }
+
+        assertEquals( 0.0, result.getAllocationStatistics().getMean(), 0 );
+    }
+
+    @Test
+    public void benchmarkWithInvocationSetupAndThreads_expectException() throws Throwable {
+        StandaloneBenchmarkRunner runner = new StandaloneBenchmarkRunner( InvocationBenchmark.class );
+
+        try {
+            runner.run( runner.fetchBenchmarkMethod("sortConcurrently") );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "Level.INVOCATION setup and teardown methods cannot be combined with @Benchmark(threads=...)", ex.getMessage() );
+        }
+    }
+
+
+    @Test
+    public void benchmarkComparedWithAnotherMethod_expectBatchesInterleavedABBA() throws Throwable {
+        ComparedBenchmark.callLog.clear();
+
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( ComparedBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("arrayCopy") );
+
+        assertEquals( 2, results.size() );
+        assertEquals( "arrayCopy", results.get(0).getMethodName() );
+        assertEquals( "loopCopy", results.get(1).getMethodName() );
+        assertEquals( 3, results.get(0).getBatches().size() );
+        assertEquals( 3, results.get(1).getBatches().size() );
+
+        // one warm up round, followed by three measured rounds
+        assertEquals( Arrays.asList("arrayCopy", "loopCopy", "arrayCopy", "loopCopy", "loopCopy", "arrayCopy", "arrayCopy", "loopCopy"), ComparedBenchmark.callLog );
+    }
+
+    @Test
+    public void benchmarkComparedWithThreads_expectBothMethodsPerThreadCount() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( ComparedBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("arrayCopyConcurrently") );
+
+        assertEquals( 4, results.size() );
+        assertEquals( "arrayCopyConcurrently threads=1", results.get(0).getMethodName() + " " + results.get(0).getParameters() );
+        assertEquals( "loopCopy threads=1", results.get(1).getMethodName() + " " + results.get(1).getParameters() );
+        assertEquals( "arrayCopyConcurrently threads=2", results.get(2).getMethodName() + " " + results.get(2).getParameters() );
+        assertEquals( "loopCopy threads=2", results.get(3).getMethodName() + " " + results.get(3).getParameters() );
+    }
+
+    @Test
+    public void benchmarkComparedWithMissingMethod_expectException() throws Throwable {
+        StandaloneBenchmarkRunner runner = new StandaloneBenchmarkRunner( ComparedBenchmark.class );
+
+        try {
+            runner.run( runner.fetchBenchmarkMethod("comparedWithMissingMethod") );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "@Benchmark(compareWith=\"noSuchMethod\") requires a public method named 'noSuchMethod' on "+ComparedBenchmark.class.getName(), ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void benchmarkComparedWithItself_expectException() throws Throwable {
+        StandaloneBenchmarkRunner runner = new StandaloneBenchmarkRunner( ComparedBenchmark.class );
+
+        try {
+            runner.run( runner.fetchBenchmarkMethod("comparedWithItself") );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "@Benchmark(compareWith=\"comparedWithItself\") cannot compare a benchmark with itself", ex.getMessage() );
+        }
+    }
+
+
+    @Test
+    public void profiledBenchmark_expectStacksSampledDuringMeasuredBatches() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( ProfiledBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("sumSquares") );
+        StackProfile              profile = results.get( 0 ).getProfile();
+
+        assertNotNull( profile );
+        assertEquals( 1, profile.getIntervalMillis() );
+        assertTrue( Long.toString(profile.getSampleCount()), profile.getSampleCount() > 0 );
+    }
+
+    @Test
+    public void unprofiledBenchmark_expectNoProfile() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( InvocationBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("sort") );
+
+        assertNull( results.get(0).getProfile() );
+    }
+
+
+    @Test
+    public void footprintBenchmark_expectRetainedBytesOfReturnedStructurePerSize() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( FootprintBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("buildArray") );
+
+        assertEquals( 2, results.size() );
+
+        for ( BenchmarkResult result : results ) {
+            long      size      = result.getSize();
+            Footprint footprint = result.getFootprint();
+
+            // the holder refers back to the benchmark instance, which is not counted
+            assertEquals( FootprintMeter.sizeOf(new FootprintBenchmark.Holder(null, null)) + FootprintMeter.sizeOf(new long[(int) size]), footprint.getBytes() );
+            assertEquals( 2, footprint.getObjectCount() );
+            assertEquals( (double) footprint.getBytes()/size, result.getFootprintBytesPerElement(), 1e-9 );
+        }
+
+        assertEquals( 10, results.get(0).getSize() );
+        assertEquals( 1000, results.get(1).getSize() );
+    }
+
+    @Test
+    public void footprintBenchmarkThatReturnsNothing_expectException() throws Throwable {
+        StandaloneBenchmarkRunner runner = new StandaloneBenchmarkRunner( FootprintBenchmark.class );
+
+        try {
+            runner.run( runner.fetchBenchmarkMethod("returnsNothing") );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "@Benchmark(mode=FOOTPRINT) requires 'returnsNothing' to return the structure that it builds", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void timedBenchmark_expectNoFootprint() throws Throwable {
+        StandaloneBenchmarkRunner runner  = new StandaloneBenchmarkRunner( InvocationBenchmark.class );
+        List<BenchmarkResult>     results = runner.run( runner.fetchBenchmarkMethod("sort") );
+
+        assertNull( results.get(0).getFootprint() );
+    }
+
+
+    private static List<Integer> listOf( Integer...values ) {
+        List<Integer> list = new ArrayList<>();
+        Collections.addAll( list, values );
+
+        return list;
+    }
+
+    public static class SizedBenchmark {
+        private static final List<Integer> sizesSeenByBefore = new ArrayList<>();
+        private static final List<Integer> sizesSeenByAfter  = new ArrayList<>();
+
+        private int   size;
+        private int[] values;
+
+        @Before
+        public void setup() {
+            sizesSeenByBefore.add( size );
+
+            values = new int[size];
+        }
+
+        @After
+        public void tearDown() {
+            sizesSeenByAfter.add( size );
+        }
+
+        @Benchmark( value=100, batchCount=2, sizes={1,10,100} )
+        public int sum() {
+            if ( values.length != size ) {
+                throw new IllegalStateException( "expected the values to have been built for size " + size );
+            }
+
+            int total = 0;
+            for ( int v : values ) {
+                total += v;
+            }
+
+            return total;
+        }
+
+        @Benchmark( value=100, batchCount=2, sizes={5,50}, threads={1,2} )
+        public int sumConcurrently() {
+            return sum();
+        }
+
+        @Benchmark( value=1, batchCount=1, sizes={1}, sizeField="length" )
+        public void missingSizeField() {}
+    }
+
+
+    public static class LifecycleBenchmark {
+        private static int trialSetups;
+        private static int trialTeardowns;
+        private static int batchSetups;
+        private static int batchTeardowns;
+
+        private final ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        @BenchmarkSetup
+        public void createQueue() {
+            trialSetups++;
+        }
+
+        @BenchmarkSetup( Level.BATCH )
+        public void fillQueue() throws InterruptedException {
+            batchSetups++;
+
+            for ( int i=0; i<100; i++ ) {
+                queue.add( i );
+            }
+
+            Thread.sleep( 20 );
+        }
+
+        @BenchmarkTeardown( Level.BATCH )
+        public void checkQueueWasDrained() {
+            batchTeardowns++;
+
+            if ( !queue.isEmpty() ) {
+                throw new IllegalStateException( "expected every entry to have been polled" );
+            }
+        }
+
+        @BenchmarkTeardown
+        public void releaseQueue() {
+            trialTeardowns++;
+        }
+
+        @Benchmark( value=100, batchCount=3 )
+        public Integer poll() {
+            Integer v = queue.poll();
+
+            if ( v == null ) {
+                throw new IllegalStateException( "expected a fresh queue for every batch" );
+            }
+
+            return v;
+        }
+    }
+
+    public static class InvocationBenchmark {
+        private final int[] values = new int[100];
+
+        @BenchmarkSetup( Level.INVOCATION )
+        public void reverse() {
+            for ( int i=0; i<values.length; i++ ) {
+                values[i] = values.length - i;
+            }
+        }
+
+        @Benchmark( value=10, batchCount=3 )
+        public int[] sort() {
+            if ( values[0] != values.length ) {
+                throw new IllegalStateException( "expected the values to have been reversed before every call" );
+            }
+
+            Arrays.sort( values );
+
+            return values;
+        }
+
+        @Benchmark( value=10, batchCount=1, threads={1,2} )
+        public int[] sortConcurrently() {
+            return sort();
+        }
+    }
+
+    public static class AllocatingInvocationBenchmark {
+        private int[] values;
+
+        @BenchmarkSetup( Level.INVOCATION )
+        public void refill() {
+            values = new int[100];
+
+            for ( int i=0; i<values.length; i++ ) {
+                values[i] = values.length - i;
+            }
+        }
+
+        @Benchmark( value=10, batchCount=3 )
+        public int[] sort() {
+            Arrays.sort( values );
+
+            return values;
+        }
+    }
+
+    public static class ProfiledBenchmark {
+        private final long[] values = new long[1000];
+
+        @Benchmark( value=1000, batchCount=2, targetBatchMillis=50, profile=true, profileIntervalMillis=1 )
+        public long sumSquares() {
+            long total = 0;
+
+            for ( long v : values ) {
+                total += v*v;
+            }
+
+            return total;
+        }
+    }
+
+    public static class FootprintBenchmark {
+        private int size;
+
+        @Benchmark( value=1, batchCount=2, mode=BenchmarkMode.FOOTPRINT, sizes={10,1000} )
+        public Holder buildArray() {
+            return new Holder( this, new long[size] );
+        }
+
+        @Benchmark( value=1, batchCount=1, mode=BenchmarkMode.FOOTPRINT )
+        public void returnsNothing() {}
+
+        public static class Holder {
+            private final FootprintBenchmark owner;
+            private final long[]             values;
+
+            public Holder( FootprintBenchmark owner, long[] values ) {
+                this.owner  = owner;
+                this.values = values;
+            }
+        }
+    }
+
+    public static class ComparedBenchmark {
+        private static final List<String> callLog = new ArrayList<>();
+
+        private final int[] source = new int[100];
+        private final int[] target = new int[100];
+
+        @Benchmark( value=1, batchCount=3, compareWith="loopCopy" )
+        public int[] arrayCopy() {
+            callLog.add( "arrayCopy" );
+
+            System.arraycopy( source, 0, target, 0, source.length );
+
+            return target;
+        }
+
+        public int[] loopCopy() {
+            callLog.add( "loopCopy" );
+
+            for ( int i=0; i<source.length; i++ ) {
+                target[i] = source[i];
+            }
+
+            return target;
+        }
+
+        @Benchmark( value=10, batchCount=2, threads={1,2}, compareWith="loopCopy" )
+        public int[] arrayCopyConcurrently() {
+            return arrayCopy();
+        }
+
+        @Benchmark( value=1, batchCount=1, compareWith="noSuchMethod" )
+        public void comparedWithMissingMethod() {}
+
+        @Benchmark( value=1, batchCount=1, compareWith="comparedWithItself" )
+        public void comparedWithItself() {}
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class AllocationMonitorTest {
+
+    private final AllocationMonitor monitor = new AllocationMonitor();
+
+    private Object escaped;
+
+
+    @Test
+    public void allocateArrays_expectBytesToBeCounted() {
+        if ( !monitor.isSupported() ) {
+            return;
+        }
+
+        long before = monitor.getCurrentThreadAllocatedBytes();
+
+        for ( int i=0; i<1000; i++ ) {
+            escaped = new byte[1024];
+        }
+
+        long allocated = monitor.bytesAllocatedBetween( before, monitor.getCurrentThreadAllocatedBytes() );
+
+        assertTrue( Long.toString(allocated), allocated >= 1000*1024 );
+        assertTrue( Long.toString(allocated), allocated <  1100*1024 );
+    }
+
+    @Test
+    public void noAllocations_expectZero() {
+        if ( !monitor.isSupported() ) {
+            return;
+        }
+
+        long before = monitor.getCurrentThreadAllocatedBytes();
+
+        assertEquals( 0, monitor.bytesAllocatedBetween(before, monitor.getCurrentThreadAllocatedBytes()) );
+    }
+
+    @Test
+    public void unavailableReading_expectMinusOne() {
+        assertEquals( -1, monitor.bytesAllocatedBetween(-1, 100) );
+    }
+
+}
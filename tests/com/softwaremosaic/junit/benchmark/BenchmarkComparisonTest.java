@@ -0,0 +1,67 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkComparisonTest {
+
+    @Test
+    public void aThreeTimesFasterThanB_expectSignificantSpeedupOfThree() {
+        BenchmarkComparison comparison = new BenchmarkComparison( resultOf("a", 10, 11, 9, 10, 10, 10), resultOf("b", 30, 31, 29, 30, 30, 30) );
+
+        assertEquals( 3.0, comparison.getSpeedup(), 1e-9 );
+        assertTrue( comparison.getSpeedupLower() < 3.0 );
+        assertTrue( comparison.getSpeedupUpper() > 3.0 );
+        assertTrue( comparison.getPValue() < 0.0001 );
+        assertTrue( comparison.isSignificant() );
+
+        String text = comparison.toString();
+        assertTrue( text, text.contains("Comparison of B.a with b, batches interleaved") );
+        assertTrue( text, text.contains("speedup: 3.00x (99.9% CI ") );
+        assertTrue( text, text.contains("a is 3.00x faster than b") );
+        assertTrue( text, text.contains("the difference is significant at the 99.9% confidence level") );
+    }
+
+    @Test
+    public void aSlowerThanB_expectSpeedupBelowOne() {
+        BenchmarkComparison comparison = new BenchmarkComparison( resultOf("a", 20, 21, 19, 20), resultOf("b", 10, 11, 9, 10) );
+
+        assertEquals( 0.5, comparison.getSpeedup(), 1e-9 );
+        assertTrue( comparison.toString(), comparison.toString().contains("a is 2.00x slower than b") );
+    }
+
+    @Test
+    public void overlappingBatches_expectDifferenceNotSignificant() {
+        BenchmarkComparison comparison = new BenchmarkComparison( resultOf("a", 10, 14, 9, 12), resultOf("b", 11, 9, 13, 10) );
+
+        assertFalse( comparison.isSignificant() );
+        assertTrue( comparison.toString(), comparison.toString().contains("the difference is not significant") );
+    }
+
+    @Test
+    public void identicalBatches_expectSpeedupOfOneWithZeroWidthInterval() {
+        BenchmarkComparison comparison = new BenchmarkComparison( resultOf("a", 10, 10, 10), resultOf("b", 10, 10, 10) );
+
+        assertEquals( 1.0, comparison.getSpeedup(), 1e-9 );
+        assertEquals( 1.0, comparison.getSpeedupLower(), 1e-9 );
+        assertEquals( 1.0, comparison.getSpeedupUpper(), 1e-9 );
+        assertFalse( comparison.isSignificant() );
+    }
+
+
+    private static BenchmarkResult resultOf( String methodName, long...nanosPerCall ) {
+        List<BatchMeasurement> batches = new ArrayList<>();
+
+        for ( long nanos : nanosPerCall ) {
+            batches.add( new BatchMeasurement(1000, nanos*1000) );
+        }
+
+        return new BenchmarkResult( "a.B", methodName, "call", 1.0, batches );
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.annotations.BenchmarkSetup;
+import com.softwaremosaic.junit.annotations.BenchmarkTeardown;
+import com.softwaremosaic.junit.annotations.Level;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkFixtureTest {
+
+    @Test
+    public void setUpAndTearDown_expectSuperClassSetupsFirstAndTeardownsLast() throws Throwable {
+        Child            child   = new Child();
+        BenchmarkFixture fixture = new BenchmarkFixture( child );
+
+        fixture.setUp( Level.TRIAL );
+        fixture.tearDown( Level.TRIAL );
+
+        assertEquals( Arrays.asList("parentSetup", "childSetup", "childTeardown", "parentTeardown"), child.calls );
+    }
+
+    @Test
+    public void overriddenSetupAndTeardown_expectOverridingMethodsRunOnce() throws Throwable {
+        OverridingChild  child   = new OverridingChild();
+        BenchmarkFixture fixture = new BenchmarkFixture( child );
+
+        fixture.setUp( Level.TRIAL );
+        fixture.tearDown( Level.TRIAL );
+
+        assertEquals( Arrays.asList("overridingSetup", "overridingTeardown"), child.calls );
+    }
+
+    @Test
+    public void hasLevel_expectOnlyLevelsWithMethods() {
+        BenchmarkFixture fixture = new BenchmarkFixture( new Child() );
+
+        assertTrue( fixture.hasLevel(Level.TRIAL) );
+        assertTrue( fixture.hasLevel(Level.INVOCATION) );
+        assertFalse( fixture.hasLevel(Level.BATCH) );
+    }
+
+    @Test
+    public void setupThatThrows_expectOriginalException() throws Throwable {
+        BenchmarkFixture fixture = new BenchmarkFixture( new Child() );
+
+        try {
+            fixture.setUp( Level.INVOCATION );
+            fail( "expected IllegalStateException" );
+        } catch ( IllegalStateException ex ) {
+            assertEquals( "deliberate failure", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void setupWithArguments_expectException() {
+        try {
+            new BenchmarkFixture( new InvalidSetup() );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "@BenchmarkSetup method "+InvalidSetup.class.getName()+".setup must be public, non static and take no arguments", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void invocationFixtureInvoker_expectSetupBetweenCallsAndOnlyCallsTimed() throws Throwable {
+        final Child child   = new Child();
+        final int[] counter = new int[1];
+
+        BenchmarkInvoker invoker = new BenchmarkInvoker() {
+            public void invoke( Object target, int numIterations, Blackhole blackhole ) {
+                counter[0] += numIterations;
+            }
+        };
+
+        BenchmarkFixture         fixture = new BenchmarkFixture( new SlowInvocationSetup() );
+        InvocationFixtureInvoker wrapped = new InvocationFixtureInvoker( invoker, fixture );
+
+        wrapped.invoke( child, 5, new Blackhole() );
+
+        assertEquals( 5, counter[0] );
+        assertEquals( 5, ((SlowInvocationSetup) fixture.getTarget()).setupCount );
+        BatchMeasurement batch = wrapped.takeMeasurement();
+
+        assertEquals( 5, batch.getIterationCount() );
+        assertTrue( batch.getDurationNanos() < 5000000 );  // each setup sleeps for 2ms
+        assertTrue( batch.getCpuNanos() < 5000000 );
+        assertNull( batch.getOsCounters() );
+        assertEquals( 0, wrapped.takeMeasurement().getDurationNanos() );
+    }
+
+
+    public static class Parent {
+        final List<String> calls = new ArrayList<>();
+
+        @BenchmarkSetup
+        public void parentSetup() {
+            calls.add( "parentSetup" );
+        }
+
+        @BenchmarkTeardown
+        public void parentTeardown() {
+            calls.add( "parentTeardown" );
+        }
+    }
+
+    public static class Child extends Parent {
+        @BenchmarkSetup( Level.TRIAL )
+        public void childSetup() {
+            calls.add( "childSetup" );
+        }
+
+        @BenchmarkTeardown( Level.TRIAL )
+        public void childTeardown() {
+            calls.add( "childTeardown" );
+        }
+
+        @BenchmarkSetup( Level.INVOCATION )
+        public void failingSetup() {
+            throw new IllegalStateException( "deliberate failure" );
+        }
+    }
+
+    public static class OverridingChild extends Parent {
+        @BenchmarkSetup
+        public void parentSetup() {
+            calls.add( "overridingSetup" );
+        }
+
+        @BenchmarkTeardown
+        public void parentTeardown() {
+            calls.add( "overridingTeardown" );
+        }
+    }
+
+    public static class InvalidSetup {
+        @BenchmarkSetup
+        public void setup( int n ) {}
+    }
+
+    public static class SlowInvocationSetup {
+        int setupCount;
+
+        @BenchmarkSetup( Level.INVOCATION )
+        public void setup() throws InterruptedException {
+            setupCount++;
+
+            Thread.sleep( 2 );
+        }
+    }
+
+}
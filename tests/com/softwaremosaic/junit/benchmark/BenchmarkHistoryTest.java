@@ -0,0 +1,110 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.lang.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkHistoryTest {
+
+    private final File             dir     = IOUtils.makeTempDirectory( "benchmarkHistory" );
+    private final BenchmarkHistory history = new BenchmarkHistory( dir );
+
+
+    @After
+    public void tearDown() {
+        IOUtils.deleteAll( dir );
+    }
+
+
+    @Test
+    public void emptyHistory_expectNoRecords() throws IOException {
+        assertEquals( 0, history.load("a.B", "m").size() );
+        assertEquals( 0, history.listBenchmarks().size() );
+    }
+
+    @Test
+    public void appendRecord_expectEveryFieldToBeReadBack() throws IOException {
+        Map<String,String> tags    = new LinkedHashMap<>();
+        Map<String,Double> metrics = new LinkedHashMap<>();
+
+        tags.put( "jvm", "HotSpot 1.7 \u00e9" );
+        metrics.put( "bytesPerCall", 24.0 );
+
+        history.append( new BenchmarkRecord(1234L, "a.B", "m", "size=10", tags, new double[] {1.5, 2.5}, metrics) );
+
+        List<BenchmarkRecord> records = history.load( "a.B", "m" );
+        assertEquals( 1, records.size() );
+
+        BenchmarkRecord r = records.get( 0 );
+        assertEquals( 1234L, r.getTimestampMillis() );
+        assertEquals( "a.B", r.getClassName() );
+        assertEquals( "m", r.getMethodName() );
+        assertEquals( "size=10", r.getParameters() );
+        assertEquals( tags, r.getTags() );
+        assertEquals( metrics, r.getMetrics() );
+        assertTrue( Arrays.equals(new double[] {1.5, 2.5}, r.getBatchNanosPerCall()) );
+        assertEquals( 2.0, r.getStatistics().getMean(), 1e-9 );
+    }
+
+    @Test
+    public void appendManyRecords_expectLoadLatestToReturnTheMostRecentInOrder() throws IOException {
+        for ( int i=0; i<1000; i++ ) {
+            history.append( newRecord("a.B", "m", i) );
+        }
+
+        List<BenchmarkRecord> latest = history.loadLatest( "a.B", "m", 3 );
+
+        assertEquals( 3, latest.size() );
+        assertEquals( 997, latest.get(0).getTimestampMillis() );
+        assertEquals( 998, latest.get(1).getTimestampMillis() );
+        assertEquals( 999, latest.get(2).getTimestampMillis() );
+        assertEquals( 1000, history.load("a.B", "m").size() );
+    }
+
+    @Test
+    public void recordsForDifferentMethods_expectSeparateHistories() throws IOException {
+        history.append( newRecord("a.B", "m1", 1) );
+        history.append( newRecord("a.B", "m2", 2) );
+        history.append( newRecord("a.C", "m1", 3) );
+
+        assertEquals( Arrays.asList("a.B.m1", "a.B.m2", "a.C.m1"), history.listBenchmarks() );
+        assertEquals( 2, history.load("a.B", "m2").get(0).getTimestampMillis() );
+    }
+
+    @Test
+    public void partiallyWrittenFinalRecord_expectItToBeIgnoredAndThenOverwritten() throws IOException {
+        history.append( newRecord("a.B", "m", 1) );
+        history.append( newRecord("a.B", "m", 2) );
+
+        File file = history.getFileFor( "a.B", "m" );
+        try ( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+            raf.setLength( raf.length() - 3 );
+        }
+
+        assertEquals( 1, history.load("a.B", "m").size() );
+
+        history.append( newRecord("a.B", "m", 3) );
+
+        List<BenchmarkRecord> records = history.load( "a.B", "m" );
+        assertEquals( 2, records.size() );
+        assertEquals( 3, records.get(1).getTimestampMillis() );
+    }
+
+
+    private BenchmarkRecord newRecord( String className, String methodName, long timestamp ) {
+        return new BenchmarkRecord( timestamp, className, methodName, "", BenchmarkRecord.captureEnvironmentTags(), new double[] {timestamp}, Collections.<String,Double>emptyMap() );
+    }
+
+}
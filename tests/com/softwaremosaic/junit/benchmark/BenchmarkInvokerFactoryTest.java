@@ -0,0 +1,226 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkInvokerFactoryTest {
+
+    private final BenchmarkInvokerFactory factory   = new BenchmarkInvokerFactory();
+    private final Blackhole               blackhole = new Blackhole();
+
+
+    @Test
+    public void noArgMethod_expectGeneratedInvokerToCallTheMethodOncePerIteration() throws Throwable {
+        CountingBenchmarks target  = new CountingBenchmarks();
+        BenchmarkInvoker   invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod("increment") );
+
+        invoker.invoke( target, 42, blackhole );
+
+        assertFalse( invoker instanceof ReflectiveBenchmarkInvoker );
+        assertEquals( 42, target.callCount );
+    }
+
+    @Test
+    public void methodReturningLong_expectReturnValueToBeConsumed() throws Throwable {
+        CountingBenchmarks target  = new CountingBenchmarks();
+        BenchmarkInvoker   invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod("incrementAndReturnLong") );
+
+        invoker.invoke( target, 10, blackhole );
+
+        assertFalse( invoker instanceof ReflectiveBenchmarkInvoker );
+        assertEquals( 10, target.callCount );
+    }
+
+    @Test
+    public void methodTakingIterationCount_expectSingleCallWithTheCountPassedThrough() throws Throwable {
+        CountingBenchmarks target  = new CountingBenchmarks();
+        BenchmarkInvoker   invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod("loop", Integer.TYPE) );
+
+        invoker.invoke( target, 1000, blackhole );
+
+        assertFalse( invoker instanceof ReflectiveBenchmarkInvoker );
+        assertEquals( 1, target.callCount );
+        assertEquals( 1000, target.lastIterationCount );
+    }
+
+    @Test
+    public void methodsReturningEachTypeOfValue_expectReturnValuesToBeConsumed() throws Throwable {
+        for ( String methodName : new String[] {"returnsBoolean", "returnsByte", "returnsChar", "returnsShort", "returnsFloat", "returnsDouble", "returnsObject"} ) {
+            CountingBenchmarks target  = new CountingBenchmarks();
+            BenchmarkInvoker   invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod(methodName) );
+
+            invoker.invoke( target, 7, blackhole );
+
+            assertFalse( methodName, invoker instanceof ReflectiveBenchmarkInvoker );
+            assertEquals( methodName, 7, target.callCount );
+        }
+    }
+
+    @Test
+    public void methodTakingBlackhole_expectBlackholeToBePassedIn() throws Throwable {
+        CountingBenchmarks target  = new CountingBenchmarks();
+        BenchmarkInvoker   invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod("consumeInto", Blackhole.class) );
+
+        invoker.invoke( target, 4, blackhole );
+
+        assertFalse( invoker instanceof ReflectiveBenchmarkInvoker );
+        assertEquals( 4, target.callCount );
+        assertSame( blackhole, target.lastBlackhole );
+    }
+
+    @Test
+    public void methodTakingBlackholeAndIterationCount_expectSingleCallWithBoth() throws Throwable {
+        CountingBenchmarks target  = new CountingBenchmarks();
+        BenchmarkInvoker   invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod("loopInto", Blackhole.class, Integer.TYPE) );
+
+        invoker.invoke( target, 500, blackhole );
+
+        assertFalse( invoker instanceof ReflectiveBenchmarkInvoker );
+        assertEquals( 1, target.callCount );
+        assertEquals( 500, target.lastIterationCount );
+        assertSame( blackhole, target.lastBlackhole );
+    }
+
+    @Test
+    public void staticMethod_expectGeneratedInvoker() throws Throwable {
+        CountingBenchmarks.staticCallCount = 0;
+
+        BenchmarkInvoker invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod("staticIncrement") );
+
+        invoker.invoke( null, 5, blackhole );
+
+        assertFalse( invoker instanceof ReflectiveBenchmarkInvoker );
+        assertEquals( 5, CountingBenchmarks.staticCallCount );
+    }
+
+    @Test
+    public void methodThrowingCheckedException_expectExceptionToPropagateUnwrapped() throws Throwable {
+        BenchmarkInvoker invoker = factory.newInvokerFor( CountingBenchmarks.class.getMethod("fail") );
+
+        try {
+            invoker.invoke( new CountingBenchmarks(), 1, blackhole );
+            fail( "expected IOException" );
+        } catch ( IOException ex ) {
+            assertEquals( "boom", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void methodOnNonPublicClass_expectReflectiveFallback() throws Throwable {
+        HiddenBenchmarks target  = new HiddenBenchmarks();
+        BenchmarkInvoker invoker = factory.newInvokerFor( HiddenBenchmarks.class.getMethod("increment") );
+
+        invoker.invoke( target, 3, blackhole );
+
+        assertTrue( invoker instanceof ReflectiveBenchmarkInvoker );
+        assertEquals( 3, target.callCount );
+    }
+
+    @Test
+    public void methodWithUnsupportedParameter_expectException() throws Throwable {
+        try {
+            factory.newInvokerFor( CountingBenchmarks.class.getMethod("takesString", String.class) );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "@Benchmark method 'takesString' may only declare an int parameter, which will be set to the number of iterations to perform, and/or a Blackhole parameter", ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void methodWithTwoIterationCounts_expectException() throws Throwable {
+        try {
+            factory.newInvokerFor( CountingBenchmarks.class.getMethod("takesTwoInts", Integer.TYPE, Integer.TYPE) );
+            fail( "expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException ex ) {
+            assertEquals( "@Benchmark method 'takesTwoInts' may only declare an int parameter, which will be set to the number of iterations to perform, and/or a Blackhole parameter", ex.getMessage() );
+        }
+    }
+
+
+    public static class CountingBenchmarks {
+        public static int staticCallCount;
+
+        public int       callCount;
+        public int       lastIterationCount;
+        public Blackhole lastBlackhole;
+
+        public void increment() {
+            callCount++;
+        }
+
+        public long incrementAndReturnLong() {
+            return ++callCount;
+        }
+
+        public void loop( int numIterations ) {
+            callCount++;
+            lastIterationCount = numIterations;
+        }
+
+        public boolean returnsBoolean() {
+            return ++callCount > 0;
+        }
+
+        public byte returnsByte() {
+            return (byte) ++callCount;
+        }
+
+        public char returnsChar() {
+            return (char) ++callCount;
+        }
+
+        public short returnsShort() {
+            return (short) ++callCount;
+        }
+
+        public float returnsFloat() {
+            return ++callCount;
+        }
+
+        public double returnsDouble() {
+            return ++callCount;
+        }
+
+        public String returnsObject() {
+            return Integer.toString( ++callCount );
+        }
+
+        public void consumeInto( Blackhole blackhole ) {
+            callCount++;
+            lastBlackhole = blackhole;
+        }
+
+        public long loopInto( Blackhole blackhole, int numIterations ) {
+            callCount++;
+            lastIterationCount = numIterations;
+            lastBlackhole      = blackhole;
+
+            return numIterations;
+        }
+
+        public void takesTwoInts( int a, int b ) {}
+
+        public static void staticIncrement() {
+            staticCallCount++;
+        }
+
+        public void fail() throws IOException {
+            throw new IOException( "boom" );
+        }
+
+        public void takesString( String s ) {}
+    }
+
+    static class HiddenBenchmarks {
+        public int callCount;
+
+        public void increment() {
+            callCount++;
+        }
+    }
+
+}
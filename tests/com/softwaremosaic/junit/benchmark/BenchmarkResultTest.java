@@ -0,0 +1,231 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkResultTest {
+
+    @Test
+    public void noGc_expectNoGcSummary() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 10000)) );
+
+        assertEquals( 0, result.countGcActiveBatches() );
+        assertEquals( 0.0, result.getGcNanosPerCall(), 0 );
+        assertFalse( result.toString().contains("gc:") );
+    }
+
+    @Test
+    public void gcDuringBatch_expectBatchTaggedAndCostSpreadPerCall() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(
+            new BatchMeasurement(1000000, 20000000).withGc(2, 10),
+            new BatchMeasurement(1000000, 10000000)
+        ));
+
+        assertEquals( 1, result.countGcActiveBatches() );
+        assertEquals( 5.0, result.getGcNanosPerCall(), 1e-9 );
+
+        String report = result.toString();
+        assertTrue( report, report.contains("gc:      5.00ns per call (collections during 1 of 2 batches)") );
+        assertTrue( report, report.contains("(1000000 iterations)  GC(2x, 10ms)") );
+    }
+
+    @Test
+    public void excludedBatches_expectLeftOutOfStatisticsButReportedAndCosted() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 10000)) )
+            .withExcludedBatches( Arrays.asList(new BatchMeasurement(1000, 50000).withGc(1, 1)) );
+
+        assertEquals( 10.0, result.getStatistics().getMean(), 1e-9 );
+        assertEquals( 1, result.getNanosPerCallOfEachBatch().length );
+        assertEquals( 500.0, result.getGcNanosPerCall(), 1e-9 );
+        assertTrue( result.toString(), result.toString().contains("excluded batches (GC):") );
+    }
+
+    @Test
+    public void stallBelowThreshold_expectNoStallReported() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 10000).withStall(2, 5)) );
+
+        assertEquals( 0, result.countStalledBatches() );
+        assertFalse( result.toString().contains("stalls:") );
+    }
+
+    @Test
+    public void stallDuringBatch_expectBatchTaggedAndWarning() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(
+            new BatchMeasurement(1000, 30000000).withStall(20, 5),
+            new BatchMeasurement(1000, 10000000).withStall(1, 5)
+        ));
+
+        assertEquals( 1, result.countStalledBatches() );
+        assertEquals( 21, result.getTotalStallMillis() );
+
+        String report = result.toString();
+        assertTrue( report, report.contains("stalls:  21ms in total (stalls during 1 of 2 batches)") );
+        assertTrue( report, report.contains("WARNING: the system stalled during 1 of 2 measured batches") );
+        assertTrue( report, report.contains("(1000 iterations)  STALL(20ms)") );
+    }
+
+    @Test
+    public void stalledBatchExcluded_expectNoWarning() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 10000)) )
+            .withExcludedBatches( Arrays.asList(new BatchMeasurement(1000, 50000).withStall(40, 5)) );
+
+        String report = result.toString();
+        assertTrue( report, report.contains("excluded batches (stall):") );
+        assertFalse( report, report.contains("WARNING") );
+    }
+
+    @Test
+    public void negativeStallThreshold_expectStallsIgnored() {
+        assertFalse( new BatchMeasurement(1000, 10000).withStall(100, -1).wasStalled() );
+    }
+
+    @Test
+    public void noCompilationDuringBatches_expectNoJitWarning() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 10000).withCompilationMillis(0)) );
+
+        assertFalse( result.getBatches().get(0).wasJitActive() );
+        assertEquals( 0, result.countJitActiveBatches() );
+        assertFalse( result.toString(), result.toString().contains("JIT") );
+    }
+
+    @Test
+    public void compilationDuringBatch_expectBatchTaggedAndWarning() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(
+            new BatchMeasurement(1000, 10000).withCompilationMillis(3),
+            new BatchMeasurement(1000, 10000),
+            new BatchMeasurement(1000, 10000)
+        ));
+
+        assertTrue( result.getBatches().get(0).wasJitActive() );
+        assertEquals( 1, result.countJitActiveBatches() );
+
+        String report = result.toString();
+        assertTrue( report, report.contains("WARNING: JIT compilation occurred during 1 of 3 measured batches, consider a longer warm up") );
+        assertTrue( report, report.contains("(1000 iterations)  JIT(3ms)") );
+    }
+
+    @Test
+    public void cpuTime_expectCpuPerCallAndShareOfWallClockTime() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(100000, 10000000).withCpuNanos(7500000)) );
+
+        assertEquals( 75.0, result.getCpuStatistics().getMean(), 1e-9 );
+        assertTrue( result.isCpuTimeComparable() );
+        assertTrue( result.toString(), result.toString().contains("cpu:     75.00ns per call (75% of the wall clock time)") );
+    }
+
+    @Test
+    public void cpuTimeOfShortBatches_expectNoShareOfWallClockTime() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(
+            new BatchMeasurement(100000, 10000000).withCpuNanos(7500000),
+            new BatchMeasurement(10, 1000).withCpuNanos(2000)
+        ));
+
+        assertFalse( result.isCpuTimeComparable() );
+        assertFalse( result.toString(), result.toString().contains("% of the wall clock time") );
+        assertTrue( result.toString(), result.toString().contains("(batches too short to compare with the wall clock time)") );
+    }
+
+    @Test
+    public void cpuTimeNotMeasured_expectNoCpuSummary() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 100000)) );
+
+        assertNull( result.getCpuStatistics() );
+        assertFalse( result.toString().contains("cpu:") );
+    }
+
+    @Test
+    public void osCounters_expectCountsPerCall() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(
+            new BatchMeasurement(1000, 100000).withOsCounters(new OsCounters(1, 3, 20, 0)),
+            new BatchMeasurement(1000, 100000).withOsCounters(new OsCounters(1, 1, 0, 0))
+        ));
+
+        assertEquals( 2000.0, result.getTotalCallCount(), 1e-9 );
+        assertTrue( result.toString(), result.toString().contains("os:      context switches 0.00100 voluntary / 0.00200 involuntary, page faults 0.0100 minor / 0.00 major, per call") );
+    }
+
+    @Test
+    public void profiledResult_expectHottestFramesReported() {
+        StackProfile profile = new StackProfile( 10 );
+        profile.record( new StackTraceElement[] {new StackTraceElement("a.B", "hash", null, -1), new StackTraceElement("a.B", "m", null, -1)} );
+        profile.record( new StackTraceElement[] {new StackTraceElement("a.B", "hash", null, -1), new StackTraceElement("a.B", "m", null, -1)} );
+        profile.record( new StackTraceElement[] {new StackTraceElement("a.B", "equals", null, -1), new StackTraceElement("a.B", "m", null, -1)} );
+        profile.record( new StackTraceElement[] {new StackTraceElement("a.B", "m", null, -1)} );
+
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 1000000)) ).withProfile( profile );
+        String          text   = result.toString();
+
+        assertTrue( text, text.contains("profile: 4 stacks sampled every 10ms, hottest frames:") );
+        assertTrue( text, text.contains("    50%  a.B.hash") );
+        assertTrue( text, text.contains("    25%  a.B.equals") );
+    }
+
+    @Test
+    public void combineForks_expectProfilesAdded() {
+        StackProfile p1 = new StackProfile( 10 );
+        StackProfile p2 = new StackProfile( 10 );
+        p1.record( new StackTraceElement[] {new StackTraceElement("a.B", "m", null, -1)} );
+        p2.record( new StackTraceElement[] {new StackTraceElement("a.B", "m", null, -1)} );
+
+        BenchmarkResult r1 = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 1000000)) ).withProfile( p1 );
+        BenchmarkResult r2 = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 1000000)) ).withProfile( p2 );
+
+        assertEquals( 2, BenchmarkResult.combineForks(Arrays.asList(r1, r2)).getProfile().getSampleCount() );
+    }
+
+    @Test
+    public void throughputMode_expectOpsPerSecondReported() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(2000000, 1000000000), new BatchMeasurement(2000000, 1000000000)) )
+            .withMode( BenchmarkMode.THROUGHPUT );
+
+        assertTrue( result.toString(), result.toString().contains("ops/sec: 2,000,000") );
+        assertEquals( 2000000.0, BenchmarkRecord.fromResult(result).getMetrics().get(BenchmarkRecord.METRIC_OPS_PER_SECOND), 1e-6 );
+    }
+
+    @Test
+    public void footprintMode_expectFootprintReportedAndRecordedPerElement() {
+        Footprint       footprint = new FootprintMeter().measure( new long[1000] );
+        BenchmarkResult result    = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(10, 1000000)) )
+            .withMode( BenchmarkMode.FOOTPRINT )
+            .withFootprint( footprint )
+            .withSize( 1000 );
+
+        assertTrue( result.toString(), result.toString().contains("footprint: " + footprint + ", ") );
+        assertTrue( result.toString(), result.toString().contains(" bytes per element (1,000 elements)") );
+        assertEquals( footprint.getBytes(), BenchmarkRecord.fromResult(result).getMetrics().get(BenchmarkRecord.METRIC_FOOTPRINT_BYTES), 1e-6 );
+        assertEquals( footprint.getBytes()/1000.0, BenchmarkRecord.fromResult(result).getMetrics().get(BenchmarkRecord.METRIC_FOOTPRINT_BYTES_PER_ELEMENT), 1e-6 );
+        assertSame( footprint, BenchmarkResult.combineForks(Arrays.asList(result, result)).getFootprint() );
+    }
+
+    @Test
+    public void averageTimeMode_expectNoOpsPerSecond() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(2000000, 1000000000)) );
+
+        assertFalse( result.toString().contains("ops/sec:") );
+    }
+
+    @Test
+    public void combineForks_expectExcludedBatchesFromEveryFork() {
+        BenchmarkResult a = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 10000)) )
+            .withExcludedBatches( Arrays.asList(new BatchMeasurement(1000, 50000).withGc(1, 1)) );
+        BenchmarkResult b = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 10000)) )
+            .withExcludedBatches( Collections.<BatchMeasurement>emptyList() );
+
+        assertEquals( 1, BenchmarkResult.combineForks(Arrays.asList(a, b)).getExcludedBatches().size() );
+    }
+
+    @Test
+    public void allocations_expectBytesPerCallScaledByMultiplier() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "line", 0.5, Arrays.asList(new BatchMeasurement(100, 10000).withAllocatedBytes(4800)) );
+
+        assertEquals( 24.0, result.getAllocationStatistics().getMean(), 1e-9 );
+        assertTrue( result.toString(), result.toString().contains("alloc:   24.00 bytes per line") );
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+public class ConcurrentBatchRunnerTest {
+
+    @Test
+    public void runBatch_expectEveryThreadToMakeEveryCall() throws Throwable {
+        final AtomicInteger callCount = new AtomicInteger();
+        final Set<Thread>   threads   = Collections.newSetFromMap( new ConcurrentHashMap<Thread,Boolean>() );
+
+        BenchmarkInvoker invoker = new BenchmarkInvoker() {
+            public void invoke( Object target, int numIterations, Blackhole blackhole ) {
+                threads.add( Thread.currentThread() );
+
+                for ( int i=0; i<numIterations; i++ ) {
+                    blackhole.consume( callCount.incrementAndGet() );
+                }
+            }
+        };
+
+        ConcurrentBatchRunner runner = new ConcurrentBatchRunner( null, 3 );
+
+        try {
+            BatchMeasurement batch = runner.runBatch( invoker, 100 );
+
+            assertEquals( 300, callCount.get() );
+            assertEquals( 3, threads.size() );
+            assertEquals( 100, batch.getIterationCount() );
+            assertEquals( 3, batch.getThreadCount() );
+            assertEquals( 300, batch.getTotalCallCount() );
+            assertTrue( batch.getDurationNanos() > 0 );
+        } finally {
+            runner.close();
+        }
+    }
+
+    @Test
+    public void runBatchesThatNeverBlock_expectWaitingAtTheBarrierNotCountedAsContextSwitches() throws Throwable {
+        if ( !new OsCounterMonitor().isSupported() ) {
+            return;
+        }
+
+        BenchmarkInvoker invoker = new BenchmarkInvoker() {
+            public void invoke( Object target, int numIterations, Blackhole blackhole ) {
+                for ( int i=0; i<numIterations; i++ ) {
+                    blackhole.consume( i );
+                }
+            }
+        };
+
+        ConcurrentBatchRunner runner = new ConcurrentBatchRunner( null, 3 );
+
+        try {
+            long contextSwitches = 0;
+
+            for ( int i=0; i<20; i++ ) {
+                contextSwitches += runner.runBatch( invoker, 10 ).getOsCounters().getVoluntaryContextSwitches();
+            }
+
+            // all but the last worker to arrive would park at the barrier, at least 40 switches over 20 batches
+            assertTrue( Long.toString(contextSwitches), contextSwitches < 10 );
+        } finally {
+            runner.close();
+        }
+    }
+
+    @Test
+    public void benchmarkThrowsException_expectExceptionToBeRethrown() throws Throwable {
+        BenchmarkInvoker invoker = new BenchmarkInvoker() {
+            public void invoke( Object target, int numIterations, Blackhole blackhole ) throws Throwable {
+                throw new IOException( "deliberate" );
+            }
+        };
+
+        ConcurrentBatchRunner runner = new ConcurrentBatchRunner( null, 2 );
+
+        try {
+            runner.runBatch( invoker, 1 );
+            fail( "expected IOException" );
+        } catch ( IOException ex ) {
+            assertEquals( "deliberate", ex.getMessage() );
+        } finally {
+            runner.close();
+        }
+    }
+
+    @Test
+    public void scalingReport_expectSpeedupAndEfficiencyRelativeToFewestThreads() {
+        BenchmarkResult one  = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 1000000)) );
+        BenchmarkResult four = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(1000, 2000000).withThreadCount(4)) );
+
+        assertEquals( 1000000.0, one.getThroughputStatistics().getMean(), 1e-6 );
+        assertEquals( 2000000.0, four.getThroughputStatistics().getMean(), 1e-6 );
+
+        String report = new ScalingReport( Arrays.asList(one, four) ).toString();
+
+        assertTrue( report, report.contains("Scaling of B.m") );
+        assertTrue( report, report.contains("2.00x") );
+        assertTrue( report, report.contains("50%") );
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class CpuTimeMonitorTest {
+
+    private final CpuTimeMonitor monitor = new CpuTimeMonitor();
+
+
+    @Test
+    public void spin_expectCpuTimeToAdvance() {
+        if ( !monitor.isSupported() ) {
+            return;
+        }
+
+        long before   = monitor.getCurrentThreadCpuNanos();
+        long deadline = System.nanoTime() + 20000000;
+
+        while ( System.nanoTime() < deadline ) {
+            // burn cpu
+        }
+
+        long cpuNanos = monitor.cpuNanosBetween( before, monitor.getCurrentThreadCpuNanos() );
+
+        assertTrue( Long.toString(cpuNanos), cpuNanos >= 5000000 );
+    }
+
+    @Test
+    public void sleep_expectLittleCpuTime() throws InterruptedException {
+        if ( !monitor.isSupported() ) {
+            return;
+        }
+
+        long before = monitor.getCurrentThreadCpuNanos();
+        Thread.sleep( 50 );
+        long cpuNanos = monitor.cpuNanosBetween( before, monitor.getCurrentThreadCpuNanos() );
+
+        assertTrue( Long.toString(cpuNanos), cpuNanos < 25000000 );
+    }
+
+    @Test
+    public void unavailableReading_expectMinusOne() {
+        assertEquals( -1, monitor.cpuNanosBetween(-1, 100) );
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
+import com.softwaremosaic.junit.io.IndentWriter;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class FootprintMeterTest {
+
+    @Test
+    public void jvmLayout_expectPlausibleSizes() {
+        assertTrue( Integer.toString(FootprintMeter.REFERENCE_SIZE), FootprintMeter.REFERENCE_SIZE == 4 || FootprintMeter.REFERENCE_SIZE == 8 );
+        assertTrue( Integer.toString(FootprintMeter.OBJECT_HEADER_SIZE), FootprintMeter.OBJECT_HEADER_SIZE >= 8 && FootprintMeter.OBJECT_HEADER_SIZE <= 16 );
+        assertEquals( 0, FootprintMeter.OBJECT_ALIGNMENT % 8 );
+    }
+
+    @Test
+    public void sizeOfObjectWithNoFields_expectAlignedHeader() {
+        assertEquals( align(FootprintMeter.OBJECT_HEADER_SIZE), FootprintMeter.sizeOf(new Object()) );
+    }
+
+    @Test
+    public void sizeOfObjectWithFields_expectRoomForEveryFieldAligned() {
+        long size = FootprintMeter.sizeOf( new Node(null) );
+
+        assertEquals( 0, size % FootprintMeter.OBJECT_ALIGNMENT );
+        assertTrue( Long.toString(size), size >= FootprintMeter.OBJECT_HEADER_SIZE + 8 + FootprintMeter.REFERENCE_SIZE );
+        assertTrue( FootprintMeter.sizeOf(new SubNode()) >= size );  // inherited fields are included
+    }
+
+    @Test
+    public void sizeOfArrays_expectElementSizeTimesLength() {
+        assertEquals( 8*8, FootprintMeter.sizeOf(new long[10]) - FootprintMeter.sizeOf(new long[2]) );
+        assertEquals( 8*FootprintMeter.REFERENCE_SIZE, FootprintMeter.sizeOf(new Object[8]) - FootprintMeter.sizeOf(new Object[0]) );
+        assertEquals( 0, FootprintMeter.sizeOf(new byte[3]) % FootprintMeter.OBJECT_ALIGNMENT );
+    }
+
+    @Test
+    public void measureNull_expectNothing() {
+        Footprint footprint = new FootprintMeter().measure( null );
+
+        assertEquals( 0, footprint.getBytes() );
+        assertEquals( 0, footprint.getObjectCount() );
+    }
+
+    @Test
+    public void measureLongLinkedList_expectEveryNodeCountedWithoutOverflowingTheStack() {
+        Node head = null;
+        for ( int i=0; i<200000; i++ ) {
+            head = new Node( head );
+        }
+
+        Footprint footprint = new FootprintMeter().measure( head );
+
+        assertEquals( 200000, footprint.getObjectCount() );
+        assertEquals( 200000*FootprintMeter.sizeOf(head), footprint.getBytes() );
+    }
+
+    @Test
+    public void measureGraphWithSharingAndCycles_expectEachObjectCountedOnce() {
+        Node a = new Node( null );
+        Node b = new Node( a );
+        a.next = b;
+
+        Object[] array = new Object[] {a, b, a, new long[4]};
+
+        Footprint footprint = new FootprintMeter().measure( array );
+
+        assertEquals( 4, footprint.getObjectCount() );
+        assertEquals( FootprintMeter.sizeOf(array) + 2*FootprintMeter.sizeOf(a) + FootprintMeter.sizeOf(new long[4]), footprint.getBytes() );
+        assertEquals( 2, footprint.getClassUsage().get(Node.class.getName()).getObjectCount() );
+    }
+
+    @Test
+    public void measureGraphReferringToSharedObjects_expectSharedObjectsNotCounted() {
+        Node         shared = new Node( null );
+        List<Object> list   = new ArrayList<>();
+
+        list.add( shared );
+        list.add( BenchmarkMode.FOOTPRINT );
+        list.add( String.class );
+        list.add( Thread.currentThread() );
+        list.add( new WeakReference<>(new long[1000]) );
+
+        Footprint footprint = new FootprintMeter().withExcluded( shared ).measure( list );
+
+        assertNull( footprint.getClassUsage().get(Node.class.getName()) );
+        assertNull( footprint.getClassUsage().get(BenchmarkMode.class.getName()) );
+        assertNull( footprint.getClassUsage().get(Thread.class.getName()) );
+        assertNull( footprint.getClassUsage().get(long[].class.getName()) );
+        assertEquals( 1, footprint.getClassUsage().get(WeakReference.class.getName()).getObjectCount() );
+    }
+
+    @Test
+    public void measureHashMap_expectNodesAndBoxedValuesListedLargestFirst() {
+        Map<Integer,Integer> map = new HashMap<>();
+        for ( int i=0; i<1000; i++ ) {
+            map.put( 1000+i, 1000+i );
+        }
+
+        Footprint footprint = new FootprintMeter().measure( map );
+
+        assertEquals( 1000, footprint.getClassUsage().get("java.util.HashMap$Node").getObjectCount() );
+        assertEquals( 2000, footprint.getClassUsage().get(Integer.class.getName()).getObjectCount() );
+        assertEquals( 1000*FootprintMeter.sizeOf(map.entrySet().iterator().next()), footprint.getClassUsage().get("java.util.HashMap$Node").getBytes() );
+
+        List<Map.Entry<String,Footprint.ClassUsage>> largest = footprint.getLargestClasses( 2 );
+        assertEquals( 2, largest.size() );
+        assertTrue( largest.get(0).getValue().getBytes() >= largest.get(1).getValue().getBytes() );
+    }
+
+    @Test
+    public void appendTo_expectTotalBytesPerElementAndLargestClasses() {
+        Node         head      = new Node( new Node(null) );
+        Footprint    footprint = new FootprintMeter().measure( head );
+        IndentWriter out       = new IndentWriter( new StringBuilder(), "    " );
+
+        footprint.appendTo( out, 2, 5 );
+
+        String nodeBytes = String.format( "%,d", 2*FootprintMeter.sizeOf(head) );
+        assertEquals(
+            "footprint: " + nodeBytes + " bytes in 2 objects, " + String.format("%.1f", FootprintMeter.sizeOf(head)*1.0) + " bytes per element (2 elements)\n" +
+            "     100.0%  " + Node.class.getName() + "  " + nodeBytes + " bytes in 2 objects\n",
+            out.toString()
+        );
+    }
+
+
+    private static long align( long size ) {
+        return (size + FootprintMeter.OBJECT_ALIGNMENT - 1) / FootprintMeter.OBJECT_ALIGNMENT * FootprintMeter.OBJECT_ALIGNMENT;
+    }
+
+
+    private static class Node {
+        long value;
+        Node next;
+
+        Node( Node next ) {
+            this.next = next;
+        }
+    }
+
+    private static class SubNode extends Node {
+        int extra;
+
+        SubNode() {
+            super( null );
+        }
+    }
+
+}
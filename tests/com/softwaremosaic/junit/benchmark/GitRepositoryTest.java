@@ -0,0 +1,231 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.lang.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.*;
+
+
+public class GitRepositoryTest {
+
+    private static final String COMMIT_A = "0123456789abcdef0123456789abcdef01234567";
+    private static final String COMMIT_B = "fedcba9876543210fedcba9876543210fedcba98";
+
+    private final File dir    = IOUtils.makeTempDirectory( "gitRepository" );
+    private final File gitDir = new File( dir, ".git" );
+
+
+    @After
+    public void tearDown() {
+        IOUtils.deleteAll( dir );
+    }
+
+
+    @Test
+    public void noRepository_expectNull() {
+        File src = new File( dir, "src" );
+        src.mkdirs();
+
+        // the temp directory may itself sit within a repository, so only look at what find returns for dir
+        GitRepository repository = GitRepository.find( src );
+
+        assertTrue( repository == null || !repository.getGitDir().getAbsolutePath().startsWith(dir.getAbsolutePath()) );
+    }
+
+    @Test
+    public void headPointsAtLooseBranch_expectCommitIdFromSubdirectory() throws IOException {
+        write( "HEAD", "ref: refs/heads/master\n" );
+        write( "refs/heads/master", COMMIT_A + "\n" );
+
+        File src = new File( dir, "src/main" );
+        src.mkdirs();
+
+        assertEquals( COMMIT_A, GitRepository.find(src).getHeadCommitId() );
+    }
+
+    @Test
+    public void headPointsAtPackedBranch_expectCommitId() throws IOException {
+        write( "HEAD", "ref: refs/heads/master\n" );
+        write( "packed-refs", "# pack-refs with: peeled fully-peeled sorted\n" + COMMIT_B + " refs/heads/other\n" + COMMIT_A + " refs/heads/master\n^" + COMMIT_B + "\n" );
+
+        assertEquals( COMMIT_A, GitRepository.find(dir).getHeadCommitId() );
+    }
+
+    @Test
+    public void detachedHead_expectCommitId() throws IOException {
+        write( "HEAD", COMMIT_B + "\n" );
+
+        assertEquals( COMMIT_B, GitRepository.find(dir).getHeadCommitId() );
+    }
+
+    @Test
+    public void unbornBranch_expectNull() throws IOException {
+        write( "HEAD", "ref: refs/heads/master\n" );
+
+        assertNull( GitRepository.find(dir).getHeadCommitId() );
+    }
+
+    @Test
+    public void linkedWorkTree_expectRefsReadFromCommonDir() throws IOException {
+        write( "refs/heads/feature", COMMIT_B + "\n" );
+        write( "worktrees/wt/HEAD", "ref: refs/heads/feature\n" );
+        write( "worktrees/wt/commondir", "../..\n" );
+
+        File workTree = new File( dir, "wt" );
+        workTree.mkdirs();
+        Files.write( new File(workTree, ".git").toPath(), ("gitdir: " + new File(gitDir, "worktrees/wt").getAbsolutePath() + "\n").getBytes("UTF-8") );
+
+        assertEquals( COMMIT_B, GitRepository.find(workTree).getHeadCommitId() );
+    }
+
+    @Test
+    public void looseCommitObject_expectSubject() throws IOException {
+        write( "HEAD", COMMIT_A + "\n" );
+
+        String body = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\nauthor A <a@b> 1 +0000\ncommitter A <a@b> 1 +0000\n\nSpeed up the queue\n\nDetails.\n";
+        File   object = new File( gitDir, "objects/" + COMMIT_A.substring(0,2) + "/" + COMMIT_A.substring(2) );
+        object.getParentFile().mkdirs();
+
+        try ( OutputStream out = new DeflaterOutputStream(new FileOutputStream(object)) ) {
+            out.write( ("commit " + body.length() + "\0" + body).getBytes("UTF-8") );
+        }
+
+        GitRepository repository = GitRepository.find( dir );
+
+        assertEquals( "Speed up the queue", repository.readCommitSubject(COMMIT_A) );
+        assertNull( repository.readCommitSubject(COMMIT_B) );
+        assertNull( repository.readCommitSubject("not an id") );
+    }
+
+    @Test
+    public void packedCommitObjects_expectSubjectsIncludingThoseStoredAsDeltas() throws IOException {
+        write( "HEAD", COMMIT_B + "\n" );
+
+        String headers = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\nauthor A <a@b> 1 +0000\ncommitter A <a@b> 1 +0000\n\n";
+        byte[] bodyA   = (headers + "Speed up the queue\n").getBytes( "UTF-8" );
+        byte[] bodyB   = (headers + "Slow down the queue\n").getBytes( "UTF-8" );
+
+        // COMMIT_B is stored as a delta of COMMIT_A: copy the headers, then insert its own message
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        writeVarInt( delta, bodyA.length );
+        writeVarInt( delta, bodyB.length );
+        delta.write( 0x90 );
+        delta.write( headers.length() );
+        delta.write( bodyB.length - headers.length() );
+        delta.write( bodyB, headers.length(), bodyB.length - headers.length() );
+
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        DataOutputStream      out  = new DataOutputStream( pack );
+        out.writeBytes( "PACK" );
+        out.writeInt( 2 );
+        out.writeInt( 2 );
+
+        int offsetA = pack.size();
+        writePackedObject( out, 1, bodyA );
+
+        int offsetB = pack.size();
+        writeObjectHeader( out, 6, delta.size() );
+        out.write( offsetB - offsetA );  // less than 128, so a single byte
+        out.write( deflate(delta.toByteArray()) );
+
+        write( "objects/pack/pack-1.pack", pack.toByteArray() );
+        write( "objects/pack/pack-1.idx", packIndex(new String[] {COMMIT_A, COMMIT_B}, new int[] {offsetA, offsetB}) );
+
+        GitRepository repository = GitRepository.find( dir );
+
+        assertEquals( "Speed up the queue", repository.readCommitSubject(COMMIT_A) );
+        assertEquals( "Slow down the queue", repository.readCommitSubject(COMMIT_B) );
+        assertNull( repository.readCommitSubject("1123456789abcdef0123456789abcdef01234567") );
+    }
+
+
+    private void write( String path, String contents ) throws IOException {
+        write( path, contents.getBytes("UTF-8") );
+    }
+
+    private void write( String path, byte[] contents ) throws IOException {
+        File f = new File( gitDir, path );
+        f.getParentFile().mkdirs();
+
+        Files.write( f.toPath(), contents );
+    }
+
+    /**
+     * The object's type and size, packed into a variable length integer, followed by its compressed
+     * contents.
+     */
+    private static void writePackedObject( DataOutputStream out, int type, byte[] contents ) throws IOException {
+        writeObjectHeader( out, type, contents.length );
+
+        out.write( deflate(contents) );
+    }
+
+    private static void writeObjectHeader( DataOutputStream out, int type, int size ) throws IOException {
+        out.write( (size > 0x0f ? 0x80 : 0) | (type << 4) | (size & 0x0f) );
+        writeVarInt( out, size >> 4 );
+    }
+
+    private static void writeVarInt( OutputStream out, int value ) throws IOException {
+        while ( value != 0 ) {
+            out.write( (value > 0x7f ? 0x80 : 0) | (value & 0x7f) );
+
+            value >>= 7;
+        }
+    }
+
+    private static byte[] deflate( byte[] contents ) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+        try ( OutputStream out = new DeflaterOutputStream(buf) ) {
+            out.write( contents );
+        }
+
+        return buf.toByteArray();
+    }
+
+    /**
+     * A version 2 pack index of the given ids, which must be sorted.  The CRCs are left as zeros, as
+     * they are not read.
+     */
+    private static byte[] packIndex( String[] ids, int[] offsets ) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream      out = new DataOutputStream( buf );
+
+        out.writeInt( 0xff744f63 );
+        out.writeInt( 2 );
+
+        for ( int b=0; b<256; b++ ) {
+            int count = 0;
+            for ( String id : ids ) {
+                count += Integer.parseInt( id.substring(0,2), 16 ) <= b ? 1 : 0;
+            }
+
+            out.writeInt( count );
+        }
+
+        for ( String id : ids ) {
+            for ( int i=0; i<40; i += 2 ) {
+                out.write( Integer.parseInt(id.substring(i, i+2), 16) );
+            }
+        }
+
+        out.write( new byte[ids.length*4] );
+
+        for ( int offset : offsets ) {
+            out.writeInt( offset );
+        }
+
+        return buf.toByteArray();
+    }
+
+}
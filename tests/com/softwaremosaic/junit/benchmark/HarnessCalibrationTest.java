@@ -0,0 +1,67 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+
+public class HarnessCalibrationTest {
+
+    @Test
+    public void calibrate_expectPlausibleCosts() throws Throwable {
+        HarnessCalibration calibration = HarnessCalibration.calibrate();
+
+        assertTrue( calibration.toString(), calibration.getGranularityNanos() > 0 );
+        assertTrue( calibration.toString(), calibration.getGranularityNanos() < 20000000 );
+        assertTrue( calibration.toString(), calibration.getLatencyNanos() > 0 );
+        assertTrue( calibration.toString(), calibration.getLatencyNanos() < 100000 );
+        assertTrue( calibration.toString(), calibration.getEmptyCallNanos() >= 0 );
+        assertTrue( calibration.toString(), calibration.getEmptyCallNanos() < 1000 );
+    }
+
+    @Test
+    public void get_expectCalibrationToBeReused() throws Throwable {
+        assertSame( HarnessCalibration.get(), HarnessCalibration.get() );
+    }
+
+    @Test
+    public void noiseFloor_expectEmptyCallPlusTimerErrorSpreadOverBatch() {
+        HarnessCalibration calibration = new HarnessCalibration( 30, 20, 0.5 );
+
+        assertEquals( 50.0, calibration.getTimerErrorNanos(), 1e-9 );
+        assertEquals( 1.0, calibration.getNoiseFloorNanos(100), 1e-9 );
+    }
+
+    @Test
+    public void resultNearNoiseFloor_expectWarning() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(100, 150), new BatchMeasurement(100, 150)) )
+            .withHarnessCalibration( new HarnessCalibration(30, 20, 0.5) );
+
+        assertEquals( 1.0, result.getNoiseFloorNanos(), 1e-9 );
+        assertTrue( result.isWithinNoiseFloor() );
+
+        String report = result.toString();
+        assertTrue( report, report.contains("harness: timer granularity 30.00ns, timer latency 20.00ns, empty call 0.50ns, noise floor 1.00ns per call") );
+        assertTrue( report, report.contains("WARNING: the time per call is within the harness's noise floor of 1.00ns") );
+    }
+
+    @Test
+    public void resultWellAboveNoiseFloor_expectNoWarning() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(100, 10000)) )
+            .withHarnessCalibration( new HarnessCalibration(30, 20, 0.5) );
+
+        assertFalse( result.isWithinNoiseFloor() );
+        assertFalse( result.toString(), result.toString().contains("WARNING") );
+    }
+
+    @Test
+    public void uncalibratedResult_expectNoNoiseFloor() {
+        BenchmarkResult result = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(100, 150)) );
+
+        assertTrue( Double.isNaN(result.getNoiseFloorNanos()) );
+        assertFalse( result.isWithinNoiseFloor() );
+    }
+
+}
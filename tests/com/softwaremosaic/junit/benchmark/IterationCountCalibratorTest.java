@@ -0,0 +1,47 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+public class IterationCountCalibratorTest {
+
+    @Test
+    public void methodTaking10Micros_expectIterationCountToFillTheTargetDuration() throws Throwable {
+        IterationCountCalibrator calibrator = new IterationCountCalibrator( TimeUnit.MILLISECONDS.toNanos(20) );
+
+        int numIterations = calibrator.calibrate( new SpinningInvoker(10000), null );
+
+        assertTrue( "numIterations="+numIterations, numIterations > 1000 && numIterations <= 2000 );
+    }
+
+    @Test
+    public void methodSlowerThanTheTarget_expectSingleIteration() throws Throwable {
+        IterationCountCalibrator calibrator = new IterationCountCalibrator( TimeUnit.MILLISECONDS.toNanos(1) );
+
+        int numIterations = calibrator.calibrate( new SpinningInvoker(5000000), null );
+
+        assertEquals( 1, numIterations );
+    }
+
+
+    private static class SpinningInvoker implements BenchmarkInvoker {
+        private final long nanosPerCall;
+
+        public SpinningInvoker( long nanosPerCall ) {
+            this.nanosPerCall = nanosPerCall;
+        }
+
+        public void invoke( Object target, int numIterations, Blackhole blackhole ) {
+            long endNanos = System.nanoTime() + nanosPerCall*numIterations;
+
+            while ( System.nanoTime() < endNanos ) {
+                // spin
+            }
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+
+public class JitLogTest {
+
+    private final JitLog log = new JitLog( Pattern.compile("^com\\.example\\.") );
+
+
+    @Test
+    public void linesNotFromTheJit_expectNotParsed() {
+        assertFalse( log.parseLine("Exception in thread \"main\" java.lang.IllegalStateException") );
+        assertFalse( log.parseLine("") );
+        assertEquals( 0, log.getCompilationCount() );
+    }
+
+    @Test
+    public void compilationsAtEachTier_expectTiersAndCountsPerMethodUnderTest() {
+        assertTrue( log.parseLine("     73   74       3       com.example.Map::get (81 bytes)") );
+        assertTrue( log.parseLine("     77   78       4       com.example.Map::get (81 bytes)") );
+        assertTrue( log.parseLine("     79   74       3       com.example.Map::get (81 bytes)   made not entrant") );
+        assertTrue( log.parseLine("     61   45       3       java.util.HashMap::put (13 bytes)") );
+
+        JitLog.MethodCompilations get = log.getMethods().get( "com.example.Map::get" );
+
+        assertEquals( 3, log.getCompilationCount() );
+        assertEquals( 1, log.getMethods().size() );
+        assertTrue( get.wasCompiledAtTier(3) );
+        assertTrue( get.wasCompiledAtTier(4) );
+        assertEquals( 4, get.getHighestTier() );
+        assertEquals( 2, get.getCompilationCount() );
+        assertEquals( 0, get.getDeoptimisationCount() );  // moving up from tier 3 is not a deoptimisation
+    }
+
+    @Test
+    public void topTierMadeNotEntrant_expectDeoptimisation() {
+        log.parseLine( "    174   87 %     4       com.example.Main::main @ 38 (122 bytes)" );
+        log.parseLine( "    425   87 %     4       com.example.Main::main @ 38 (122 bytes)   made not entrant" );
+        log.parseLine( "    430   88       4       java.util.HashMap::put (13 bytes)   made not entrant" );
+
+        JitLog.MethodCompilations main = log.getMethods().get( "com.example.Main::main" );
+
+        assertEquals( 2, log.getDeoptimisationCount() );
+        assertEquals( 1, main.getDeoptimisationCount() );
+        assertEquals( 1, main.getOsrCount() );
+        assertEquals( "tiers 4, 1 compilation (1 OSR), 1 deoptimisation", main.toString() );
+    }
+
+    @Test
+    public void compilationsWithAttributesOrWithoutTier_expectParsed() {
+        assertTrue( log.parseLine("     47   23     n 0       jdk.internal.misc.Unsafe::getReferenceVolatile (native)   ") );
+        assertTrue( log.parseLine("     54   33   !   3       com.example.Map::putVal (432 bytes)") );
+        assertTrue( log.parseLine("     39    1 %           com.example.Map::hash @ 10 (42 bytes)") );
+
+        assertTrue( log.parseLine("    109   90     n 0       java.lang.invoke.MethodHandle::linkToStatic(LLL)L (native)   (static)") );
+        assertTrue( log.parseLine("   1200  325       4      (method)   made not entrant") );
+
+        assertEquals( 4, log.getCompilationCount() );
+        assertEquals( 1, log.getDeoptimisationCount() );
+        assertTrue( log.getMethods().get("com.example.Map::putVal").wasCompiledAtTier(3) );
+        assertTrue( log.getMethods().get("com.example.Map::hash").wasCompiledAtTier(4) );
+    }
+
+    @Test
+    public void failedInlinesWithinTopTierCompilationOfMethodUnderTest_expectCounted() {
+        log.parseLine( "    174   87       4       com.example.Main::run (122 bytes)" );
+
+        assertTrue( log.parseLine("                              @ 60   java.util.HashMap::put (13 bytes)   inline (hot)") );
+        assertTrue( log.parseLine("                              @ 97   java.util.HashMap::resize (356 bytes)   hot method too big") );
+        assertTrue( log.parseLine("               !m             @ 409   java.util.HashMap::treeifyBin (164 bytes)   callee is too large") );
+        assertTrue( log.parseLine("                              @ 1   java.lang.Object::hashCode (0 bytes)   (intrinsic, virtual)") );
+        assertTrue( log.parseLine("                              @ 37  java/lang/StringUTF16::hashCode (not loaded)   not inlineable") );
+        assertTrue( log.parseLine("                               \\-> TypeProfile (6664/6664 counts) = java/lang/Integer") );
+
+        assertEquals( 3, log.getFailedInlines().size() );
+        assertEquals( Integer.valueOf(1), log.getFailedInlines().get("java.util.HashMap::resize (356 bytes): hot method too big") );
+        assertEquals( Integer.valueOf(1), log.getFailedInlines().get("java.lang.StringUTF16::hashCode (not loaded): not inlineable") );
+    }
+
+    @Test
+    public void failedInlinesOutsideMethodsUnderTestOrBelowTopTier_expectIgnored() {
+        log.parseLine( "     61   45       4       java.util.HashMap::put (13 bytes)" );
+        log.parseLine( "                              @ 97   java.util.HashMap::resize (356 bytes)   hot method too big" );
+        log.parseLine( "     62   46       3       com.example.Main::run (122 bytes)" );
+        log.parseLine( "                              @ 97   com.example.Main::big (81 bytes)   callee is too large" );
+
+        assertTrue( log.getFailedInlines().isEmpty() );
+    }
+
+    @Test
+    public void failedInlineOfMethodUnderTestFromElsewhere_expectCounted() {
+        log.parseLine( "     61   45       4       java.util.HashMap::put (13 bytes)" );
+        log.parseLine( "                              @ 12   com.example.Key::hashCode (400 bytes)   too big" );
+
+        assertEquals( Integer.valueOf(1), log.getFailedInlines().get("com.example.Key::hashCode (400 bytes): too big") );
+    }
+
+    @Test
+    public void add_expectCountsCombined() {
+        JitLog other = new JitLog( Pattern.compile("^com\\.example\\.") );
+
+        log.parseLine( "     77   78       4       com.example.Map::get (81 bytes)" );
+        log.parseLine( "                              @ 12   com.example.Key::hashCode (400 bytes)   too big" );
+        other.parseLine( "     73   74       3       com.example.Map::get (81 bytes)" );
+        other.parseLine( "     77   78       4       com.example.Map::get (81 bytes)" );
+        other.parseLine( "                              @ 12   com.example.Key::hashCode (400 bytes)   too big" );
+
+        log.add( other );
+
+        assertEquals( 3, log.getCompilationCount() );
+        assertEquals( 3, log.getMethods().get("com.example.Map::get").getCompilationCount() );
+        assertEquals( Integer.valueOf(2), log.getFailedInlines().get("com.example.Key::hashCode (400 bytes): too big") );
+    }
+
+}
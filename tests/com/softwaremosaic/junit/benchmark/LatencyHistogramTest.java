@@ -0,0 +1,104 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram_expectZeros() {
+        LatencyHistogram h = new LatencyHistogram();
+
+        assertEquals( 0, h.getTotalCount() );
+        assertEquals( 0, h.getValueAtPercentile(99) );
+        assertEquals( 0, h.getMax() );
+        assertEquals( 0.0, h.getMean(), 0 );
+    }
+
+    @Test
+    public void smallValues_expectExactPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+
+        for ( int v=1; v<=100; v++ ) {
+            h.record( v );
+        }
+
+        assertEquals( 100, h.getTotalCount() );
+        assertEquals( 1, h.getMin() );
+        assertEquals( 100, h.getMax() );
+        assertEquals( 50, h.getValueAtPercentile(50) );
+        assertEquals( 99, h.getValueAtPercentile(99) );
+        assertEquals( 100, h.getValueAtPercentile(100) );
+        assertEquals( 50.5, h.getMean(), 1e-9 );
+    }
+
+    @Test
+    public void largeValues_expectPercentilesWithinTwoPercent() {
+        LatencyHistogram h = new LatencyHistogram();
+
+        for ( int v=1; v<=1000000; v++ ) {
+            h.record( v*10L );
+        }
+
+        assertEquals( 5000000, h.getValueAtPercentile(50), 5000000*0.02 );
+        assertEquals( 9990000, h.getValueAtPercentile(99.9), 9990000*0.02 );
+        assertEquals( 10000000, h.getMax() );
+    }
+
+    @Test
+    public void everyValue_expectToFallWithinItsBucket() {
+        long[] values = {0, 1, 127, 128, 129, 255, 256, 1000, 123456789, Long.MAX_VALUE/3, Long.MAX_VALUE};
+
+        for ( long v : values ) {
+            int i = LatencyHistogram.indexOf( v );
+
+            assertTrue( Long.toString(v), LatencyHistogram.lowestValueOf(i) <= v );
+            assertTrue( Long.toString(v), LatencyHistogram.highestValueOf(i) >= v );
+            assertEquals( LatencyHistogram.highestValueOf(i)+1, i+1 < 3712 ? LatencyHistogram.lowestValueOf(i+1) : Long.MIN_VALUE );
+        }
+    }
+
+    @Test
+    public void addAndReset_expectCountsToBeCombinedAndCleared() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+
+        a.record( 10 );
+        b.record( 1000 );
+        a.add( b );
+
+        assertEquals( 2, a.getTotalCount() );
+        assertEquals( 10, a.getMin() );
+        assertEquals( 1000, a.getMax() );
+
+        a.reset();
+
+        assertEquals( 0, a.getTotalCount() );
+        assertEquals( 0, a.getValueAtPercentile(50) );
+    }
+
+    @Test
+    public void samplingInvoker_expectEveryCallToBeRecorded() throws Throwable {
+        final int[] calls = new int[1];
+
+        SamplingInvoker sampler = new SamplingInvoker( new BenchmarkInvoker() {
+            public void invoke( Object target, int numIterations, Blackhole blackhole ) {
+                assertEquals( 1, numIterations );
+
+                calls[0]++;
+            }
+        });
+
+        sampler.invoke( null, 50, new Blackhole() );
+        assertEquals( 50, sampler.getHistogram().getTotalCount() );
+
+        sampler.reset();
+        sampler.invoke( null, 20, new Blackhole() );
+
+        assertEquals( 70, calls[0] );
+        assertEquals( 20, sampler.getHistogram().getTotalCount() );
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+
+public class OsCounterMonitorTest {
+
+    private final OsCounterMonitor monitor = new OsCounterMonitor();
+
+
+    @Test
+    public void sleep_expectVoluntaryContextSwitches() throws InterruptedException {
+        if ( !monitor.isSupported() ) {
+            return;
+        }
+
+        OsCounters before = monitor.readCurrentThreadCounters();
+
+        for ( int i=0; i<5; i++ ) {
+            Thread.sleep( 1 );
+        }
+
+        OsCounters delta = OsCounterMonitor.countersBetween( before, monitor.readCurrentThreadCounters() );
+
+        assertTrue( delta.toString(), delta.getVoluntaryContextSwitches() >= 5 );
+    }
+
+    @Test
+    public void touchFreshMemory_expectMinorPageFaults() {
+        if ( !monitor.isSupported() ) {
+            return;
+        }
+
+        OsCounters before = monitor.readCurrentThreadCounters();
+
+        // a direct buffer is allocated outside of the (already touched) heap, each page faults when first written
+        ByteBuffer buffer = ByteBuffer.allocateDirect( 16*1024*1024 );
+        for ( int i=0; i<buffer.capacity(); i+=4096 ) {
+            buffer.put( i, (byte) 1 );
+        }
+
+        OsCounters delta = OsCounterMonitor.countersBetween( before, monitor.readCurrentThreadCounters() );
+
+        assertTrue( delta.toString(), delta.getMinorPageFaults() + delta.getMajorPageFaults() > 0 );
+    }
+
+    @Test
+    public void unavailableReading_expectNull() {
+        assertNull( OsCounterMonitor.countersBetween(null, new OsCounters(1, 2, 3, 4)) );
+    }
+
+    @Test
+    public void plusAndMinus() {
+        OsCounters a = new OsCounters( 1, 2, 3, 4 );
+        OsCounters b = new OsCounters( 10, 20, 30, 40 );
+
+        assertEquals( 11, a.plus(b).getVoluntaryContextSwitches() );
+        assertEquals( 36, b.minus(a).getMajorPageFaults() );
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.softwaremosaic.junit.benchmark;
+
+import com.softwaremosaic.junit.JUnitMosaic;
+import com.softwaremosaic.junit.lang.Function1;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class RegressionGateTest {
+
+    @Test
+    public void noLimits_expectPass() {
+        new RegressionGate( 0, -1 ).verify( resultOf(100, 101, 99), new double[] {10, 10, 10} );
+    }
+
+    @Test
+    public void clearlyOverAbsoluteLimit_expectFailure() {
+        try {
+            new RegressionGate( 50, -1 ).verify( resultOf(100, 101, 99, 100), null );
+            fail( "expected AssertionError" );
+        } catch ( AssertionError ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().startsWith("Benchmark B.m has regressed:\n    100.00ns per call exceeds the limit of 50.00ns (p=0.0000)") );
+        }
+    }
+
+    @Test
+    public void noisyResultMarginallyOverAbsoluteLimit_expectPassAsNotSignificant() {
+        new RegressionGate( 95, -1 ).verify( resultOf(60, 140, 80, 120), null );
+    }
+
+    @Test
+    public void significantlySlowerThanHistoricalBaseline_expectFailure() {
+        try {
+            new RegressionGate( 0, 10 ).verify( resultOf(130, 131, 129, 130), new double[] {100, 101, 99, 100, 100} );
+            fail( "expected AssertionError" );
+        } catch ( AssertionError ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains("130.00ns per call is 30.0% slower than the baseline of 100.00ns (limit 10.0%") );
+        }
+    }
+
+    @Test
+    public void slowerThanBaselineButWithinPercentage_expectPass() {
+        new RegressionGate( 0, 10 ).verify( resultOf(105, 106, 104, 105), new double[] {100, 101, 99, 100, 100} );
+    }
+
+    @Test
+    public void fasterThanBaseline_expectPass() {
+        new RegressionGate( 0, 0 ).verify( resultOf(50, 51, 49), new double[] {100, 101, 99} );
+    }
+
+    @Test
+    public void singleValueBaseline_expectOneSampleComparison() {
+        try {
+            new RegressionGate( 0, 5 ).verify( resultOf(130, 131, 129, 130), new double[] {100} );
+            fail( "expected AssertionError" );
+        } catch ( AssertionError ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains("30.0% slower than the baseline of 100.00ns") );
+        }
+    }
+
+    @Test
+    public void baselineFile_expectValuesKeyedByClassAndMethod() throws IOException {
+        Double nanos = JUnitMosaic.withTempFile( "baseline.properties", new Function1<File,Double>() {
+            public Double invoke( File f ) {
+                try {
+                    try ( FileWriter out = new FileWriter(f) ) {
+                        out.write( "com.acme.B.m=35.5\n" );
+                    }
+
+                    BaselineFile baselineFile = new BaselineFile( f.getPath() );
+                    assertNull( baselineFile.getBaselineNanosPerCall("com.acme.B", "other") );
+
+                    return baselineFile.getBaselineNanosPerCall( "com.acme.B", "m" );
+                } catch ( IOException ex ) {
+                    throw new RuntimeException( ex );
+                }
+            }
+        });
+
+        assertEquals( 35.5, nanos, 1e-9 );
+    }
+
+    @Test
+    public void baselineFileWithParameters_expectValuesKeyedByParametersToo() throws IOException {
+        JUnitMosaic.withTempFile( "baseline.properties", new Function1<File,Void>() {
+            public Void invoke( File f ) {
+                try {
+                    try ( FileWriter out = new FileWriter(f) ) {
+                        out.write( "# sized\ncom.acme.B.m=35.5\ncom.acme.B.m[size=10]=12.0\ncom.acme.B.m[size=1000 threads=4]=830.25\n" );
+                    }
+
+                    BaselineFile baselineFile = new BaselineFile( f.getPath() );
+                    assertEquals( 35.5, baselineFile.getBaselineNanosPerCall("com.acme.B", "m", ""), 1e-9 );
+                    assertEquals( 12.0, baselineFile.getBaselineNanosPerCall("com.acme.B", "m", "size=10"), 1e-9 );
+                    assertEquals( 830.25, baselineFile.getBaselineNanosPerCall("com.acme.B", "m", "size=1000 threads=4"), 1e-9 );
+                    assertNull( baselineFile.getBaselineNanosPerCall("com.acme.B", "m", "size=100") );
+
+                    return null;
+                } catch ( IOException ex ) {
+                    throw new RuntimeException( ex );
+                }
+            }
+        });
+    }
+
+    @Test
+    public void allocatingMoreThanLimit_expectFailure() {
+        try {
+            new RegressionGate( 0, -1 ).withMaxBytesPerCall( 0 ).verify( allocatingResultOf(24000, 24000, 0), null );
+            fail( "expected AssertionError" );
+        } catch ( AssertionError ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains("24.00 bytes per call exceeds the allocation limit of 0.00 bytes") );
+        }
+    }
+
+    @Test
+    public void occasionalAllocationWithinMedian_expectPass() {
+        new RegressionGate( 0, -1 ).withMaxBytesPerCall( 0 ).verify( allocatingResultOf(0, 0, 5000), null );
+    }
+
+    @Test
+    public void allocationsNotMeasured_expectPass() {
+        new RegressionGate( 0, -1 ).withMaxBytesPerCall( 0 ).verify( resultOf(100, 100), null );
+    }
+
+    @Test
+    public void welchTTest_expectSignificanceOnlyForRealDifferences() {
+        SampleStatistics a = new SampleStatistics( new double[] {10, 11, 9, 10, 10} );
+        SampleStatistics b = new SampleStatistics( new double[] {20, 22, 18, 20, 20} );
+        SampleStatistics c = new SampleStatistics( new double[] {10, 12, 8, 11, 9} );
+
+        assertTrue( new WelchTTest(b, a).getOneSidedPValue() < 0.001 );
+        assertTrue( new WelchTTest(a, b).getOneSidedPValue() > 0.999 );
+        assertTrue( new WelchTTest(a, c).getTwoSidedPValue() > 0.5 );
+    }
+
+
+    private BenchmarkResult allocatingResultOf( long...allocatedBytesPerBatch ) {
+        List<BatchMeasurement> batches = new ArrayList<>();
+
+        for ( long bytes : allocatedBytesPerBatch ) {
+            batches.add( new BatchMeasurement(1000, 1000).withAllocatedBytes(bytes) );
+        }
+
+        return new BenchmarkResult( "com.acme.B", "m", "call", 1.0, batches );
+    }
+
+    private BenchmarkResult resultOf( double...nanosPerCall ) {
+        List<BatchMeasurement> batches = new ArrayList<>();
+
+        for ( double v : nanosPerCall ) {
+            batches.add( new BatchMeasurement(1000, Math.round(v*1000)) );
+        }
+
+        return new BenchmarkResult( "com.acme.B", "m", "call", 1.0, batches );
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class SampleStatisticsTest {
+
+    private static final double DELTA = 1e-9;
+
+
+    @Test
+    public void knownSamples_expectSummaryStatistics() {
+        SampleStatistics s = new SampleStatistics( new double[] {4, 1, 3, 2, 5} );
+
+        assertEquals( 5, s.getCount() );
+        assertEquals( 3.0, s.getMean(), DELTA );
+        assertEquals( 3.0, s.getMedian(), DELTA );
+        assertEquals( Math.sqrt(2.5), s.getStandardDeviation(), DELTA );
+        assertEquals( 1.0, s.getMin(), DELTA );
+        assertEquals( 5.0, s.getMax(), DELTA );
+    }
+
+    @Test
+    public void percentiles_expectLinearInterpolationBetweenSamples() {
+        SampleStatistics s = new SampleStatistics( new double[] {10, 20, 30, 40} );
+
+        assertEquals( 10.0, s.getPercentile(0), DELTA );
+        assertEquals( 25.0, s.getPercentile(50), DELTA );
+        assertEquals( 37.0, s.getPercentile(90), DELTA );
+        assertEquals( 39.7, s.getPercentile(99), DELTA );
+        assertEquals( 40.0, s.getPercentile(100), DELTA );
+    }
+
+    @Test
+    public void confidenceInterval_expectStudentTBasedHalfWidth() {
+        SampleStatistics s = new SampleStatistics( new double[] {4, 1, 3, 2, 5} );
+
+        // t(0.975, df=4) = 2.776445
+        assertEquals( 2.776445 * Math.sqrt(2.5/5), s.getConfidenceIntervalHalfWidth(0.95), 1e-5 );
+        assertEquals( 3.0 - s.getConfidenceIntervalHalfWidth(0.95), s.getConfidenceIntervalLower(0.95), DELTA );
+    }
+
+    @Test
+    public void singleSample_expectNoConfidenceInterval() {
+        SampleStatistics s = new SampleStatistics( new double[] {7} );
+
+        assertEquals( 0.0, s.getStandardDeviation(), DELTA );
+        assertTrue( Double.isNaN(s.getConfidenceIntervalHalfWidth(0.999)) );
+    }
+
+    @Test
+    public void outliers_expectTukeyFences() {
+        SampleStatistics s = new SampleStatistics( new double[] {10, 11, 10, 12, 11, 40} );
+
+        assertFalse( s.isOutlier(10) );
+        assertFalse( s.isOutlier(12) );
+        assertTrue( s.isOutlier(40) );
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+
+public class SizeSweepReportTest {
+
+    @Test
+    public void calcGrowth_expectExponentRelatingTimeToSize() {
+        assertEquals( 0.0, SizeSweepReport.calcGrowth(10, 50, 1000, 50), 1e-9 );
+        assertEquals( 1.0, SizeSweepReport.calcGrowth(10, 50, 1000, 5000), 1e-9 );
+        assertEquals( 2.0, SizeSweepReport.calcGrowth(10, 50, 1000, 500000), 1e-9 );
+    }
+
+    @Test
+    public void calcGrowth_givenSizeOfZero_expectNaN() {
+        assertTrue( Double.isNaN(SizeSweepReport.calcGrowth(0, 50, 1000, 50)) );
+    }
+
+    @Test
+    public void toString_expectRowPerSize() {
+        BenchmarkResult small = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(10, 100), new BatchMeasurement(10, 100)) );
+        BenchmarkResult large = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(10, 10000), new BatchMeasurement(10, 10000)) );
+
+        String report = new SizeSweepReport( new long[] {10, 1000}, Arrays.asList(small, large) ).toString();
+
+        assertTrue( report, report.startsWith("Sizes of B.m") );
+        assertTrue( report, report.contains("1,000       1000.00ns") );
+        assertTrue( report, report.contains("1.00ns    1.00") );
+        assertFalse( report, report.contains("footprint") );
+    }
+
+    @Test
+    public void toStringWithFootprints_expectBytesPerUnitAndMarginalBytes() {
+        BenchmarkResult small = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(10, 100), new BatchMeasurement(10, 100)) );
+        BenchmarkResult large = new BenchmarkResult( "a.B", "m", "call", 1.0, Arrays.asList(new BatchMeasurement(10, 10000), new BatchMeasurement(10, 10000)) );
+
+        small.withFootprint( new FootprintMeter().measure(new long[10]) ).withSize( 10 );
+        large.withFootprint( new FootprintMeter().measure(new long[1000]) ).withSize( 1000 );
+
+        String report = new SizeSweepReport( new long[] {10, 1000}, Arrays.asList(small, large) ).toString();
+
+        assertTrue( report, report.contains("footprint  bytes per unit  marginal bytes") );
+        assertTrue( report, report.contains("       -\n") );
+        assertTrue( report, report.contains("           8.0\n") );  // each extra long takes 8 bytes
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class StackProfileTest {
+
+    @Test
+    public void record_expectStackCollapsedFromOutermostToInnermostFrame() {
+        StackProfile profile = new StackProfile( 10 );
+
+        profile.record( stack("a.B.leaf", "a.B.middle", "a.Main.main") );
+
+        assertEquals( 1, profile.getSampleCount() );
+        assertEquals( Long.valueOf(1), profile.getStackCounts().get("a.Main.main;a.B.middle;a.B.leaf") );
+    }
+
+    @Test
+    public void recordEmptyStack_expectNoSample() {
+        StackProfile profile = new StackProfile( 10 );
+
+        profile.record( new StackTraceElement[0] );
+
+        assertEquals( 0, profile.getSampleCount() );
+        assertTrue( profile.getStackCounts().isEmpty() );
+    }
+
+    @Test
+    public void writeCollapsed_expectOneLinePerStackMostFrequentFirst() throws Exception {
+        StackProfile profile = new StackProfile( 10 );
+
+        profile.record( stack("a.B.x", "a.Main.main") );
+        profile.record( stack("a.B.y", "a.Main.main") );
+        profile.record( stack("a.B.y", "a.Main.main") );
+
+        StringWriter out = new StringWriter();
+        profile.writeCollapsed( out );
+
+        assertEquals( "a.Main.main;a.B.y 2\na.Main.main;a.B.x 1\n", out.toString() );
+    }
+
+    @Test
+    public void getHottestFrames_expectInnermostFramesCountedAcrossStacks() {
+        StackProfile profile = new StackProfile( 10 );
+
+        profile.record( stack("a.B.hash", "a.B.put", "a.Main.main") );
+        profile.record( stack("a.B.hash", "a.B.get", "a.Main.main") );
+        profile.record( stack("a.B.get", "a.Main.main") );
+
+        List<Map.Entry<String,Long>> frames = profile.getHottestFrames( 1 );
+
+        assertEquals( 1, frames.size() );
+        assertEquals( "a.B.hash", frames.get(0).getKey() );
+        assertEquals( Long.valueOf(2), frames.get(0).getValue() );
+    }
+
+    @Test
+    public void add_expectCountsSummed() {
+        StackProfile a = new StackProfile( 10 );
+        StackProfile b = new StackProfile( 10 );
+
+        a.record( stack("a.B.x") );
+        b.record( stack("a.B.x") );
+        b.record( stack("a.B.y") );
+
+        a.add( b );
+
+        assertEquals( 3, a.getSampleCount() );
+        assertEquals( Long.valueOf(2), a.getStackCounts().get("a.B.x") );
+        assertEquals( Long.valueOf(1), a.getStackCounts().get("a.B.y") );
+    }
+
+
+    /**
+     * @param frames 'className.methodName', innermost first as returned by Thread.getStackTrace()
+     */
+    private static StackTraceElement[] stack( String...frames ) {
+        StackTraceElement[] stack = new StackTraceElement[frames.length];
+
+        for ( int i=0; i<frames.length; i++ ) {
+            int dot = frames[i].lastIndexOf( '.' );
+
+            stack[i] = new StackTraceElement( frames[i].substring(0, dot), frames[i].substring(dot+1), null, -1 );
+        }
+
+        return stack;
+    }
+
+}
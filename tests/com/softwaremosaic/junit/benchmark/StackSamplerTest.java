@@ -0,0 +1,93 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class StackSamplerTest {
+
+    @Test
+    public void pausedSampler_expectNoSamples() throws Exception {
+        StackSampler sampler = new StackSampler( 1 );
+        sampler.addThread( Thread.currentThread() );
+
+        spin( 50 );
+        sampler.close();
+
+        assertEquals( 0, sampler.getProfile().getSampleCount() );
+    }
+
+    @Test
+    public void resumedSampler_expectBusyThreadSampled() throws Exception {
+        StackSampler sampler = new StackSampler( 1 );
+        sampler.addThread( Thread.currentThread() );
+
+        sampler.resume();
+        spin( 200 );
+        sampler.pause();
+        sampler.close();
+
+        StackProfile profile = sampler.getProfile();
+
+        assertTrue( Long.toString(profile.getSampleCount()), profile.getSampleCount() > 0 );
+
+        boolean foundSpin = false;
+        for ( String stack : profile.getStackCounts().keySet() ) {
+            foundSpin |= stack.contains( StackSamplerTest.class.getName() + ".spin" );
+        }
+
+        assertTrue( profile.getStackCounts().toString(), foundSpin );
+    }
+
+    @Test
+    public void waitingThread_expectNotSampled() throws Exception {
+        final Object lock   = new Object();
+        Thread       waiter = new Thread() {
+            public void run() {
+                synchronized ( lock ) {
+                    try {
+                        lock.wait();
+                    } catch ( InterruptedException ex ) {
+                        // finished
+                    }
+                }
+            }
+        };
+
+        waiter.setDaemon( true );
+        waiter.start();
+
+        StackSampler sampler = new StackSampler( 1 );
+        sampler.addThread( waiter );
+
+        sampler.resume();
+        Thread.sleep( 50 );
+        sampler.close();
+        waiter.interrupt();
+
+        for ( Map.Entry<String,Long> e : sampler.getProfile().getStackCounts().entrySet() ) {
+            assertFalse( e.getKey(), e.getKey().endsWith("java.lang.Object.wait") );
+        }
+    }
+
+    @Test( expected=IllegalArgumentException.class )
+    public void zeroInterval_expectException() {
+        new StackSampler( 0 );
+    }
+
+
+    private static long spin( long millis ) {
+        long deadline = System.nanoTime() + millis*1000000;
+        long count    = 0;
+
+        while ( System.nanoTime() < deadline ) {
+            count++;
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class StudentTDistributionTest {
+
+    @Test
+    public void cumulativeProbability_expectSymmetryAboutZero() {
+        StudentTDistribution t = new StudentTDistribution( 5 );
+
+        assertEquals( 0.5, t.cumulativeProbability(0), 1e-12 );
+        assertEquals( 1.0, t.cumulativeProbability(1.3) + t.cumulativeProbability(-1.3), 1e-12 );
+    }
+
+    @Test
+    public void criticalValues_expectPublishedTableValues() {
+        assertEquals( 12.7062, new StudentTDistribution(1).criticalValue(0.95), 1e-4 );
+        assertEquals( 2.5706,  new StudentTDistribution(5).criticalValue(0.95), 1e-4 );
+        assertEquals( 6.8688,  new StudentTDistribution(5).criticalValue(0.999), 1e-4 );
+        assertEquals( 3.6460,  new StudentTDistribution(30).criticalValue(0.999), 1e-4 );
+    }
+
+    @Test
+    public void largeDegreesOfFreedom_expectNormalDistribution() {
+        assertEquals( 1.95996, new StudentTDistribution(1e7).criticalValue(0.95), 1e-4 );
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.softwaremosaic.junit.benchmark;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+public class TimeBoxTest {
+
+    @Test
+    public void invokeFor_expectCallsUntilDurationHasPassed() throws Throwable {
+        CountingInvoker invoker = new CountingInvoker();
+
+        long startNanos = System.nanoTime();
+        int  callCount  = TimeBox.invokeFor( invoker, null, new Blackhole(), TimeUnit.MILLISECONDS.toNanos(50) );
+        long tookNanos  = System.nanoTime() - startNanos;
+
+        assertEquals( invoker.callCount, callCount );
+        assertTrue( Long.toString(tookNanos), tookNanos >= TimeUnit.MILLISECONDS.toNanos(50) );
+        assertTrue( Long.toString(tookNanos), tookNanos < TimeUnit.MILLISECONDS.toNanos(1000) );
+    }
+
+    @Test
+    public void invokeFor_expectChunksToGrowSoThatTheClockIsReadSparingly() throws Throwable {
+        CountingInvoker invoker   = new CountingInvoker();
+        int             callCount = TimeBox.invokeFor( invoker, null, new Blackhole(), TimeUnit.MILLISECONDS.toNanos(50) );
+
+        assertTrue( invoker.chunkCount + " chunks for " + callCount + " calls", invoker.chunkCount < callCount/10 );
+        assertTrue( Integer.toString(invoker.chunkCount), invoker.chunkCount <= 2000 );
+    }
+
+    @Test
+    public void concurrentTimedBatch_expectEveryThreadToRunForTheDuration() throws Throwable {
+        ConcurrentBatchRunner runner = new ConcurrentBatchRunner( null, 2 );
+
+        try {
+            BatchMeasurement batch = runner.runTimedBatch( new CountingInvoker(), TimeUnit.MILLISECONDS.toNanos(20) );
+
+            assertEquals( 2, batch.getThreadCount() );
+            assertTrue( batch.getIterationCount() > 0 );
+            assertTrue( Long.toString(batch.getDurationNanos()), batch.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(20) );
+        } finally {
+            runner.close();
+        }
+    }
+
+
+    private static class CountingInvoker implements BenchmarkInvoker {
+        private long callCount;
+        private int  chunkCount;
+
+        public void invoke( Object target, int numIterations, Blackhole blackhole ) {
+            chunkCount++;
+
+            for ( int i=0; i<numIterations; i++ ) {
+                blackhole.consume( callCount++ );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.softwaremosaic.junit.benchmark.report;
+
+import com.softwaremosaic.junit.benchmark.BenchmarkHistory;
+import com.softwaremosaic.junit.benchmark.BenchmarkRecord;
+import com.softwaremosaic.junit.lang.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class BenchmarkReportMainTest {
+
+    private final File             historyDir = IOUtils.makeTempDirectory( "benchmarkHistory" );
+    private final File             outputDir  = IOUtils.makeTempDirectory( "benchmarkReport" );
+    private final BenchmarkHistory history    = new BenchmarkHistory( historyDir );
+
+
+    @After
+    public void tearDown() {
+        IOUtils.deleteAll( historyDir );
+        IOUtils.deleteAll( outputDir );
+    }
+
+
+    @Test
+    public void generateFromEmptyHistory_expectEmptyReports() throws IOException {
+        int count = BenchmarkReportMain.parseArgs( args("html,json") ).generate();
+
+        assertEquals( 0, count );
+        assertTrue( read("index.html").contains("No benchmark results have been recorded") );
+        assertEquals( "[]", read("index.json") );
+    }
+
+    @Test
+    public void generateHtml_expectSelfContainedPageWithAChartPerBenchmark() throws IOException {
+        record( "a.QueueBenchmark", "offer", 1000L, 10, 11, 12 );
+        record( "a.QueueBenchmark", "offer", 2000L, 20, 21, 22 );
+        record( "a.MapBenchmark",   "get",   3000L, 5, 5, 5 );
+
+        int count = BenchmarkReportMain.parseArgs( args("html") ).generate();
+
+        String html = read( "index.html" );
+
+        assertEquals( 2, count );
+        assertFalse( new File(outputDir, "index.json").exists() );
+        assertEquals( 2, countOccurrences(html, "<svg") );
+        assertTrue( html.contains("QueueBenchmark.offer") );
+        assertTrue( html.contains("MapBenchmark.get") );
+        assertTrue( html.contains("+90.9%") );
+        assertFalse( html.contains("<script") );
+        assertFalse( html.contains("src=\"http") );
+    }
+
+    @Test
+    public void generateJson_expectFilePerBenchmark() throws IOException {
+        record( "a.QueueBenchmark", "offer", 1000L, 10, 12 );
+
+        BenchmarkReportMain.parseArgs( args("json") ).generate();
+
+        String json = read( "a.QueueBenchmark.offer.json" );
+
+        assertTrue( json, json.startsWith("{\"className\":\"a.QueueBenchmark\",\"methodName\":\"offer\",\"parameters\":\"\",\"units\":\"ns\"") );
+        assertTrue( json, json.contains("\"timestamp\":1000,") );
+        assertTrue( json, json.contains("\"mean\":11.0,") );
+        assertTrue( json, json.contains("\"batches\":[10.0,12.0]") );
+        assertEquals( "[{\"className\":\"a.QueueBenchmark\",\"methodName\":\"offer\",\"parameters\":\"\",\"file\":\"a.QueueBenchmark.offer.json\"}]", read("index.json") );
+    }
+
+    @Test
+    public void runsWithDifferentParameters_expectSeriesPerParametersComparedOnlyWithLikeRuns() throws IOException {
+        recordWith( "threads=1", 1000L, 10 );
+        recordWith( "threads=4", 1000L, 40 );
+        recordWith( "threads=1", 2000L, 11 );
+        recordWith( "threads=4", 2000L, 44 );
+
+        BenchmarkReportMain   report = BenchmarkReportMain.parseArgs( args("html,json") );
+        List<BenchmarkSeries> series = report.loadSeries();
+
+        assertEquals( 2, series.size() );
+        assertEquals( "threads=1", series.get(0).getParameters() );
+        assertEquals( 2, series.get(0).getRecords().size() );
+        assertEquals( "threads=4", series.get(1).getParameters() );
+        assertEquals( 2, series.get(1).getRecords().size() );
+
+        assertEquals( 2, report.generate() );
+
+        String html = read( "index.html" );
+
+        assertEquals( 2, countOccurrences(html, "<svg") );
+        assertTrue( html.contains("QueueBenchmark.offer [threads=4]") );
+        assertTrue( html.contains("+10.0%") );
+        assertFalse( html.contains("-72.5%") );  // 11ns compared with the 40ns run on four threads
+        assertTrue( read("a.QueueBenchmark.offer_threads_4.json").contains("\"parameters\":\"threads=4\"") );
+    }
+
+    @Test
+    public void includePattern_expectOnlyMatchingBenchmarksReported() throws IOException {
+        record( "a.QueueBenchmark", "offer", 1000L, 10 );
+        record( "a.MapBenchmark",   "get",   1000L, 10 );
+
+        List<BenchmarkSeries> series = BenchmarkReportMain.parseArgs( args("json", "--include", "Map") ).loadSeries();
+
+        assertEquals( 1, series.size() );
+        assertEquals( "get", series.get(0).getMethodName() );
+    }
+
+    @Test
+    public void runsTaggedWithCommits_expectCommitChangesMarkedAndDescribed() throws IOException {
+        File changeLog = new File( outputDir, "changes.csv" );
+        Files.write( changeLog.toPath(), "# id,description\naaaaaaa,\"Initial queue\"\nbbbbbbbbbb,Lock free queue\n".getBytes("UTF-8") );
+
+        recordAt( "aaaaaaaaaaaa", 1000L, 20 );
+        recordAt( "aaaaaaaaaaaa", 2000L, 21 );
+        recordAt( "bbbbbbbbbbbb", 3000L, 10 );
+
+        BenchmarkReportMain.parseArgs( args("html,json", "--changelog", changeLog.getPath()) ).generate();
+
+        String html = read( "index.html" );
+        String json = read( "a.QueueBenchmark.offer.json" );
+
+        assertEquals( 1, countOccurrences(html, "stroke-dasharray") );
+        assertTrue( html.contains("bbbbbbbbbbbb Lock free queue") );
+        assertTrue( html.contains("<td>Initial queue</td>") );
+        assertTrue( json, json.contains("\"commit\":\"bbbbbbbbbbbb\"},\"change\":\"Lock free queue\"") );
+    }
+
+    @Test
+    public void textChangeLog_expectAbbreviatedIdsToMatch() throws IOException {
+        File changeLog = new File( outputDir, "changes.txt" );
+        Files.write( changeLog.toPath(), "abc1234 Fix the thing\n\ndef5678\tTabbed\n".getBytes("UTF-8") );
+
+        ChangeLog changes = new TextChangeLog( changeLog );
+
+        assertEquals( "Fix the thing", changes.describe("abc1234ffffffff") );
+        assertEquals( "Tabbed", changes.describe("def5678") );
+        assertNull( changes.describe("0000000") );
+        assertNull( changes.describe(null) );
+    }
+
+    @Test
+    public void customRenderer_expectRendererToBeInstantiatedByClassName() {
+        assertTrue( BenchmarkReportMain.createRenderer(JsonReportRenderer.class.getName()) instanceof JsonReportRenderer );
+    }
+
+    @Test( expected=IllegalArgumentException.class )
+    public void unknownFormat_expectException() {
+        BenchmarkReportMain.createRenderer( "pdf" );
+    }
+
+    @Test
+    public void jsonWriter_expectStringsToBeEscaped() {
+        String json = new JsonWriter().beginArray().value( "a\"b\\c\n\u0001" ).value( Double.NaN ).endArray().toString();
+
+        assertEquals( "[\"a\\\"b\\\\c\\n\\u0001\",null]", json );
+    }
+
+
+    private String[] args( String format, String...extra ) {
+        List<String> args = new ArrayList<>( Arrays.asList("--history", historyDir.getPath(), "--out", outputDir.getPath(), "--format", format) );
+        args.addAll( Arrays.asList(extra) );
+
+        return args.toArray( new String[args.size()] );
+    }
+
+    private void record( String className, String methodName, long timestamp, double...batches ) throws IOException {
+        history.append( new BenchmarkRecord(timestamp, className, methodName, "", Collections.<String,String>emptyMap(), batches, Collections.<String,Double>emptyMap()) );
+    }
+
+    private void recordWith( String parameters, long timestamp, double...batches ) throws IOException {
+        history.append( new BenchmarkRecord(timestamp, "a.QueueBenchmark", "offer", parameters, Collections.<String,String>emptyMap(), batches, Collections.<String,Double>emptyMap()) );
+    }
+
+    private void recordAt( String commitId, long timestamp, double...batches ) throws IOException {
+        history.append( new BenchmarkRecord(timestamp, "a.QueueBenchmark", "offer", "", Collections.singletonMap(BenchmarkRecord.TAG_COMMIT, commitId), batches, Collections.<String,Double>emptyMap()) );
+    }
+
+    private String read( String fileName ) throws IOException {
+        return new String( Files.readAllBytes(new File(outputDir, fileName).toPath()), "UTF-8" );
+    }
+
+    private static int countOccurrences( String text, String target ) {
+        int count = 0;
+
+        for ( int i=text.indexOf(target); i >= 0; i=text.indexOf(target, i+1) ) {
+            count++;
+        }
+
+        return count;
+    }
+
+}
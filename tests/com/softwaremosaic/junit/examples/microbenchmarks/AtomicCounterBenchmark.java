@@ -0,0 +1,28 @@
+package com.softwaremosaic.junit.examples.microbenchmarks;
+
+import com.softwaremosaic.junit.JUnitMosaicRunner;
+import com.softwaremosaic.junit.annotations.Benchmark;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shows how a benchmark of code that is shared between threads can be run at several levels of
+ * concurrency, to see where its throughput stops scaling.
+ */
+@RunWith(JUnitMosaicRunner.class)
+public class AtomicCounterBenchmark {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Every thread increments the same counter, so the threads contend for the same cache line and
+     * adding threads adds little (if any) throughput.  The report for each thread count is followed by
+     * a table of ops/sec, speedup and efficiency.
+     */
+    @Benchmark( threads={1,2,4}, units="increment" )
+    public long sharedCounter() {
+        return counter.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.softwaremosaic.junit.examples.microbenchmarks;
+
+import com.softwaremosaic.junit.JUnitMosaicRunner;
+import com.softwaremosaic.junit.annotations.Benchmark;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shows how a benchmark can be run against several sizes of data, to see how its cost grows with
+ * size.  The runner creates a fresh instance for each size, sets the size field and then calls
+ * the @Before methods; which build the collections to match.
+ */
+@RunWith(JUnitMosaicRunner.class)
+public class CollectionLookupBenchmark {
+
+    private int           size;
+    private List<Integer> list;
+    private Set<Integer>  set;
+    private Integer       missing;
+
+    @Before
+    public void buildCollections() {
+        list    = new ArrayList<>( size );
+        set     = new HashSet<>( size*2 );
+        missing = -1;
+
+        for ( int i=0; i<size; i++ ) {
+            list.add( i );
+            set.add( i );
+        }
+    }
+
+    /**
+     * A linear scan; the growth column of the report approaches 1.
+     */
+    @Benchmark( value=Benchmark.AUTO, sizes={10,1000,100000}, units="lookup" )
+    public boolean listContains() {
+        return list.contains( missing );
+    }
+
+    /**
+     * A hash lookup; the growth column of the report stays close to 0.
+     */
+    @Benchmark( value=Benchmark.AUTO, sizes={10,1000,100000}, units="lookup" )
+    public boolean setContains() {
+        return set.contains( missing );
+    }
+
+    /**
+     * To find out whether the hash lookup was inlined, or was deoptimised part way through the run, the
+     * benchmark can be run in a forked JVM that logs its JIT compilations.  The report summarises how the
+     * methods selected by jitLogInclude were compiled, and which calls the JIT failed to inline.
+     */
+    @Benchmark( value=Benchmark.AUTO, sizes={1000}, logJit=true, jitLogInclude="CollectionLookupBenchmark::|java\\.util\\.HashMap::", units="lookup" )
+    public boolean setContains_withJitLog() {
+        return set.contains( missing );
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.softwaremosaic.junit.examples.microbenchmarks;
+
+import com.softwaremosaic.junit.JUnitMosaicRunner;
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.annotations.BenchmarkSetup;
+import com.softwaremosaic.junit.annotations.Level;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shows how benchmarks that consume or modify their state can be given fresh state, without the cost
+ * of preparing that state being timed.
+ */
+@RunWith(JUnitMosaicRunner.class)
+public class FreshStateBenchmark {
+
+    private static final int QUEUE_SIZE = 1000000;
+
+    private final ArrayDeque<Integer> queue    = new ArrayDeque<>( QUEUE_SIZE );
+    private final int[]               shuffled = new int[1000];
+    private final int[]               values   = new int[1000];
+
+    @BenchmarkSetup( Level.TRIAL )
+    public void shuffleValues() {
+        Random random = new Random( 42 );
+
+        for ( int i=0; i<shuffled.length; i++ ) {
+            shuffled[i] = random.nextInt();
+        }
+    }
+
+    /**
+     * Fills the queue before every batch, so that every batch polls QUEUE_SIZE entries from a full queue.
+     */
+    @BenchmarkSetup( Level.BATCH )
+    public void fillQueue() {
+        queue.clear();
+
+        for ( int i=0; i<QUEUE_SIZE; i++ ) {
+            queue.add( i );
+        }
+    }
+
+    /**
+     * Sorting sorted values is much cheaper than sorting shuffled values, so every call must be given
+     * the shuffled values afresh.
+     */
+    @BenchmarkSetup( Level.INVOCATION )
+    public void resetValues() {
+        System.arraycopy( shuffled, 0, values, 0, values.length );
+    }
+
+    @Benchmark( value=QUEUE_SIZE, units="poll" )
+    public Integer pollQueue() {
+        return queue.poll();
+    }
+
+    @Benchmark( value=1000, warmupBatches=10, units="sort of 1000 ints" )
+    public int[] sortValues() {
+        Arrays.sort( values );
+
+        return values;
+    }
+
+}
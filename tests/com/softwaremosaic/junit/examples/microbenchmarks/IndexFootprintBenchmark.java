@@ -0,0 +1,54 @@
+package com.softwaremosaic.junit.examples.microbenchmarks;
+
+import com.softwaremosaic.junit.JUnitMosaicRunner;
+import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shows how to measure the memory taken by a data structure, rather than just its speed.  In
+ * FOOTPRINT mode each benchmark returns the structure that it built, the report lists the bytes that
+ * it retains per element and the classes that take the most space, and the sizes table shows the
+ * marginal bytes of each extra element.  The benchmark instance is not counted, so data held by it
+ * (such as the keys below) is not charged to the structure.
+ */
+@RunWith(JUnitMosaicRunner.class)
+public class IndexFootprintBenchmark {
+
+    private int size;
+
+    /**
+     * Every entry costs a HashMap.Node, two boxed Integers (outside of the Integer cache) and a slot in
+     * the table.
+     */
+    @Benchmark( value=10, batchCount=3, mode=BenchmarkMode.FOOTPRINT, sizes={1000,100000}, units="index" )
+    public Map<Integer,Integer> hashMapIndex() {
+        Map<Integer,Integer> index = new HashMap<>();
+
+        for ( int i=0; i<size; i++ ) {
+            index.put( 1000+i, 1000+i*2 );
+        }
+
+        return index;
+    }
+
+    /**
+     * The same index as sorted primitive arrays, searched with Arrays.binarySearch; eight bytes per entry.
+     */
+    @Benchmark( value=10, batchCount=3, mode=BenchmarkMode.FOOTPRINT, sizes={1000,100000}, units="index" )
+    public int[][] sortedArrayIndex() {
+        int[] keys   = new int[size];
+        int[] values = new int[size];
+
+        for ( int i=0; i<size; i++ ) {
+            keys[i]   = 1000+i;
+            values[i] = 1000+i*2;
+        }
+
+        return new int[][] {keys, values};
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.softwaremosaic.junit.examples.microbenchmarks;
+
+import com.softwaremosaic.junit.JUnitMosaicRunner;
+import com.softwaremosaic.junit.annotations.Benchmark;
+import org.junit.runner.RunWith;
+
+/**
+ * Shows how to compare two implementations of the same operation.  Measuring them as two separate
+ * benchmarks, one after the other, favours whichever runs second (or first); the machine warms up, other
+ * processes come and go and the JIT's view of shared code changes.  compareWith interleaves the batches
+ * of both methods and reports the speedup, along with whether it is statistically significant.
+ */
+@RunWith(JUnitMosaicRunner.class)
+public class StringFormattingBenchmark {
+
+    private String name  = "batch";
+    private int    count = 42;
+
+    @Benchmark( value=Benchmark.AUTO, batchCount=10, warmupBatches=5, compareWith="stringFormat", units="message" )
+    public String stringBuilder() {
+        return new StringBuilder().append( name ).append( " #" ).append( count ).toString();
+    }
+
+    public String stringFormat() {
+        return String.format( "%s #%d", name, count );
+    }
+
+    /**
+     * To see where the time goes within a benchmark, profile=true samples its stack during the measured
+     * batches.  The hottest frames are included in the report and the full profile is written to a
+     * '.collapsed' file next to the benchmark's history, ready to be turned into a flame graph.
+     */
+    @Benchmark( value=Benchmark.AUTO, targetBatchMillis=500, profile=true, units="message" )
+    public String stringFormat_profiled() {
+        return stringFormat();
+    }
+
+}
@@ -1,7 +1,9 @@
 package com.softwaremosaic.junit.examples.microbenchmarks;
 
 import com.softwaremosaic.junit.annotations.Benchmark;
+import com.softwaremosaic.junit.annotations.BenchmarkMode;
 import com.softwaremosaic.junit.JUnitMosaicRunner;
+import com.softwaremosaic.junit.benchmark.Blackhole;
 import org.junit.runner.RunWith;
 
 /**
@@ -19,10 +21,21 @@ public class SystemTimeBenchmark {
         System.nanoTime();
     }
 
+    /**
+     * Rather than guessing how many iterations make a sensible batch, the framework can be asked to pick
+     * the iteration count.  It probes the method first and then sizes each batch to run for roughly
+     * targetBatchMillis.
+     */
+    @Benchmark( value=Benchmark.AUTO, targetBatchMillis=200, units="call to currentTimeMillis()" )
+    public void currentTimeMillisBenchmark_autoCalibrated() {
+        System.currentTimeMillis();
+    }
+
     /**
      * Optionally the iteration count may be passed in as a parameter, in which case
      * the framework will call the method once per batch run and let the method
-     * handle its own iteration. This avoids the overhead incurred by using reflection.
+     * handle its own iteration.  Methods without the parameter are called from a loop that is generated
+     * specifically for that method, so neither style pays for a reflective call per iteration.
      */
     @Benchmark
     public void nanoSecondBenchmark_avoidingReflectionOverhead( int numIterations) {
@@ -31,10 +44,67 @@ public class SystemTimeBenchmark {
         }
     }
 
+    /**
+     * A single warm up batch is rarely enough for the JIT to finish optimising a method.  This benchmark
+     * keeps warming up until the JVM's compilation time stops increasing between batches.  Any measured
+     * batch that overlaps with JIT compilation is flagged in the report.
+     */
+    @Benchmark( warmupBatches=3, warmupMillis=500, warmupUntilJitSettles=true )
+    public long nanoSecondBenchmark_warmedUpUntilJitSettles( int numIterations ) {
+        long sum = 0;
+
+        for ( int i=0; i<numIterations; i++ ) {
+            sum += System.nanoTime();
+        }
+
+        return sum;
+    }
+
+    /**
+     * Benchmarks run within the same JVM as every other test, which means that the JIT has already profiled
+     * and optimised shared code paths according to what ran before.  Forking runs the benchmark in fresh JVMs
+     * and reports the batches from every fork together.
+     */
+    @Benchmark( forks=2, jvmArgs={"-Xmx128m"}, units="call to nanoTime()" )
+    public long nanoTimeBenchmark_inForkedJvms() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Averages hide the occasional slow call.  Sampling the latency of every call reports the median and
+     * tail latencies, the 99.9th percentile and the slowest call, in addition to the mean.  Each sample
+     * includes the cost of the two calls to System.nanoTime() used to take it, so this mode is best
+     * suited to methods that are much slower than nanoTime() itself.
+     */
+    @Benchmark( value=100000, mode=BenchmarkMode.SAMPLE_LATENCY, units="call to currentTimeMillis()" )
+    public long currentTimeMillisBenchmark_sampledLatency() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Rather than running a fixed number of calls, each batch of a throughput benchmark calls the method
+     * over and over for targetBatchMillis and the report includes the number of calls per second.  The
+     * clock is only read between ever larger chunks of calls, roughly a thousand times per batch.
+     */
+    @Benchmark( mode=BenchmarkMode.THROUGHPUT, targetBatchMillis=1000, units="call to nanoTime()" )
+    public long nanoTimeBenchmark_throughput() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Benchmarks can fail the build when they become slower.  This benchmark fails if nanoTime() is significantly
+     * slower than 1us per call, significantly more than 50% slower than its recently recorded runs, or if it
+     * starts allocating on the heap.
+     */
+    @Benchmark( maxNanosPerCall=1000, maxRegressionPercent=50, maxBytesPerCall=0, units="call to nanoTime()" )
+    public long nanoTimeBenchmark_withRegressionLimits() {
+        return System.nanoTime();
+    }
+
     /**
      * The Java Runtime is very good at optimising methods.  If it can prove that a method has not effect, then it
      * will eliminate it.  To help avoid the removal of the function call that we are trying to make, have the method
-     * perform some work and return it.
+     * perform some work and return it.  Returned values are handed to a Blackhole, which the JIT cannot see through.
      */
     @Benchmark
     public long nanoSecondBenchmark_avoidingDeadCodeRemoval( int numIterations) {
@@ -47,4 +117,15 @@ public class SystemTimeBenchmark {
         return sum;
     }
 
+    /**
+     * When a benchmark produces several values, or when summing values would add work of its own to the
+     * measurement, declare a Blackhole parameter and consume each value into it.
+     */
+    @Benchmark
+    public void nanoSecondBenchmark_consumingIntoBlackhole( int numIterations, Blackhole blackhole ) {
+        for ( int i=0; i<numIterations; i++ ) {
+            blackhole.consume( System.nanoTime() );
+        }
+    }
+
 }